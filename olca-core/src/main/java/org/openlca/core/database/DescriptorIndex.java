@@ -0,0 +1,148 @@
+package org.openlca.core.database;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.descriptors.BaseDescriptor;
+import org.openlca.core.model.descriptors.CategorizedDescriptor;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.model.descriptors.ProcessDescriptor;
+import org.openlca.core.model.descriptors.ProductSystemDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * A shared index of the descriptors of a database. There is one index per
+ * database instance (see `of`) so that the calculations, exports, and the IPC
+ * server do not load the descriptors of all processes, flows, etc. for each
+ * request. The descriptors of a type are loaded on the first access and the
+ * index registers itself as listener of the database: when an entity of a
+ * type is inserted, updated, or deleted via the DAOs, the descriptors of that
+ * type are dropped and loaded again on the next access. Changes that bypass
+ * the DAOs (e.g. native SQL) require an explicit call of `clear`.
+ *
+ * The index stores the descriptor objects themselves and not a columnar
+ * layout from which descriptors are created on demand: the matrix builders
+ * look up a descriptor for each linked exchange and keep it in the matrix
+ * indices (e.g. in `ProcessProduct`), so creating descriptors on each access
+ * would allocate far more than it saves and the indices of different
+ * calculations could no longer share the same instances. Only the
+ * descriptions are not stored (these can be long texts and are not needed
+ * for linking or references; use the DAOs to get complete descriptors). The
+ * descriptors of the index are shared and must not be modified.
+ */
+public final class DescriptorIndex implements IDatabaseListener {
+
+	private static final Map<IDatabase, DescriptorIndex> indices = Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * The index is registered as listener in the database, thus, we should
+	 * not hold a strong reference to the database here.
+	 */
+	private final WeakReference<IDatabase> db;
+
+	private final Map<ModelType, TLongObjectHashMap<BaseDescriptor>> tables = new ConcurrentHashMap<>();
+
+	private DescriptorIndex(IDatabase db) {
+		this.db = new WeakReference<>(db);
+	}
+
+	/** Returns the shared descriptor index of the given database. */
+	public static DescriptorIndex of(IDatabase db) {
+		synchronized (indices) {
+			DescriptorIndex index = indices.get(db);
+			if (index != null)
+				return index;
+			index = new DescriptorIndex(db);
+			db.addListener(index);
+			indices.put(db, index);
+			return index;
+		}
+	}
+
+	/**
+	 * Returns the descriptor of the entity with the given type and ID or null
+	 * if it does not exist.
+	 */
+	public BaseDescriptor get(ModelType type, long id) {
+		if (type == null || type == ModelType.UNKNOWN)
+			return null;
+		return tables.computeIfAbsent(type, this::load).get(id);
+	}
+
+	public ProcessDescriptor getProcess(long id) {
+		return (ProcessDescriptor) get(ModelType.PROCESS, id);
+	}
+
+	public FlowDescriptor getFlow(long id) {
+		return (FlowDescriptor) get(ModelType.FLOW, id);
+	}
+
+	public ProductSystemDescriptor getProductSystem(long id) {
+		return (ProductSystemDescriptor) get(ModelType.PRODUCT_SYSTEM, id);
+	}
+
+	/**
+	 * Returns the descriptor of the process or product system (as a provider
+	 * of a sub-system) with the given ID.
+	 */
+	public CategorizedDescriptor getProvider(long id) {
+		ProcessDescriptor p = getProcess(id);
+		if (p != null)
+			return p;
+		return getProductSystem(id);
+	}
+
+	/** Drops all descriptors from this index. */
+	public void clear() {
+		tables.clear();
+	}
+
+	private TLongObjectHashMap<BaseDescriptor> load(ModelType type) {
+		TLongObjectHashMap<BaseDescriptor> table = new TLongObjectHashMap<>();
+		IDatabase database = db.get();
+		if (database == null)
+			return table;
+		RootEntityDao<?, ? extends BaseDescriptor> dao = Daos.root(
+				database, type);
+		if (dao == null)
+			return table;
+		log.trace("load descriptors of type {}", type);
+		for (BaseDescriptor d : dao.getDescriptors()) {
+			d.description = null;
+			table.put(d.id, d);
+		}
+		table.compact();
+		return table;
+	}
+
+	private void invalidate(BaseDescriptor d) {
+		if (d == null || d.type == null)
+			return;
+		tables.remove(d.type);
+	}
+
+	@Override
+	public void modelInserted(BaseDescriptor d) {
+		invalidate(d);
+	}
+
+	@Override
+	public void modelUpdated(BaseDescriptor d) {
+		invalidate(d);
+	}
+
+	@Override
+	public void modelDeleted(BaseDescriptor d) {
+		invalidate(d);
+	}
+}
@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openlca.core.model.AbstractEntity;
 import org.openlca.core.model.descriptors.ActorDescriptor;
@@ -41,7 +42,7 @@ import com.google.common.collect.Multimap;
 /**
  * A loading cache for entities and descriptors. This cache is intended to be
  * used for caching entities that are used very often (like unit groups or flow
- * properties) and descriptors.
+ * properties) and descriptors. The cache can be shared between threads.
  */
 public class EntityCache {
 
@@ -49,11 +50,23 @@ public class EntityCache {
 	private LoadingCache<Key, Object> cache;
 
 	public static EntityCache create(IDatabase database) {
-		return new EntityCache(database);
+		return new EntityCache(database, -1);
 	}
 
-	private EntityCache(IDatabase database) {
-		cache = CacheBuilder.newBuilder().build(new Loader(database));
+	/**
+	 * Creates a cache that holds at most the given number of entities and
+	 * descriptors; e.g. for caches that are shared over a long time.
+	 */
+	public static EntityCache create(IDatabase database, long maxSize) {
+		return new EntityCache(database, maxSize);
+	}
+
+	private EntityCache(IDatabase database, long maxSize) {
+		CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+		if (maxSize >= 0) {
+			builder.maximumSize(maxSize);
+		}
+		cache = builder.build(new Loader(database));
 	}
 
 	public <T> T get(Class<T> clazz, long id) {
@@ -146,7 +159,7 @@ public class EntityCache {
 
 		private Logger log = LoggerFactory.getLogger(getClass());
 		private final IDatabase database;
-		private final HashMap<Class<?>, BaseDao<?>> daos = new HashMap<>();
+		private final ConcurrentHashMap<Class<?>, BaseDao<?>> daos = new ConcurrentHashMap<>();
 		private final HashMap<Class<?>, RootEntityDao<?, ?>> descriptorDaos = new HashMap<>();
 
 		public Loader(IDatabase database) {
@@ -254,13 +267,10 @@ public class EntityCache {
 		}
 
 		private BaseDao<?> getDao(Class<? extends AbstractEntity> clazz) {
-			BaseDao<?> dao = daos.get(clazz);
-			if (dao == null) {
+			return daos.computeIfAbsent(clazz, c -> {
 				log.trace("register class {}", clazz);
-				dao = Daos.base(database, clazz);
-				daos.put(clazz, dao);
-			}
-			return dao;
+				return Daos.base(database, clazz);
+			});
 		}
 	}
 
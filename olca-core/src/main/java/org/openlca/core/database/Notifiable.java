@@ -1,13 +1,13 @@
 package org.openlca.core.database;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.openlca.core.model.descriptors.BaseDescriptor;
 
 public class Notifiable implements INotifiable {
 
-	private List<IDatabaseListener> listeners = new ArrayList<>();
+	private List<IDatabaseListener> listeners = new CopyOnWriteArrayList<>();
 
 	@Override
 	public void addListener(IDatabaseListener listener) {
@@ -27,9 +27,25 @@ public class CalculationSetup {
 	public AllocationMethod allocationMethod = AllocationMethod.NONE;
 	public final List<ParameterRedef> parameterRedefs = new ArrayList<>();
 
+	/**
+	 * If true, the direct contribution matrices of contribution and lazy full
+	 * results are stored in the compressed sparse column format. This saves a
+	 * lot of memory for large product systems as most processes only have a
+	 * few elementary flows (see {@link LcaCalculator#setSparseResults}).
+	 */
+	public boolean sparseResults = false;
+
 	/** Only valid for Monte Carlo Simulations */
 	public int numberOfRuns = -1;
 
+	/**
+	 * The seed of the random numbers in a Monte Carlo simulation. With the
+	 * same seed, a simulation generates the same numbers in each iteration
+	 * (also when it runs in parallel). When this is `null`, a random seed is
+	 * used.
+	 */
+	public Long seed;
+
 	// properties with default values from the product system
 	private Unit unit;
 	private FlowPropertyFactor flowPropertyFactor;
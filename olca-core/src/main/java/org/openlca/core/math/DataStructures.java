@@ -1,12 +1,13 @@
 package org.openlca.core.math;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
-import org.openlca.core.database.FlowDao;
+import org.openlca.core.database.DescriptorIndex;
 import org.openlca.core.database.IDatabase;
-import org.openlca.core.database.ProcessDao;
-import org.openlca.core.database.ProductSystemDao;
 import org.openlca.core.matrix.ImpactTable;
 import org.openlca.core.matrix.InventoryBuilder;
 import org.openlca.core.matrix.InventoryConfig;
@@ -16,20 +17,18 @@ import org.openlca.core.matrix.ParameterTable;
 import org.openlca.core.matrix.ProcessProduct;
 import org.openlca.core.matrix.TechIndex;
 import org.openlca.core.matrix.cache.MatrixCache;
+import org.openlca.core.matrix.cache.MatrixSnapshots;
 import org.openlca.core.matrix.solvers.IMatrixSolver;
 import org.openlca.core.model.Exchange;
 import org.openlca.core.model.FlowType;
+import org.openlca.core.model.ParameterRedef;
 import org.openlca.core.model.ProcessLink;
 import org.openlca.core.model.ProductSystem;
 import org.openlca.core.model.descriptors.CategorizedDescriptor;
 import org.openlca.core.model.descriptors.FlowDescriptor;
-import org.openlca.core.model.descriptors.ProcessDescriptor;
-import org.openlca.core.model.descriptors.ProductSystemDescriptor;
 import org.openlca.core.results.SimpleResult;
 import org.openlca.expressions.FormulaInterpreter;
 
-import gnu.trove.map.hash.TLongObjectHashMap;
-
 /**
  * Provides helper methods for creating matrix-like data structures that can be
  * used in calculations (but also exports, validations, etc.).
@@ -64,23 +63,12 @@ public class DataStructures {
 		}
 		index.setDemand(demand);
 
-		// initialize the fast descriptor maps
-		ProductSystemDao sysDao = new ProductSystemDao(db);
-		TLongObjectHashMap<ProductSystemDescriptor> systems = sysDao
-				.descriptorMap();
-		TLongObjectHashMap<ProcessDescriptor> processes = new ProcessDao(
-				db).descriptorMap();
-		TLongObjectHashMap<FlowDescriptor> flows = new FlowDao(
-				db).descriptorMap();
-
+		DescriptorIndex descriptors = DescriptorIndex.of(db);
 		for (ProcessLink link : system.processLinks) {
-			CategorizedDescriptor p = processes.get(link.providerId);
-			if (p == null) {
-				p = systems.get(link.providerId);
-				if (p == null)
-					continue;
-			}
-			FlowDescriptor flow = flows.get(link.flowId);
+			CategorizedDescriptor p = descriptors.getProvider(link.providerId);
+			if (p == null)
+				continue;
+			FlowDescriptor flow = descriptors.getFlow(link.flowId);
 			if (flow == null)
 				continue;
 
@@ -103,6 +91,22 @@ public class DataStructures {
 			MatrixCache mcache,
 			Map<ProcessProduct, SimpleResult> subResults) {
 
+		// try to load the data from a snapshot first
+		MatrixSnapshots snapshots = mcache.getSnapshots();
+		String key = null;
+		long stamp = 0;
+		if (snapshots != null
+				&& setup.type != CalculationType.MONTE_CARLO_SIMULATION
+				&& (subResults == null || subResults.isEmpty())) {
+			key = snapshotKey(setup);
+			stamp = snapshots.stamp();
+			MatrixData data = snapshots.get(key, solver);
+			if (data != null) {
+				data.techIndex.setDemand(setup.getDemandValue());
+				return data;
+			}
+		}
+
 		IDatabase db = mcache.getDatabase();
 		TechIndex techIndex = createProductIndex(setup.productSystem, db);
 		techIndex.setDemand(setup.getDemandValue());
@@ -113,6 +117,7 @@ public class DataStructures {
 		conf.allocationMethod = setup.allocationMethod;
 		conf.interpreter = interpreter;
 		conf.subResults = subResults;
+		conf.exchanges = mcache.getExchangeStore();
 		conf.withCosts = setup.withCosts;
 		conf.withUncertainties = setup.type == CalculationType.MONTE_CARLO_SIMULATION;
 		InventoryBuilder builder = new InventoryBuilder(conf);
@@ -125,11 +130,49 @@ public class DataStructures {
 					solver, interpreter);
 			data.impactIndex = impacts.impactIndex;
 		}
+		if (key != null) {
+			snapshots.put(key, stamp, data);
+		}
 		return data;
 	}
 
+	/**
+	 * Creates the key of the matrix snapshot of the given setup. It contains
+	 * everything of the setup that changes the matrices; the demand is set
+	 * when a snapshot is loaded.
+	 */
+	private static String snapshotKey(CalculationSetup setup) {
+		StringBuilder key = new StringBuilder();
+		key.append(setup.productSystem.id)
+				.append(';').append(setup.allocationMethod)
+				.append(';').append(setup.impactMethod == null
+						? -1
+						: setup.impactMethod.id)
+				.append(';').append(setup.withCosts);
+		List<String> redefs = new ArrayList<>();
+		for (ParameterRedef redef : setup.parameterRedefs) {
+			redefs.add(redef.contextId + "/" + redef.name + "="
+					+ Double.toString(redef.value));
+		}
+		Collections.sort(redefs);
+		for (String redef : redefs) {
+			key.append(';').append(redef);
+		}
+		return key.toString();
+	}
+
 	public static FormulaInterpreter interpreter(IDatabase db,
 			CalculationSetup setup, TechIndex techIndex) {
+		return parameterTable(db, setup, techIndex).getInterpreter();
+	}
+
+	/**
+	 * Creates the parameter table of the given setup. Other than the
+	 * interpreter that is returned by `interpreter`, the table can be used to
+	 * apply further parameter redefinitions, e.g. in a parameter sweep.
+	 */
+	public static ParameterTable parameterTable(IDatabase db,
+			CalculationSetup setup, TechIndex techIndex) {
 		// collect the process and LCIA method IDs; these
 		// are the possible contexts of local parameters
 		HashSet<Long> contexts = new HashSet<>();
@@ -139,7 +182,7 @@ public class DataStructures {
 		if (techIndex != null) {
 			contexts.addAll(techIndex.getProcessIds());
 		}
-		return ParameterTable.interpreter(
+		return ParameterTable.build(
 				db, contexts, setup.parameterRedefs);
 	}
 }
@@ -4,10 +4,13 @@ import org.openlca.core.matrix.CostVector;
 import org.openlca.core.matrix.MatrixData;
 import org.openlca.core.matrix.ProcessProduct;
 import org.openlca.core.matrix.TechIndex;
+import org.openlca.core.matrix.format.CSCMatrix;
 import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.solvers.Factorization;
 import org.openlca.core.matrix.solvers.IMatrixSolver;
 import org.openlca.core.results.ContributionResult;
 import org.openlca.core.results.FullResult;
+import org.openlca.core.results.LazyFullResult;
 import org.openlca.core.results.SimpleResult;
 
 /**
@@ -19,13 +22,42 @@ public class LcaCalculator {
 
 	private final IMatrixSolver solver;
 	private final MatrixData data;
+	private boolean sparseResults;
 
 	public LcaCalculator(IMatrixSolver solver, MatrixData data) {
 		this.solver = solver;
 		this.data = data;
 	}
 
+	/**
+	 * If set to true, the direct contributions of the processes and flows
+	 * (the matrices $\mathbf{G}$, $\mathbf{H}$, and $\mathbf{C} \
+	 * \text{diag}(\mathbf{g})$) of contribution and lazy full results are
+	 * calculated directly in the compressed sparse column format (see
+	 * {@link CSCMatrix}) instead of the matrix format of the solver. The
+	 * memory of these matrices then scales with the number of non-zero
+	 * entries and not with the number of flows times the number of processes.
+	 */
+	public void setSparseResults(boolean sparseResults) {
+		this.sparseResults = sparseResults;
+	}
+
 	public SimpleResult calculateSimple() {
+		Factorization lu = solver.factorize(data.techMatrix);
+		try {
+			return calculateSimple(lu);
+		} finally {
+			lu.dispose();
+		}
+	}
+
+	/**
+	 * Calculates a simple result using the given factorization of the
+	 * technology matrix. This is useful when further systems need to be solved
+	 * with the same technology matrix (e.g. in a simulation). The caller is
+	 * responsible for disposing the factorization.
+	 */
+	public SimpleResult calculateSimple(Factorization lu) {
 
 		SimpleResult result = new SimpleResult();
 		result.flowIndex = data.enviIndex;
@@ -34,7 +66,7 @@ public class LcaCalculator {
 		IMatrix techMatrix = data.techMatrix;
 		TechIndex productIndex = data.techIndex;
 		int idx = productIndex.getIndex(productIndex.getRefFlow());
-		double[] s = solver.solve(techMatrix, idx, productIndex.getDemand());
+		double[] s = lu.solve(idx, productIndex.getDemand());
 		result.scalingVector = s;
 		result.totalRequirements = getTotalRequirements(techMatrix, s);
 		IMatrix enviMatrix = data.enviMatrix;
@@ -53,6 +85,20 @@ public class LcaCalculator {
 	}
 
 	public ContributionResult calculateContributions() {
+		Factorization lu = solver.factorize(data.techMatrix);
+		try {
+			return calculateContributions(lu);
+		} finally {
+			lu.dispose();
+		}
+	}
+
+	/**
+	 * Calculates a contribution result using the given factorization of the
+	 * technology matrix. The caller is responsible for disposing the
+	 * factorization.
+	 */
+	public ContributionResult calculateContributions(Factorization lu) {
 
 		ContributionResult result = new ContributionResult();
 		result.flowIndex = data.enviIndex;
@@ -61,14 +107,12 @@ public class LcaCalculator {
 		IMatrix techMatrix = data.techMatrix;
 		TechIndex productIndex = data.techIndex;
 		int idx = productIndex.getIndex(productIndex.getRefFlow());
-		double[] s = solver.solve(techMatrix, idx, productIndex.getDemand());
+		double[] s = lu.solve(idx, productIndex.getDemand());
 		result.scalingVector = s;
 		result.totalRequirements = getTotalRequirements(techMatrix, s);
 
 		IMatrix enviMatrix = data.enviMatrix;
-		IMatrix singleResult = enviMatrix.copy();
-		solver.scaleColumns(singleResult, s);
-		result.directFlowResults = singleResult;
+		result.directFlowResults = directFlowResults(enviMatrix, s);
 		result.totalFlowResults = solver.multiply(enviMatrix, s);
 
 		if (data.impactMatrix != null) {
@@ -141,6 +185,63 @@ public class LcaCalculator {
 
 	}
 
+	/**
+	 * Calculates a full result without inverting the technology matrix. The
+	 * upstream results of the returned result are calculated on demand from a
+	 * factorization of the technology matrix. Thus, this is the better option
+	 * for large systems when only a few upstream results (e.g. the upstream
+	 * trees of some flows) are requested. The returned result should be
+	 * disposed when it is not needed anymore.
+	 */
+	public LazyFullResult calculateLazy() {
+
+		IMatrix techMatrix = data.techMatrix;
+		IMatrix enviMatrix = data.enviMatrix;
+		TechIndex productIdx = data.techIndex;
+		Factorization lu = solver.factorize(techMatrix);
+		LazyFullResult result = new LazyFullResult(solver, techMatrix, lu);
+		result.flowIndex = data.enviIndex;
+		result.techIndex = data.techIndex;
+
+		int refIdx = productIdx.getIndex(productIdx.getRefFlow());
+		double[] scalingVector = lu.solve(refIdx, productIdx.getDemand());
+		result.scalingVector = scalingVector;
+
+		// direct results
+		result.techMatrix = techMatrix.copy();
+		solver.scaleColumns(result.techMatrix, scalingVector);
+		result.directFlowResults = directFlowResults(
+				enviMatrix, scalingVector);
+		result.totalRequirements = getTotalRequirements(techMatrix,
+				scalingVector);
+		result.totalFlowResults = solver.multiply(enviMatrix, scalingVector);
+
+		// upstream results
+		result.loopFactor = getLoopFactor(
+				techMatrix, scalingVector, productIdx);
+		double[] demands = getRealDemands(
+				result.totalRequirements, result.loopFactor);
+		result.upstreamFlowResults = result.upstreamMatrix(
+				demands, enviMatrix);
+
+		if (data.impactMatrix != null) {
+			addTotalImpacts(result);
+			addDirectImpacts(result);
+			result.upstreamImpactResults = result.upstreamMatrix(
+					demands, data.impactMatrix, enviMatrix);
+		}
+
+		if (data.costVector != null) {
+			addTotalCosts(result, scalingVector);
+			addDirectCosts(result, scalingVector);
+			IMatrix costValues = CostVector.asMatrix(solver, data.costVector);
+			result.upstreamCostResults = result.upstreamMatrix(
+					demands, costValues);
+		}
+
+		return result;
+	}
+
 	/**
 	 * Calculates the scaling vector for the reference product i from the given
 	 * inverse of the technology matrix:
@@ -211,9 +312,33 @@ public class LcaCalculator {
 		result.totalImpactResults = totals;
 	}
 
+	/**
+	 * Calculates the direct contributions of the processes to the inventory
+	 * result: $\mathbf{G} = \mathbf{B} \ \text{diag}(\mathbf{s})$.
+	 */
+	private IMatrix directFlowResults(IMatrix enviMatrix, double[] s) {
+		if (sparseResults) {
+			CSCMatrix g = CSCMatrix.of(enviMatrix);
+			g.scaleColumns(s);
+			return g;
+		}
+		IMatrix g = enviMatrix.copy();
+		solver.scaleColumns(g, s);
+		return g;
+	}
+
 	private void addDirectImpacts(ContributionResult result) {
 		IMatrix factors = data.impactMatrix;
 		result.impactFactors = factors;
+		if (sparseResults
+				&& result.directFlowResults instanceof CSCMatrix) {
+			result.directImpactResults = CSCMatrix.multiply(
+					factors, (CSCMatrix) result.directFlowResults);
+			CSCMatrix flowImpacts = CSCMatrix.of(factors);
+			flowImpacts.scaleColumns(result.totalFlowResults);
+			result.directFlowImpacts = flowImpacts;
+			return;
+		}
 		IMatrix directResults = solver.multiply(factors,
 				result.directFlowResults);
 		result.directImpactResults = directResults;
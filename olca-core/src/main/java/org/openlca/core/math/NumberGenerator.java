@@ -1,10 +1,35 @@
 package org.openlca.core.math;
 
-import java.util.Random;
-
+import java.util.SplittableRandom;
+
+/**
+ * Generates random numbers of an uncertainty distribution. A number generator
+ * does not contain a random number source but takes the source as parameter.
+ * In a simulation, the same source is passed to all generators of an
+ * iteration so that the generated numbers are reproducible from the seed of
+ * that source.
+ */
 public abstract class NumberGenerator {
 
-	public abstract double next();
+	/**
+	 * The sources of the generators that are called without an explicit
+	 * source; one per thread as a `SplittableRandom` is not thread-safe.
+	 */
+	private static final ThreadLocal<SplittableRandom> defaultRandom = ThreadLocal
+			.withInitial(SplittableRandom::new);
+
+	/**
+	 * Generates the next number using the given random number source.
+	 */
+	public abstract double next(SplittableRandom random);
+
+	/**
+	 * Generates the next number using an unseeded, thread-local random number
+	 * source.
+	 */
+	public double next() {
+		return next(defaultRandom.get());
+	}
 
 	public static NumberGenerator normal(double mean, double standardDeviation) {
 		return new Normal(mean, standardDeviation);
@@ -33,19 +58,25 @@ public abstract class NumberGenerator {
 
 	private static class Normal extends NumberGenerator {
 
-		private final Random rand;
 		private final double mean;
 		private final double std;
 
 		Normal(double mean, double std) {
 			this.mean = mean;
 			this.std = std;
-			this.rand = new Random();
 		}
 
+		/**
+		 * Uses the Box-Muller transform; only one of the two generated values
+		 * is used so that the generator stays stateless.
+		 */
 		@Override
-		public double next() {
-			return rand.nextGaussian() * std + mean;
+		public double next(SplittableRandom random) {
+			double u1 = 1.0 - random.nextDouble(); // (0, 1]
+			double u2 = random.nextDouble();
+			double z = Math.sqrt(-2 * Math.log(u1))
+					* Math.cos(2 * Math.PI * u2);
+			return z * std + mean;
 		}
 	}
 
@@ -74,26 +105,24 @@ public abstract class NumberGenerator {
 		}
 
 		@Override
-		public double next() {
-			return Math.exp(normal.next()) * factor;
+		public double next(SplittableRandom random) {
+			return Math.exp(normal.next(random)) * factor;
 		}
 	}
 
 	private static class Uniform extends NumberGenerator {
 
-		private final Random rand;
 		private final double min;
 		private final double range;
 
 		Uniform(double min, double max) {
 			this.min = min;
 			this.range = max - min;
-			this.rand = new Random();
 		}
 
 		@Override
-		public double next() {
-			return min + rand.nextDouble() * range;
+		public double next(SplittableRandom random) {
+			return min + random.nextDouble() * range;
 		}
 	}
 
@@ -113,10 +142,10 @@ public abstract class NumberGenerator {
 		 * see http://en.wikipedia.org/wiki/Triangular_distribution
 		 */
 		@Override
-		public double next() {
+		public double next(SplittableRandom random) {
 			if (max == min)
 				return mode;
-			double u = Math.random();
+			double u = random.nextDouble();
 			double fMode = (mode - min) / (max - min);
 			if (u <= fMode)
 				return min + Math.sqrt(u * (max - min) * (mode - min));
@@ -133,7 +162,7 @@ public abstract class NumberGenerator {
 		}
 
 		@Override
-		public double next() {
+		public double next(SplittableRandom random) {
 			return val;
 		}
 
@@ -0,0 +1,188 @@
+package org.openlca.core.math;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.cache.MatrixCache;
+import org.openlca.core.matrix.solvers.IMatrixSolver;
+import org.openlca.core.results.SimulationResult;
+
+/**
+ * Runs a Monte Carlo simulation on multiple threads. A `Simulator` mutates its
+ * matrices, parameter tables, and uncertainty cells in each run. Thus, each
+ * worker thread gets its own simulator. The simulation graph (the nodes of the
+ * host- and sub-systems) is built only once from the database; the other
+ * workers get copies of it with their own matrices, parameter interpreters,
+ * and uncertainty cells while the indices are shared (see `Simulator.copy`).
+ *
+ * The iterations are executed in blocks: the workers take the next iteration
+ * of a block until all iterations of that block are done. The runs of a block
+ * are then appended to the simulation result in the order of their iteration
+ * numbers, which is independent from the worker that executed an iteration.
+ * All workers share the same seed and the random numbers of an iteration are
+ * derived from that seed and the iteration number. Thus, the result of a
+ * simulation with a given seed is the same for any number of workers.
+ */
+public class ParallelSimulator {
+
+	/**
+	 * The number of iterations per worker in a block.
+	 */
+	private static final int BLOCK_FACTOR = 16;
+
+	/**
+	 * A set of products for which upstream and direct contributions should be
+	 * tracked during the simulation (see `Simulator.pinnedProducts`).
+	 */
+	public final Set<ProcessProduct> pinnedProducts = new HashSet<>();
+
+	/**
+	 * An optional directory in which the simulation results are stored (see
+	 * `Simulator.resultDir`).
+	 */
+	public File resultDir;
+
+	private final List<Simulator> workers;
+	private int iteration;
+
+	private ParallelSimulator(List<Simulator> workers) {
+		this.workers = workers;
+	}
+
+	/**
+	 * Creates a parallel simulator with a worker for each available processor.
+	 */
+	public static ParallelSimulator create(
+			CalculationSetup setup,
+			MatrixCache mcache,
+			IMatrixSolver solver) {
+		int workers = Runtime.getRuntime().availableProcessors();
+		return create(setup, mcache, solver, workers);
+	}
+
+	public static ParallelSimulator create(
+			CalculationSetup setup,
+			MatrixCache mcache,
+			IMatrixSolver solver,
+			int workers) {
+		if (workers < 1)
+			throw new IllegalArgumentException(
+					"invalid number of workers: " + workers);
+		// the simulation graph is built only once; the other workers get
+		// copies of it
+		Simulator first = Simulator.create(setup, mcache, solver);
+		List<Simulator> list = new ArrayList<>(workers);
+		list.add(first);
+		for (int i = 1; i < workers; i++) {
+			list.add(first.copy());
+		}
+		return new ParallelSimulator(list);
+	}
+
+	/**
+	 * Returns the seed of the simulation (see `Simulator.getSeed()`).
+	 */
+	public long getSeed() {
+		return workers.get(0).seed;
+	}
+
+	/**
+	 * Returns the number of worker threads of this simulator.
+	 */
+	public int workers() {
+		return workers.size();
+	}
+
+	/**
+	 * Returns the number of iterations that were executed so far (including
+	 * the iterations that failed).
+	 */
+	public int iterations() {
+		return iteration;
+	}
+
+	/**
+	 * Get the result of the simulation. The workers do not append their runs
+	 * to their own results; thus, we can use the result of the first worker
+	 * as the result of the parallel simulation.
+	 */
+	public SimulationResult getResult() {
+		Simulator first = workers.get(0);
+		if (first.resultDir == null) {
+			first.resultDir = resultDir;
+		}
+		return first.getResult();
+	}
+
+	/**
+	 * Runs the given number of iterations and appends the results to the result
+	 * of this simulator in iteration order. Iterations that failed (e.g.
+	 * because of a singular matrix) are skipped like in the sequential
+	 * simulator. Returns the number of successful runs.
+	 */
+	public int run(int iterations) {
+		if (iterations <= 0)
+			return 0;
+		for (Simulator worker : workers) {
+			worker.pinnedProducts.clear();
+			worker.pinnedProducts.addAll(pinnedProducts);
+		}
+		SimulationResult result = getResult();
+		int blockSize = workers.size() * BLOCK_FACTOR;
+		int successful = 0;
+		ExecutorService pool = Executors.newFixedThreadPool(workers.size());
+		try {
+			for (int offset = 0; offset < iterations; offset += blockSize) {
+				int size = Math.min(blockSize, iterations - offset);
+				Simulator.Run[] runs = runBlock(pool, size);
+				for (Simulator.Run run : runs) {
+					if (run == null)
+						continue;
+					run.appendTo(result);
+					successful++;
+				}
+				iteration += size;
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		return successful;
+	}
+
+	private Simulator.Run[] runBlock(ExecutorService pool, int size) {
+		Simulator.Run[] runs = new Simulator.Run[size];
+		AtomicInteger next = new AtomicInteger();
+		List<Callable<Void>> tasks = new ArrayList<>(workers.size());
+		int first = iteration;
+		for (Simulator worker : workers) {
+			tasks.add(() -> {
+				int i;
+				while ((i = next.getAndIncrement()) < size) {
+					runs[i] = worker.run(first + i);
+				}
+				return null;
+			});
+		}
+		try {
+			for (Future<Void> f : pool.invokeAll(tasks)) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("simulation was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("simulation failed", e.getCause());
+		}
+		return runs;
+	}
+}
@@ -0,0 +1,212 @@
+package org.openlca.core.math;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.ImpactMethodDao;
+import org.openlca.core.database.NwSetDao;
+import org.openlca.core.matrix.ImpactTable;
+import org.openlca.core.matrix.InventoryBuilder;
+import org.openlca.core.matrix.InventoryConfig;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.ParameterTable;
+import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.TechIndex;
+import org.openlca.core.matrix.cache.MatrixCache;
+import org.openlca.core.matrix.solvers.Factorization;
+import org.openlca.core.matrix.solvers.IMatrixSolver;
+import org.openlca.core.model.ParameterRedef;
+import org.openlca.core.model.Project;
+import org.openlca.core.model.ProjectVariant;
+import org.openlca.core.model.descriptors.ImpactMethodDescriptor;
+import org.openlca.core.model.descriptors.NwSetDescriptor;
+import org.openlca.core.results.ProjectResult;
+import org.openlca.core.results.SimpleResult;
+import org.openlca.expressions.FormulaInterpreter;
+
+/**
+ * Calculates the variants of a project. The variants of a project often only
+ * differ in their parameter redefinitions and demand values. Thus, the
+ * variants with the same product system and allocation method are calculated
+ * in a batch: the matrix index and matrices are built only once and the
+ * matrix cells with formulas are then updated for the parameter redefinitions
+ * of the variants (see `FormulaCells`). The technology matrix is factorized
+ * once for each distinct set of parameter redefinitions and the variants with
+ * the same redefinitions (which only differ in their demand) are solved with
+ * that factorization.
+ */
+public class ProjectCalculator {
+
+	private final MatrixCache mcache;
+	private final IMatrixSolver solver;
+
+	public ProjectCalculator(MatrixCache mcache, IMatrixSolver solver) {
+		this.mcache = mcache;
+		this.solver = solver;
+	}
+
+	public ProjectResult calculate(Project project) {
+		ProjectResult result = new ProjectResult();
+		if (project == null)
+			return result;
+
+		// load the LCIA method and NW set
+		IDatabase db = mcache.getDatabase();
+		ImpactMethodDescriptor method = null;
+		if (project.impactMethodId != null) {
+			method = new ImpactMethodDao(db)
+					.getDescriptor(project.impactMethodId);
+		}
+		NwSetDescriptor nwSet = null;
+		if (project.nwSetId != null) {
+			nwSet = new NwSetDao(db).getDescriptor(project.nwSetId);
+		}
+
+		// group the variants by product system and allocation method
+		Map<String, List<ProjectVariant>> groups = new LinkedHashMap<>();
+		for (ProjectVariant v : project.variants) {
+			if (v.isDisabled || v.productSystem == null)
+				continue;
+			String key = v.productSystem.id + "/" + v.allocationMethod;
+			List<ProjectVariant> group = groups.get(key);
+			if (group == null) {
+				group = new ArrayList<>();
+				groups.put(key, group);
+			}
+			group.add(v);
+		}
+
+		SystemCalculator calc = new SystemCalculator(mcache, solver);
+		for (List<ProjectVariant> group : groups.values()) {
+			ProjectVariant first = group.get(0);
+			if (group.size() == 1 || first.productSystem.withoutNetwork) {
+				for (ProjectVariant v : group) {
+					CalculationSetup setup = setup(v, method, nwSet);
+					result.addResult(v, calc.calculateContributions(setup));
+				}
+				continue;
+			}
+			Batch batch = new Batch(calc, setup(first, method, nwSet));
+			for (List<ProjectVariant> variants : byRedefs(group)) {
+				batch.calculate(variants, result, method, nwSet);
+			}
+		}
+		return result;
+	}
+
+	private CalculationSetup setup(ProjectVariant v,
+			ImpactMethodDescriptor method, NwSetDescriptor nwSet) {
+		CalculationSetup setup = new CalculationSetup(
+				CalculationType.CONTRIBUTION_ANALYSIS,
+				v.productSystem);
+		setup.setUnit(v.unit);
+		setup.setFlowPropertyFactor(v.flowPropertyFactor);
+		setup.setAmount(v.amount);
+		setup.allocationMethod = v.allocationMethod;
+		setup.impactMethod = method;
+		setup.nwSet = nwSet;
+		setup.parameterRedefs.addAll(v.parameterRedefs);
+		setup.withCosts = true;
+		return setup;
+	}
+
+	/**
+	 * Groups the given variants by their parameter redefinitions.
+	 */
+	private Collection<List<ProjectVariant>> byRedefs(
+			List<ProjectVariant> variants) {
+		Map<String, List<ProjectVariant>> groups = new LinkedHashMap<>();
+		for (ProjectVariant v : variants) {
+			List<String> redefs = new ArrayList<>();
+			for (ParameterRedef redef : v.parameterRedefs) {
+				redefs.add(redef.contextId + "/"
+						+ redef.name.toLowerCase().trim() + "=" + redef.value);
+			}
+			redefs.sort(null);
+			String key = String.join(";", redefs);
+			List<ProjectVariant> group = groups.get(key);
+			if (group == null) {
+				group = new ArrayList<>();
+				groups.put(key, group);
+			}
+			group.add(v);
+		}
+		return groups.values();
+	}
+
+	/**
+	 * The matrix data of a group of variants with the same product system and
+	 * allocation method.
+	 */
+	private class Batch {
+
+		private final ParameterTable parameters;
+		private final MatrixData data;
+		private final ImpactTable impacts;
+
+		Batch(SystemCalculator calc, CalculationSetup base) {
+			IDatabase db = mcache.getDatabase();
+			base.parameterRedefs.clear();
+			Map<ProcessProduct, SimpleResult> subResults = calc
+					.calculateSubSystems(base);
+			TechIndex techIndex = DataStructures.createProductIndex(
+					base.productSystem, db);
+			parameters = DataStructures.parameterTable(db, base, techIndex);
+
+			InventoryConfig conf = new InventoryConfig(db, techIndex);
+			conf.allocationMethod = base.allocationMethod;
+			conf.interpreter = parameters.getInterpreter();
+			conf.subResults = subResults;
+			conf.exchanges = mcache.getExchangeStore();
+			conf.withCosts = base.withCosts;
+			conf.withFormulaCells = true;
+			data = new InventoryBuilder(conf).build();
+
+			impacts = base.impactMethod != null
+					? ImpactTable.build(mcache, base.impactMethod.id,
+							data.enviIndex)
+					: null;
+		}
+
+		/**
+		 * Calculates the given variants which have all the same parameter
+		 * redefinitions.
+		 */
+		void calculate(List<ProjectVariant> variants, ProjectResult result,
+				ImpactMethodDescriptor method, NwSetDescriptor nwSet) {
+			parameters.reset();
+			FormulaInterpreter interpreter = parameters.redef(
+					variants.get(0).parameterRedefs);
+			data.formulaCells.eval(data, interpreter);
+			if (impacts != null) {
+				// the impact matrix is referenced in the results; thus, we
+				// create a new one for each set of parameter redefinitions
+				data.impactMatrix = impacts.createMatrix(solver, interpreter);
+				data.impactIndex = impacts.impactIndex;
+			}
+			Factorization lu = solver.factorize(data.techMatrix);
+			try {
+				for (ProjectVariant v : variants) {
+					CalculationSetup setup = setup(v, method, nwSet);
+					MatrixData vdata = new MatrixData();
+					vdata.techIndex = data.techIndex.copy();
+					vdata.techIndex.setDemand(setup.getDemandValue());
+					vdata.enviIndex = data.enviIndex;
+					vdata.impactIndex = data.impactIndex;
+					vdata.techMatrix = data.techMatrix;
+					vdata.enviMatrix = data.enviMatrix;
+					vdata.impactMatrix = data.impactMatrix;
+					vdata.costVector = data.costVector;
+					LcaCalculator calc = new LcaCalculator(solver, vdata);
+					result.addResult(v, calc.calculateContributions(lu));
+				}
+			} finally {
+				lu.dispose();
+			}
+		}
+	}
+}
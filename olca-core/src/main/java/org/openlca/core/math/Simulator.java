@@ -1,5 +1,6 @@
 package org.openlca.core.math;
 
+import java.io.File;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -9,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.SplittableRandom;
 
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.NativeSql;
@@ -23,6 +25,7 @@ import org.openlca.core.matrix.ProcessProduct;
 import org.openlca.core.matrix.TechIndex;
 import org.openlca.core.matrix.cache.MatrixCache;
 import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.solvers.Factorization;
 import org.openlca.core.matrix.solvers.IMatrixSolver;
 import org.openlca.core.model.ModelType;
 import org.openlca.core.model.ProcessLink;
@@ -71,6 +74,13 @@ public class Simulator {
 	 */
 	public final Set<ProcessProduct> pinnedProducts = new HashSet<>();
 
+	/**
+	 * An optional directory in which the simulation results are stored (see
+	 * `SimulationResult`). If not set, the results are kept in memory. This
+	 * needs to be set before the first run.
+	 */
+	public File resultDir;
+
 	private final IMatrixSolver solver;
 
 	/**
@@ -99,6 +109,17 @@ public class Simulator {
 
 	private SimulationResult result;
 
+	/**
+	 * The seed from which the random number sources of the iterations are
+	 * derived.
+	 */
+	long seed;
+
+	/**
+	 * The number of the next iteration in `nextRun()`.
+	 */
+	private int iteration;
+
 	private Simulator(IMatrixSolver solver) {
 		this.solver = solver;
 	}
@@ -108,17 +129,62 @@ public class Simulator {
 			MatrixCache mcache,
 			IMatrixSolver solver) {
 		Simulator g = new Simulator(solver);
+		g.seed = setup.seed != null
+				? setup.seed
+				: new SplittableRandom().nextLong();
 		g.init(mcache, setup);
 		return g;
 	}
 
+	/**
+	 * Creates a copy of this simulator for another thread. The copy shares the
+	 * immutable parts of the simulation graph (the indices, number generators,
+	 * sub-system links) but has its own matrices, uncertainty cells, and
+	 * parameter interpreters so that both simulators can run in parallel.
+	 * The copy has the same seed but an own result.
+	 */
+	Simulator copy() {
+		Simulator copy = new Simulator(solver);
+		copy.seed = seed;
+		for (Node node : nodeIndex.values()) {
+			copy.nodeIndex.put(node.systemID, copy.new Node(node));
+		}
+		copy.root = copy.nodeIndex.get(root.systemID);
+		for (Node sub : subNodes) {
+			copy.subNodes.add(copy.nodeIndex.get(sub.systemID));
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns the seed of the simulation. Running a simulation with this
+	 * seed (see `CalculationSetup.seed`) produces the same numbers in each
+	 * iteration.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Creates the random number source of the given iteration. The source only
+	 * depends on the seed and the iteration number, so that an iteration
+	 * produces the same numbers independent from the thread that runs it and
+	 * the iterations that ran before. `split` creates a generator with an own
+	 * gamma value so that the streams of neighbouring iterations do not
+	 * overlap.
+	 */
+	static SplittableRandom random(long seed, int iteration) {
+		long start = seed + 0x9E3779B97F4A7C15L * iteration;
+		return new SplittableRandom(start).split();
+	}
+
 	/**
 	 * Get the result of the simulation.
 	 */
 	public SimulationResult getResult() {
 		if (result != null)
 			return result;
-		result = new SimulationResult(root.data);
+		result = new SimulationResult(root.data, resultDir);
 		return result;
 	}
 
@@ -142,19 +208,38 @@ public class Simulator {
 	 * (which you get via `getResult()`, so it does not need to be cached.
 	 */
 	public SimpleResult nextRun() {
+		Run run = run(iteration++);
+		if (run == null)
+			return null;
+		run.appendTo(getResult());
+		return run.result;
+	}
+
+	/**
+	 * Calculates the given iteration like `nextRun()` but does not append the
+	 * results to the result of this simulator. This is used by the
+	 * `ParallelSimulator` which collects the runs of multiple simulators in a
+	 * defined order.
+	 */
+	Run run(int iteration) {
+		Factorization lu = null;
 		try {
 
 			// generate the numbers and calculate the overall result
+			SplittableRandom random = random(seed, iteration);
 			for (Node sub : subNodes) {
-				generateData(sub);
+				generateData(sub, random);
 				LcaCalculator calc = new LcaCalculator(solver, sub.data);
 				sub.lastResult = calc.calculateSimple();
 			}
-			generateData(root);
+			generateData(root, random);
+
+			// the technology matrix of the root system is factorized only
+			// once and reused for the results of the pinned products
+			lu = solver.factorize(root.data.techMatrix);
 			LcaCalculator calc = new LcaCalculator(solver, root.data);
-			SimpleResult sr = calc.calculateSimple();
-			SimulationResult r = getResult();
-			r.append(sr);
+			SimpleResult sr = calc.calculateSimple(lu);
+			Run run = new Run(sr);
 
 			// calculate results of possible pinned products
 			for (ProcessProduct pinned : pinnedProducts) {
@@ -187,26 +272,32 @@ public class Simulator {
 				double loopFactor = LcaCalculator.getLoopFactor(
 						A, s, sr.techIndex);
 				fi *= loopFactor;
-				double[] su = solver.solve(A, idx, fi);
+				double[] su = lu.solve(idx, fi);
 				upstream.totalFlowResults = solver.multiply(B, su);
 				if (C != null) {
 					upstream.totalImpactResults = solver.multiply(
 							C, upstream.totalFlowResults);
 				}
 
-				r.append(pinned, direct, upstream);
+				run.pinned.add(pinned);
+				run.direct.add(direct);
+				run.upstream.add(upstream);
 			}
-			return sr;
+			return run;
 		} catch (Throwable e) {
 			Logger log = LoggerFactory.getLogger(this.getClass());
 			log.trace("simulation run failed", e);
 			return null;
+		} finally {
+			if (lu != null) {
+				lu.dispose();
+			}
 		}
 	}
 
-	private void generateData(Node node) {
-		FormulaInterpreter fi = node.parameters.simulate();
-		node.data.simulate(fi);
+	private void generateData(Node node, SplittableRandom random) {
+		FormulaInterpreter fi = node.parameters.simulate(random);
+		node.data.simulate(fi, random);
 
 		if (node.subSystems != null) {
 			for (ProcessProduct subLink : node.subSystems) {
@@ -231,7 +322,7 @@ public class Simulator {
 		}
 
 		if (node.impactTable != null) {
-			node.impactTable.simulate(node.data.impactMatrix, fi);
+			node.impactTable.simulate(node.data.impactMatrix, fi, random);
 		}
 	}
 
@@ -376,6 +467,27 @@ public class Simulator {
 		}
 	}
 
+	/**
+	 * Contains the results of a single simulation run.
+	 */
+	static class Run {
+		final SimpleResult result;
+		final List<ProcessProduct> pinned = new ArrayList<>();
+		final List<SimpleResult> direct = new ArrayList<>();
+		final List<SimpleResult> upstream = new ArrayList<>();
+
+		Run(SimpleResult result) {
+			this.result = result;
+		}
+
+		void appendTo(SimulationResult r) {
+			r.append(result);
+			for (int i = 0; i < pinned.size(); i++) {
+				r.append(pinned.get(i), direct.get(i), upstream.get(i));
+			}
+		}
+	}
+
 	/**
 	 * A node contains the data for the simulation of a single product (sub-)
 	 * system.
@@ -421,6 +533,19 @@ public class Simulator {
 							mcache, setup.impactMethod.id, data.enviIndex)
 					: null;
 		}
+
+		/** Creates a copy of the given node (see `Simulator.copy`). */
+		Node(Node other) {
+			systemID = other.systemID;
+			product = other.product;
+			data = other.data.copy();
+			parameters = other.parameters.copy();
+			impactTable = other.impactTable != null
+					? other.impactTable.copy()
+					: null;
+			subSystems = other.subSystems;
+			lastResult = other.lastResult;
+		}
 	}
 
 }
@@ -5,9 +5,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 
-import org.openlca.core.database.FlowDao;
-import org.openlca.core.database.ImpactMethodDao;
-import org.openlca.core.database.NwSetDao;
+import org.openlca.core.database.DescriptorIndex;
 import org.openlca.core.database.ProductSystemDao;
 import org.openlca.core.matrix.FastMatrixBuilder;
 import org.openlca.core.matrix.MatrixData;
@@ -17,13 +15,11 @@ import org.openlca.core.matrix.solvers.IMatrixSolver;
 import org.openlca.core.model.ProcessLink;
 import org.openlca.core.model.ProductSystem;
 import org.openlca.core.model.Project;
-import org.openlca.core.model.ProjectVariant;
 import org.openlca.core.model.descriptors.FlowDescriptor;
-import org.openlca.core.model.descriptors.ImpactMethodDescriptor;
-import org.openlca.core.model.descriptors.NwSetDescriptor;
 import org.openlca.core.model.descriptors.ProductSystemDescriptor;
 import org.openlca.core.results.ContributionResult;
 import org.openlca.core.results.FullResult;
+import org.openlca.core.results.LazyFullResult;
 import org.openlca.core.results.ProjectResult;
 import org.openlca.core.results.SimpleResult;
 import org.slf4j.Logger;
@@ -61,74 +57,54 @@ public class SystemCalculator {
 		return calculator(setup).calculateFull();
 	}
 
-	public ProjectResult calculate(Project project) {
-		ProjectResult result = new ProjectResult();
-		if (project == null)
-			return result;
-
-		// load the LCIA method and NW set
-		ImpactMethodDescriptor method = null;
-		if (project.impactMethodId != null) {
-			ImpactMethodDao dao = new ImpactMethodDao(
-					mcache.getDatabase());
-			method = dao.getDescriptor(project.impactMethodId);
-		}
-		NwSetDescriptor nwSet = null;
-		if (project.nwSetId != null) {
-			NwSetDao dao = new NwSetDao(mcache.getDatabase());
-			nwSet = dao.getDescriptor(project.nwSetId);
-		}
+	/**
+	 * Calculates a full result with upstream results that are calculated on
+	 * demand (see {@link LcaCalculator#calculateLazy()}).
+	 */
+	public LazyFullResult calculateLazy(CalculationSetup setup) {
+		log.trace("calculate product system - lazy full result");
+		return calculator(setup).calculateLazy();
+	}
 
-		// calculate the project variants
-		for (ProjectVariant v : project.variants) {
-			if (v.isDisabled)
-				continue;
-			CalculationSetup setup = new CalculationSetup(
-					CalculationType.CONTRIBUTION_ANALYSIS,
-					v.productSystem);
-			setup.setUnit(v.unit);
-			setup.setFlowPropertyFactor(v.flowPropertyFactor);
-			setup.setAmount(v.amount);
-			setup.allocationMethod = v.allocationMethod;
-			setup.impactMethod = method;
-			setup.nwSet = nwSet;
-			setup.parameterRedefs.addAll(v.parameterRedefs);
-			setup.withCosts = true;
-			ContributionResult cr = calculateContributions(setup);
-			result.addResult(v, cr);
-		}
-		return result;
+	/**
+	 * Calculates the variants of the given project (see
+	 * {@link ProjectCalculator}).
+	 */
+	public ProjectResult calculate(Project project) {
+		return new ProjectCalculator(mcache, solver).calculate(project);
 	}
 
 	private LcaCalculator calculator(CalculationSetup setup) {
 		MatrixData data;
 		if (setup.productSystem.withoutNetwork) {
-			data = new FastMatrixBuilder(mcache.getDatabase(), setup).build();
+			data = new FastMatrixBuilder(mcache, setup).build();
 		} else {
 			Map<ProcessProduct, SimpleResult> subs = calculateSubSystems(setup);
 			data = DataStructures.matrixData(setup, solver, mcache, subs);
 		}
-		return new LcaCalculator(solver, data);
+		LcaCalculator calc = new LcaCalculator(solver, data);
+		calc.setSparseResults(setup.sparseResults);
+		return calc;
 	}
 
 	/**
 	 * Calculates (recursively) the sub-systems of the product system of the
 	 * given setup. It returns an empty map when there are no subsystems.
 	 */
-	private Map<ProcessProduct, SimpleResult> calculateSubSystems(
+	Map<ProcessProduct, SimpleResult> calculateSubSystems(
 			CalculationSetup setup) {
 		if (setup == null || setup.productSystem == null)
 			return Collections.emptyMap();
 
 		// collect the sub-systems
 		HashSet<ProcessProduct> subSystems = new HashSet<>();
-		ProductSystemDao sysDao = new ProductSystemDao(mcache.getDatabase());
-		FlowDao flowDao = new FlowDao(mcache.getDatabase());
+		DescriptorIndex descriptors = DescriptorIndex.of(mcache.getDatabase());
 		for (ProcessLink link : setup.productSystem.processLinks) {
 			if (!link.isSystemLink)
 				continue;
-			ProductSystemDescriptor sys = sysDao.getDescriptor(link.providerId);
-			FlowDescriptor flow = flowDao.getDescriptor(link.flowId);
+			ProductSystemDescriptor sys = descriptors
+					.getProductSystem(link.providerId);
+			FlowDescriptor flow = descriptors.getFlow(link.flowId);
 			if (sys == null || flow == null) {
 				log.error("could not load descriptors of system link {}", link);
 				continue;
@@ -140,6 +116,7 @@ public class SystemCalculator {
 
 		// calculate the LCI results of the sub-systems
 		HashMap<ProcessProduct, SimpleResult> map = new HashMap<>();
+		ProductSystemDao sysDao = new ProductSystemDao(mcache.getDatabase());
 		for (ProcessProduct pp : subSystems) {
 			ProductSystem sys = sysDao.getForId(pp.id());
 			if (sys == null)
@@ -2,83 +2,169 @@ package org.openlca.core.math.data_quality;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
-import java.util.List;
 
+/**
+ * Aggregates the data quality values of a number of keys (e.g. the flows of a
+ * result) with primitive accumulators. The keys are the positions 0 ... n-1
+ * and the accumulators of a key $j$ and indicator $i$ are stored at the
+ * position $j * k + i$ in flat arrays, where $k$ is the number of indicators.
+ * In the exact mode, the products and sums of the weighted averages are
+ * calculated exactly with `BigDecimal` accumulators and the averages are
+ * divided with `MathContext.DECIMAL128`; thus, equal scores always give
+ * exactly that score, whatever the weights are.
+ */
 class Aggregation {
 
-	public static double[] applyTo(List<AggregationValue> values,
-			AggregationType type) {
-		if (values.isEmpty())
-			return null;
-		switch (type) {
-		case WEIGHTED_AVERAGE:
-			return weightedAverageOf(values, false);
-		case WEIGHTED_SQUARED_AVERAGE:
-			return weightedAverageOf(values, true);
-		case MAXIMUM:
-			return maximumOf(values);
-		default:
-			return null;
-		}
+	private final AggregationType type;
+	private final int k;
+	private final boolean exact;
+	private final boolean[] touched;
+
+	/** The weighted sums or the maximum values; not used in the exact mode. */
+	private final double[] sums;
+	private final double[] weights;
+
+	/** The exact sums and weights in the exact mode. */
+	private final BigDecimal[] exactSums;
+	private final BigDecimal[] exactWeights;
+
+	Aggregation(AggregationType type, int keys, int indicators,
+			boolean exact) {
+		this.type = type;
+		this.k = indicators;
+		this.exact = exact && type != AggregationType.MAXIMUM;
+		int n = keys * indicators;
+		touched = new boolean[keys];
+		sums = this.exact ? null : new double[n];
+		boolean weighted = type != AggregationType.MAXIMUM;
+		weights = weighted && !this.exact ? new double[n] : null;
+		exactSums = this.exact ? new BigDecimal[n] : null;
+		exactWeights = this.exact ? new BigDecimal[n] : null;
 	}
 
-	private static double[] weightedAverageOf(List<AggregationValue> values,
-			boolean squared) {
-		BigDecimal[] aggregated = new BigDecimal[values.get(0).values.length];
-		BigDecimal[] divisors = new BigDecimal[values.get(0).values.length];
-		for (AggregationValue value : values) {
-			for (int i = 0; i < value.values.length; i++) {
-				if (value.values[i] == 0)
-					continue;
-				BigDecimal factor = value.factor;
-				if (squared) {
-					factor = factor.pow(2);
-				}
-				BigDecimal result = new BigDecimal(value.values[i])
-						.multiply(factor);
-				if (aggregated[i] == null) {
-					aggregated[i] = result;
-					divisors[i] = factor;
-				} else {
-					aggregated[i] = aggregated[i].add(result);
-					divisors[i] = divisors[i].add(factor);
-				}
+	/**
+	 * Adds the given data quality values with the given factor to the
+	 * accumulators of the given key.
+	 */
+	void add(int key, double[] values, double factor) {
+		touched[key] = true;
+		int offset = key * k;
+		int n = Math.min(k, values.length);
+		if (type == AggregationType.MAXIMUM) {
+			for (int i = 0; i < n; i++) {
+				int pos = offset + i;
+				sums[pos] = Math.max(sums[pos], values[i]);
 			}
+			return;
 		}
-		double[] result = new double[aggregated.length];
-		for (int i = 0; i < aggregated.length; i++) {
-			if (aggregated == null || aggregated[i] == null
-					|| aggregated[i].doubleValue() == 0d)
-				continue;
-			if (divisors == null || divisors[i] == null
-					|| divisors[i].doubleValue() == 0d)
+		boolean squared = type == AggregationType.WEIGHTED_SQUARED_AVERAGE;
+		if (exact) {
+			addExact(offset, n, values, factor, squared);
+			return;
+		}
+		double w = squared ? factor * factor : factor;
+		for (int i = 0; i < n; i++) {
+			double v = values[i];
+			if (v == 0)
 				continue;
-			result[i] = aggregated[i]
-					.divide(divisors[i], MathContext.DECIMAL128).doubleValue();
+			int pos = offset + i;
+			sums[pos] += v * w;
+			weights[pos] += w;
 		}
-		return result;
 	}
 
-	private static double[] maximumOf(List<AggregationValue> values) {
-		double[] result = new double[values.get(0).values.length];
-		for (AggregationValue value : values) {
-			for (int i = 0; i < value.values.length; i++) {
-				result[i] = Math.max(result[i], value.values[i]);
+	private void addExact(int offset, int n, double[] values, double factor,
+			boolean squared) {
+		if (Double.isNaN(factor) || Double.isInfinite(factor))
+			return;
+		BigDecimal w = null;
+		for (int i = 0; i < n; i++) {
+			double v = values[i];
+			if (v == 0)
+				continue;
+			if (w == null) {
+				BigDecimal f = new BigDecimal(factor);
+				w = squared ? f.multiply(f) : f;
+			}
+			int pos = offset + i;
+			BigDecimal s = new BigDecimal(v).multiply(w);
+			if (exactSums[pos] == null) {
+				exactSums[pos] = s;
+				exactWeights[pos] = w;
+			} else {
+				exactSums[pos] = exactSums[pos].add(s);
+				exactWeights[pos] = exactWeights[pos].add(w);
 			}
 		}
-		return result;
 	}
 
-	static class AggregationValue {
-
-		private final double[] values;
-		private final BigDecimal factor;
+	/** Returns true if a value was added for the given key. */
+	boolean has(int key) {
+		return touched[key];
+	}
 
-		AggregationValue(double[] values, BigDecimal factor) {
-			this.values = values;
-			this.factor = factor;
+	/**
+	 * Returns the aggregated values of the given key or null if no value was
+	 * added for that key.
+	 */
+	double[] get(int key) {
+		if (!touched[key])
+			return null;
+		double[] result = new double[k];
+		int offset = key * k;
+		for (int i = 0; i < k; i++) {
+			int pos = offset + i;
+			if (type == AggregationType.MAXIMUM) {
+				result[i] = sums[pos];
+				continue;
+			}
+			if (exact) {
+				BigDecimal sum = exactSums[pos];
+				BigDecimal weight = exactWeights[pos];
+				if (sum == null || sum.signum() == 0 || weight.signum() == 0)
+					continue;
+				result[i] = sum.divide(weight, MathContext.DECIMAL128)
+						.doubleValue();
+				continue;
+			}
+			double sum = sums[pos];
+			double weight = weights[pos];
+			if (sum == 0 || weight == 0)
+				continue;
+			result[i] = snap(sum / weight);
 		}
+		return result;
+	}
 
+	/**
+	 * The scores are integers; a weighted average that is an integer except
+	 * for a rounding error of the naive summation is set to that integer as it
+	 * would otherwise change the result of a ceiling rounding. The price is
+	 * that a true average that is that close to an integer (e.g.
+	 * 3.0000000005) is also snapped. This is not needed in the exact mode
+	 * where the averages are calculated exactly.
+	 */
+	private static double snap(double v) {
+		double n = Math.rint(v);
+		return Math.abs(v - n) < 1e-9 ? n : v;
 	}
 
+	/** Clears the accumulators of the given key. */
+	void reset(int key) {
+		touched[key] = false;
+		int offset = key * k;
+		for (int i = 0; i < k; i++) {
+			int pos = offset + i;
+			if (sums != null) {
+				sums[pos] = 0;
+			}
+			if (weights != null) {
+				weights[pos] = 0;
+			}
+			if (exact) {
+				exactSums[pos] = null;
+				exactWeights[pos] = null;
+			}
+		}
+	}
 }
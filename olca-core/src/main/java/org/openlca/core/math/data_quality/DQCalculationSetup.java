@@ -13,4 +13,15 @@ public class DQCalculationSetup {
 	public DQSystem processDqSystem;
 	public DQSystem exchangeDqSystem;
 
+	/**
+	 * Calculate the weighted averages exactly (see `Aggregation`). This is
+	 * the default. Without it, a faster floating point summation is used where
+	 * averages that are close to an integer are snapped to that integer, which
+	 * can change the rounded scores in rare cases.
+	 */
+	public boolean exactSums = true;
+
+	/** Aggregate the values of the impact categories in parallel. */
+	public boolean parallel;
+
 }
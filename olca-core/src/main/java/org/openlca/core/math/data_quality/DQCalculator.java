@@ -1,125 +1,325 @@
 package org.openlca.core.math.data_quality;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import org.openlca.core.math.data_quality.Aggregation.AggregationValue;
 import org.openlca.core.matrix.LongPair;
-import org.openlca.core.model.descriptors.CategorizedDescriptor;
-import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.matrix.format.IMatrix;
 import org.openlca.core.results.ContributionResult;
 
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * Aggregates the data quality values of the exchanges with the direct
+ * contributions of a result. Only the non-zero direct flow results with data
+ * quality values are visited: these are collected first as cells (process,
+ * flow, absolute result, data quality values) in primitive arrays which are
+ * then aggregated per flow and per impact category.
+ */
 class DQCalculator {
 
-	private final Map<Long, List<AggregationValue>> flowAggregations = new HashMap<>();
-	private final Map<Long, List<AggregationValue>> impactAggregations = new HashMap<>();
-	private final Map<LongPair, List<AggregationValue>> impactAggregationsPerFlow = new HashMap<>();
-	private final Map<LongPair, List<AggregationValue>> impactAggregationsPerProcess = new HashMap<>();
 	private final ContributionResult result;
 	private final DQData data;
 	private final DQCalculationSetup setup;
+	private final int indicators;
+
+	private final Map<Long, double[]> flowValues = new HashMap<>();
+	private final Map<Long, double[]> impactValues = new HashMap<>();
+	private final Map<LongPair, double[]> impactValuesPerFlow = new HashMap<>();
+	private final Map<LongPair, double[]> impactValuesPerProcess = new HashMap<>();
+
+	/** The process IDs of the cells. */
+	private final TLongArrayList processes = new TLongArrayList();
+
+	// the cells, ordered by process
+	private final TIntArrayList cellProcesses = new TIntArrayList();
+	private final TIntArrayList cellFlows = new TIntArrayList();
+	private final TDoubleArrayList cellResults = new TDoubleArrayList();
+	private final List<double[]> cellValues = new ArrayList<>();
 
 	DQCalculator(ContributionResult result, DQData data,
 			DQCalculationSetup setup) {
 		this.result = result;
 		this.data = data;
 		this.setup = setup;
+		this.indicators = setup.exchangeDqSystem.indicators.size();
 	}
 
 	void calculate() {
-		for (CategorizedDescriptor process : result.getProcesses()) {
-			for (FlowDescriptor flow : result.getFlows()) {
-				addValues(process, flow);
-			}
-		}
-	}
-
-	private void addValues(CategorizedDescriptor process, FlowDescriptor flow) {
-		double[] dqValues = data.exchangeData.get(
-				LongPair.of(process.id, flow.id));
-		double flowVal = Math.abs(result.getDirectFlowResult(process, flow));
-		BigDecimal flowResult = new BigDecimal(flowVal);
-		if (dqValues == null || flowResult.equals(BigDecimal.ZERO))
+		if (!result.hasFlowResults())
 			return;
-		addValue(flowAggregations, flow.id, flowResult, dqValues);
+		collectCells();
+		aggregateFlows();
 		if (!result.hasImpactResults())
 			return;
-		addImpactValues(process.id, flow.id, flowResult, dqValues);
+		if (setup.parallel && result.impactIndex.size() > 1) {
+			aggregateImpactsParallel();
+		} else {
+			for (int i = 0; i < result.impactIndex.size(); i++) {
+				new ImpactTask(i).call().addTo();
+			}
+		}
 	}
 
-	private void addImpactValues(long processId, long flowId,
-			BigDecimal flowResult, double[] dqValues) {
-		for (long impactId : result.impactIndex.ids()) {
-			double impactFactor = getImpactFactor(result, impactId, flowId);
-			if (impactFactor == 0d)
+	private void collectCells() {
+		TLongObjectHashMap<TLongObjectHashMap<double[]>> dqValues = dqValues();
+		TLongObjectHashMap<TIntArrayList> columns = new TLongObjectHashMap<>();
+		TLongArrayList processIds = new TLongArrayList();
+		result.techIndex.each((col, provider) -> {
+			TIntArrayList list = columns.get(provider.id());
+			if (list == null) {
+				list = new TIntArrayList(1);
+				columns.put(provider.id(), list);
+				processIds.add(provider.id());
+			}
+			list.add(col);
+		});
+
+		IMatrix g = result.directFlowResults;
+		int flowCount = result.flowIndex.size();
+		double[] buffer = null;
+		boolean[] marked = null;
+		TIntArrayList rows = new TIntArrayList();
+		for (int p = 0; p < processIds.size(); p++) {
+			long processId = processIds.get(p);
+			TLongObjectHashMap<double[]> values = dqValues.get(processId);
+			if (values == null)
 				continue;
-			BigDecimal factor = flowResult
-					.multiply(new BigDecimal(impactFactor));
-			addValue(impactAggregations, impactId, factor, dqValues);
-			addValue(impactAggregationsPerFlow, new LongPair(flowId, impactId),
-					factor, dqValues);
-			addValue(impactAggregationsPerProcess,
-					new LongPair(processId, impactId), factor, dqValues);
+			int pos = processes.size();
+			processes.add(processId);
+			TIntArrayList cols = columns.get(processId);
+
+			// a process with a single product: take the column directly
+			if (cols.size() == 1) {
+				g.iterateColumn(cols.get(0),
+						(row, col, val) -> addCell(pos, row, val, values));
+				continue;
+			}
+
+			// a multi-output process: sum up the columns of its products
+			if (buffer == null) {
+				buffer = new double[flowCount];
+				marked = new boolean[flowCount];
+			}
+			double[] sums = buffer;
+			boolean[] isMarked = marked;
+			for (int i = 0; i < cols.size(); i++) {
+				g.iterateColumn(cols.get(i), (row, col, val) -> {
+					sums[row] += val;
+					if (!isMarked[row]) {
+						isMarked[row] = true;
+						rows.add(row);
+					}
+				});
+			}
+			rows.sort();
+			for (int i = 0; i < rows.size(); i++) {
+				int row = rows.get(i);
+				addCell(pos, row, sums[row], values);
+				sums[row] = 0;
+				isMarked[row] = false;
+			}
+			rows.resetQuick();
 		}
 	}
 
-	private <T> void addValue(Map<T, List<AggregationValue>> map, T key,
-			BigDecimal factor, double[] dqValues) {
-		List<AggregationValue> list = safeGetList(key, map);
+	private void addCell(int process, int flow, double value,
+			TLongObjectHashMap<double[]> values) {
+		double v = Math.abs(value);
+		if (v == 0)
+			return;
+		double[] dq = values.get(result.flowIndex.idAt(flow));
+		if (dq == null)
+			return;
+		cellProcesses.add(process);
+		cellFlows.add(flow);
+		cellResults.add(v);
+		cellValues.add(dq);
+	}
+
+	/**
+	 * Returns the data quality values of the exchanges as (process ID -> flow
+	 * ID -> values) map. When n.a. values should not be excluded, they are
+	 * replaced with the maximum score in copies of the original values.
+	 */
+	private TLongObjectHashMap<TLongObjectHashMap<double[]>> dqValues() {
+		TLongObjectHashMap<TLongObjectHashMap<double[]>> map = new TLongObjectHashMap<>();
+		boolean useMax = setup.processingType != ProcessingType.EXCLUDE;
 		int max = setup.exchangeDqSystem.getScoreCount();
-		for (int i = 0; i < dqValues.length; i++) {
-			double v = dqValues[i];
-			if (v != 0d || setup.processingType == ProcessingType.EXCLUDE)
-				continue;
-			dqValues[i] = max;
-		}
-		list.add(new AggregationValue(dqValues, factor));
+		data.exchangeData.forEach((key, values) -> {
+			if (key == null || values == null)
+				return;
+			double[] v = values;
+			if (useMax) {
+				v = values.clone();
+				for (int i = 0; i < v.length; i++) {
+					if (v[i] == 0) {
+						v[i] = max;
+					}
+				}
+			}
+			TLongObjectHashMap<double[]> flows = map.get(key.first);
+			if (flows == null) {
+				flows = new TLongObjectHashMap<>();
+				map.put(key.first, flows);
+			}
+			flows.put(key.second, v);
+		});
+		return map;
 	}
 
-	Map<Long, double[]> getFlowValues() {
-		return aggregate(flowAggregations);
+	private Aggregation aggregation(int keys) {
+		return new Aggregation(setup.aggregationType, keys, indicators,
+				setup.exactSums);
 	}
 
-	Map<Long, double[]> getImpactValues() {
-		return aggregate(impactAggregations);
+	private void aggregateFlows() {
+		int flowCount = result.flowIndex.size();
+		Aggregation flows = aggregation(flowCount);
+		for (int c = 0; c < cellFlows.size(); c++) {
+			flows.add(cellFlows.getQuick(c), cellValues.get(c),
+					cellResults.getQuick(c));
+		}
+		for (int flow = 0; flow < flowCount; flow++) {
+			if (flows.has(flow)) {
+				flowValues.put(result.flowIndex.idAt(flow), flows.get(flow));
+			}
+		}
 	}
 
-	Map<LongPair, double[]> getImpactPerProcessValues() {
-		return aggregate(impactAggregationsPerProcess);
+	private void aggregateImpactsParallel() {
+		int impactCount = result.impactIndex.size();
+		int threads = Math.min(impactCount,
+				Runtime.getRuntime().availableProcessors());
+		List<Callable<ImpactValues>> tasks = new ArrayList<>(impactCount);
+		for (int i = 0; i < impactCount; i++) {
+			tasks.add(new ImpactTask(i));
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			for (Future<ImpactValues> f : pool.invokeAll(tasks)) {
+				f.get().addTo();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(
+					"data quality calculation was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(
+					"data quality calculation failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
 	}
 
-	Map<LongPair, double[]> getImpactPerFlowValues() {
-		return aggregate(impactAggregationsPerFlow);
+	/**
+	 * Aggregates the data quality values of a single impact category. The
+	 * tasks only read the cells of the calculator and can run in parallel.
+	 */
+	private class ImpactTask implements Callable<ImpactValues> {
+
+		private final int impact;
+
+		ImpactTask(int impact) {
+			this.impact = impact;
+		}
+
+		@Override
+		public ImpactValues call() {
+			ImpactValues r = new ImpactValues(
+					result.impactIndex.idAt(impact));
+			double[] factors = result.impactFactors.getRow(impact);
+			Aggregation total = aggregation(1);
+			Aggregation perFlow = aggregation(factors.length);
+			Aggregation perProcess = aggregation(1);
+			int process = -1;
+			for (int c = 0; c < cellFlows.size(); c++) {
+				int flow = cellFlows.getQuick(c);
+				double factor = factors[flow];
+				if (factor == 0)
+					continue;
+				int p = cellProcesses.getQuick(c);
+				if (p != process) {
+					r.putProcess(process, perProcess);
+					process = p;
+				}
+				double[] dq = cellValues.get(c);
+				double w = cellResults.getQuick(c) * factor;
+				total.add(0, dq, w);
+				perFlow.add(flow, dq, w);
+				perProcess.add(0, dq, w);
+			}
+			r.putProcess(process, perProcess);
+			r.total = total.get(0);
+			for (int flow = 0; flow < factors.length; flow++) {
+				if (perFlow.has(flow)) {
+					r.perFlow.put(result.flowIndex.idAt(flow),
+							perFlow.get(flow));
+				}
+			}
+			return r;
+		}
 	}
 
-	private <T> Map<T, double[]> aggregate(Map<T, List<AggregationValue>> map) {
-		Map<T, double[]> values = new HashMap<>();
-		for (T key : map.keySet()) {
-			List<AggregationValue> toAggregate = map.get(key);
-			double[] result = Aggregation.applyTo(toAggregate,
-					setup.aggregationType);
-			values.put(key, result);
+	/** The aggregated values of a single impact category. */
+	private class ImpactValues {
+
+		final long impactId;
+		double[] total;
+		final TLongObjectHashMap<double[]> perFlow = new TLongObjectHashMap<>();
+		final TLongObjectHashMap<double[]> perProcess = new TLongObjectHashMap<>();
+
+		ImpactValues(long impactId) {
+			this.impactId = impactId;
+		}
+
+		void putProcess(int process, Aggregation agg) {
+			if (process < 0 || !agg.has(0))
+				return;
+			perProcess.put(processes.get(process), agg.get(0));
+			agg.reset(0);
+		}
+
+		void addTo() {
+			if (total != null) {
+				impactValues.put(impactId, total);
+			}
+			perFlow.forEachEntry((flowId, values) -> {
+				impactValuesPerFlow.put(
+						LongPair.of(flowId, impactId), values);
+				return true;
+			});
+			perProcess.forEachEntry((processId, values) -> {
+				impactValuesPerProcess.put(
+						LongPair.of(processId, impactId), values);
+				return true;
+			});
 		}
-		return values;
 	}
 
-	private <T> List<AggregationValue> safeGetList(T key,
-			Map<T, List<AggregationValue>> map) {
-		List<AggregationValue> list = map.get(key);
-		if (list != null)
-			return list;
-		map.put(key, list = new ArrayList<>());
-		return list;
+	Map<Long, double[]> getFlowValues() {
+		return flowValues;
 	}
 
-	private double getImpactFactor(ContributionResult result, long impactId,
-			long flowId) {
-		int flowIndex = result.flowIndex.of(flowId);
-		int impactIndex = result.impactIndex.of(impactId);
-		return result.impactFactors.get(impactIndex, flowIndex);
+	Map<Long, double[]> getImpactValues() {
+		return impactValues;
 	}
 
+	Map<LongPair, double[]> getImpactPerProcessValues() {
+		return impactValuesPerProcess;
+	}
+
+	Map<LongPair, double[]> getImpactPerFlowValues() {
+		return impactValuesPerFlow;
+	}
 }
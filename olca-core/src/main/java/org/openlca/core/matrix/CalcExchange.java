@@ -40,6 +40,29 @@ public class CalcExchange {
 
 	public String costFormula;
 
+	/** Creates a copy of this exchange. */
+	public CalcExchange copy() {
+		CalcExchange c = new CalcExchange();
+		c.processId = processId;
+		c.flowId = flowId;
+		c.exchangeId = exchangeId;
+		c.isInput = isInput;
+		c.conversionFactor = conversionFactor;
+		c.amount = amount;
+		c.amountFormula = amountFormula;
+		c.uncertaintyType = uncertaintyType;
+		c.parameter1 = parameter1;
+		c.parameter2 = parameter2;
+		c.parameter3 = parameter3;
+		c.flowType = flowType;
+		c.defaultProviderId = defaultProviderId;
+		c.isAvoided = isAvoided;
+		c.costValue = costValue;
+		c.currencyFactor = currencyFactor;
+		c.costFormula = costFormula;
+		return c;
+	}
+
 	/**
 	 * Returns true when this exchange can be allocated to a product output or
 	 * waste input, thus it is either a product input, waste output, or
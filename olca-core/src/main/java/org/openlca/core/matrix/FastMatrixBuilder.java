@@ -1,14 +1,15 @@
 package org.openlca.core.matrix;
 
 import java.util.List;
+import java.util.function.Consumer;
 
+import org.openlca.core.database.DescriptorIndex;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.NativeSql;
-import org.openlca.core.database.ProcessDao;
 import org.openlca.core.math.CalculationSetup;
 import org.openlca.core.math.DataStructures;
+import org.openlca.core.matrix.cache.ExchangeStore;
 import org.openlca.core.matrix.cache.ExchangeTable;
-import org.openlca.core.matrix.cache.FlowTable;
 import org.openlca.core.matrix.cache.MatrixCache;
 import org.openlca.core.matrix.format.MatrixBuilder;
 import org.openlca.core.model.AllocationMethod;
@@ -18,7 +19,8 @@ import org.openlca.core.model.descriptors.ProcessDescriptor;
 import org.openlca.expressions.FormulaInterpreter;
 import org.openlca.julia.JuliaSolver;
 
-import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.impl.Constants;
+import gnu.trove.map.hash.TLongIntHashMap;
 
 /**
  * A fast matrix builder that skips the product system linking layer ...
@@ -27,7 +29,10 @@ public class FastMatrixBuilder {
 
 	private final IDatabase db;
 	private final CalculationSetup setup;
-	private final FlowTable flows;
+	private final DescriptorIndex descriptors;
+
+	/** Optional; if null, the exchanges are read from the database. */
+	private final ExchangeStore exchanges;
 
 	private AllocationIndex allocationIndex;
 	private TechIndex techIndex;
@@ -40,17 +45,31 @@ public class FastMatrixBuilder {
 
 	/**
 	 * A map that assigns the IDs of products and waste flows to their
-	 * respective providers. This map is initialized lazily when there are no
-	 * default providers on product inputs or waste outputs. In this case, this
-	 * matrix builder only works correctly when each product (waste) is only
-	 * produced (treated) by a single process in the database.
+	 * respective providers in the technology index. This map is initialized
+	 * lazily when there are no default providers on product inputs or waste
+	 * outputs. In this case, this matrix builder only works correctly when
+	 * each product (waste) is only produced (treated) by a single process in
+	 * the database.
 	 */
-	private TLongObjectHashMap<ProcessProduct> providers;
+	private TLongIntHashMap providers;
 
 	public FastMatrixBuilder(IDatabase db, CalculationSetup setup) {
 		this.db = db;
 		this.setup = setup;
-		this.flows = FlowTable.create(db);
+		this.descriptors = DescriptorIndex.of(db);
+		this.exchanges = null;
+	}
+
+	/**
+	 * Creates a builder that takes the exchanges from the exchange store of
+	 * the given cache. For a lazy cache, which has no exchange store, the
+	 * exchanges are read from the database.
+	 */
+	public FastMatrixBuilder(MatrixCache cache, CalculationSetup setup) {
+		this.db = cache.getDatabase();
+		this.setup = setup;
+		this.descriptors = DescriptorIndex.of(db);
+		this.exchanges = cache.getExchangeStore();
 	}
 
 	public MatrixData build() {
@@ -70,14 +89,18 @@ public class FastMatrixBuilder {
 			costs = new double[techIndex.size()];
 		}
 
-		ExchangeTable exchanges = new ExchangeTable(db);
-		exchanges.each(techIndex, exchange -> {
+		Consumer<CalcExchange> fn = exchange -> {
 			List<ProcessProduct> products = techIndex
 					.getProviders(exchange.processId);
 			for (ProcessProduct product : products) {
 				putExchangeValue(product, exchange);
 			}
-		});
+		};
+		if (exchanges != null) {
+			exchanges.each(techIndex, fn);
+		} else {
+			new ExchangeTable(db).each(techIndex, fn);
+		}
 
 		int n = techIndex.size();
 		int m = flowIndex.size();
@@ -128,21 +151,24 @@ public class FastMatrixBuilder {
 	}
 
 	private void addProcessLink(ProcessProduct product, CalcExchange e) {
-		ProcessProduct provider = null;
+		int row = -1;
 		if (e.defaultProviderId > 0) {
-			provider = techIndex.getProvider(e.defaultProviderId, e.flowId);
+			row = techIndex.getIndex(e.defaultProviderId, e.flowId);
 		}
-		if (provider == null) {
+		if (row < 0) {
 			if (providers == null) {
-				providers = new TLongObjectHashMap<>();
+				providers = new TLongIntHashMap(
+						Constants.DEFAULT_CAPACITY,
+						Constants.DEFAULT_LOAD_FACTOR,
+						0L, // no entry key
+						-1); // no entry value
 				techIndex.each(
-						(i, pp) -> providers.put(pp.flowId(), pp));
+						(i, pp) -> providers.put(pp.flowId(), i));
 			}
-			provider = providers.get(e.flowId);
+			row = providers.get(e.flowId);
 		}
-		if (provider == null)
+		if (row < 0)
 			return;
-		int row = techIndex.getIndex(provider);
 		add(row, product, techBuilder, e);
 	}
 
@@ -150,9 +176,9 @@ public class FastMatrixBuilder {
 		int row = flowIndex.of(e.flowId);
 		if (row < 0) {
 			if (e.isInput) {
-				row = flowIndex.putInput(flows.get(e.flowId));
+				row = flowIndex.putInput(descriptors.getFlow(e.flowId));
 			} else {
-				row = flowIndex.putOutput(flows.get(e.flowId));
+				row = flowIndex.putOutput(descriptors.getFlow(e.flowId));
 			}
 		}
 		add(row, provider, enviBuilder, e);
@@ -184,14 +210,14 @@ public class FastMatrixBuilder {
 		TechIndex idx = new TechIndex(qref);
 		idx.setDemand(setup.getDemandValue());
 
-		TLongObjectHashMap<ProcessDescriptor> processes = new ProcessDao(
-				db).descriptorMap();
-
 		String sql = "select f_owner, f_flow, is_input from tbl_exchanges";
 		try {
 			NativeSql.on(db).query(sql, r -> {
 				long flowID = r.getLong(2);
-				FlowType type = flows.type(flowID);
+				FlowDescriptor flow = descriptors.getFlow(flowID);
+				if (flow == null)
+					return true;
+				FlowType type = flow.flowType;
 				if (type == FlowType.ELEMENTARY_FLOW)
 					return true;
 				boolean isInput = r.getBoolean(3);
@@ -200,9 +226,8 @@ public class FastMatrixBuilder {
 				if (!isInput && type == FlowType.WASTE_FLOW)
 					return true;
 				long procID = r.getLong(1);
-				ProcessDescriptor process = processes.get(procID);
-				FlowDescriptor flow = flows.get(flowID);
-				if (process == null || flow == null) {
+				ProcessDescriptor process = descriptors.getProcess(procID);
+				if (process == null) {
 					// note that product system results could be
 					// stored in the exchanges table; in this
 					// case the process would be null.
@@ -98,8 +98,7 @@ public class FlowIndex extends DIndex<FlowDescriptor> {
 						continue; // already indexed as flow
 					if (techIndex.contains(e.processId, e.flowId))
 						continue; // the exchange is an output product
-					if (techIndex
-							.isLinked(LongPair.of(e.processId, e.exchangeId)))
+					if (techIndex.isLinked(e.processId, e.exchangeId))
 						continue; // the exchange is a linked exchange
 					if (e.flowType == FlowType.ELEMENTARY_FLOW)
 						indexFlow(e, index);
@@ -130,8 +129,8 @@ public class FlowIndex extends DIndex<FlowDescriptor> {
 						processIds.add(p.process.id);
 					}
 				});
-				Map<Long, List<CalcExchange>> map = cache.getExchangeCache()
-						.getAll(processIds);
+				Map<Long, List<CalcExchange>> map = cache.getExchanges(
+						processIds);
 				return map;
 			} catch (Exception e) {
 				log.error("failed to load exchanges from cache", e);
@@ -0,0 +1,209 @@
+package org.openlca.core.matrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.expressions.FormulaInterpreter;
+import org.openlca.expressions.InterpreterException;
+import org.openlca.expressions.Scope;
+import org.openlca.util.Strings;
+
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * Contains the cells of the technology matrix, the intervention matrix, and
+ * the cost vector with values that are calculated from formulas. When the
+ * parameter values change (e.g. for another parameter redefinition set of a
+ * project variant), these cells can be updated via `eval` without building
+ * the matrices again. Only the cells with formulas that depend on changed
+ * parameters are re-evaluated (see `Scope.isAffected`).
+ *
+ * A matrix cell can contain the values of multiple exchanges. The part of the
+ * cell value that does not come from formulas is kept when a cell is updated.
+ */
+public class FormulaCells {
+
+	private final TLongObjectHashMap<Cell> techCells = new TLongObjectHashMap<>();
+	private final TLongObjectHashMap<Cell> enviCells = new TLongObjectHashMap<>();
+	private final TIntObjectHashMap<Cell> costCells = new TIntObjectHashMap<>();
+
+	/**
+	 * The interpreter of the last evaluation and its change count at that
+	 * time.
+	 */
+	private FormulaInterpreter interpreter;
+	private long changes;
+
+	/**
+	 * Creates a new instance where the values of the added cells are evaluated
+	 * with the given interpreter.
+	 */
+	FormulaCells(FormulaInterpreter interpreter) {
+		this.interpreter = interpreter;
+		if (interpreter != null) {
+			changes = interpreter.getGlobalScope().changes();
+		}
+	}
+
+	void add(boolean tech, int row, int col, CalcExchange e,
+			double allocationFactor, double value) {
+		if (Strings.nullOrEmpty(e.amountFormula))
+			return;
+		TLongObjectHashMap<Cell> cells = tech ? techCells : enviCells;
+		long key = (((long) row) << 32) | col;
+		Cell cell = cells.get(key);
+		if (cell == null) {
+			cell = new Cell(row, col);
+			cells.put(key, cell);
+		}
+		cell.entries.add(new Entry(e, allocationFactor, value));
+	}
+
+	void addCost(int col, CalcExchange e, double allocationFactor,
+			double value) {
+		if (Strings.nullOrEmpty(e.costFormula))
+			return;
+		Cell cell = costCells.get(col);
+		if (cell == null) {
+			cell = new Cell(0, col);
+			costCells.put(col, cell);
+		}
+		cell.entries.add(new Entry(e, allocationFactor, value));
+	}
+
+	public boolean isEmpty() {
+		return techCells.isEmpty()
+				&& enviCells.isEmpty()
+				&& costCells.isEmpty();
+	}
+
+	/**
+	 * Updates the cells with formulas in the matrices and the cost vector of
+	 * the given data with the values of the given interpreter. The matrices
+	 * and the cost vector are modified in place. When the same interpreter was
+	 * used before, only the cells that are affected by parameter changes since
+	 * then are updated.
+	 */
+	public void eval(MatrixData data, FormulaInterpreter interpreter) {
+		if (data == null || interpreter == null)
+			return;
+		long now = interpreter.getGlobalScope().changes();
+		boolean all = interpreter != this.interpreter;
+		if (!all && now == changes)
+			return;
+		evalMatrix(techCells, data.techMatrix, interpreter, all);
+		evalMatrix(enviCells, data.enviMatrix, interpreter, all);
+		if (data.costVector != null) {
+			evalCosts(data.costVector, interpreter, all);
+		}
+		this.interpreter = interpreter;
+		this.changes = now;
+	}
+
+	private void evalMatrix(TLongObjectHashMap<Cell> cells, IMatrix matrix,
+			FormulaInterpreter interpreter, boolean all) {
+		if (matrix == null)
+			return;
+		TLongObjectIterator<Cell> it = cells.iterator();
+		while (it.hasNext()) {
+			it.advance();
+			Cell cell = it.value();
+			if (!all && !isAffected(cell, interpreter, false))
+				continue;
+			double current = matrix.get(cell.row, cell.col);
+			double value = cell.update(current, interpreter, false);
+			matrix.set(cell.row, cell.col, value);
+		}
+	}
+
+	private void evalCosts(double[] costs, FormulaInterpreter interpreter,
+			boolean all) {
+		TIntObjectIterator<Cell> it = costCells.iterator();
+		while (it.hasNext()) {
+			it.advance();
+			Cell cell = it.value();
+			if (!all && !isAffected(cell, interpreter, true))
+				continue;
+			costs[cell.col] = cell.update(costs[cell.col], interpreter, true);
+		}
+	}
+
+	private boolean isAffected(Cell cell, FormulaInterpreter interpreter,
+			boolean cost) {
+		for (Entry entry : cell.entries) {
+			CalcExchange e = entry.exchange;
+			Scope scope = interpreter.getScope(e.processId);
+			if (scope == null) {
+				scope = interpreter.getGlobalScope();
+			}
+			String formula = cost ? e.costFormula : e.amountFormula;
+			try {
+				if (scope.isAffected(formula, changes))
+					return true;
+			} catch (InterpreterException ex) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static class Cell {
+
+		final int row;
+		final int col;
+		final List<Entry> entries = new ArrayList<>(1);
+
+		/** The part of the cell value that does not come from formulas. */
+		double base;
+		boolean hasBase;
+
+		Cell(int row, int col) {
+			this.row = row;
+			this.col = col;
+		}
+
+		/**
+		 * Re-evaluates the formulas of this cell and returns the new cell
+		 * value. The given current value of the cell is used to calculate the
+		 * value that does not come from formulas in the first update.
+		 */
+		double update(double current, FormulaInterpreter interpreter,
+				boolean cost) {
+			if (!hasBase) {
+				base = current;
+				for (Entry entry : entries) {
+					base -= entry.value;
+				}
+				hasBase = true;
+			}
+			double value = base;
+			for (Entry entry : entries) {
+				CalcExchange e = entry.exchange;
+				entry.value = cost
+						? e.costValue(interpreter, entry.allocationFactor)
+						: e.matrixValue(interpreter, entry.allocationFactor);
+				value += entry.value;
+			}
+			return value;
+		}
+	}
+
+	private static class Entry {
+
+		final CalcExchange exchange;
+		final double allocationFactor;
+
+		/** The value of the last evaluation. */
+		double value;
+
+		Entry(CalcExchange exchange, double allocationFactor, double value) {
+			this.exchange = exchange;
+			this.allocationFactor = allocationFactor;
+			this.value = value;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package org.openlca.core.matrix;
 
+import java.util.SplittableRandom;
+
 import org.openlca.core.math.NumberGenerator;
 import org.openlca.core.model.UncertaintyType;
 import org.openlca.expressions.FormulaInterpreter;
@@ -9,7 +11,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * The cell value is negative if the factor is related to an input flow.
+ * The cell value is negative if the factor is related to an input flow. The
+ * factors are shared via the matrix cache; thus, the evaluated amount of a
+ * formula is stored in the cell and not in the factor.
  */
 class ImpactFactorCell {
 
@@ -17,14 +21,37 @@ class ImpactFactorCell {
 	private final boolean inputFlow;
 	private final CalcImpactFactor factor;
 	private NumberGenerator generator;
+	private double amount;
+
+	/**
+	 * The scope in which the formula of the factor was evaluated the last time
+	 * and the change count of that scope at that time. With this, we can skip
+	 * the evaluation when no parameter of the formula was changed.
+	 */
+	private Scope evalScope;
+	private long evalChanges;
 
 	ImpactFactorCell(CalcImpactFactor factor, long methodId,
 			boolean inputFlow) {
 		this.factor = factor;
+		this.amount = factor != null ? factor.amount : 0;
 		this.methodId = methodId;
 		this.inputFlow = inputFlow;
 	}
 
+	/**
+	 * Creates a copy of this cell with the same factor and current amount.
+	 * The evaluation state is not copied as the copy is evaluated with another
+	 * interpreter.
+	 */
+	ImpactFactorCell copy() {
+		ImpactFactorCell copy = new ImpactFactorCell(
+				factor, methodId, inputFlow);
+		copy.amount = amount;
+		copy.generator = generator;
+		return copy;
+	}
+
 	void eval(FormulaInterpreter interpreter) {
 		if (interpreter == null)
 			return;
@@ -36,8 +63,13 @@ class ImpactFactorCell {
 			if (scope == null) {
 				scope = interpreter.getGlobalScope();
 			}
-			double v = scope.eval(factor.formula);
-			factor.amount = v;
+			if (scope == evalScope
+					&& !scope.isAffected(factor.formula, evalChanges))
+				return;
+			long changes = scope.changes();
+			amount = scope.eval(factor.formula);
+			evalScope = scope;
+			evalChanges = changes;
 		} catch (Exception e) {
 			Logger log = LoggerFactory.getLogger(getClass());
 			log.error("Formula evaluation failed, impact factor " + factor, e);
@@ -47,17 +79,17 @@ class ImpactFactorCell {
 	double getMatrixValue() {
 		if (factor == null)
 			return 0;
-		double amount = factor.amount * factor.conversionFactor;
-		return inputFlow ? -amount : amount;
+		double value = amount * factor.conversionFactor;
+		return inputFlow ? -value : value;
 	}
 
-	double getNextSimulationValue() {
+	double getNextSimulationValue(SplittableRandom random) {
 		UncertaintyType type = factor.uncertaintyType;
 		if (type == null || type == UncertaintyType.NONE)
 			return getMatrixValue();
 		if (generator == null)
 			generator = createGenerator(type);
-		double amount = generator.next() * factor.conversionFactor;
+		double amount = generator.next(random) * factor.conversionFactor;
 		return inputFlow ? -amount : amount;
 	}
 
@@ -76,7 +108,7 @@ class ImpactFactorCell {
 			return NumberGenerator
 					.uniform(f.parameter1, f.parameter2);
 		default:
-			return NumberGenerator.discrete(f.amount);
+			return NumberGenerator.discrete(amount);
 		}
 	}
 
@@ -1,5 +1,8 @@
 package org.openlca.core.matrix;
 
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
 import gnu.trove.impl.Constants;
 import gnu.trove.map.hash.TIntObjectHashMap;
 
@@ -18,6 +21,15 @@ public class ImpactFactorMatrix {
 	private final int rows;
 	private final TIntObjectHashMap<TIntObjectHashMap<ImpactFactorCell>> cells;
 
+	/**
+	 * The sorted row indices and the sorted column indices of each row in
+	 * which the cells are visited; thus, the random numbers of a simulation
+	 * are drawn in a canonical order. It is `null` when entries were set after
+	 * it was built.
+	 */
+	private int[] rowOrder;
+	private int[][] colOrder;
+
 	public ImpactFactorMatrix(int rows, int columns) {
 		this.rows = rows;
 		this.columns = columns;
@@ -30,6 +42,8 @@ public class ImpactFactorMatrix {
 	}
 
 	public void setEntry(int row, int col, ImpactFactorCell cell) {
+		rowOrder = null;
+		colOrder = null;
 		TIntObjectHashMap<ImpactFactorCell> rowMap = cells.get(row);
 		if (rowMap == null) {
 			rowMap = new TIntObjectHashMap<>(Constants.DEFAULT_CAPACITY,
@@ -46,6 +60,16 @@ public class ImpactFactorMatrix {
 		return rowMap.get(col);
 	}
 
+	/**
+	 * Creates a copy of this matrix with copies of the cells so that the copy
+	 * can be evaluated and simulated independently from this matrix.
+	 */
+	public ImpactFactorMatrix copy() {
+		ImpactFactorMatrix copy = new ImpactFactorMatrix(rows, columns);
+		iterate((row, col, cell) -> copy.setEntry(row, col, cell.copy()));
+		return copy;
+	}
+
 	public IMatrix createRealMatrix(IMatrixSolver solver) {
 		IMatrix matrix = solver.matrix(rows, columns);
 		iterate(new Fn() {
@@ -75,25 +99,25 @@ public class ImpactFactorMatrix {
 		});
 	}
 
-	public void simulate(final IMatrix matrix) {
+	public void simulate(final IMatrix matrix, SplittableRandom random) {
 		iterate(new Fn() {
 			@Override
 			public void apply(int row, int col, ImpactFactorCell cell) {
-				matrix.set(row, col, cell.getNextSimulationValue());
+				matrix.set(row, col, cell.getNextSimulationValue(random));
 			}
 		});
 	}
 
 	private void iterate(Fn fn) {
-		for (int row : cells.keys()) {
-			if (row == -1)
-				continue;
+		if (rowOrder == null) {
+			buildOrder();
+		}
+		for (int i = 0; i < rowOrder.length; i++) {
+			int row = rowOrder[i];
 			TIntObjectHashMap<ImpactFactorCell> rowMap = cells.get(row);
 			if (rowMap == null)
 				continue;
-			for (int col : rowMap.keys()) {
-				if (col == -1)
-					continue;
+			for (int col : colOrder[i]) {
 				ImpactFactorCell cell = rowMap.get(col);
 				if (cell == null)
 					continue;
@@ -102,6 +126,19 @@ public class ImpactFactorMatrix {
 		}
 	}
 
+	private void buildOrder() {
+		int[] rows = cells.keys();
+		Arrays.sort(rows);
+		int[][] cols = new int[rows.length][];
+		for (int i = 0; i < rows.length; i++) {
+			TIntObjectHashMap<ImpactFactorCell> rowMap = cells.get(rows[i]);
+			cols[i] = rowMap != null ? rowMap.keys() : new int[0];
+			Arrays.sort(cols[i]);
+		}
+		colOrder = cols;
+		rowOrder = rows;
+	}
+
 	private interface Fn {
 		void apply(int row, int col, ImpactFactorCell cell);
 	}
@@ -4,6 +4,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
 
@@ -31,6 +32,20 @@ public class ImpactTable {
 		return new ImpactTableBuilder(cache, impactMethodId, flowIndex).build();
 	}
 
+	/**
+	 * Creates a copy of this table that shares the indices but has an own
+	 * factor matrix which can be evaluated and simulated independently.
+	 */
+	public ImpactTable copy() {
+		ImpactTable copy = new ImpactTable();
+		copy.impactIndex = impactIndex;
+		copy.flowIndex = flowIndex;
+		copy.factorMatrix = factorMatrix != null
+				? factorMatrix.copy()
+				: null;
+		return copy;
+	}
+
 	public boolean isEmpty() {
 		return impactIndex == null || impactIndex.isEmpty()
 				|| flowIndex == null || flowIndex.isEmpty()
@@ -58,11 +73,20 @@ public class ImpactTable {
 	 * simulate).
 	 */
 	public void simulate(IMatrix matrix, FormulaInterpreter interpreter) {
+		simulate(matrix, interpreter, new SplittableRandom());
+	}
+
+	/**
+	 * Same as `simulate(matrix, interpreter)` but takes the random numbers
+	 * from the given source.
+	 */
+	public void simulate(IMatrix matrix, FormulaInterpreter interpreter,
+			SplittableRandom random) {
 		if (matrix == null)
 			return;
 		evalFormulas(interpreter);
 		if (factorMatrix != null) {
-			factorMatrix.simulate(matrix);
+			factorMatrix.simulate(matrix, random);
 		}
 	}
 
@@ -13,6 +13,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class InventoryBuilder {
 
@@ -27,6 +28,7 @@ public class InventoryBuilder {
 	private MatrixBuilder enviBuilder;
 	private UMatrix techUncerts;
 	private UMatrix enviUncerts;
+	private FormulaCells formulaCells;
 	private double[] costs;
 
 	public InventoryBuilder(InventoryConfig conf) {
@@ -42,6 +44,9 @@ public class InventoryBuilder {
 		if (conf.withCosts) {
 			costs = new double[conf.techIndex.size()];
 		}
+		if (conf.withFormulaCells) {
+			formulaCells = new FormulaCells(conf.interpreter);
+		}
 	}
 
 	public MatrixData build() {
@@ -87,20 +92,25 @@ public class InventoryBuilder {
 		data.techUncertainties = techUncerts;
 		data.enviUncertainties = enviUncerts;
 		data.costVector = costs;
+		data.formulaCells = formulaCells;
 		return data;
 	}
 
 	private void fillMatrices() {
 		try {
 			// fill the matrices with process data
-			ExchangeTable exchanges = new ExchangeTable(conf.db);
-			exchanges.each(techIndex, exchange -> {
+			Consumer<CalcExchange> fn = exchange -> {
 				List<ProcessProduct> products = techIndex
 						.getProviders(exchange.processId);
 				for (ProcessProduct product : products) {
 					putExchangeValue(product, exchange);
 				}
-			});
+			};
+			if (conf.exchanges != null) {
+				conf.exchanges.each(techIndex, fn);
+			} else {
+				new ExchangeTable(conf.db).each(techIndex, fn);
+			}
 
 			// now put the entries of the sub-system into the matrices
 			HashSet<ProcessProduct> subSystems = new HashSet<>();
@@ -159,9 +169,10 @@ public class InventoryBuilder {
 
 		if ((e.isInput && e.flowType == FlowType.PRODUCT_FLOW)
 				|| (!e.isInput && e.flowType == FlowType.WASTE_FLOW)) {
-			if (techIndex.isLinked(LongPair.of(e.processId, e.exchangeId))) {
+			int row = techIndex.getLinkedIndex(e.processId, e.exchangeId);
+			if (row >= 0) {
 				// linked product input or waste output
-				addProcessLink(provider, e);
+				add(row, provider, techBuilder, e);
 			} else {
 				// unlinked product input or waste output
 				addIntervention(provider, e);
@@ -183,13 +194,6 @@ public class InventoryBuilder {
 		}
 	}
 
-	private void addProcessLink(ProcessProduct product, CalcExchange e) {
-		LongPair exchange = LongPair.of(e.processId, e.exchangeId);
-		ProcessProduct provider = techIndex.getLinkedProvider(exchange);
-		int row = techIndex.getIndex(provider);
-		add(row, product, techBuilder, e);
-	}
-
 	private void addIntervention(ProcessProduct provider, CalcExchange e) {
 		int row = flowIndex.of(e.flowId);
 		if (row < 0) {
@@ -219,9 +223,19 @@ public class InventoryBuilder {
 				conf.interpreter, allocationFactor);
 		matrix.add(row, col, value);
 
+		double cost = 0;
 		if (conf.withCosts) {
-			costs[col] += exchange.costValue(
-					conf.interpreter, allocationFactor);
+			cost = exchange.costValue(conf.interpreter, allocationFactor);
+			costs[col] += cost;
+		}
+
+		if (formulaCells != null) {
+			boolean tech = matrix == techBuilder;
+			formulaCells.add(tech, row, col, exchange, allocationFactor,
+					value);
+			if (conf.withCosts) {
+				formulaCells.addCost(col, exchange, allocationFactor, cost);
+			}
 		}
 
 		if (conf.withUncertainties) {
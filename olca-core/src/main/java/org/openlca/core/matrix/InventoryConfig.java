@@ -3,6 +3,7 @@ package org.openlca.core.matrix;
 import java.util.Map;
 
 import org.openlca.core.database.IDatabase;
+import org.openlca.core.matrix.cache.ExchangeStore;
 import org.openlca.core.model.AllocationMethod;
 import org.openlca.core.results.SimpleResult;
 import org.openlca.expressions.FormulaInterpreter;
@@ -17,8 +18,20 @@ public class InventoryConfig {
 
 	public boolean withUncertainties;
 	public boolean withCosts;
+
+	/**
+	 * If true, the matrix cells with formulas are collected in the matrix
+	 * data (see `MatrixData.formulaCells`).
+	 */
+	public boolean withFormulaCells;
 	public AllocationMethod allocationMethod;
 
+	/**
+	 * An optional store from which the exchanges are taken. If not set, the
+	 * exchanges are read from the database.
+	 */
+	public ExchangeStore exchanges;
+
 	/** Optional sub-system results of the product system. */
 	public Map<ProcessProduct, SimpleResult> subResults;
 	public FormulaInterpreter interpreter;
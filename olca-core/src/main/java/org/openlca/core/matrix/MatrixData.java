@@ -1,5 +1,7 @@
 package org.openlca.core.matrix;
 
+import java.util.SplittableRandom;
+
 import org.openlca.core.matrix.format.IMatrix;
 import org.openlca.core.matrix.uncertainties.UMatrix;
 import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
@@ -66,14 +68,56 @@ public class MatrixData {
 	 */
 	public UMatrix enviUncertainties;
 
+	/**
+	 * Contains the cells of the technology and intervention matrix and the
+	 * cost vector that have values with formulas. With this, the matrices can
+	 * be updated when parameter values change without building them again.
+	 * This field is only used (not null) when the inventory builder was
+	 * configured for this (see `InventoryConfig.withFormulaCells`).
+	 */
+	public FormulaCells formulaCells;
+
 	// TODO uncertainty distributions of LCIA factors etc.
 
+	/**
+	 * Creates a copy of this data with copies of the matrices, the cost vector,
+	 * and the uncertainty matrices. The indices are shared and the formula
+	 * cells are not copied. The copy can be simulated independently from this
+	 * data, e.g. in another thread.
+	 */
+	public MatrixData copy() {
+		MatrixData copy = new MatrixData();
+		copy.techIndex = techIndex;
+		copy.enviIndex = enviIndex;
+		copy.impactIndex = impactIndex;
+		copy.techMatrix = techMatrix != null ? techMatrix.copy() : null;
+		copy.enviMatrix = enviMatrix != null ? enviMatrix.copy() : null;
+		copy.impactMatrix = impactMatrix != null ? impactMatrix.copy() : null;
+		copy.costVector = costVector != null ? costVector.clone() : null;
+		copy.techUncertainties = techUncertainties != null
+				? techUncertainties.copy()
+				: null;
+		copy.enviUncertainties = enviUncertainties != null
+				? enviUncertainties.copy()
+				: null;
+		return copy;
+	}
+
 	public void simulate(FormulaInterpreter interpreter) {
+		simulate(interpreter, new SplittableRandom());
+	}
+
+	/**
+	 * Generates new values for the entries with uncertainty distributions using
+	 * the given random number source.
+	 */
+	public void simulate(FormulaInterpreter interpreter,
+			SplittableRandom random) {
 		if (techMatrix != null && techUncertainties != null) {
-			techUncertainties.generate(techMatrix, interpreter);
+			techUncertainties.generate(techMatrix, interpreter, random);
 		}
 		if (enviMatrix != null && enviUncertainties != null) {
-			enviUncertainties.generate(enviMatrix, interpreter);
+			enviUncertainties.generate(enviMatrix, interpreter, random);
 		}
 		// TODO: generate values for LCIA factors
 	}
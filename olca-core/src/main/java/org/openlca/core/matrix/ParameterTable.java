@@ -1,10 +1,13 @@
 package org.openlca.core.matrix;
 
 import java.sql.ResultSet;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
 
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.NativeSql;
@@ -24,18 +27,33 @@ import gnu.trove.map.hash.TLongObjectHashMap;
 /**
  * A data structure for fast creation of formula interpreters for the parameters
  * of a database.
+ *
+ * The scopes of the interpreter track the dependencies between the parameters
+ * (see `Scope`). Thus, when parameters are re-bound, e.g. in a parameter
+ * sweep (see `redef`) or in a Monte Carlo simulation (see `simulate`), only
+ * the parameters that depend on the changed parameters are recalculated.
  */
 public class ParameterTable {
 
 	/**
 	 * The number generators in case the parameter table is build with
 	 * uncertainties. Maps: parameter scope -> parameter name -> number
-	 * generator. The global scope is indicated by a key of 0L.
+	 * generator. The global scope is indicated by a key of 0L. The generators
+	 * of a scope are stored in a sorted map so that the random numbers are
+	 * drawn in a canonical order (see `simulate`).
 	 */
 	private TLongObjectHashMap<Map<String, NumberGenerator>> numberGens;
 
 	private FormulaInterpreter interpreter = new FormulaInterpreter();
 
+	/**
+	 * The bindings of the parameters before they were redefined via `redef`:
+	 * parameter scope -> parameter name -> expression; a null value means
+	 * that the parameter was not bound in that scope. The global scope is
+	 * indicated by a key of 0L.
+	 */
+	private final TLongObjectHashMap<Map<String, String>> baseBindings = new TLongObjectHashMap<>();
+
 	private ParameterTable() {
 	}
 
@@ -46,6 +64,17 @@ public class ParameterTable {
 	 */
 	public static FormulaInterpreter interpreter(IDatabase db,
 			Set<Long> contexts, Collection<ParameterRedef> redefs) {
+		return build(db, contexts, redefs).interpreter;
+	}
+
+	/**
+	 * Builds a parameter table for the global parameters and the local
+	 * parameters of the given contexts. Other than `interpreter` this returns
+	 * the table so that further parameter redefinitions can be applied on it
+	 * (see `redef`).
+	 */
+	public static ParameterTable build(IDatabase db,
+			Set<Long> contexts, Collection<ParameterRedef> redefs) {
 		ParameterTable table = new ParameterTable();
 		try {
 			table.scan(db, contexts);
@@ -54,7 +83,7 @@ public class ParameterTable {
 			log.error("Failed to scan parameter table", e);
 		}
 		table.bindRedefs(redefs);
-		return table.interpreter;
+		return table;
 	}
 
 	/**
@@ -78,20 +107,117 @@ public class ParameterTable {
 		return table;
 	}
 
+	/**
+	 * Creates a copy of this table with a copy of its interpreter (see
+	 * `FormulaInterpreter.copy`). The number generators have no state and are
+	 * shared with the copy.
+	 */
+	public ParameterTable copy() {
+		ParameterTable copy = new ParameterTable();
+		copy.interpreter = interpreter.copy();
+		if (numberGens != null) {
+			copy.numberGens = new TLongObjectHashMap<>(
+					Constants.DEFAULT_CAPACITY,
+					Constants.DEFAULT_LOAD_FACTOR,
+					-1L);
+			numberGens.forEachEntry((context, gens) -> {
+				copy.numberGens.put(context,
+						gens != null ? new TreeMap<>(gens) : null);
+				return true;
+			});
+		}
+		baseBindings.forEachEntry((context, bindings) -> {
+			copy.baseBindings.put(context,
+					bindings != null ? new HashMap<>(bindings) : null);
+			return true;
+		});
+		return copy;
+	}
+
+	public FormulaInterpreter getInterpreter() {
+		return interpreter;
+	}
+
+	/**
+	 * Applies the given parameter redefinitions on the interpreter of this
+	 * table, e.g. for the next scenario of a parameter sweep. The values of
+	 * parameters that are not redefined are kept; thus, this does not reset
+	 * redefinitions that were applied before. Only the parameters that depend
+	 * on changed parameters are recalculated and formulas can be checked via
+	 * `Scope.isAffected` whether they need to be re-evaluated.
+	 */
+	public FormulaInterpreter redef(Collection<ParameterRedef> redefs) {
+		if (redefs != null) {
+			for (ParameterRedef redef : redefs) {
+				long context = redef.contextId != null ? redef.contextId : 0L;
+				Map<String, String> bindings = baseBindings.get(context);
+				if (bindings == null) {
+					bindings = new HashMap<>();
+					baseBindings.put(context, bindings);
+				}
+				if (bindings.containsKey(redef.name))
+					continue;
+				Scope scope = context == 0L
+						? interpreter.getGlobalScope()
+						: interpreter.getScope(context);
+				bindings.put(redef.name, scope != null
+						? scope.getBinding(redef.name)
+						: null);
+			}
+		}
+		bindRedefs(redefs);
+		return interpreter;
+	}
+
+	/**
+	 * Reverts the parameter redefinitions that were applied via `redef`. The
+	 * parameters get the values they had when the table was built (including
+	 * the redefinitions that were passed into `build`).
+	 */
+	public FormulaInterpreter reset() {
+		TLongObjectIterator<Map<String, String>> it = baseBindings.iterator();
+		while (it.hasNext()) {
+			it.advance();
+			long context = it.key();
+			Scope scope = context == 0L
+					? interpreter.getGlobalScope()
+					: interpreter.getScope(context);
+			if (scope == null)
+				continue;
+			it.value().forEach((name, expression) -> {
+				if (expression == null) {
+					scope.unbind(name);
+				} else {
+					scope.bind(name, expression);
+				}
+			});
+		}
+		baseBindings.clear();
+		return interpreter;
+	}
+
 	/**
 	 * Calculates new random values for the parameters in this table that have
 	 * an uncertainty distribution assigned. It re-binds the values of theses
 	 * parameters in the underlying interpreter with the generated values.
 	 */
 	public FormulaInterpreter simulate() {
+		return simulate(new SplittableRandom());
+	}
+
+	/**
+	 * Same as `simulate()` but takes the numbers from the given random number
+	 * source. The numbers are drawn in a canonical order (sorted by context
+	 * and parameter name) so that the same source always gives the same
+	 * values to the same parameters, also in copies of this table.
+	 */
+	public FormulaInterpreter simulate(SplittableRandom random) {
 		if (numberGens == null)
 			return interpreter;
-		TLongObjectIterator<Map<String, NumberGenerator>> it = numberGens
-				.iterator();
-		while (it.hasNext()) {
-			it.advance();
-			long context = it.key();
-			Map<String, NumberGenerator> gens = it.value();
+		long[] contexts = numberGens.keys();
+		Arrays.sort(contexts);
+		for (long context : contexts) {
+			Map<String, NumberGenerator> gens = numberGens.get(context);
 			Scope scope = context == 0
 					? interpreter.getGlobalScope()
 					: interpreter.getScope(context);
@@ -99,7 +225,7 @@ public class ParameterTable {
 				continue;
 			gens.forEach((name, gen) -> {
 				if (gen != null) {
-					scope.bind(name, Double.toString(gen.next()));
+					scope.bind(name, gen.next(random));
 				}
 			});
 		}
@@ -119,7 +245,7 @@ public class ParameterTable {
 					scope = interpreter.createScope(redef.contextId);
 				}
 			}
-			scope.bind(redef.name, Double.toString(redef.value));
+			scope.bind(redef.name, redef.value);
 			if (numberGens == null)
 				continue;
 			long context = redef.contextId != null ? redef.contextId : 0L;
@@ -127,7 +253,7 @@ public class ParameterTable {
 			if (genmap == null) {
 				if (redef.uncertainty == null)
 					continue;
-				genmap = new HashMap<>();
+				genmap = new TreeMap<>();
 				numberGens.put(context, genmap);
 			}
 			if (redef.uncertainty == null
@@ -159,7 +285,7 @@ public class ParameterTable {
 			String name = r.getString(3);
 			boolean isInput = r.getBoolean(4);
 			if (isInput) {
-				scope.bind(name, Double.toString(r.getDouble(5)));
+				scope.bind(name, r.getDouble(5));
 			} else {
 				scope.bind(name, r.getString(6));
 			}
@@ -168,7 +294,7 @@ public class ParameterTable {
 				if (gen != null) {
 					Map<String, NumberGenerator> m = numberGens.get(owner);
 					if (m == null) {
-						m = new HashMap<>();
+						m = new TreeMap<>();
 						numberGens.put(owner, m);
 					}
 					m.put(name, gen);
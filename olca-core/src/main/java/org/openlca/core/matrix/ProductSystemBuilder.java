@@ -101,22 +101,21 @@ public class ProductSystemBuilder {
 		for (ProcessLink link : system.processLinks) {
 			linkIds.add(link.exchangeId);
 		}
-		for (LongPair exchange : index.getLinkedExchanges()) {
-			ProcessProduct provider = index.getLinkedProvider(exchange);
+		index.eachLink((processId, exchangeId, providerIdx) -> {
+			ProcessProduct provider = index.getProviderAt(providerIdx);
 			if (provider == null)
-				continue;
+				return;
 			system.processes.add(provider.id());
-			system.processes.add(exchange.first);
-			long exchangeId = exchange.second;
+			system.processes.add(processId);
 			if (linkIds.add(exchangeId)) {
 				ProcessLink link = new ProcessLink();
 				link.exchangeId = exchangeId;
 				link.flowId = provider.flowId();
-				link.processId = exchange.first;
+				link.processId = processId;
 				link.providerId = provider.id();
 				system.processLinks.add(link);
 			}
-		}
+		});
 	}
 
 	/**
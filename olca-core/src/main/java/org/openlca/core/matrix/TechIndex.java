@@ -2,14 +2,16 @@ package org.openlca.core.matrix;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.openlca.core.model.descriptors.CategorizedDescriptor;
 
-import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.impl.Constants;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongIntHashMap;
 
 /**
  * The index $\mathit{Idx}_A$ of the technology matrix $\mathbf{A}$ of a product
@@ -25,27 +27,53 @@ import gnu.trove.map.hash.TLongObjectHashMap;
 public class TechIndex {
 
 	/**
-	 * Maps the product-outputs and waste-inputs as (processId, flowId) pairs to
-	 * an ordinal index.
+	 * Contains the product-outputs and waste-inputs in an ordinal list.
 	 */
-	private final HashMap<ProcessProduct, Integer> index = new HashMap<>();
+	private final ArrayList<ProcessProduct> providers = new ArrayList<>();
 
 	/**
-	 * Contains the product-outputs and waste-inputs in an ordinal list.
+	 * Maps the IDs of the processes and product systems to the position of
+	 * their first provider in this index. The positions of further providers
+	 * of the same process are chained via `nextProvider`.
 	 */
-	private final ArrayList<ProcessProduct> providers = new ArrayList<>();
+	private final TLongIntHashMap firstProvider = new TLongIntHashMap(
+			Constants.DEFAULT_CAPACITY,
+			Constants.DEFAULT_LOAD_FACTOR,
+			0L, // no entry key
+			-1); // no entry value
+
+	/** The flow IDs of the providers by position. */
+	private final TLongArrayList providerFlows = new TLongArrayList();
 
 	/**
-	 * Maps linked exchanges (keys) as (processId, exchangeId) pairs to the
-	 * respective provider.
+	 * The position of the next provider of the same process for each position
+	 * or -1 if there is no further provider.
 	 */
-	private final HashMap<LongPair, ProcessProduct> links = new HashMap<>();
+	private final TIntArrayList nextProvider = new TIntArrayList();
 
 	/**
-	 * Maps the IDs of the processes and product systems to the list of
-	 * product-outputs and waste-inputs provided by these respectively.
+	 * Maps the IDs of the linked exchanges (product-inputs or waste-outputs)
+	 * to the position of their link in the link arrays below. Links of
+	 * exchanges with the same ID but different processes are chained via
+	 * `nextLink`.
 	 */
-	private final TLongObjectHashMap<List<ProcessProduct>> processProviders = new TLongObjectHashMap<>();
+	private final TLongIntHashMap firstLink = new TLongIntHashMap(
+			Constants.DEFAULT_CAPACITY,
+			Constants.DEFAULT_LOAD_FACTOR,
+			0L, // no entry key
+			-1); // no entry value
+
+	/** The process IDs of the linked exchanges. */
+	private final TLongArrayList linkProcesses = new TLongArrayList();
+
+	/** The exchange IDs of the linked exchanges. */
+	private final TLongArrayList linkExchanges = new TLongArrayList();
+
+	/** The positions of the linked providers in this index. */
+	private final TIntArrayList linkProviders = new TIntArrayList();
+
+	/** The next link of an exchange with the same ID or -1. */
+	private final TIntArrayList nextLink = new TIntArrayList();
 
 	/**
 	 * The demand value of the reference flow of the product system described by
@@ -65,6 +93,23 @@ public class TechIndex {
 		put(refFlow);
 	}
 
+	/**
+	 * Creates a copy of this index with the same providers, links, and demand
+	 * value.
+	 */
+	public TechIndex copy() {
+		TechIndex copy = new TechIndex(getRefFlow());
+		for (ProcessProduct provider : providers) {
+			copy.put(provider);
+		}
+		for (int i = 0; i < linkProviders.size(); i++) {
+			copy.putLink(linkProcesses.get(i), linkExchanges.get(i),
+					providers.get(linkProviders.get(i)));
+		}
+		copy.demand = demand;
+		return copy;
+	}
+
 	/**
 	 * The demand value. This is the amount of the reference flow given in the
 	 * reference unit and flow property. The default value is 1.0.
@@ -94,7 +139,7 @@ public class TechIndex {
 	 * columns in the related technology matrix.
 	 */
 	public int size() {
-		return index.size();
+		return providers.size();
 	}
 
 	/**
@@ -102,10 +147,26 @@ public class TechIndex {
 	 * input).
 	 */
 	public int getIndex(ProcessProduct provider) {
-		Integer idx = index.get(provider);
-		if (idx == null)
+		if (provider == null)
 			return -1;
-		return idx;
+		return getIndex(provider.id(), provider.flowId());
+	}
+
+	/**
+	 * Returns the ordinal index of the provider with the given process (or
+	 * product system) and flow ID or -1 if there is no such provider in this
+	 * index. In contrast to `getIndex(ProcessProduct)`, this method does not
+	 * require a provider object and can be used in the inner loops when
+	 * building the matrices.
+	 */
+	public int getIndex(long processID, long flowID) {
+		int i = firstProvider.get(processID);
+		while (i >= 0) {
+			if (providerFlows.getQuick(i) == flowID)
+				return i;
+			i = nextProvider.getQuick(i);
+		}
+		return -1;
 	}
 
 	/**
@@ -113,7 +174,7 @@ public class TechIndex {
 	 * flow of the given IDs.
 	 */
 	public boolean contains(long processID, long flowID) {
-		return getProvider(processID, flowID) != null;
+		return getIndex(processID, flowID) >= 0;
 	}
 
 	public void each(IndexConsumer<ProcessProduct> fn) {
@@ -123,14 +184,8 @@ public class TechIndex {
 	}
 
 	public ProcessProduct getProvider(long processID, long flowID) {
-		List<ProcessProduct> list = processProviders.get(processID);
-		if (list == null)
-			return null;
-		for (ProcessProduct p : list) {
-			if (p.flowId() == flowID)
-				return p;
-		}
-		return null;
+		int i = getIndex(processID, flowID);
+		return i < 0 ? null : providers.get(i);
 	}
 
 	/**
@@ -138,17 +193,25 @@ public class TechIndex {
 	 * Does nothing if it is already contained in this index.
 	 */
 	public void put(ProcessProduct provider) {
-		if (index.containsKey(provider))
-			return;
-		int idx = index.size();
-		index.put(provider, idx);
-		List<ProcessProduct> list = processProviders.get(provider.id());
-		if (list == null) {
-			list = new ArrayList<>();
-			processProviders.put(provider.id(), list);
-		}
-		list.add(provider);
+		add(provider);
+	}
+
+	/**
+	 * Adds the given provider if it is not yet contained in this index and
+	 * returns its position.
+	 */
+	private int add(ProcessProduct provider) {
+		long processID = provider.id();
+		int idx = getIndex(processID, provider.flowId());
+		if (idx >= 0)
+			return idx;
+		idx = providers.size();
 		providers.add(provider);
+		providerFlows.add(provider.flowId());
+		// prepend the new position to the chain of the process
+		nextProvider.add(firstProvider.get(processID));
+		firstProvider.put(processID, idx);
+		return idx;
 	}
 
 	/**
@@ -165,10 +228,7 @@ public class TechIndex {
 	public List<ProcessProduct> getProviders(CategorizedDescriptor d) {
 		if (d == null)
 			return Collections.emptyList();
-		List<ProcessProduct> providers = processProviders.get(d.id);
-		if (providers == null)
-			return Collections.emptyList();
-		return new ArrayList<>(providers);
+		return getProviders(d.id);
 	}
 
 	/**
@@ -178,10 +238,17 @@ public class TechIndex {
 	 * TODO: do we need this anymore?
 	 */
 	public List<ProcessProduct> getProviders(long processId) {
-		List<ProcessProduct> providers = processProviders.get(processId);
-		if (providers == null)
+		int i = firstProvider.get(processId);
+		if (i < 0)
 			return Collections.emptyList();
-		return new ArrayList<>(providers);
+		ArrayList<ProcessProduct> list = new ArrayList<>();
+		while (i >= 0) {
+			list.add(providers.get(i));
+			i = nextProvider.getQuick(i);
+		}
+		// the chain is in reverse order of insertion
+		Collections.reverse(list);
+		return list;
 	}
 
 	/**
@@ -189,7 +256,7 @@ public class TechIndex {
 	 * part of this index.
 	 */
 	public boolean isProvider(long processID) {
-		return processProviders.containsKey(processID);
+		return firstProvider.containsKey(processID);
 	}
 
 	/**
@@ -203,10 +270,25 @@ public class TechIndex {
 	 *            flowId) pair.
 	 */
 	public void putLink(LongPair exchange, ProcessProduct provider) {
-		if (links.containsKey(exchange))
+		putLink(exchange.first, exchange.second, provider);
+	}
+
+	/**
+	 * Adds a process link of the product-input or waste-output with the given
+	 * process and exchange ID to the given provider to this index. Does
+	 * nothing if the exchange is already linked.
+	 */
+	public void putLink(long processID, long exchangeID,
+			ProcessProduct provider) {
+		if (getLinkedIndex(processID, exchangeID) >= 0)
 			return;
-		put(provider);
-		links.put(exchange, provider);
+		int providerIdx = add(provider);
+		int pos = linkProviders.size();
+		linkProcesses.add(processID);
+		linkExchanges.add(exchangeID);
+		linkProviders.add(providerIdx);
+		nextLink.add(firstLink.get(exchangeID));
+		firstLink.put(exchangeID, pos);
 	}
 
 	/**
@@ -215,7 +297,16 @@ public class TechIndex {
 	 * provider of this index.
 	 */
 	public boolean isLinked(LongPair exchange) {
-		return links.containsKey(exchange);
+		return exchange != null
+				&& isLinked(exchange.first, exchange.second);
+	}
+
+	/**
+	 * Returns true if the product-input or waste-output with the given
+	 * process and exchange ID is linked to a provider of this index.
+	 */
+	public boolean isLinked(long processID, long exchangeID) {
+		return getLinkedIndex(processID, exchangeID) >= 0;
 	}
 
 	/**
@@ -223,15 +314,57 @@ public class TechIndex {
 	 * exchange (product-input or waste-output)
 	 */
 	public ProcessProduct getLinkedProvider(LongPair exchange) {
-		return links.get(exchange);
+		if (exchange == null)
+			return null;
+		int i = getLinkedIndex(exchange.first, exchange.second);
+		return i < 0 ? null : providers.get(i);
+	}
+
+	/**
+	 * Returns the ordinal index of the provider that is linked to the
+	 * product-input or waste-output with the given process and exchange ID or
+	 * -1 if that exchange is not linked.
+	 */
+	public int getLinkedIndex(long processID, long exchangeID) {
+		int i = firstLink.get(exchangeID);
+		while (i >= 0) {
+			if (linkProcesses.getQuick(i) == processID)
+				return linkProviders.getQuick(i);
+			i = nextLink.getQuick(i);
+		}
+		return -1;
+	}
+
+	/** Returns the number of linked exchanges in this index. */
+	public int linkCount() {
+		return linkProcesses.size();
+	}
+
+	/**
+	 * Iterates over all links of this index in the order in which they were
+	 * added. For each linked exchange (product-input or waste-output), the
+	 * given function is called with the process and exchange ID and the
+	 * position of the linked provider in this index. Other than
+	 * `getLinkedExchanges`, this does not create any objects.
+	 */
+	public void eachLink(LinkConsumer fn) {
+		for (int i = 0; i < linkProcesses.size(); i++) {
+			fn.accept(linkProcesses.getQuick(i), linkExchanges.getQuick(i),
+					linkProviders.getQuick(i));
+		}
 	}
 
 	/**
 	 * Returns all exchanges (product-inputs and waste-outputs) that are linked
-	 * to provider of this index.
+	 * to provider of this index. Note that this creates a new set on each
+	 * call; use `eachLink` to iterate over the links.
 	 */
 	public Set<LongPair> getLinkedExchanges() {
-		return links.keySet();
+		HashSet<LongPair> set = new HashSet<>();
+		for (int i = 0; i < linkProcesses.size(); i++) {
+			set.add(LongPair.of(linkProcesses.get(i), linkExchanges.get(i)));
+		}
+		return set;
 	}
 
 	/**
@@ -253,4 +386,9 @@ public class TechIndex {
 	public Set<ProcessProduct> content() {
 		return new HashSet<>(providers);
 	}
+
+	@FunctionalInterface
+	public interface LinkConsumer {
+		void accept(long processId, long exchangeId, int providerIdx);
+	}
 }
@@ -0,0 +1,349 @@
+package org.openlca.core.matrix.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.matrix.CalcExchange;
+import org.openlca.core.matrix.TechIndex;
+import org.openlca.core.model.FlowType;
+import org.openlca.core.model.UncertaintyType;
+
+import gnu.trove.list.array.TByteArrayList;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+
+/**
+ * A columnar in-memory store of the exchanges of a database. Instead of a
+ * `CalcExchange` object per exchange, the exchange attributes are stored in
+ * parallel primitive arrays (one entry per exchange) where the exchanges of a
+ * process are stored in a contiguous range of rows. Formulas are stored only
+ * once in a side table and the rarely used cost and uncertainty attributes are
+ * stored in separate columns that only contain the exchanges with such
+ * attributes. The store is loaded in a single pass over the exchange table.
+ *
+ * `CalcExchange` objects are created on demand when the exchanges are read
+ * (e.g. via `each`); they are not kept in the store.
+ *
+ * The store does not track changes in the database. A process can be removed
+ * from the store via `evict`. Processes that are not in the store (e.g. new
+ * processes or evicted processes) are loaded from the database when they are
+ * requested and kept in a separate map.
+ */
+public final class ExchangeStore {
+
+	private static final byte INPUT = 1;
+	private static final byte AVOIDED = 2;
+
+	private static final FlowType[] flowTypes = FlowType.values();
+	private static final UncertaintyType[] uncertaintyTypes = UncertaintyType
+			.values();
+
+	private final ExchangeTable table;
+
+	/** The first row and number of rows of a process. */
+	private final TLongIntHashMap offsets;
+	private final TLongIntHashMap counts;
+
+	private final long[] ids;
+	private final long[] owners;
+	private final long[] flows;
+	private final long[] providers;
+	private final double[] amounts;
+	private final double[] conversions;
+	private final byte[] flags;
+
+	/** The ordinal of the flow type or -1 if the flow type is unknown. */
+	private final byte[] types;
+
+	/** Indices into the formula table or -1 if there is no formula. */
+	private final int[] formulas;
+
+	/** Indices into the cost columns or -1 if there are no costs. */
+	private final int[] costRows;
+
+	/** Indices into the uncertainty columns or -1 if not present. */
+	private final int[] uncertaintyRows;
+
+	private final String[] formulaTable;
+
+	private final double[] costValues;
+	private final double[] currencyFactors;
+	private final int[] costFormulas;
+
+	private final byte[] uncertaintyTypeColumn;
+
+	/** Three parameters for each row of the uncertainty columns. */
+	private final double[] uncertaintyParams;
+
+	/** Processes that were loaded after the store was created. */
+	private final TLongObjectHashMap<List<CalcExchange>> loaded = new TLongObjectHashMap<>();
+
+	private ExchangeStore(ExchangeTable table, Builder b) {
+		this.table = table;
+		int n = b.ids.size();
+
+		// group the rows by process
+		offsets = new TLongIntHashMap();
+		counts = new TLongIntHashMap();
+		for (int i = 0; i < n; i++) {
+			counts.adjustOrPutValue(b.owners.get(i), 1, 1);
+		}
+		int next = 0;
+		TLongIntHashMap positions = new TLongIntHashMap();
+		for (int i = 0; i < n; i++) {
+			long owner = b.owners.get(i);
+			if (offsets.containsKey(owner))
+				continue;
+			offsets.put(owner, next);
+			positions.put(owner, next);
+			next += counts.get(owner);
+		}
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			int pos = positions.adjustOrPutValue(b.owners.get(i), 1, 0) - 1;
+			order[pos] = i;
+		}
+
+		ids = new long[n];
+		owners = new long[n];
+		flows = new long[n];
+		providers = new long[n];
+		amounts = new double[n];
+		conversions = new double[n];
+		flags = new byte[n];
+		types = new byte[n];
+		formulas = new int[n];
+		costRows = new int[n];
+		uncertaintyRows = new int[n];
+		for (int row = 0; row < n; row++) {
+			int i = order[row];
+			ids[row] = b.ids.get(i);
+			owners[row] = b.owners.get(i);
+			flows[row] = b.flows.get(i);
+			providers[row] = b.providers.get(i);
+			amounts[row] = b.amounts.get(i);
+			conversions[row] = b.conversions.get(i);
+			flags[row] = b.flags.get(i);
+			types[row] = b.types.get(i);
+			formulas[row] = b.formulas.get(i);
+			costRows[row] = b.costRows.get(i);
+			uncertaintyRows[row] = b.uncertaintyRows.get(i);
+		}
+
+		formulaTable = b.formulaTable.toArray(new String[0]);
+		costValues = b.costValues.toArray();
+		currencyFactors = b.currencyFactors.toArray();
+		costFormulas = b.costFormulas.toArray();
+		uncertaintyTypeColumn = b.uncertaintyTypes.toArray();
+		uncertaintyParams = b.uncertaintyParams.toArray();
+	}
+
+	/**
+	 * Loads all exchanges of the given database into a new store.
+	 */
+	public static ExchangeStore create(IDatabase db) {
+		ExchangeTable table = new ExchangeTable(db);
+		Builder builder = new Builder();
+		table.scan(null, builder::add);
+		return new ExchangeStore(table, builder);
+	}
+
+	/** Returns the number of exchanges in the columns of this store. */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Removes the exchanges of the given process from this store. When they
+	 * are requested the next time, they are loaded from the database.
+	 */
+	public synchronized void evict(long processId) {
+		offsets.remove(processId);
+		counts.remove(processId);
+		loaded.remove(processId);
+	}
+
+	/**
+	 * Calls the given function for each exchange of the processes in the given
+	 * index (see `ExchangeTable.each`).
+	 */
+	public void each(TechIndex techIndex, Consumer<CalcExchange> fn) {
+		for (long processId : techIndex.getProcessIds()) {
+			if (!techIndex.isProvider(processId))
+				continue;
+			for (CalcExchange e : get(processId)) {
+				fn.accept(e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the exchanges of the given process.
+	 */
+	public List<CalcExchange> get(long processId) {
+		int offset;
+		int count;
+		synchronized (this) {
+			if (!offsets.containsKey(processId))
+				return load(processId);
+			offset = offsets.get(processId);
+			count = counts.get(processId);
+		}
+		List<CalcExchange> list = new ArrayList<>(count);
+		for (int row = offset; row < offset + count; row++) {
+			list.add(exchange(row));
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the exchanges of the given processes mapped by process ID.
+	 */
+	public Map<Long, List<CalcExchange>> getAll(Iterable<Long> processIds) {
+		if (processIds == null)
+			return Collections.emptyMap();
+		Map<Long, List<CalcExchange>> map = new HashMap<>();
+		for (Long id : processIds) {
+			if (id == null)
+				continue;
+			map.put(id, get(id));
+		}
+		return map;
+	}
+
+	private synchronized List<CalcExchange> load(long processId) {
+		List<CalcExchange> list = loaded.get(processId);
+		if (list != null)
+			return list;
+		List<CalcExchange> exchanges = new ArrayList<>();
+		table.scan("f_owner = " + processId, exchanges::add);
+		list = Collections.unmodifiableList(exchanges);
+		loaded.put(processId, list);
+		return list;
+	}
+
+	private CalcExchange exchange(int row) {
+		CalcExchange e = new CalcExchange();
+		e.exchangeId = ids[row];
+		e.processId = owners[row];
+		e.flowId = flows[row];
+		e.flowType = types[row] < 0 ? null : flowTypes[types[row]];
+		e.conversionFactor = conversions[row];
+		e.amount = amounts[row];
+		if (formulas[row] >= 0) {
+			e.amountFormula = formulaTable[formulas[row]];
+		}
+		e.isInput = (flags[row] & INPUT) != 0;
+		e.isAvoided = (flags[row] & AVOIDED) != 0;
+		e.defaultProviderId = providers[row];
+
+		int c = costRows[row];
+		if (c >= 0) {
+			e.costValue = costValues[c];
+			e.currencyFactor = currencyFactors[c];
+			if (costFormulas[c] >= 0) {
+				e.costFormula = formulaTable[costFormulas[c]];
+			}
+		}
+
+		int u = uncertaintyRows[row];
+		if (u >= 0) {
+			e.uncertaintyType = uncertaintyTypes[uncertaintyTypeColumn[u]];
+			e.parameter1 = uncertaintyParams[3 * u];
+			e.parameter2 = uncertaintyParams[3 * u + 1];
+			e.parameter3 = uncertaintyParams[3 * u + 2];
+		}
+		return e;
+	}
+
+	/**
+	 * Collects the exchanges in the order of the exchange table.
+	 */
+	private static class Builder {
+
+		final TLongArrayList ids = new TLongArrayList();
+		final TLongArrayList owners = new TLongArrayList();
+		final TLongArrayList flows = new TLongArrayList();
+		final TLongArrayList providers = new TLongArrayList();
+		final TDoubleArrayList amounts = new TDoubleArrayList();
+		final TDoubleArrayList conversions = new TDoubleArrayList();
+		final TByteArrayList flags = new TByteArrayList();
+		final TByteArrayList types = new TByteArrayList();
+		final TIntArrayList formulas = new TIntArrayList();
+		final TIntArrayList costRows = new TIntArrayList();
+		final TIntArrayList uncertaintyRows = new TIntArrayList();
+
+		final List<String> formulaTable = new ArrayList<>();
+		final TObjectIntHashMap<String> formulaIndex = new TObjectIntHashMap<>(
+				10, 0.5f, -1);
+
+		final TDoubleArrayList costValues = new TDoubleArrayList();
+		final TDoubleArrayList currencyFactors = new TDoubleArrayList();
+		final TIntArrayList costFormulas = new TIntArrayList();
+
+		final TByteArrayList uncertaintyTypes = new TByteArrayList();
+		final TDoubleArrayList uncertaintyParams = new TDoubleArrayList();
+
+		void add(CalcExchange e) {
+			ids.add(e.exchangeId);
+			owners.add(e.processId);
+			flows.add(e.flowId);
+			providers.add(e.defaultProviderId);
+			amounts.add(e.amount);
+			conversions.add(e.conversionFactor);
+			byte f = 0;
+			if (e.isInput) {
+				f |= INPUT;
+			}
+			if (e.isAvoided) {
+				f |= AVOIDED;
+			}
+			flags.add(f);
+			types.add(e.flowType == null
+					? -1
+					: (byte) e.flowType.ordinal());
+			formulas.add(formula(e.amountFormula));
+
+			if (e.currencyFactor != 0 || e.costValue != 0
+					|| e.costFormula != null) {
+				costRows.add(costValues.size());
+				costValues.add(e.costValue);
+				currencyFactors.add(e.currencyFactor);
+				costFormulas.add(formula(e.costFormula));
+			} else {
+				costRows.add(-1);
+			}
+
+			if (e.uncertaintyType != null) {
+				uncertaintyRows.add(uncertaintyTypes.size());
+				uncertaintyTypes.add((byte) e.uncertaintyType.ordinal());
+				uncertaintyParams.add(e.parameter1);
+				uncertaintyParams.add(e.parameter2);
+				uncertaintyParams.add(e.parameter3);
+			} else {
+				uncertaintyRows.add(-1);
+			}
+		}
+
+		private int formula(String formula) {
+			if (formula == null)
+				return -1;
+			int idx = formulaIndex.get(formula);
+			if (idx >= 0)
+				return idx;
+			idx = formulaTable.size();
+			formulaTable.add(formula);
+			formulaIndex.put(formula, idx);
+			return idx;
+		}
+	}
+}
@@ -29,22 +29,36 @@ public class ExchangeTable {
 	 * index.
 	 */
 	public void each(TechIndex techIndex, Consumer<CalcExchange> fn) {
-		String sql = query();
+		String condition = null;
 		if (techIndex.size() < 1000) {
 			// avoid full table scans in LCI databases
-			sql += " where f_owner in " + CacheUtil.asSql(
+			condition = "f_owner in " + CacheUtil.asSql(
 					techIndex.getProcessIds());
 		}
+		scan(condition, e -> {
+			if (techIndex.isProvider(e.processId)) {
+				fn.accept(e);
+			}
+		});
+	}
+
+	/**
+	 * Calls the given function for each exchange in the table that matches the
+	 * given SQL condition. If the condition is null, all exchanges are passed
+	 * into the function.
+	 */
+	void scan(String condition, Consumer<CalcExchange> fn) {
+		String sql = query();
+		if (condition != null) {
+			sql += " where " + condition;
+		}
 		try {
 			NativeSql.on(db).query(sql, r -> {
-				long owner = r.getLong(2);
-				if (techIndex.isProvider(owner)) {
-					try {
-						fn.accept(next(owner, r));
-					} catch (Exception e) {
-						throw new RuntimeException(
-								"failed to read exchange row", e);
-					}
+				try {
+					fn.accept(next(r.getLong(2), r));
+				} catch (Exception e) {
+					throw new RuntimeException(
+							"failed to read exchange row", e);
 				}
 				return true;
 			});
@@ -1,6 +1,8 @@
 package org.openlca.core.matrix.cache;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.matrix.CalcExchange;
@@ -20,6 +22,8 @@ public final class MatrixCache {
 
 	private LoadingCache<Long, List<CalcImpactFactor>> impactCache;
 	private LoadingCache<Long, List<CalcExchange>> exchangeCache;
+	private ExchangeStore exchangeStore;
+	private MatrixSnapshots snapshots;
 
 	public static MatrixCache createEager(IDatabase database) {
 		return new MatrixCache(database, false);
@@ -42,6 +46,24 @@ public final class MatrixCache {
 		}
 	}
 
+	/**
+	 * Enables the persistent snapshots of matrix data for this cache (see
+	 * `MatrixSnapshots`). The snapshots are invalidated when the database
+	 * is changed or when a change is registered in this cache.
+	 */
+	public MatrixCache withSnapshots() {
+		snapshots = MatrixSnapshots.of(database);
+		return this;
+	}
+
+	/**
+	 * Returns the matrix snapshots of this cache or null if they are not
+	 * enabled (see `withSnapshots`).
+	 */
+	public MatrixSnapshots getSnapshots() {
+		return snapshots;
+	}
+
 	public IDatabase getDatabase() {
 		return database;
 	}
@@ -71,6 +93,40 @@ public final class MatrixCache {
 		return impactCache;
 	}
 
+	/**
+	 * Returns the columnar store of the exchanges of the database (see
+	 * `ExchangeStore`) or null if this is a lazy cache. The store contains all
+	 * exchanges of the database and is loaded when this method is called for
+	 * the first time. A lazy cache does not load it; the exchanges are then
+	 * read from the database when they are needed.
+	 */
+	public synchronized ExchangeStore getExchangeStore() {
+		if (lazy)
+			return null;
+		if (exchangeStore == null)
+			exchangeStore = ExchangeStore.create(database);
+		return exchangeStore;
+	}
+
+	/**
+	 * Returns the exchanges of the given processes mapped by process ID. An
+	 * eager cache takes them from the exchange store and a lazy cache loads
+	 * and caches them per process.
+	 */
+	public Map<Long, List<CalcExchange>> getExchanges(
+			Iterable<Long> processIds) throws ExecutionException {
+		ExchangeStore store = getExchangeStore();
+		if (store != null)
+			return store.getAll(processIds);
+		return getExchangeCache().getAll(processIds);
+	}
+
+	/**
+	 * @deprecated the exchange cache keeps an object for each exchange; use
+	 *             `getExchanges` instead which takes the exchanges from the
+	 *             more compact exchange store in eager caches.
+	 */
+	@Deprecated
 	public LoadingCache<Long, List<CalcExchange>> getExchangeCache() {
 		if (exchangeCache == null)
 			exchangeCache = ExchangeCache.create(database,
@@ -87,12 +143,15 @@ public final class MatrixCache {
 			exchangeCache.invalidateAll();
 		if (impactCache != null)
 			impactCache.invalidateAll();
+		exchangeStore = null;
 		processTable = null;
+		invalidateSnapshots();
 	}
 
 	public synchronized void evict(ModelType type, long id) {
 		if (type == null)
 			return;
+		invalidateSnapshots();
 		switch (type) {
 		case FLOW:
 			baseEviction();
@@ -136,6 +195,7 @@ public final class MatrixCache {
 			exchangeCache.invalidateAll();
 			impactCache.invalidateAll();
 		}
+		exchangeStore = null;
 		processTable = null;
 	}
 
@@ -143,11 +203,26 @@ public final class MatrixCache {
 		processTable = null;
 		if (exchangeCache != null)
 			exchangeCache.invalidate(id);
+		if (exchangeStore != null)
+			exchangeStore.evict(id);
+	}
+
+	/**
+	 * Any change can modify the matrices of a product system (e.g. a changed
+	 * parameter or provider), thus all snapshots of the database are
+	 * invalidated, also when they are not enabled for this cache.
+	 */
+	private void invalidateSnapshots() {
+		MatrixSnapshots s = snapshots != null
+				? snapshots
+				: MatrixSnapshots.of(database);
+		s.invalidate();
 	}
 
 	public synchronized void registerNew(ModelType type, long id) {
 		if (type == null)
 			return;
+		invalidateSnapshots();
 		switch (type) {
 		case FLOW:
 			baseEviction();
@@ -0,0 +1,585 @@
+package org.openlca.core.matrix.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.IDatabaseListener;
+import org.openlca.core.matrix.DIndex;
+import org.openlca.core.matrix.FlowIndex;
+import org.openlca.core.matrix.LongPair;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.TechIndex;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.solvers.IMatrixSolver;
+import org.openlca.core.model.FlowType;
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.ProcessType;
+import org.openlca.core.model.descriptors.BaseDescriptor;
+import org.openlca.core.model.descriptors.CategorizedDescriptor;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
+import org.openlca.core.model.descriptors.ProcessDescriptor;
+import org.openlca.core.model.descriptors.ProductSystemDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores snapshots of matrix data (the matrix indices, the technology,
+ * intervention, and impact matrices, and the cost vector) in a binary format
+ * in the file storage location of a database. A snapshot is stored under a
+ * key that describes the calculation setup (see
+ * `DataStructures.matrixData`), so that a calculation can load the matrices
+ * of an unchanged product system without querying the database.
+ *
+ * The snapshots are invalidated via a change stamp that is stored next to the
+ * snapshots: when something in the database changes, the stamp is increased
+ * and all snapshots are deleted. A snapshot is only used when it was created
+ * with the current stamp. The instance of a database (see `of`) is registered
+ * as listener of the database, so that every insert, update, or delete via
+ * the DAOs invalidates the snapshots. Changes that bypass the DAOs (e.g.
+ * native SQL) require an explicit call of `invalidate` (see also
+ * `MatrixCache.evict` and `MatrixCache.registerNew`). Matrix data with
+ * uncertainty distributions or formula cells are not stored as these need
+ * the parameters and exchanges of the database anyway.
+ */
+public final class MatrixSnapshots implements IDatabaseListener {
+
+	private static final int MAGIC = 0x4f4c4d53;
+	private static final int VERSION = 1;
+
+	private static final byte NULL = 0;
+	private static final byte DENSE = 1;
+	private static final byte SPARSE = 2;
+
+	/** Synchronizes the access to the stamp files of this JVM. */
+	private static final Object lock = new Object();
+
+	private static final Map<IDatabase, MatrixSnapshots> instances = Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	/** The snapshot folder; null if the database has no file storage. */
+	private final File dir;
+
+	/**
+	 * Is true when the stamp was increased and it was not read and no
+	 * snapshot was stored since then. In this case, a further change does not
+	 * need to increase the stamp again, which is important for bulk changes
+	 * like imports where every inserted entity is reported.
+	 */
+	private boolean clean;
+
+	private MatrixSnapshots(File dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * Returns the snapshots of the given database. There is one instance per
+	 * database which is registered as listener of that database.
+	 */
+	public static MatrixSnapshots of(IDatabase db) {
+		if (db == null)
+			return new MatrixSnapshots(null);
+		synchronized (instances) {
+			MatrixSnapshots snapshots = instances.get(db);
+			if (snapshots != null)
+				return snapshots;
+			File root = db.getFileStorageLocation();
+			snapshots = new MatrixSnapshots(root == null
+					? null
+					: new File(root, "matrix_snapshots"));
+			db.addListener(snapshots);
+			instances.put(db, snapshots);
+			return snapshots;
+		}
+	}
+
+	/** Creates an instance that stores the snapshots in the given folder. */
+	public static MatrixSnapshots in(File dir) {
+		return new MatrixSnapshots(dir);
+	}
+
+	/**
+	 * Returns the current change stamp. This stamp should be read before the
+	 * matrix data of a snapshot are built and passed into `put` then.
+	 */
+	public long stamp() {
+		if (dir == null)
+			return 0;
+		synchronized (lock) {
+			// create the folder so that changes are recorded from now on
+			if (!dir.exists()) {
+				dir.mkdirs();
+			}
+			clean = false;
+			return readStamp();
+		}
+	}
+
+	private long readStamp() {
+		File file = new File(dir, "stamp");
+		synchronized (lock) {
+			if (!file.exists())
+				return 0;
+			try {
+				byte[] bytes = Files.readAllBytes(file.toPath());
+				return Long.parseLong(
+						new String(bytes, StandardCharsets.UTF_8).trim());
+			} catch (Exception e) {
+				log.warn("invalid snapshot stamp " + file, e);
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Increases the change stamp and deletes all snapshots. Nothing is done
+	 * when no snapshot was created yet or when the stamp was not used since
+	 * the last invalidation.
+	 */
+	public void invalidate() {
+		if (dir == null || !dir.exists())
+			return;
+		synchronized (lock) {
+			if (clean)
+				return;
+			clean = true;
+			long next = Math.max(0, readStamp()) + 1;
+			try {
+				Files.write(new File(dir, "stamp").toPath(),
+						Long.toString(next).getBytes(StandardCharsets.UTF_8));
+			} catch (IOException e) {
+				log.error("failed to write snapshot stamp", e);
+			}
+			File[] files = dir.listFiles();
+			if (files == null)
+				return;
+			for (File file : files) {
+				if (file.getName().endsWith(".bin")) {
+					file.delete();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void modelInserted(BaseDescriptor descriptor) {
+		invalidate();
+	}
+
+	@Override
+	public void modelUpdated(BaseDescriptor descriptor) {
+		invalidate();
+	}
+
+	@Override
+	public void modelDeleted(BaseDescriptor descriptor) {
+		invalidate();
+	}
+
+	/**
+	 * Loads the snapshot with the given key. The impact matrix is created with
+	 * the given solver. Returns null if there is no valid snapshot for the
+	 * given key.
+	 */
+	public MatrixData get(String key, IMatrixSolver solver) {
+		File file = file(key);
+		if (file == null || !file.exists())
+			return null;
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return null;
+			long stamp = in.readLong();
+			if (stamp != readStamp() || !key.equals(readString(in)))
+				return null;
+			MatrixData data = new MatrixData();
+			data.techIndex = readTechIndex(in);
+			data.enviIndex = readFlowIndex(in);
+			if (in.readBoolean()) {
+				DIndex<ImpactCategoryDescriptor> impacts = new DIndex<>();
+				int n = in.readInt();
+				for (int i = 0; i < n; i++) {
+					impacts.put((ImpactCategoryDescriptor) readDescriptor(in));
+				}
+				data.impactIndex = impacts;
+			}
+			data.techMatrix = readMatrix(in, null);
+			data.enviMatrix = readMatrix(in, null);
+			data.impactMatrix = readMatrix(in, solver);
+			if (in.readBoolean()) {
+				data.costVector = readDoubles(in);
+			}
+			return data;
+		} catch (Exception e) {
+			log.warn("failed to read matrix snapshot " + file, e);
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the given matrix data under the given key. The given stamp is
+	 * the change stamp from before the data were built (see `stamp()`).
+	 */
+	public void put(String key, long stamp, MatrixData data) {
+		if (dir == null || data == null || data.techIndex == null)
+			return;
+		if (data.techUncertainties != null || data.formulaCells != null)
+			return;
+		if (!dir.exists() && !dir.mkdirs())
+			return;
+		synchronized (lock) {
+			clean = false;
+		}
+		File file = file(key);
+		File tmp = new File(dir, UUID.randomUUID().toString() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(stamp);
+			writeString(out, key);
+			writeTechIndex(out, data.techIndex);
+			writeFlowIndex(out, data.enviIndex);
+			out.writeBoolean(data.impactIndex != null);
+			if (data.impactIndex != null) {
+				out.writeInt(data.impactIndex.size());
+				for (int i = 0; i < data.impactIndex.size(); i++) {
+					writeDescriptor(out, data.impactIndex.at(i));
+				}
+			}
+			writeMatrix(out, data.techMatrix);
+			writeMatrix(out, data.enviMatrix);
+			writeMatrix(out, data.impactMatrix);
+			out.writeBoolean(data.costVector != null);
+			if (data.costVector != null) {
+				writeDoubles(out, data.costVector);
+			}
+		} catch (Exception e) {
+			log.error("failed to write matrix snapshot", e);
+			tmp.delete();
+			return;
+		}
+		try {
+			Files.move(tmp.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			log.error("failed to move matrix snapshot", e);
+			tmp.delete();
+		}
+	}
+
+	private File file(String key) {
+		if (dir == null || key == null)
+			return null;
+		UUID id = UUID.nameUUIDFromBytes(
+				key.getBytes(StandardCharsets.UTF_8));
+		return new File(dir, id.toString() + ".bin");
+	}
+
+	private void writeTechIndex(DataOutputStream out, TechIndex idx)
+			throws IOException {
+		out.writeDouble(idx.getDemand());
+		out.writeInt(idx.size());
+		for (int i = 0; i < idx.size(); i++) {
+			ProcessProduct p = idx.getProviderAt(i);
+			writeDescriptor(out, p.process);
+			writeDescriptor(out, p.flow);
+		}
+		out.writeInt(idx.linkCount());
+		IOException[] err = new IOException[1];
+		idx.eachLink((processId, exchangeId, providerIdx) -> {
+			if (err[0] != null)
+				return;
+			try {
+				out.writeLong(processId);
+				out.writeLong(exchangeId);
+				out.writeInt(providerIdx);
+			} catch (IOException e) {
+				err[0] = e;
+			}
+		});
+		if (err[0] != null)
+			throw err[0];
+	}
+
+	private TechIndex readTechIndex(DataInputStream in) throws IOException {
+		double demand = in.readDouble();
+		int n = in.readInt();
+		ProcessProduct[] providers = new ProcessProduct[n];
+		for (int i = 0; i < n; i++) {
+			CategorizedDescriptor process = (CategorizedDescriptor) readDescriptor(
+					in);
+			FlowDescriptor flow = (FlowDescriptor) readDescriptor(in);
+			providers[i] = ProcessProduct.of(process, flow);
+		}
+		TechIndex idx = new TechIndex(providers[0]);
+		for (int i = 1; i < n; i++) {
+			idx.put(providers[i]);
+		}
+		idx.setDemand(demand);
+		int links = in.readInt();
+		for (int i = 0; i < links; i++) {
+			LongPair exchange = LongPair.of(in.readLong(), in.readLong());
+			idx.putLink(exchange, providers[in.readInt()]);
+		}
+		return idx;
+	}
+
+	private void writeFlowIndex(DataOutputStream out, FlowIndex idx)
+			throws IOException {
+		out.writeInt(idx.size());
+		for (int i = 0; i < idx.size(); i++) {
+			FlowDescriptor flow = idx.at(i);
+			writeDescriptor(out, flow);
+			out.writeBoolean(idx.isInput(flow));
+		}
+	}
+
+	private FlowIndex readFlowIndex(DataInputStream in) throws IOException {
+		FlowIndex idx = new FlowIndex();
+		int n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			FlowDescriptor flow = (FlowDescriptor) readDescriptor(in);
+			if (in.readBoolean()) {
+				idx.putInput(flow);
+			} else {
+				idx.putOutput(flow);
+			}
+		}
+		return idx;
+	}
+
+	private void writeDescriptor(DataOutputStream out, BaseDescriptor d)
+			throws IOException {
+		out.writeInt(d.type.ordinal());
+		out.writeLong(d.id);
+		writeString(out, d.refId);
+		writeString(out, d.name);
+		writeString(out, d.description);
+		out.writeLong(d.version);
+		out.writeLong(d.lastChange);
+		if (d instanceof CategorizedDescriptor) {
+			writeLong(out, ((CategorizedDescriptor) d).category);
+		}
+		if (d instanceof ProcessDescriptor) {
+			ProcessDescriptor p = (ProcessDescriptor) d;
+			out.writeInt(p.processType == null ? -1 : p.processType.ordinal());
+			out.writeBoolean(p.infrastructureProcess);
+			writeLong(out, p.location);
+			writeLong(out, p.quantitativeReference);
+		} else if (d instanceof FlowDescriptor) {
+			FlowDescriptor f = (FlowDescriptor) d;
+			out.writeInt(f.flowType == null ? -1 : f.flowType.ordinal());
+			writeLong(out, f.location);
+			out.writeLong(f.refFlowPropertyId);
+		} else if (d instanceof ImpactCategoryDescriptor) {
+			writeString(out, ((ImpactCategoryDescriptor) d).referenceUnit);
+		}
+	}
+
+	private BaseDescriptor readDescriptor(DataInputStream in)
+			throws IOException {
+		ModelType type = ModelType.values()[in.readInt()];
+		BaseDescriptor d;
+		switch (type) {
+		case PROCESS:
+			d = new ProcessDescriptor();
+			break;
+		case PRODUCT_SYSTEM:
+			d = new ProductSystemDescriptor();
+			break;
+		case FLOW:
+			d = new FlowDescriptor();
+			break;
+		case IMPACT_CATEGORY:
+			d = new ImpactCategoryDescriptor();
+			break;
+		default:
+			throw new IOException("unexpected descriptor type " + type);
+		}
+		d.id = in.readLong();
+		d.refId = readString(in);
+		d.name = readString(in);
+		d.description = readString(in);
+		d.version = in.readLong();
+		d.lastChange = in.readLong();
+		if (d instanceof CategorizedDescriptor) {
+			((CategorizedDescriptor) d).category = readLong(in);
+		}
+		if (d instanceof ProcessDescriptor) {
+			ProcessDescriptor p = (ProcessDescriptor) d;
+			int t = in.readInt();
+			p.processType = t < 0 ? null : ProcessType.values()[t];
+			p.infrastructureProcess = in.readBoolean();
+			p.location = readLong(in);
+			p.quantitativeReference = readLong(in);
+		} else if (d instanceof FlowDescriptor) {
+			FlowDescriptor f = (FlowDescriptor) d;
+			int t = in.readInt();
+			f.flowType = t < 0 ? null : FlowType.values()[t];
+			f.location = readLong(in);
+			f.refFlowPropertyId = in.readLong();
+		} else if (d instanceof ImpactCategoryDescriptor) {
+			((ImpactCategoryDescriptor) d).referenceUnit = readString(in);
+		}
+		return d;
+	}
+
+	/**
+	 * Writes a dense matrix column-major and other matrices in the compressed
+	 * sparse column format.
+	 */
+	private void writeMatrix(DataOutputStream out, IMatrix m)
+			throws IOException {
+		if (m == null) {
+			out.writeByte(NULL);
+			return;
+		}
+		if (m instanceof DenseMatrix) {
+			DenseMatrix d = (DenseMatrix) m;
+			out.writeByte(DENSE);
+			out.writeInt(d.rows);
+			out.writeInt(d.columns);
+			writeDoubles(out, d.data);
+			return;
+		}
+		CSCMatrix csc = CSCMatrix.of(m);
+		out.writeByte(SPARSE);
+		out.writeInt(csc.rows);
+		out.writeInt(csc.columns);
+		writeInts(out, csc.columnPointers);
+		writeInts(out, csc.rowIndices);
+		writeDoubles(out, csc.values);
+	}
+
+	/**
+	 * Reads a matrix. If a solver is given, the matrix is created with that
+	 * solver; otherwise a dense or hash point matrix is created.
+	 */
+	private IMatrix readMatrix(DataInputStream in, IMatrixSolver solver)
+			throws IOException {
+		byte format = in.readByte();
+		if (format == NULL)
+			return null;
+		int rows = in.readInt();
+		int cols = in.readInt();
+		if (format == DENSE) {
+			double[] data = readDoubles(in);
+			IMatrix m = solver != null
+					? solver.matrix(rows, cols)
+					: new DenseMatrix(rows, cols);
+			if (m instanceof DenseMatrix) {
+				System.arraycopy(data, 0, ((DenseMatrix) m).data, 0,
+						data.length);
+				return m;
+			}
+			for (int col = 0; col < cols; col++) {
+				for (int row = 0; row < rows; row++) {
+					double val = data[col * rows + row];
+					if (val != 0) {
+						m.set(row, col, val);
+					}
+				}
+			}
+			return m;
+		}
+		int[] columnPointers = readInts(in);
+		int[] rowIndices = readInts(in);
+		double[] values = readDoubles(in);
+		IMatrix m = solver != null
+				? solver.matrix(rows, cols)
+				: new HashPointMatrix(rows, cols);
+		for (int col = 0; col < cols; col++) {
+			for (int i = columnPointers[col]; i < columnPointers[col + 1]; i++) {
+				m.set(rowIndices[i], col, values[i]);
+			}
+		}
+		return m;
+	}
+
+	private static void writeDoubles(DataOutputStream out, double[] values)
+			throws IOException {
+		out.writeInt(values.length);
+		for (double v : values) {
+			out.writeDouble(v);
+		}
+	}
+
+	private static double[] readDoubles(DataInputStream in)
+			throws IOException {
+		double[] values = new double[in.readInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readDouble();
+		}
+		return values;
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values)
+			throws IOException {
+		out.writeInt(values.length);
+		for (int v : values) {
+			out.writeInt(v);
+		}
+	}
+
+	private static int[] readInts(DataInputStream in) throws IOException {
+		int[] values = new int[in.readInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	private static void writeString(DataOutputStream out, String s)
+			throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeLong(DataOutputStream out, Long value)
+			throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeLong(value);
+		}
+	}
+
+	private static Long readLong(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readLong() : null;
+	}
+}
@@ -67,6 +67,11 @@ public class CSCMatrix implements IMatrix {
 					values, columnPointers, rowIndices);
 		}
 
+		if (m instanceof HashPointMatrix)
+			return of(((HashPointMatrix) m).compress());
+		if (m instanceof CompressedRowMatrix)
+			return of((CompressedRowMatrix) m);
+
 		// compress another matrix format
 		int[] columnPointers = new int[m.columns() + 1];
 		TDoubleArrayList values = new TDoubleArrayList(m.rows());
@@ -96,6 +101,152 @@ public class CSCMatrix implements IMatrix {
 				values.toArray(), columnPointers, rowIndices.toArray());
 	}
 
+	/**
+	 * Converts a compressed row matrix into the compressed column format. As
+	 * the rows are visited in order, the row indices of each column are sorted
+	 * in the result (which is required by some native solvers).
+	 */
+	private static CSCMatrix of(CompressedRowMatrix m) {
+		int nnz = m.values.length;
+		int[] columnPointers = new int[m.columns + 1];
+		for (int k = 0; k < nnz; k++) {
+			columnPointers[m.columnIndices[k] + 1]++;
+		}
+		for (int col = 0; col < m.columns; col++) {
+			columnPointers[col + 1] += columnPointers[col];
+		}
+		int[] next = Arrays.copyOf(columnPointers, m.columns);
+		int[] rowIndices = new int[nnz];
+		double[] values = new double[nnz];
+		for (int row = 0; row < m.rows; row++) {
+			int start = m.rowPointers[row];
+			int end = row == (m.rows - 1)
+					? nnz
+					: m.rowPointers[row + 1];
+			for (int k = start; k < end; k++) {
+				int pos = next[m.columnIndices[k]]++;
+				rowIndices[pos] = row;
+				values[pos] = m.values[k];
+			}
+		}
+		return new CSCMatrix(m.rows, m.columns,
+				values, columnPointers, rowIndices);
+	}
+
+	/**
+	 * Performs a matrix-vector multiplication with the given vector v.
+	 */
+	public double[] multiply(double[] v) {
+		double[] x = new double[rows];
+		for (int col = 0; col < columns; col++) {
+			double vj = v[col];
+			if (vj == 0)
+				continue;
+			for (int k = columnPointers[col]; k < columnPointers[col + 1]; k++) {
+				x[rowIndices[k]] += values[k] * vj;
+			}
+		}
+		return x;
+	}
+
+	/**
+	 * Calculates the matrix product $\mathbf{a} \ \mathbf{b}$ and returns it
+	 * in the compressed column format. The product is calculated column by
+	 * column and only the non-zero values of $\mathbf{b}$ and the respective
+	 * columns of $\mathbf{a}$ are visited. Thus, the result is small when
+	 * $\mathbf{b}$ is sparse and $\mathbf{a}$ has only a few rows (e.g. the
+	 * characterization factors and the direct inventory contributions). The
+	 * columns of $\mathbf{a}$ are iterated directly unless it is in a
+	 * row-oriented format (see `columnOriented`).
+	 */
+	public static CSCMatrix multiply(IMatrix a, CSCMatrix b) {
+		if (a.columns() != b.rows)
+			throw new IllegalArgumentException("a.columns != b.rows");
+		IMatrix ac = columnOriented(a);
+		int rows = a.rows();
+		double[] col = new double[rows];
+		int[] columnPointers = new int[b.columns + 1];
+		TDoubleArrayList values = new TDoubleArrayList();
+		TIntArrayList rowIndices = new TIntArrayList();
+		for (int j = 0; j < b.columns; j++) {
+			columnPointers[j] = values.size();
+			int end = b.columnPointers[j + 1];
+			if (b.columnPointers[j] == end)
+				continue;
+			for (int k = b.columnPointers[j]; k < end; k++) {
+				double bkj = b.values[k];
+				if (bkj == 0)
+					continue;
+				ac.iterateColumn(b.rowIndices[k],
+						(i, _k, aik) -> col[i] += aik * bkj);
+			}
+			for (int i = 0; i < rows; i++) {
+				if (col[i] == 0)
+					continue;
+				values.add(col[i]);
+				rowIndices.add(i);
+				col[i] = 0;
+			}
+		}
+		columnPointers[b.columns] = values.size();
+		return new CSCMatrix(rows, b.columns,
+				values.toArray(), columnPointers, rowIndices.toArray());
+	}
+
+	/**
+	 * Returns the given matrix if its columns can be iterated efficiently,
+	 * which is the case for dense matrices and the compressed column layouts
+	 * (like this class or the memory-mapped CSC matrices). Matrices in the
+	 * row-oriented sparse formats are converted into a `CSCMatrix` as they
+	 * would need a lookup in each row for a column.
+	 */
+	public static IMatrix columnOriented(IMatrix m) {
+		if (m instanceof HashPointMatrix || m instanceof CompressedRowMatrix)
+			return CSCMatrix.of(m);
+		return m;
+	}
+
+	@Override
+	public boolean isSparse() {
+		return true;
+	}
+
+	@Override
+	public void iterate(EntryFunction fn) {
+		for (int col = 0; col < columns; col++) {
+			for (int k = columnPointers[col]; k < columnPointers[col + 1]; k++) {
+				double val = values[k];
+				if (val != 0) {
+					fn.value(rowIndices[k], col, val);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void iterateColumn(int col, EntryFunction fn) {
+		for (int k = columnPointers[col]; k < columnPointers[col + 1]; k++) {
+			double val = values[k];
+			if (val != 0) {
+				fn.value(rowIndices[k], col, val);
+			}
+		}
+	}
+
+	/**
+	 * Scales the stored values of each column j with v[j]. This is allowed
+	 * for this format as the structure of the matrix is not changed.
+	 */
+	@Override
+	public void scaleColumns(double[] v) {
+		for (int col = 0; col < columns; col++) {
+			double f = v[col];
+			for (int k = columnPointers[col]; k < columnPointers[col + 1]; k++) {
+				values[k] *= f;
+			}
+		}
+	}
+
 	@Override
 	public int columns() {
 		return columns;
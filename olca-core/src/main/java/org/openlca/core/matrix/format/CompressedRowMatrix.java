@@ -77,6 +77,39 @@ public class CompressedRowMatrix implements IMatrix {
 		return rows;
 	}
 
+	@Override
+	public boolean isSparse() {
+		return true;
+	}
+
+	@Override
+	public void iterate(EntryFunction fn) {
+		for (int row = 0; row < rows; row++) {
+			iterateRow(row, fn);
+		}
+	}
+
+	@Override
+	public void iterateRow(int row, EntryFunction fn) {
+		int idxStart = rowPointers[row];
+		int idxEnd = row == (rows - 1)
+				? columnIndices.length
+				: rowPointers[row + 1];
+		for (int idx = idxStart; idx < idxEnd; idx++) {
+			double val = values[idx];
+			if (val != 0) {
+				fn.value(row, columnIndices[idx], val);
+			}
+		}
+	}
+
+	@Override
+	public void scaleColumns(double[] v) {
+		for (int idx = 0; idx < values.length; idx++) {
+			values[idx] *= v[columnIndices[idx]];
+		}
+	}
+
 	@Override
 	public void set(int row, int col, double val) {
 		int idxStart = rowPointers[row];
@@ -61,6 +61,35 @@ public class DenseMatrix implements IMatrix {
 		return row;
 	}
 
+	@Override
+	public void iterate(EntryFunction fn) {
+		for (int col = 0; col < columns; col++) {
+			iterateColumn(col, fn);
+		}
+	}
+
+	@Override
+	public void iterateColumn(int col, EntryFunction fn) {
+		int offset = col * rows;
+		for (int row = 0; row < rows; row++) {
+			double val = data[offset + row];
+			if (val != 0) {
+				fn.value(row, col, val);
+			}
+		}
+	}
+
+	@Override
+	public void scaleColumns(double[] v) {
+		for (int col = 0; col < columns; col++) {
+			double f = v[col];
+			int offset = col * rows;
+			for (int row = 0; row < rows; row++) {
+				data[offset + row] *= f;
+			}
+		}
+	}
+
 	private int index(int row, int column) {
 		return row + rows * column;
 	}
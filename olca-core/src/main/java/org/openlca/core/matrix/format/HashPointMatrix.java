@@ -108,21 +108,15 @@ public class HashPointMatrix implements IMatrix {
 
 	@Override
 	public double[] getColumn(int i) {
-		// TODO: use iterators
 		double[] column = new double[rows];
-		for (int row = 0; row < rows; row++) {
-			column[row] = get(row, i);
-		}
+		iterateColumn(i, (row, col, val) -> column[row] = val);
 		return column;
 	}
 
 	@Override
 	public double[] getRow(int i) {
-		// TODO: use iterators
 		double[] row = new double[cols];
-		for (int col = 0; col < cols; col++) {
-			row[col] = get(i, col);
-		}
+		iterateRow(i, (r, col, val) -> row[col] = val);
 		return row;
 	}
 
@@ -135,9 +129,15 @@ public class HashPointMatrix implements IMatrix {
 		return copy;
 	}
 
+	@Override
+	public boolean isSparse() {
+		return true;
+	}
+
 	/**
 	 * Iterates over the non-zero values in this matrix.
 	 */
+	@Override
 	public void iterate(EntryFunction fn) {
 		TIntObjectIterator<TIntDoubleHashMap> rows = data.iterator();
 		while (rows.hasNext()) {
@@ -151,6 +151,34 @@ public class HashPointMatrix implements IMatrix {
 		}
 	}
 
+	@Override
+	public void iterateRow(int row, EntryFunction fn) {
+		TIntDoubleHashMap rowMap = data.get(row);
+		if (rowMap == null)
+			return;
+		TIntDoubleIterator it = rowMap.iterator();
+		while (it.hasNext()) {
+			it.advance();
+			fn.value(row, it.key(), it.value());
+		}
+	}
+
+	/**
+	 * Iterates over the non-zero values in the given column. Note that the
+	 * values are stored by row so that this is a lookup in each row.
+	 */
+	@Override
+	public void iterateColumn(int col, EntryFunction fn) {
+		TIntObjectIterator<TIntDoubleHashMap> rows = data.iterator();
+		while (rows.hasNext()) {
+			rows.advance();
+			double val = rows.value().get(col);
+			if (val != 0) {
+				fn.value(rows.key(), col, val);
+			}
+		}
+	}
+
 	/**
 	 * Performs a matrix-vector multiplication with the given vector v.
 	 */
@@ -166,6 +194,7 @@ public class HashPointMatrix implements IMatrix {
 	 * Scales each column j of the matrix with the value v[j] of the given
 	 * vector: M * diagm(v). The matrix is modified in-place.
 	 */
+	@Override
 	public void scaleColumns(double[] v) {
 		TIntObjectIterator<TIntDoubleHashMap> rows = data.iterator();
 		while (rows.hasNext()) {
@@ -26,6 +26,63 @@ public interface IMatrix {
 	/** Creates a copy of this matrix and returns it */
 	IMatrix copy();
 
+	/**
+	 * Returns true if this matrix stores only its non-zero values. For such
+	 * matrices, the iteration over the non-zero values is much cheaper than an
+	 * iteration over all cells.
+	 */
+	default boolean isSparse() {
+		return false;
+	}
+
+	/**
+	 * Iterates over the non-zero values of this matrix. The default
+	 * implementation visits each cell of the matrix; sparse matrices override
+	 * this so that the iteration scales with the number of non-zero values.
+	 */
+	default void iterate(EntryFunction fn) {
+		int rows = rows();
+		int cols = columns();
+		for (int col = 0; col < cols; col++) {
+			for (int row = 0; row < rows; row++) {
+				double val = get(row, col);
+				if (val != 0) {
+					fn.value(row, col, val);
+				}
+			}
+		}
+	}
+
+	/** Iterates over the non-zero values of the given column. */
+	default void iterateColumn(int col, EntryFunction fn) {
+		int rows = rows();
+		for (int row = 0; row < rows; row++) {
+			double val = get(row, col);
+			if (val != 0) {
+				fn.value(row, col, val);
+			}
+		}
+	}
+
+	/** Iterates over the non-zero values of the given row. */
+	default void iterateRow(int row, EntryFunction fn) {
+		int cols = columns();
+		for (int col = 0; col < cols; col++) {
+			double val = get(row, col);
+			if (val != 0) {
+				fn.value(row, col, val);
+			}
+		}
+	}
+
+	/**
+	 * Scales each column j of this matrix with the value v[j] of the given
+	 * vector: M * diagm(v). The matrix is modified in-place.
+	 */
+	default void scaleColumns(double[] v) {
+		iterate((row, col, val) -> set(row, col, val * v[col]));
+	}
+
 	default void setValues(double[][] values) {
 		if (values == null)
 			return;
@@ -113,8 +113,9 @@ public final class CsvOut {
 		String[] mask = new String[matrix.columns()];
 		writer(file, w -> {
 			for (int row = 0; row < matrix.rows(); row++) {
-				for (int col = 0; col < matrix.columns(); col++) {
-					mask[col] = Double.toString(matrix.get(row, col));
+				double[] values = matrix.getRow(row);
+				for (int col = 0; col < values.length; col++) {
+					mask[col] = Double.toString(values[col]);
 				}
 				writeln(w, line(mask));
 			}
@@ -95,7 +95,7 @@ class DenseReader {
 	 * Check that the NPY header of the given file describes a 2d matrix with
 	 * 64 bit floating point numbers.
 	 */
-	private static void checkMatrix(File file, Header header) {
+	static void checkMatrix(File file, Header header) {
 		int[] shape = header.shape;
 		if (shape == null
 				|| shape.length != 2
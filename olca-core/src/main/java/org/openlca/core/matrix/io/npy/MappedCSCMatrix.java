@@ -0,0 +1,276 @@
+package org.openlca.core.matrix.io.npy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.EntryFunction;
+import org.openlca.core.matrix.format.IMatrix;
+
+/**
+ * A read-only sparse matrix in the compressed sparse column format that is
+ * backed by a memory-mapped file. Like the `MappedDenseMatrix`, the data are
+ * not loaded into the Java heap so that large matrices can be opened
+ * instantly and shared between processes via the OS page cache. The file
+ * layout is a simple binary format (all values in little endian order) that
+ * is written by `save`:
+ *
+ * <pre>
+ * 0   8 bytes   magic string "OLCA_CSC"
+ * 8   int32     version (1)
+ * 12  int32     number of rows
+ * 16  int32     number of columns
+ * 20  int32     padding (0)
+ * 24  int64     number of non-zero entries (nnz)
+ * 32  int64[]   column pointers (columns + 1)
+ *     int32[]   row indices (nnz), padded with 0 to 8 bytes
+ *     float64[] values (nnz)
+ * </pre>
+ */
+public final class MappedCSCMatrix implements IMatrix {
+
+	private static final byte[] MAGIC = "OLCA_CSC"
+			.getBytes(StandardCharsets.US_ASCII);
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+
+	private final int rows;
+	private final int columns;
+	private final long nnz;
+	private final MappedRegion columnPointers;
+	private final MappedRegion rowIndices;
+	private final MappedRegion values;
+
+	private MappedCSCMatrix(int rows, int columns, long nnz,
+			MappedRegion columnPointers, MappedRegion rowIndices,
+			MappedRegion values) {
+		this.rows = rows;
+		this.columns = columns;
+		this.nnz = nnz;
+		this.columnPointers = columnPointers;
+		this.rowIndices = rowIndices;
+		this.values = values;
+	}
+
+	/**
+	 * Maps the sparse matrix of the given file into memory. The file must
+	 * have been written with `save`.
+	 */
+	public static MappedCSCMatrix of(File file) {
+		try (RandomAccessFile f = new RandomAccessFile(file, "r");
+			 FileChannel channel = f.getChannel()) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0)
+					throw new IllegalArgumentException(
+							"invalid CSC file: " + file);
+			}
+			header.flip();
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			if (!new String(magic, StandardCharsets.US_ASCII)
+					.equals("OLCA_CSC"))
+				throw new IllegalArgumentException(
+						"not a CSC file: " + file);
+			int version = header.getInt();
+			if (version != VERSION)
+				throw new IllegalArgumentException(
+						"unsupported CSC file version " + version + ": " + file);
+			int rows = header.getInt();
+			int cols = header.getInt();
+			header.getInt(); // padding
+			long nnz = header.getLong();
+
+			ByteOrder order = ByteOrder.LITTLE_ENDIAN;
+			long pos = HEADER_SIZE;
+			long size = (cols + 1L) * 8;
+			MappedRegion pointers = MappedRegion.map(
+					channel, pos, size, order);
+			pos += size;
+			size = nnz * 4;
+			MappedRegion indices = MappedRegion.map(
+					channel, pos, size, order);
+			pos += padded(size);
+			MappedRegion values = MappedRegion.map(
+					channel, pos, nnz * 8, order);
+			return new MappedCSCMatrix(rows, cols, nnz,
+					pointers, indices, values);
+		} catch (IOException e) {
+			throw new RuntimeException("failed to map " + file, e);
+		}
+	}
+
+	/**
+	 * Writes the given matrix in the CSC layout of this class to the given
+	 * file.
+	 */
+	public static void save(File file, IMatrix matrix) {
+		if (file == null || matrix == null)
+			return;
+		CSCMatrix csc = matrix instanceof CSCMatrix
+				? (CSCMatrix) matrix
+				: CSCMatrix.of(matrix);
+		int nnz = csc.columnPointers[csc.columns];
+		try (RandomAccessFile f = new RandomAccessFile(file, "rw");
+			 FileChannel channel = f.getChannel()) {
+			f.setLength(0);
+			ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+			buf.order(ByteOrder.LITTLE_ENDIAN);
+			buf.put(MAGIC);
+			buf.putInt(VERSION);
+			buf.putInt(csc.rows);
+			buf.putInt(csc.columns);
+			buf.putInt(0);
+			buf.putLong(nnz);
+			for (int p : csc.columnPointers) {
+				ensure(channel, buf, 8);
+				buf.putLong(p);
+			}
+			for (int i = 0; i < nnz; i++) {
+				ensure(channel, buf, 4);
+				buf.putInt(csc.rowIndices[i]);
+			}
+			if (nnz % 2 != 0) {
+				ensure(channel, buf, 4);
+				buf.putInt(0);
+			}
+			for (int i = 0; i < nnz; i++) {
+				ensure(channel, buf, 8);
+				buf.putDouble(csc.values[i]);
+			}
+			flush(channel, buf);
+		} catch (IOException e) {
+			throw new RuntimeException("failed to write " + file, e);
+		}
+	}
+
+	private static long padded(long size) {
+		return (size + 7) & ~7L;
+	}
+
+	private static void ensure(FileChannel channel, ByteBuffer buf, int bytes)
+			throws IOException {
+		if (buf.remaining() < bytes) {
+			flush(channel, buf);
+		}
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buf)
+			throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		buf.clear();
+	}
+
+	/** Returns the number of non-zero entries of this matrix. */
+	public long nonZeros() {
+		return nnz;
+	}
+
+	@Override
+	public int rows() {
+		return rows;
+	}
+
+	@Override
+	public int columns() {
+		return columns;
+	}
+
+	@Override
+	public boolean isSparse() {
+		return true;
+	}
+
+	@Override
+	public void iterate(EntryFunction fn) {
+		for (int col = 0; col < columns; col++) {
+			iterateColumn(col, fn);
+		}
+	}
+
+	@Override
+	public void iterateColumn(int col, EntryFunction fn) {
+		long end = columnPointers.getLong(col + 1);
+		for (long k = columnPointers.getLong(col); k < end; k++) {
+			double val = values.getDouble(k);
+			if (val != 0) {
+				fn.value(rowIndices.getInt(k), col, val);
+			}
+		}
+	}
+
+	@Override
+	public void scaleColumns(double[] v) {
+		throw new UnsupportedOperationException(
+				"Modifying a memory-mapped matrix is not supported");
+	}
+
+	@Override
+	public double get(int row, int col) {
+		long end = columnPointers.getLong(col + 1);
+		for (long k = columnPointers.getLong(col); k < end; k++) {
+			if (rowIndices.getInt(k) == row)
+				return values.getDouble(k);
+		}
+		return 0;
+	}
+
+	@Override
+	public double[] getColumn(int i) {
+		double[] v = new double[rows];
+		long end = columnPointers.getLong(i + 1);
+		for (long k = columnPointers.getLong(i); k < end; k++) {
+			v[rowIndices.getInt(k)] = values.getDouble(k);
+		}
+		return v;
+	}
+
+	@Override
+	public double[] getRow(int i) {
+		double[] v = new double[columns];
+		for (int col = 0; col < columns; col++) {
+			v[col] = get(i, col);
+		}
+		return v;
+	}
+
+	/**
+	 * Loads this matrix into a `CSCMatrix` in the Java heap.
+	 */
+	@Override
+	public CSCMatrix copy() {
+		int n = (int) nnz;
+		int[] pointers = new int[columns + 1];
+		for (int col = 0; col <= columns; col++) {
+			pointers[col] = (int) columnPointers.getLong(col);
+		}
+		int[] indices = new int[n];
+		for (int k = 0; k < n; k++) {
+			indices[k] = rowIndices.getInt(k);
+		}
+		double[] vals = new double[n];
+		values.getDoubles(0, vals, 0, n);
+		return new CSCMatrix(rows, columns, vals, pointers, indices);
+	}
+
+	@Override
+	public void set(int row, int col, double val) {
+		throw new UnsupportedOperationException(
+				"Modifying a memory-mapped matrix is not supported");
+	}
+
+	@Override
+	public void setValues(double[][] values) {
+		throw new UnsupportedOperationException(
+				"Modifying a memory-mapped matrix is not supported");
+	}
+}
@@ -0,0 +1,127 @@
+package org.openlca.core.matrix.io.npy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+
+/**
+ * A read-only dense matrix that is backed by a memory-mapped NPY file. The
+ * data are not copied into the Java heap but read from the OS page cache on
+ * access. Thus, opening a large matrix is instant and multiple processes that
+ * map the same file share the same memory. Columns are contiguous in files
+ * in column-major (Fortran) order which is the order in which `Npy.save`
+ * writes a matrix; row-major files are also supported but slower when
+ * reading columns. Calling `set` will throw an exception; `copy` returns a
+ * `DenseMatrix` in memory.
+ */
+public final class MappedDenseMatrix implements IMatrix {
+
+	private final int rows;
+	private final int columns;
+	private final boolean fortranOrder;
+	private final MappedRegion data;
+
+	private MappedDenseMatrix(Header header, MappedRegion data) {
+		this.rows = header.shape[0];
+		this.columns = header.shape[1];
+		this.fortranOrder = header.fortranOrder;
+		this.data = data;
+	}
+
+	/**
+	 * Maps the dense matrix of the given NPY file into memory. Only 2d
+	 * matrices with 64 bit floating point numbers are supported.
+	 */
+	public static MappedDenseMatrix of(File file) {
+		try (RandomAccessFile f = new RandomAccessFile(file, "r");
+			 FileChannel channel = f.getChannel()) {
+			Header header = HeaderReader.read(channel);
+			DenseReader.checkMatrix(file, header);
+			long length = (long) header.shape[0] * header.shape[1] * 8;
+			MappedRegion data = MappedRegion.map(channel,
+					header.dataOffset, length, header.getByteOrder());
+			return new MappedDenseMatrix(header, data);
+		} catch (IOException e) {
+			throw new RuntimeException("failed to map " + file, e);
+		}
+	}
+
+	private long index(int row, int col) {
+		return fortranOrder
+				? (long) col * rows + row
+				: (long) row * columns + col;
+	}
+
+	@Override
+	public int rows() {
+		return rows;
+	}
+
+	@Override
+	public int columns() {
+		return columns;
+	}
+
+	@Override
+	public double get(int row, int col) {
+		return data.getDouble(index(row, col));
+	}
+
+	@Override
+	public double[] getColumn(int i) {
+		double[] v = new double[rows];
+		if (fortranOrder) {
+			data.getDoubles(index(0, i), v, 0, rows);
+			return v;
+		}
+		for (int row = 0; row < rows; row++) {
+			v[row] = get(row, i);
+		}
+		return v;
+	}
+
+	@Override
+	public double[] getRow(int i) {
+		double[] v = new double[columns];
+		if (!fortranOrder) {
+			data.getDoubles(index(i, 0), v, 0, columns);
+			return v;
+		}
+		for (int col = 0; col < columns; col++) {
+			v[col] = get(i, col);
+		}
+		return v;
+	}
+
+	@Override
+	public DenseMatrix copy() {
+		DenseMatrix m = new DenseMatrix(rows, columns);
+		if (fortranOrder) {
+			data.getDoubles(0, m.data, 0, m.data.length);
+			return m;
+		}
+		for (int row = 0; row < rows; row++) {
+			double[] v = getRow(row);
+			for (int col = 0; col < columns; col++) {
+				m.set(row, col, v[col]);
+			}
+		}
+		return m;
+	}
+
+	@Override
+	public void set(int row, int col, double val) {
+		throw new UnsupportedOperationException(
+				"Modifying a memory-mapped matrix is not supported");
+	}
+
+	@Override
+	public void setValues(double[][] values) {
+		throw new UnsupportedOperationException(
+				"Modifying a memory-mapped matrix is not supported");
+	}
+}
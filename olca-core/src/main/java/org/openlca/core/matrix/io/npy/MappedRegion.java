@@ -0,0 +1,87 @@
+package org.openlca.core.matrix.io.npy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A read-only, memory-mapped region of a file. A single mapped buffer is
+ * limited to 2 GB, thus, larger regions are mapped in chunks of 1 GB. The
+ * element sizes (4 and 8 bytes) divide the chunk size so that an element
+ * never crosses a chunk border when the region starts at an element border.
+ * The access methods use absolute positions and can be called from multiple
+ * threads.
+ */
+final class MappedRegion {
+
+	private static final int SHIFT = 30;
+	private static final long CHUNK = 1L << SHIFT;
+	private static final long MASK = CHUNK - 1;
+
+	private final MappedByteBuffer[] chunks;
+
+	private MappedRegion(MappedByteBuffer[] chunks) {
+		this.chunks = chunks;
+	}
+
+	/**
+	 * Maps the given number of bytes, starting at the given offset, of the
+	 * given channel. The mapping stays valid when the channel is closed.
+	 */
+	static MappedRegion map(FileChannel channel, long offset, long length,
+			ByteOrder order) throws IOException {
+		int n = (int) ((length + CHUNK - 1) / CHUNK);
+		MappedByteBuffer[] chunks = new MappedByteBuffer[n];
+		for (int i = 0; i < n; i++) {
+			long pos = i * CHUNK;
+			long size = Math.min(CHUNK, length - pos);
+			chunks[i] = channel.map(MapMode.READ_ONLY, offset + pos, size);
+			chunks[i].order(order);
+		}
+		return new MappedRegion(chunks);
+	}
+
+	/** Returns the double value with the given element index. */
+	double getDouble(long index) {
+		long pos = index << 3;
+		return chunks[(int) (pos >>> SHIFT)].getDouble((int) (pos & MASK));
+	}
+
+	/** Returns the int value with the given element index. */
+	int getInt(long index) {
+		long pos = index << 2;
+		return chunks[(int) (pos >>> SHIFT)].getInt((int) (pos & MASK));
+	}
+
+	/** Returns the long value with the given element index. */
+	long getLong(long index) {
+		long pos = index << 3;
+		return chunks[(int) (pos >>> SHIFT)].getLong((int) (pos & MASK));
+	}
+
+	/**
+	 * Copies the given number of double values, starting at the given element
+	 * index, into the given array.
+	 */
+	void getDoubles(long index, double[] dest, int offset, int length) {
+		int done = 0;
+		while (done < length) {
+			long pos = (index + done) << 3;
+			MappedByteBuffer chunk = chunks[(int) (pos >>> SHIFT)];
+			int start = (int) (pos & MASK);
+			int n = Math.min(length - done, (chunk.capacity() - start) >> 3);
+			// duplicates do not share the position but also not the order
+			ByteBuffer dup = chunk.duplicate();
+			dup.position(start);
+			DoubleBuffer buf = dup.slice()
+					.order(chunk.order())
+					.asDoubleBuffer();
+			buf.get(dest, offset + done, n);
+			done += n;
+		}
+	}
+}
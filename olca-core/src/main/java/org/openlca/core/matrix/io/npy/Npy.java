@@ -31,6 +31,14 @@ public final class Npy {
 		return DenseReader.read(file);
 	}
 
+	/**
+	 * Maps the dense matrix of the given file into memory instead of loading
+	 * it into the Java heap (see `MappedDenseMatrix`).
+	 */
+	public static MappedDenseMatrix map(File file) {
+		return MappedDenseMatrix.of(file);
+	}
+
 	/**
 	 * Loads a single column from a NPY file that contains a dense
 	 * matrix.
@@ -79,6 +79,7 @@ public class Export implements Runnable {
 		dbLinks(techIndex);
 		InventoryConfig config = new InventoryConfig(db, techIndex);
 		config.allocationMethod = AllocationMethod.USE_DEFAULT;
+		config.exchanges = cache.getExchangeStore();
 		config.interpreter = DataStructures.interpreter(db, setup, techIndex);
 		InventoryBuilder builder = new InventoryBuilder(config);
 		return builder.build();
@@ -95,8 +96,7 @@ public class Export implements Runnable {
 		ProviderSearch search = new ProviderSearch(
 				cache.getProcessTable(), config);
 		Map<Long, List<CalcExchange>> exchanges = cache
-				.getExchangeCache()
-				.getAll(idx.getProcessIds());
+				.getExchanges(idx.getProcessIds());
 		for (int i = 0; i < idx.size(); i++) {
 			ProcessProduct recipient = idx.getProviderAt(i);
 			List<CalcExchange> candidates = search.getLinkCandidates(
@@ -93,7 +93,7 @@ public class TechIndexBuilder implements ITechIndexBuilder {
 			processIds.add(provider.id());
 		}
 		try {
-			return cache.getExchangeCache().getAll(processIds);
+			return cache.getExchanges(processIds);
 		} catch (Exception e) {
 			Logger log = LoggerFactory.getLogger(getClass());
 			log.error("failed to load exchanges from cache", e);
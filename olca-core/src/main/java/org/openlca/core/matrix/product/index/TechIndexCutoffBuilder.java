@@ -227,7 +227,7 @@ public class TechIndexCutoffBuilder implements ITechIndexBuilder {
 			for (Node node : next)
 				processIds.add(node.flow.id());
 			try {
-				return cache.getExchangeCache().getAll(processIds);
+				return cache.getExchanges(processIds);
 			} catch (Exception e) {
 				Logger log = LoggerFactory.getLogger(getClass());
 				log.error("failed to load exchanges from cache", e);
@@ -26,8 +26,45 @@ public class DenseSolver implements IMatrixSolver {
 		return b;
 	}
 
+	@Override
+	public Factorization factorize(IMatrix a) {
+		DenseMatrix A = MatrixConverter.dense(a);
+		DenseMatrix lu = A == a ? A.copy() : A;
+		int n = A.columns();
+		int[] pivots = new int[n];
+		int info = Lapack.dLu(n, lu.data, pivots);
+		if (info != 0)
+			throw new IllegalArgumentException(
+					"LU factorization failed; LAPACK info = " + info);
+		return new Factorization() {
+
+			@Override
+			public int size() {
+				return n;
+			}
+
+			@Override
+			public double[] solve(double[] b) {
+				double[] x = new double[n];
+				System.arraycopy(b, 0, x, 0, n);
+				Lapack.dSolveLu(n, 1, lu.data, pivots, x);
+				return x;
+			}
+
+			@Override
+			public IMatrix solve(IMatrix b) {
+				DenseMatrix x = MatrixConverter.dense(b);
+				x = x == b ? x.copy() : x;
+				Lapack.dSolveLu(n, x.columns, lu.data, pivots, x.data);
+				return x;
+			}
+		};
+	}
+
 	@Override
 	public double[] multiply(IMatrix m, double[] x) {
+		if (m.isSparse())
+			return IMatrixSolver.super.multiply(m, x);
 		DenseMatrix a = MatrixConverter.dense(m);
 		double[] y = new double[m.rows()];
 		Blas.dMVmult(m.rows(), m.columns(), a.getData(),
@@ -45,6 +82,21 @@ public class DenseSolver implements IMatrixSolver {
 
 	@Override
 	public DenseMatrix multiply(IMatrix a, IMatrix b) {
+		if (a.isSparse()) {
+			// only iterate over the non-zero entries of a
+			if (a.columns() != b.rows())
+				throw new IllegalArgumentException("a.columns != b.rows");
+			DenseMatrix _b = MatrixConverter.dense(b);
+			int rows = a.rows();
+			int k = _b.rows;
+			DenseMatrix c = new DenseMatrix(rows, _b.columns);
+			a.iterate((row, j, val) -> {
+				for (int col = 0; col < c.columns; col++) {
+					c.data[col * rows + row] += val * _b.data[col * k + j];
+				}
+			});
+			return c;
+		}
 		DenseMatrix _a = MatrixConverter.dense(a);
 		DenseMatrix _b = MatrixConverter.dense(b);
 		int rowsA = _a.rows();
@@ -61,11 +113,7 @@ public class DenseSolver implements IMatrixSolver {
 
 	@Override
 	public void scaleColumns(IMatrix m, double[] v) {
-		for (int row = 0; row < m.rows(); row++) {
-			for (int col = 0; col < m.columns(); col++) {
-				m.set(row, col, v[col] * m.get(row, col));
-			}
-		}
+		m.scaleColumns(v);
 	}
 
 }
@@ -0,0 +1,58 @@
+package org.openlca.core.matrix.solvers;
+
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+
+/**
+ * A factorization of a square matrix $A$ (e.g. an LU decomposition) that can
+ * be used to solve the system of linear equations $A x = b$ repeatedly for
+ * different right-hand sides without factorizing $A$ again. A factorization is
+ * created via {@link IMatrixSolver#factorize(IMatrix)}.
+ *
+ * A factorization may hold native resources. Thus, you should call
+ * `dispose()` when it is not needed anymore.
+ */
+public interface Factorization {
+
+	/** Returns the dimension n of the factorized n*n matrix. */
+	int size();
+
+	/**
+	 * Solves the system $A x = b$ and returns $x$. The given vector $b$ is not
+	 * modified.
+	 */
+	double[] solve(double[] b);
+
+	/**
+	 * Solves the system $A x = b$ where $b$ has only a single non-zero entry
+	 * $d$ at the given index. In openLCA this is used to calculate the
+	 * scaling vector of a demand.
+	 */
+	default double[] solve(int idx, double d) {
+		double[] b = new double[size()];
+		b[idx] = d;
+		return solve(b);
+	}
+
+	/**
+	 * Solves the system $A X = B$ for multiple right-hand sides which are the
+	 * columns of the matrix $B$.
+	 */
+	default IMatrix solve(IMatrix b) {
+		int n = size();
+		int cols = b.columns();
+		DenseMatrix x = new DenseMatrix(n, cols);
+		for (int col = 0; col < cols; col++) {
+			double[] xi = solve(b.getColumn(col));
+			System.arraycopy(xi, 0, x.data, col * n, n);
+		}
+		return x;
+	}
+
+	/**
+	 * Releases the resources of this factorization (e.g. native memory). The
+	 * factorization cannot be used after this method was called.
+	 */
+	default void dispose() {
+	}
+}
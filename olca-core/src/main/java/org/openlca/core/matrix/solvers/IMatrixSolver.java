@@ -1,5 +1,8 @@
 package org.openlca.core.matrix.solvers;
 
+import java.util.Arrays;
+
+import org.openlca.core.matrix.format.CSCMatrix;
 import org.openlca.core.matrix.format.IMatrix;
 
 /**
@@ -44,27 +47,48 @@ public interface IMatrixSolver {
 	 */
 	double[] solve(IMatrix a, int idx, double d);
 
+	/**
+	 * Creates a factorization of the given matrix that can be used to solve
+	 * systems of linear equations with different right-hand sides without
+	 * factorizing the matrix again. By default, this returns a sparse LU
+	 * factorization in pure Java but solvers that are based on native
+	 * libraries should override this. The caller is responsible for disposing
+	 * the returned factorization.
+	 */
+	default Factorization factorize(IMatrix a) {
+		return SparseLU.of(a);
+	}
+
 	/**
 	 * Calculates the inverse of the given matrix.
 	 */
 	IMatrix invert(IMatrix a);
 
 	/**
-	 * Returns the matrix product of the given matrices.
+	 * Returns the matrix product of the given matrices. The default
+	 * implementation calculates the product column by column and only visits
+	 * the non-zero values of the matrices so that it scales with the number of
+	 * non-zero values for sparse matrices. Only sparse matrices in a
+	 * row-oriented format (e.g. `HashPointMatrix`) are converted into the
+	 * compressed column format first (see `CSCMatrix.columnOriented`).
 	 */
 	default IMatrix multiply(IMatrix a, IMatrix b) {
 		if (a == null || b == null)
 			return null;
 		if (a.columns() != b.rows())
 			throw new IllegalArgumentException("a.columns != b.rows");
+		IMatrix ac = CSCMatrix.columnOriented(a);
+		IMatrix bc = CSCMatrix.columnOriented(b);
 		IMatrix r = matrix(a.rows(), b.columns());
-		for (int row = 0; row < a.rows(); row++) {
-			for (int col = 0; col < b.columns(); col++) {
-				double val = 0;
-				for (int k = 0; k < a.columns(); k++) {
-					val += a.get(row, k) * b.get(k, col);
+		double[] col = new double[a.rows()];
+		for (int j = 0; j < b.columns(); j++) {
+			Arrays.fill(col, 0);
+			bc.iterateColumn(j, (k, _j, bkj) -> ac.iterateColumn(k,
+					(i, _k, aik) -> col[i] += aik * bkj));
+			for (int i = 0; i < col.length; i++) {
+				if (col[i] != 0) {
+					r.set(i, j, col[i]);
 				}
-				r.set(row, col, val);
 			}
 		}
 		return r;
@@ -77,14 +101,12 @@ public interface IMatrixSolver {
 	default double[] multiply(IMatrix m, double[] v) {
 		if (m == null || v == null)
 			return null;
-		int cols = Math.min(m.columns(), v.length);
-		int rows = m.rows();
-		double[] r = new double[rows];
-		for (int row = 0; row < rows; row++) {
-			for (int col = 0; col < cols; col++) {
-				r[row] += (m.get(row, col) * v[col]);
+		double[] r = new double[m.rows()];
+		m.iterate((row, col, val) -> {
+			if (col < v.length) {
+				r[row] += val * v[col];
 			}
-		}
+		});
 		return r;
 	}
 
@@ -93,11 +115,7 @@ public interface IMatrixSolver {
 	 * to m * diag(v) but can be implemented in a more efficient way.
 	 */
 	default void scaleColumns(IMatrix m, double[] v) {
-		for (int row = 0; row < m.rows(); row++) {
-			for (int col = 0; col < m.columns(); col++) {
-				m.set(row, col, v[col] * m.get(row, col));
-			}
-		}
+		m.scaleColumns(v);
 	}
 
 }
@@ -2,6 +2,7 @@ package org.openlca.core.matrix.solvers;
 
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.DecompositionSolver;
 import org.apache.commons.math3.linear.LUDecomposition;
 import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.commons.math3.linear.RealVector;
@@ -24,6 +25,30 @@ public class JavaSolver implements IMatrixSolver {
 		return x.toArray();
 	}
 
+	@Override
+	public Factorization factorize(IMatrix a) {
+		RealMatrix A = unwrap(a);
+		DecompositionSolver lu = new LUDecomposition(A).getSolver();
+		int n = a.rows();
+		return new Factorization() {
+
+			@Override
+			public int size() {
+				return n;
+			}
+
+			@Override
+			public double[] solve(double[] b) {
+				return lu.solve(new ArrayRealVector(b)).toArray();
+			}
+
+			@Override
+			public IMatrix solve(IMatrix b) {
+				return new JavaMatrix(lu.solve(unwrap(b)));
+			}
+		};
+	}
+
 	@Override
 	public double[] multiply(IMatrix m, double[] v) {
 		RealMatrix A = unwrap(m);
@@ -0,0 +1,262 @@
+package org.openlca.core.matrix.solvers;
+
+import org.openlca.core.matrix.format.CSCMatrix;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Calculates a fill-reducing column ordering of a square sparse matrix. It runs
+ * an approximate minimum degree algorithm (AMD) on the graph of the
+ * (symmetric) non-zero pattern of $A + A^T$ which works well for technology
+ * matrices as these are typically diagonally dominant and thus the diagonal
+ * entries are preferred as pivots in the factorization.
+ *
+ * The elimination is done on a quotient graph: an eliminated node becomes an
+ * element that represents the clique of its neighbors instead of adding the
+ * fill-in edges explicitly. Thus, the memory stays in the order of the
+ * non-zero entries of $A$. Nodes with a very high degree (e.g. columns of
+ * processes that are linked to almost everything like electricity or
+ * transport) are removed from the graph and ordered last.
+ *
+ * See: Amestoy, Davis, Duff: An Approximate Minimum Degree Ordering Algorithm,
+ * SIAM J. Matrix Anal. Appl. 17(4), 1996.
+ */
+final class MinimumDegree {
+
+	private static final byte VARIABLE = 0;
+	private static final byte ELEMENT = 1;
+	private static final byte ABSORBED = 2;
+
+	private MinimumDegree() {
+	}
+
+	static int[] order(CSCMatrix a) {
+		int n = a.columns;
+		TIntArrayList[] vars = new TIntArrayList[n];
+		for (int i = 0; i < n; i++) {
+			vars[i] = new TIntArrayList();
+		}
+		for (int col = 0; col < n; col++) {
+			for (int p = a.columnPointers[col]; p < a.columnPointers[col + 1]; p++) {
+				int row = a.rowIndices[p];
+				if (row == col)
+					continue;
+				vars[row].add(col);
+				vars[col].add(row);
+			}
+		}
+
+		// remove duplicate edges and the dense nodes from the graph
+		int denseLimit = Math.max(16, (int) (10 * Math.sqrt(n)));
+		byte[] status = new byte[n];
+		int[] stamps = new int[n];
+		int stamp = 0;
+		TIntArrayList denseNodes = new TIntArrayList();
+		for (int i = 0; i < n; i++) {
+			stamp++;
+			TIntArrayList list = vars[i];
+			int k = 0;
+			for (int j = 0; j < list.size(); j++) {
+				int v = list.getQuick(j);
+				if (stamps[v] == stamp)
+					continue;
+				stamps[v] = stamp;
+				list.setQuick(k++, v);
+			}
+			list.remove(k, list.size() - k);
+			if (k > denseLimit) {
+				denseNodes.add(i);
+				status[i] = ABSORBED;
+			}
+		}
+
+		// initialize the degrees
+		TIntArrayList[] elems = new TIntArrayList[n];
+		int[][] elemVars = new int[n][];
+		int[] degree = new int[n];
+		LongHeap heap = new LongHeap(n);
+		for (int i = 0; i < n; i++) {
+			if (status[i] != VARIABLE)
+				continue;
+			if (!denseNodes.isEmpty()) {
+				compact(vars[i], status);
+			}
+			elems[i] = new TIntArrayList(4);
+			degree[i] = vars[i].size();
+			heap.push(key(degree[i], i));
+		}
+
+		int[] order = new int[n];
+		int[] weights = new int[n];
+		int[] wstamps = new int[n];
+		int left = n - denseNodes.size();
+		int k = 0;
+		while (!heap.isEmpty()) {
+			long next = heap.pop();
+			int p = (int) next;
+			if (status[p] != VARIABLE || degree[p] != (int) (next >>> 32))
+				continue;
+			order[k++] = p;
+			left--;
+
+			// the variables of the new element p are the neighbors of p and
+			// the variables of the elements that are absorbed by p
+			stamp++;
+			stamps[p] = stamp;
+			TIntArrayList lp = new TIntArrayList();
+			TIntArrayList vp = vars[p];
+			for (int j = 0; j < vp.size(); j++) {
+				int v = vp.getQuick(j);
+				if (status[v] == VARIABLE && stamps[v] != stamp) {
+					stamps[v] = stamp;
+					lp.add(v);
+				}
+			}
+			TIntArrayList ep = elems[p];
+			for (int j = 0; j < ep.size(); j++) {
+				int e = ep.getQuick(j);
+				if (status[e] != ELEMENT)
+					continue;
+				for (int v : elemVars[e]) {
+					if (status[v] == VARIABLE && stamps[v] != stamp) {
+						stamps[v] = stamp;
+						lp.add(v);
+					}
+				}
+				status[e] = ABSORBED;
+				elemVars[e] = null;
+			}
+			status[p] = ELEMENT;
+			elemVars[p] = lp.toArray();
+			vars[p] = null;
+			elems[p] = null;
+
+			// calculate |Le \ Lp| for the other elements e of the variables
+			// in Lp; elements with Le in Lp are absorbed
+			for (int j = 0; j < lp.size(); j++) {
+				TIntArrayList ei = elems[lp.getQuick(j)];
+				for (int m = 0; m < ei.size(); m++) {
+					int e = ei.getQuick(m);
+					if (status[e] != ELEMENT)
+						continue;
+					if (wstamps[e] != stamp) {
+						wstamps[e] = stamp;
+						weights[e] = elemVars[e].length;
+					}
+					weights[e]--;
+				}
+			}
+
+			// update the variables in Lp and their approximate degrees
+			int lpSize = lp.size();
+			for (int j = 0; j < lpSize; j++) {
+				int i = lp.getQuick(j);
+				TIntArrayList ei = elems[i];
+				int d = 0;
+				int c = 0;
+				for (int m = 0; m < ei.size(); m++) {
+					int e = ei.getQuick(m);
+					if (status[e] != ELEMENT)
+						continue;
+					if (weights[e] == 0) {
+						// aggressive absorption
+						status[e] = ABSORBED;
+						elemVars[e] = null;
+						continue;
+					}
+					d += weights[e];
+					ei.setQuick(c++, e);
+				}
+				ei.remove(c, ei.size() - c);
+				ei.add(p);
+
+				// the edges to variables in Lp are now covered by p
+				TIntArrayList vi = vars[i];
+				c = 0;
+				for (int m = 0; m < vi.size(); m++) {
+					int v = vi.getQuick(m);
+					if (status[v] != VARIABLE || stamps[v] == stamp)
+						continue;
+					vi.setQuick(c++, v);
+				}
+				vi.remove(c, vi.size() - c);
+				d += c + lpSize - 1;
+				d = Math.min(d, degree[i] + lpSize);
+				d = Math.min(d, left - 1);
+				degree[i] = Math.max(d, 0);
+				heap.push(key(degree[i], i));
+			}
+		}
+		for (int i = 0; i < denseNodes.size(); i++) {
+			order[k++] = denseNodes.get(i);
+		}
+		return order;
+	}
+
+	/** Removes the entries that are not variables from the given list. */
+	private static void compact(TIntArrayList list, byte[] status) {
+		int k = 0;
+		for (int j = 0; j < list.size(); j++) {
+			int v = list.getQuick(j);
+			if (status[v] == VARIABLE) {
+				list.setQuick(k++, v);
+			}
+		}
+		list.remove(k, list.size() - k);
+	}
+
+	private static long key(int degree, int node) {
+		return ((long) degree << 32) | node;
+	}
+
+	/** A simple binary min-heap of primitive long values. */
+	private static class LongHeap {
+
+		private long[] data;
+		private int size;
+
+		LongHeap(int capacity) {
+			data = new long[Math.max(capacity, 16)];
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		void push(long val) {
+			if (size == data.length) {
+				long[] next = new long[data.length * 2];
+				System.arraycopy(data, 0, next, 0, size);
+				data = next;
+			}
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (data[parent] <= val)
+					break;
+				data[i] = data[parent];
+				i = parent;
+			}
+			data[i] = val;
+		}
+
+		long pop() {
+			long top = data[0];
+			long last = data[--size];
+			int i = 0;
+			int half = size >>> 1;
+			while (i < half) {
+				int child = 2 * i + 1;
+				if (child + 1 < size && data[child + 1] < data[child]) {
+					child++;
+				}
+				if (last <= data[child])
+					break;
+				data[i] = data[child];
+				i = child;
+			}
+			data[i] = last;
+			return top;
+		}
+	}
+}
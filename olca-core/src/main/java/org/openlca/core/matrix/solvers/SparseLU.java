@@ -0,0 +1,321 @@
+package org.openlca.core.matrix.solvers;
+
+import java.util.Arrays;
+
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+
+/**
+ * A sparse LU factorization $P A Q = L U$ of a square matrix $A$ in pure Java.
+ * The column permutation $Q$ is a fill-reducing ordering calculated with a
+ * minimum degree algorithm (see {@link MinimumDegree}). The factorization is
+ * then done column by column in a left-looking way (Gilbert-Peierls) where
+ * the row permutation $P$ is calculated via threshold partial pivoting that
+ * prefers the diagonal entries. The computational effort of this
+ * factorization scales with the number of non-zero entries of $L$ and $U$
+ * instead of $n^2$ or $n^3$.
+ *
+ * The implementation follows the `cs_lu` function of CSparse: Timothy A. Davis,
+ * Direct Methods for Sparse Linear Systems, SIAM, 2006.
+ */
+public final class SparseLU implements Factorization {
+
+	/**
+	 * A diagonal entry is selected as pivot when its absolute value is at
+	 * least this fraction of the largest absolute value of the candidates in
+	 * the respective column.
+	 */
+	private static final double PIVOT_TOLERANCE = 0.1;
+
+	private final int n;
+
+	/** The column permutation $Q$. */
+	private final int[] q;
+
+	/** The inverse row permutation: `pinv[i] = k` maps row i of A to row k. */
+	private final int[] pinv;
+
+	/** L, unit lower triangular; the diagonal is stored first per column. */
+	private final int[] lp;
+	private final int[] li;
+	private final double[] lx;
+
+	/** U, upper triangular; the diagonal is stored last per column. */
+	private final int[] up;
+	private final int[] ui;
+	private final double[] ux;
+
+	private SparseLU(int n, int[] q, int[] pinv,
+			int[] lp, int[] li, double[] lx,
+			int[] up, int[] ui, double[] ux) {
+		this.n = n;
+		this.q = q;
+		this.pinv = pinv;
+		this.lp = lp;
+		this.li = li;
+		this.lx = lx;
+		this.up = up;
+		this.ui = ui;
+		this.ux = ux;
+	}
+
+	/**
+	 * Calculates the factorization of the given matrix. An
+	 * `IllegalArgumentException` is thrown when the matrix is not square or
+	 * singular.
+	 */
+	public static SparseLU of(IMatrix a) {
+		if (a == null)
+			throw new NullPointerException("the given matrix is null");
+		if (a.rows() != a.columns())
+			throw new IllegalArgumentException("the matrix is not square");
+		CSCMatrix csc = a instanceof CSCMatrix
+				? (CSCMatrix) a
+				: CSCMatrix.of(a);
+		return new Factorizer(csc).run();
+	}
+
+	@Override
+	public int size() {
+		return n;
+	}
+
+	/** Returns the number of non-zero entries in $L$ and $U$. */
+	public int nonZeros() {
+		return lp[n] + up[n];
+	}
+
+	@Override
+	public double[] solve(double[] b) {
+		double[] x = new double[n];
+		for (int k = 0; k < n; k++) {
+			x[pinv[k]] = b[k];
+		}
+		lsolve(x);
+		usolve(x);
+		double[] r = new double[n];
+		for (int k = 0; k < n; k++) {
+			r[q[k]] = x[k];
+		}
+		return r;
+	}
+
+	private void lsolve(double[] x) {
+		for (int j = 0; j < n; j++) {
+			double xj = x[j];
+			if (xj == 0)
+				continue;
+			for (int p = lp[j] + 1; p < lp[j + 1]; p++) {
+				x[li[p]] -= lx[p] * xj;
+			}
+		}
+	}
+
+	private void usolve(double[] x) {
+		for (int j = n - 1; j >= 0; j--) {
+			int diag = up[j + 1] - 1;
+			x[j] /= ux[diag];
+			double xj = x[j];
+			if (xj == 0)
+				continue;
+			for (int p = up[j]; p < diag; p++) {
+				x[ui[p]] -= ux[p] * xj;
+			}
+		}
+	}
+
+	/**
+	 * Contains the working state of a factorization.
+	 */
+	private static class Factorizer {
+
+		private final CSCMatrix a;
+		private final int n;
+		private final int[] q;
+		private final int[] pinv;
+
+		private final int[] lp;
+		private int[] li;
+		private double[] lx;
+		private int lnz;
+
+		private final int[] up;
+		private int[] ui;
+		private double[] ux;
+		private int unz;
+
+		// the dense work vector and the non-zero pattern of a column solve
+		private final double[] x;
+		private final int[] xi;
+
+		// work arrays for the depth-first search
+		private final int[] stack;
+		private final int[] pstack;
+		private final int[] marks;
+		private int mark;
+
+		Factorizer(CSCMatrix a) {
+			this.a = a;
+			this.n = a.columns;
+			this.q = MinimumDegree.order(a);
+			this.pinv = new int[n];
+			Arrays.fill(pinv, -1);
+			int nnz = a.columnPointers[n];
+			int cap = 4 * nnz + n;
+			lp = new int[n + 1];
+			li = new int[cap];
+			lx = new double[cap];
+			up = new int[n + 1];
+			ui = new int[cap];
+			ux = new double[cap];
+			x = new double[n];
+			xi = new int[n];
+			stack = new int[n];
+			pstack = new int[n];
+			marks = new int[n];
+		}
+
+		SparseLU run() {
+			for (int k = 0; k < n; k++) {
+				lp[k] = lnz;
+				up[k] = unz;
+				ensureCapacity();
+				int col = q[k];
+				int top = spsolve(col);
+
+				// find the pivot; the entries of already pivoted rows go to U
+				int ipiv = -1;
+				double max = -1;
+				for (int p = top; p < n; p++) {
+					int i = xi[p];
+					if (pinv[i] < 0) {
+						double t = Math.abs(x[i]);
+						if (t > max) {
+							max = t;
+							ipiv = i;
+						}
+					} else {
+						ui[unz] = pinv[i];
+						ux[unz++] = x[i];
+					}
+				}
+				if (ipiv == -1 || max <= 0)
+					throw new IllegalArgumentException("the matrix is singular");
+				if (pinv[col] < 0 && Math.abs(x[col]) >= max * PIVOT_TOLERANCE) {
+					ipiv = col;
+				}
+
+				// divide the column of L by the pivot
+				double pivot = x[ipiv];
+				ui[unz] = k;
+				ux[unz++] = pivot;
+				pinv[ipiv] = k;
+				li[lnz] = ipiv;
+				lx[lnz++] = 1;
+				for (int p = top; p < n; p++) {
+					int i = xi[p];
+					if (pinv[i] < 0) {
+						li[lnz] = i;
+						lx[lnz++] = x[i] / pivot;
+					}
+					x[i] = 0;
+				}
+			}
+			lp[n] = lnz;
+			up[n] = unz;
+
+			// map the row indices of L to the permuted rows
+			for (int p = 0; p < lnz; p++) {
+				li[p] = pinv[li[p]];
+			}
+			return new SparseLU(n, q, pinv,
+					lp, Arrays.copyOf(li, lnz), Arrays.copyOf(lx, lnz),
+					up, Arrays.copyOf(ui, unz), Arrays.copyOf(ux, unz));
+		}
+
+		/**
+		 * In each step, at most n entries are added to L and U.
+		 */
+		private void ensureCapacity() {
+			if (lnz + n > li.length) {
+				int cap = 2 * li.length + n;
+				li = Arrays.copyOf(li, cap);
+				lx = Arrays.copyOf(lx, cap);
+			}
+			if (unz + n > ui.length) {
+				int cap = 2 * ui.length + n;
+				ui = Arrays.copyOf(ui, cap);
+				ux = Arrays.copyOf(ux, cap);
+			}
+		}
+
+		/**
+		 * Solves $L x = A[:, col]$ with the current (partial) L. The non-zero
+		 * pattern of x is stored in `xi[top..n-1]` in topological order.
+		 */
+		private int spsolve(int col) {
+			int top = reach(col);
+			for (int p = top; p < n; p++) {
+				x[xi[p]] = 0;
+			}
+			for (int p = a.columnPointers[col]; p < a.columnPointers[col + 1]; p++) {
+				x[a.rowIndices[p]] = a.values[p];
+			}
+			for (int px = top; px < n; px++) {
+				int j = xi[px];
+				int jj = pinv[j];
+				if (jj < 0)
+					continue;
+				double xj = x[j];
+				for (int p = lp[jj] + 1; p < lp[jj + 1]; p++) {
+					x[li[p]] -= lx[p] * xj;
+				}
+			}
+			return top;
+		}
+
+		/**
+		 * Calculates the non-zero pattern of the solution of $L x = A[:, col]$.
+		 */
+		private int reach(int col) {
+			mark++;
+			int top = n;
+			for (int p = a.columnPointers[col]; p < a.columnPointers[col + 1]; p++) {
+				int i = a.rowIndices[p];
+				if (marks[i] != mark) {
+					top = dfs(i, top);
+				}
+			}
+			return top;
+		}
+
+		private int dfs(int start, int top) {
+			int head = 0;
+			stack[0] = start;
+			while (head >= 0) {
+				int j = stack[head];
+				int jj = pinv[j];
+				if (marks[j] != mark) {
+					marks[j] = mark;
+					pstack[head] = jj < 0 ? 0 : lp[jj] + 1;
+				}
+				boolean done = true;
+				int end = jj < 0 ? 0 : lp[jj + 1];
+				for (int p = pstack[head]; p < end; p++) {
+					int i = li[p];
+					if (marks[i] == mark)
+						continue;
+					pstack[head] = p;
+					stack[++head] = i;
+					done = false;
+					break;
+				}
+				if (done) {
+					head--;
+					xi[--top] = j;
+				}
+			}
+			return top;
+		}
+	}
+}
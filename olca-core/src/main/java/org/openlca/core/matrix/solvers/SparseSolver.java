@@ -0,0 +1,103 @@
+package org.openlca.core.matrix.solvers;
+
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.format.MatrixConverter;
+
+/**
+ * A pure Java solver for sparse matrices. Systems of linear equations are
+ * solved with a sparse LU factorization (see {@link SparseLU}) so that the
+ * calculation of scaling vectors scales with the number of non-zero entries of
+ * the technology matrix and not with its dense size. Thus, it can be used for
+ * large systems when the native libraries are not available.
+ */
+public class SparseSolver implements IMatrixSolver {
+
+	@Override
+	public IMatrix matrix(int rows, int columns) {
+		return new HashPointMatrix(rows, columns);
+	}
+
+	@Override
+	public IMatrix matrix(int rows, int cols, double density) {
+		if (density < 0.4)
+			return new HashPointMatrix(rows, cols);
+		else
+			return new DenseMatrix(rows, cols);
+	}
+
+	@Override
+	public double[] solve(IMatrix a, int idx, double d) {
+		return SparseLU.of(a).solve(idx, d);
+	}
+
+	@Override
+	public Factorization factorize(IMatrix a) {
+		return SparseLU.of(a);
+	}
+
+	@Override
+	public double[] multiply(IMatrix m, double[] v) {
+		if (m instanceof HashPointMatrix)
+			return ((HashPointMatrix) m).multiply(v);
+		if (m instanceof CSCMatrix)
+			return ((CSCMatrix) m).multiply(v);
+		return IMatrixSolver.super.multiply(m, v);
+	}
+
+	/**
+	 * Calculates the inverse column by column from a single factorization of
+	 * the given matrix. Note that the inverse of a sparse matrix is typically
+	 * dense.
+	 */
+	@Override
+	public DenseMatrix invert(IMatrix a) {
+		SparseLU lu = SparseLU.of(a);
+		int n = lu.size();
+		DenseMatrix inverse = new DenseMatrix(n, n);
+		double[] e = new double[n];
+		for (int col = 0; col < n; col++) {
+			e[col] = 1;
+			double[] x = lu.solve(e);
+			e[col] = 0;
+			System.arraycopy(x, 0, inverse.data, col * n, n);
+		}
+		return inverse;
+	}
+
+	@Override
+	public DenseMatrix multiply(IMatrix a, IMatrix b) {
+		if (a.columns() != b.rows())
+			throw new IllegalArgumentException("a.columns != b.rows");
+		DenseMatrix _b = MatrixConverter.dense(b);
+		int rows = a.rows();
+		int cols = _b.columns;
+		int k = _b.rows;
+		DenseMatrix c = new DenseMatrix(rows, cols);
+		if (a.isSparse()) {
+			// only iterate over the non-zero entries of a
+			a.iterate((row, j, val) -> {
+				for (int col = 0; col < cols; col++) {
+					c.data[col * rows + row] += val * _b.data[col * k + j];
+				}
+			});
+			return c;
+		}
+		DenseMatrix _a = MatrixConverter.dense(a);
+		for (int col = 0; col < cols; col++) {
+			for (int j = 0; j < k; j++) {
+				double bj = _b.data[col * k + j];
+				if (bj == 0)
+					continue;
+				int offset = j * rows;
+				for (int row = 0; row < rows; row++) {
+					c.data[col * rows + row] += _a.data[offset + row] * bj;
+				}
+			}
+		}
+		return c;
+	}
+
+}
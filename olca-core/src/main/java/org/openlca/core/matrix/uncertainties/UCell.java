@@ -1,5 +1,7 @@
 package org.openlca.core.matrix.uncertainties;
 
+import java.util.SplittableRandom;
+
 import org.openlca.expressions.FormulaInterpreter;
 
 /**
@@ -12,8 +14,15 @@ interface UCell {
 	 * Generates the next value of the underlying distribution of this matrix cell.
 	 * If formulas are linked to this cell the injected interpreter should be used
 	 * to evaluate them as possibly values of dependent parameters with uncertainty
-	 * distributions may changed.
+	 * distributions may changed. The random numbers are taken from the given
+	 * source.
+	 */
+	double next(FormulaInterpreter interpreter, SplittableRandom random);
+
+	/**
+	 * Creates a copy of this cell that can be used independently from this
+	 * cell (e.g. in another thread).
 	 */
-	double next(FormulaInterpreter interpreter);
+	UCell copy();
 
 }
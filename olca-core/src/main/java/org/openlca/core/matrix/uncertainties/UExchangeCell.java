@@ -1,11 +1,16 @@
 package org.openlca.core.matrix.uncertainties;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
 
 import org.openlca.core.math.NumberGenerator;
 import org.openlca.core.matrix.CalcExchange;
 import org.openlca.core.model.UncertaintyType;
 import org.openlca.expressions.FormulaInterpreter;
+import org.openlca.expressions.InterpreterException;
+import org.openlca.expressions.Scope;
+import org.openlca.util.Strings;
 
 class UExchangeCell implements UCell {
 	
@@ -16,13 +21,18 @@ class UExchangeCell implements UCell {
 	// cell.
 	List<UCell> overlay;
 
-	/*
-	 * TODO: we have to think about stateless functions here; also with a
-	 * shared instance of Random; see also this issue:
-	 * https://github.com/GreenDelta/olca-app/issues/62
-	 */
 	private final NumberGenerator gen;
 
+	/**
+	 * For an exchange with a formula but without uncertainty distribution:
+	 * the scope in which the formula was evaluated the last time, the change
+	 * count of that scope at that time, and the resulting value. With this,
+	 * we can skip the evaluation when no parameter of the formula was changed.
+	 */
+	private Scope evalScope;
+	private long evalChanges;
+	private double evalValue;
+
 	UExchangeCell(CalcExchange e, double allocationFactor) {
 		this.exchange = e;
 		this.allocationFactor = allocationFactor;
@@ -31,21 +41,64 @@ class UExchangeCell implements UCell {
 				: null;
 	}
 
+	private UExchangeCell(UExchangeCell other) {
+		// the amount of the exchange is changed in each iteration, thus we
+		// need a copy of it; the number generator has no state
+		this.exchange = other.exchange.copy();
+		this.allocationFactor = other.allocationFactor;
+		this.gen = other.gen;
+		if (other.overlay != null) {
+			overlay = new ArrayList<>(other.overlay.size());
+			for (UCell u : other.overlay) {
+				overlay.add(u.copy());
+			}
+		}
+	}
+
 	@Override
-	public double next(FormulaInterpreter interpreter) {
+	public UCell copy() {
+		return new UExchangeCell(this);
+	}
+
+	@Override
+	public double next(FormulaInterpreter interpreter,
+			SplittableRandom random) {
+		double a;
 		if (gen != null) {
-			exchange.amount = gen.next();
+			exchange.amount = gen.next(random);
+			a = exchange.matrixValue(interpreter, allocationFactor);
+		} else {
+			a = formulaValue(interpreter);
 		}
-		double a = exchange.matrixValue(
-				interpreter, allocationFactor);
 		if (overlay != null) {
 			for (UCell u : overlay) {
-				a += u.next(interpreter);
+				a += u.next(interpreter, random);
 			}
 		}
 		return a;
 	}
 
+	private double formulaValue(FormulaInterpreter interpreter) {
+		if (interpreter == null || Strings.nullOrEmpty(exchange.amountFormula))
+			return exchange.matrixValue(interpreter, allocationFactor);
+		Scope scope = interpreter.getScope(exchange.processId);
+		if (scope == null) {
+			scope = interpreter.getGlobalScope();
+		}
+		try {
+			if (scope == evalScope
+					&& !scope.isAffected(exchange.amountFormula, evalChanges))
+				return evalValue;
+		} catch (InterpreterException e) {
+			// the error is logged in the evaluation of the formula
+		}
+		long changes = scope.changes();
+		evalValue = exchange.matrixValue(interpreter, allocationFactor);
+		evalScope = scope;
+		evalChanges = changes;
+		return evalValue;
+	}
+
 	private static NumberGenerator generator(CalcExchange e) {
 		UncertaintyType t = e.uncertaintyType;
 		if (t == null) {
@@ -1,5 +1,7 @@
 package org.openlca.core.matrix.uncertainties;
 
+import java.util.SplittableRandom;
+
 import org.openlca.core.math.NumberGenerator;
 import org.openlca.core.matrix.CalcImpactFactor;
 import org.openlca.core.model.UncertaintyType;
@@ -24,9 +26,15 @@ class UImpactCell implements UCell {
 	}
 
 	@Override
-	public double next(FormulaInterpreter interpreter) {
+	public UCell copy() {
+		return new UImpactCell(factor);
+	}
+
+	@Override
+	public double next(FormulaInterpreter interpreter,
+			SplittableRandom random) {
 		if (gen != null) {
-			factor.amount = gen.next();
+			factor.amount = gen.next(random);
 		}
 		return 0;
 	}
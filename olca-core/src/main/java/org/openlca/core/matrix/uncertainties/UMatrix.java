@@ -1,6 +1,8 @@
 package org.openlca.core.matrix.uncertainties;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 import org.openlca.core.matrix.CalcExchange;
 import org.openlca.core.matrix.format.IMatrix;
@@ -17,6 +19,16 @@ public class UMatrix {
 
 	private final TIntObjectHashMap<TIntObjectHashMap<UCell>> data;
 
+	/**
+	 * The sorted row indices and the sorted column indices of each row. The
+	 * values are generated in this order so that a random number source
+	 * always gives the same numbers to the same cells, independent from the
+	 * iteration order of the hash maps (which can be different in a copy).
+	 * It is `null` when cells were added after it was built.
+	 */
+	private int[] rowOrder;
+	private int[][] colOrder;
+
 	public UMatrix() {
 		data = new TIntObjectHashMap<>(
 				Constants.DEFAULT_CAPACITY,
@@ -46,6 +58,9 @@ public class UMatrix {
 			e.amountFormula = null;
 		}
 
+		rowOrder = null;
+		colOrder = null;
+
 		// select the cell
 		TIntObjectHashMap<UCell> rowm = data.get(row);
 		if (rowm == null) {
@@ -73,21 +88,65 @@ public class UMatrix {
 	}
 
 	/**
-	 * Generates new values and sets them to the given matrix.
+	 * Creates a copy of this matrix with copies of the uncertainty cells. The
+	 * copy can be used independently from this matrix, e.g. in another
+	 * thread of a simulation.
 	 */
-	public void generate(IMatrix m, FormulaInterpreter interpreter) {
+	public UMatrix copy() {
+		UMatrix copy = new UMatrix();
 		TIntObjectIterator<TIntObjectHashMap<UCell>> rows = data.iterator();
 		while (rows.hasNext()) {
 			rows.advance();
-			int row = rows.key();
+			TIntObjectHashMap<UCell> rowCopy = new TIntObjectHashMap<>(
+					Constants.DEFAULT_CAPACITY,
+					Constants.DEFAULT_LOAD_FACTOR,
+					-1);
 			TIntObjectIterator<UCell> cols = rows.value().iterator();
 			while (cols.hasNext()) {
 				cols.advance();
-				int col = cols.key();
-				UCell cell = cols.value();
-				m.set(row, col, cell.next(interpreter));
+				rowCopy.put(cols.key(), cols.value().copy());
 			}
+			copy.data.put(rows.key(), rowCopy);
+		}
+		return copy;
+	}
+
+	/**
+	 * Generates new values and sets them to the given matrix.
+	 */
+	public void generate(IMatrix m, FormulaInterpreter interpreter) {
+		generate(m, interpreter, new SplittableRandom());
+	}
+
+	/**
+	 * Generates new values with the given random number source and sets them
+	 * to the given matrix.
+	 */
+	public void generate(IMatrix m, FormulaInterpreter interpreter,
+			SplittableRandom random) {
+		if (rowOrder == null) {
+			buildOrder();
+		}
+		for (int i = 0; i < rowOrder.length; i++) {
+			int row = rowOrder[i];
+			TIntObjectHashMap<UCell> rowm = data.get(row);
+			for (int col : colOrder[i]) {
+				UCell cell = rowm.get(col);
+				m.set(row, col, cell.next(interpreter, random));
+			}
+		}
+	}
+
+	private void buildOrder() {
+		int[] rows = data.keys();
+		Arrays.sort(rows);
+		int[][] cols = new int[rows.length][];
+		for (int i = 0; i < rows.length; i++) {
+			cols[i] = data.get(rows[i]).keys();
+			Arrays.sort(cols[i]);
 		}
+		colOrder = cols;
+		rowOrder = rows;
 	}
 
 }
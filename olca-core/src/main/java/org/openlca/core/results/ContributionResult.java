@@ -14,7 +14,9 @@ import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
  * The `ContributionResult` extends the `SimpleResult` type. It also contains
  * all direct contributions of the processes to the LCI and LCIA results.
  * Additionally, it contains the contributions of the (elementary) flows to the
- * LCIA results.
+ * LCIA results. With the sparse result mode of the calculation setup, the
+ * matrices of the direct contributions are stored in the compressed sparse
+ * column format; the getters of this class work the same way for both formats.
  */
 public class ContributionResult extends SimpleResult {
 
@@ -0,0 +1,250 @@
+package org.openlca.core.results;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.solvers.Factorization;
+import org.openlca.core.matrix.solvers.IMatrixSolver;
+import org.openlca.core.matrix.solvers.SparseLU;
+
+/**
+ * A `FullResult` that does not contain the inverse of the technology matrix
+ * $\mathbf{A}$ and the dense upstream matrices. Instead, it keeps a
+ * factorization of $\mathbf{A}$ and calculates the columns (and rows) of the
+ * upstream matrices $\mathbf{U}$, $\mathbf{V}$, and $\mathbf{k}_u$ on demand.
+ * The most recently used columns and rows are cached. Thus, the memory that is
+ * used by this result is proportional to the upstream results that are
+ * actually requested and not to $n^2$.
+ *
+ * A column $j$ of an upstream matrix requires a solution of $\mathbf{A} x =
+ * \mathbf{e}_j$ and a row $i$ (e.g. for an upstream tree) a solution of
+ * $\mathbf{A}^T y = \mathbf{F}[i,:]^T$. The factorization of $\mathbf{A}^T$ is
+ * created when a row is requested the first time.
+ *
+ * As the factorizations may hold native resources, `dispose()` should be called
+ * when the result is not needed anymore.
+ */
+public class LazyFullResult extends FullResult {
+
+	/**
+	 * The maximum number of columns and rows that are cached per upstream
+	 * matrix.
+	 */
+	public int cacheSize = 500;
+
+	private final IMatrixSolver solver;
+	private final IMatrix A;
+	private final Factorization lu;
+	private Factorization luT;
+	private final List<UpstreamMatrix> upstreamMatrices = new ArrayList<>();
+
+	/**
+	 * Creates a new lazy result.
+	 *
+	 * @param solver     the solver for the matrix-vector operations
+	 * @param techMatrix the (unscaled) technology matrix $\mathbf{A}$
+	 * @param lu         the factorization of the technology matrix
+	 */
+	public LazyFullResult(IMatrixSolver solver, IMatrix techMatrix,
+			Factorization lu) {
+		this.solver = solver;
+		this.A = techMatrix;
+		this.lu = lu;
+	}
+
+	/**
+	 * Creates a lazy upstream matrix:
+	 *
+	 * $$\mathbf{M} = \mathbf{F}_1 \cdots \mathbf{F}_k \ \mathbf{A}^{-1} \
+	 * \text{diag}(\mathbf{d})$$
+	 *
+	 * where $\mathbf{F}_1 \cdots \mathbf{F}_k$ are the given factors, e.g.
+	 * $\mathbf{B}$ for the upstream flow results or $\mathbf{C}$ and
+	 * $\mathbf{B}$ for the upstream impact results, and $\mathbf{d}$ the
+	 * vector of the real demands.
+	 */
+	public IMatrix upstreamMatrix(double[] demands, IMatrix... factors) {
+		UpstreamMatrix m = new UpstreamMatrix(demands, factors);
+		synchronized (upstreamMatrices) {
+			upstreamMatrices.add(m);
+		}
+		return m;
+	}
+
+	/**
+	 * Returns the estimated number of bytes that the lazy parts of this result
+	 * can hold: the factorizations of $\mathbf{A}$ and $\mathbf{A}^T$ and the
+	 * caches of the upstream matrices when they are full. The vectors and
+	 * matrices of the `FullResult` fields are not included.
+	 */
+	public long estimatedBytes() {
+		// the transposed factorization has the same size when it is created
+		long bytes = 2 * factorizationBytes();
+		synchronized (upstreamMatrices) {
+			for (UpstreamMatrix m : upstreamMatrices) {
+				long rows = m.rows();
+				long cols = m.columns();
+				bytes += Math.min(cacheSize, cols) * rows * 8
+						+ Math.min(cacheSize, rows) * cols * 8;
+			}
+		}
+		return bytes;
+	}
+
+	private long factorizationBytes() {
+		long n = lu.size();
+		if (lu instanceof SparseLU)
+			return ((SparseLU) lu).nonZeros() * 12L + n * 16;
+		if (!A.isSparse())
+			return n * n * 8;
+		// the fill-in of other sparse factorizations (e.g. UMFPACK) is not
+		// known here; we assume that it is a small multiple of the non-zero
+		// entries of A
+		long[] nnz = { 0 };
+		A.iterate((row, col, val) -> nnz[0]++);
+		return 4 * nnz[0] * 12 + n * 16;
+	}
+
+	/**
+	 * Releases the factorizations of this result. The upstream results cannot
+	 * be calculated anymore when this method was called.
+	 */
+	public synchronized void dispose() {
+		lu.dispose();
+		if (luT != null) {
+			luT.dispose();
+			luT = null;
+		}
+	}
+
+	private synchronized Factorization transposed() {
+		if (luT != null)
+			return luT;
+		int n = A.rows();
+		IMatrix t = solver.matrix(n, n);
+		A.iterate((row, col, val) -> t.set(col, row, val));
+		luT = solver.factorize(t);
+		return luT;
+	}
+
+	/**
+	 * Returns $\mathbf{v}^T \mathbf{M}$.
+	 */
+	private static double[] leftMultiply(double[] v, IMatrix m) {
+		double[] r = new double[m.columns()];
+		m.iterate((row, col, val) -> r[col] += v[row] * val);
+		return r;
+	}
+
+	private class UpstreamMatrix implements IMatrix {
+
+		private final double[] demands;
+		private final IMatrix[] factors;
+		private final Lru columns = new Lru();
+		private final Lru rows = new Lru();
+
+		UpstreamMatrix(double[] demands, IMatrix[] factors) {
+			this.demands = demands;
+			this.factors = factors;
+		}
+
+		@Override
+		public int rows() {
+			return factors[0].rows();
+		}
+
+		@Override
+		public int columns() {
+			return demands.length;
+		}
+
+		@Override
+		public void set(int row, int col, double val) {
+			throw new UnsupportedOperationException(
+					"Modifying a lazy upstream matrix is not supported");
+		}
+
+		@Override
+		public double get(int row, int col) {
+			return column(col)[row];
+		}
+
+		@Override
+		public double[] getColumn(int i) {
+			return column(i).clone();
+		}
+
+		@Override
+		public double[] getRow(int i) {
+			return row(i).clone();
+		}
+
+		@Override
+		public IMatrix copy() {
+			DenseMatrix copy = new DenseMatrix(rows(), columns());
+			for (int col = 0; col < copy.columns; col++) {
+				double[] column = column(col);
+				System.arraycopy(column, 0, copy.data,
+						col * copy.rows, copy.rows);
+			}
+			return copy;
+		}
+
+		private double[] column(int j) {
+			double[] column = columns.get(j);
+			if (column != null)
+				return column;
+			column = lu.solve(j, demands[j]);
+			for (int k = factors.length - 1; k >= 0; k--) {
+				column = solver.multiply(factors[k], column);
+			}
+			columns.put(j, column);
+			return column;
+		}
+
+		private double[] row(int i) {
+			double[] row = rows.get(i);
+			if (row != null)
+				return row;
+			row = factors[0].getRow(i);
+			for (int k = 1; k < factors.length; k++) {
+				row = leftMultiply(row, factors[k]);
+			}
+			row = transposed().solve(row);
+			for (int j = 0; j < row.length; j++) {
+				row[j] *= demands[j];
+			}
+			rows.put(i, row);
+			return row;
+		}
+	}
+
+	/**
+	 * A synchronized LRU cache of calculated vectors.
+	 */
+	private class Lru {
+
+		private final LinkedHashMap<Integer, double[]> map = new LinkedHashMap<Integer, double[]>(
+				16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<Integer, double[]> eldest) {
+				return size() > cacheSize;
+			}
+		};
+
+		synchronized double[] get(int i) {
+			return map.get(i);
+		}
+
+		synchronized void put(int i, double[] v) {
+			map.put(i, v);
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package org.openlca.core.results;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Stores the result vectors of the iterations of a simulation for a single
+ * kind of result (e.g. the total inventory results). The values of a vector
+ * entry (e.g. a flow) can be accessed for a single iteration or over all
+ * iterations.
+ */
+abstract class ResultStore {
+
+	/** Appends the result vector of the next iteration. */
+	abstract void append(double[] vector);
+
+	/** Returns the number of iterations in this store. */
+	abstract int size();
+
+	/**
+	 * Returns the value of the given entry in the given iteration or 0 if
+	 * there is no such value.
+	 */
+	abstract double get(int iteration, int idx);
+
+	/**
+	 * Passes the values of the given entry of all iterations, in iteration
+	 * order, to the given consumer.
+	 */
+	abstract void each(int idx, DoubleConsumer fn);
+
+	/** Releases the resources of this store. */
+	void close() {
+	}
+
+	static ResultStore inMemory() {
+		return new InMemory();
+	}
+
+	/**
+	 * Creates a store that writes its values into a new file in the given
+	 * directory.
+	 */
+	static ResultStore onDisk(File dir, String name) {
+		return new OnDisk(dir, name);
+	}
+
+	/**
+	 * Keeps the result vectors of all iterations in memory.
+	 */
+	private static class InMemory extends ResultStore {
+
+		private final List<double[]> vectors = new ArrayList<>();
+
+		@Override
+		void append(double[] vector) {
+			vectors.add(vector);
+		}
+
+		@Override
+		int size() {
+			return vectors.size();
+		}
+
+		@Override
+		double get(int iteration, int idx) {
+			if (iteration < 0 || idx < 0 || iteration >= vectors.size())
+				return 0;
+			double[] vector = vectors.get(iteration);
+			if (vector == null || vector.length <= idx)
+				return 0;
+			return vector[idx];
+		}
+
+		@Override
+		void each(int idx, DoubleConsumer fn) {
+			for (int i = 0; i < vectors.size(); i++) {
+				fn.accept(get(i, idx));
+			}
+		}
+	}
+
+	/**
+	 * Writes the result vectors into a file. The file is organized in blocks
+	 * of a fixed number of iterations. Within a block, the values are stored
+	 * entry-major: the values of an entry (e.g. a flow) for the iterations of
+	 * the block are stored next to each other. Thus, reading all values of an
+	 * entry reads a contiguous run of values from each block. Only the current
+	 * block is kept in memory; full blocks are written to the file. The size
+	 * of the blocks is chosen so that a block has a size of about 1 MB. The
+	 * file is deleted when the store is closed; it is not registered via
+	 * `File.deleteOnExit` as the JVM would keep the paths of all files that
+	 * were ever created until it exits (e.g. in a long running server).
+	 */
+	private static class OnDisk extends ResultStore {
+
+		private static final int BLOCK_BYTES = 1 << 20;
+
+		private final File file;
+		private final RandomAccessFile raf;
+		private final FileChannel channel;
+
+		/** The length of the vectors; set when the first vector is added. */
+		private int length = -1;
+
+		/** The number of iterations in a block. */
+		private int blockSize;
+
+		/** The current block: `block[idx * blockSize + iteration]`. */
+		private double[] block;
+
+		/** The number of iterations in the current block. */
+		private int filled;
+
+		/** The number of blocks that were written to the file. */
+		private int written;
+
+		/** Reusable buffers for writing blocks and reading values. */
+		private ByteBuffer out;
+		private ByteBuffer buffer;
+
+		OnDisk(File dir, String name) {
+			try {
+				if (!dir.exists()) {
+					dir.mkdirs();
+				}
+				file = File.createTempFile(name + "_", ".bin", dir);
+				raf = new RandomAccessFile(file, "rw");
+				channel = raf.getChannel();
+			} catch (IOException e) {
+				throw new RuntimeException(
+						"failed to create result file in " + dir, e);
+			}
+		}
+
+		@Override
+		synchronized void append(double[] vector) {
+			if (length < 0) {
+				length = vector == null ? 0 : vector.length;
+				int bytes = Math.max(1, length) * 8;
+				blockSize = Math.max(1, Math.min(4096, BLOCK_BYTES / bytes));
+				block = new double[length * blockSize];
+			}
+			if (vector != null) {
+				int n = Math.min(length, vector.length);
+				for (int idx = 0; idx < n; idx++) {
+					block[idx * blockSize + filled] = vector[idx];
+				}
+				for (int idx = n; idx < length; idx++) {
+					block[idx * blockSize + filled] = 0;
+				}
+			} else {
+				for (int idx = 0; idx < length; idx++) {
+					block[idx * blockSize + filled] = 0;
+				}
+			}
+			filled++;
+			if (filled == blockSize) {
+				flush();
+			}
+		}
+
+		private void flush() {
+			if (out == null) {
+				out = ByteBuffer.allocate(block.length * 8);
+			}
+			ByteBuffer buf = out;
+			buf.clear();
+			buf.asDoubleBuffer().put(block);
+			long pos = (long) written * block.length * 8;
+			try {
+				while (buf.hasRemaining()) {
+					pos += channel.write(buf, pos);
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(
+						"failed to write results to " + file, e);
+			}
+			written++;
+			filled = 0;
+		}
+
+		@Override
+		synchronized int size() {
+			return written * blockSize + filled;
+		}
+
+		@Override
+		synchronized double get(int iteration, int idx) {
+			if (iteration < 0 || idx < 0 || idx >= length
+					|| iteration >= size())
+				return 0;
+			int b = iteration / blockSize;
+			int i = iteration % blockSize;
+			if (b == written)
+				return block[idx * blockSize + i];
+			long pos = ((long) b * block.length + idx * blockSize + i) * 8;
+			ByteBuffer buf = read(pos, 1);
+			return buf.getDouble(0);
+		}
+
+		@Override
+		synchronized void each(int idx, DoubleConsumer fn) {
+			if (idx < 0 || idx >= length) {
+				for (int i = 0; i < size(); i++) {
+					fn.accept(0);
+				}
+				return;
+			}
+			for (int b = 0; b < written; b++) {
+				long pos = ((long) b * block.length + idx * blockSize) * 8;
+				DoubleBuffer values = read(pos, blockSize).asDoubleBuffer();
+				for (int i = 0; i < blockSize; i++) {
+					fn.accept(values.get(i));
+				}
+			}
+			for (int i = 0; i < filled; i++) {
+				fn.accept(block[idx * blockSize + i]);
+			}
+		}
+
+		/** Reads the given number of values from the given file position. */
+		private ByteBuffer read(long pos, int count) {
+			int bytes = count * 8;
+			if (buffer == null || buffer.capacity() < bytes) {
+				buffer = ByteBuffer.allocate(Math.max(bytes, blockSize * 8));
+			}
+			buffer.clear();
+			buffer.limit(bytes);
+			try {
+				while (buffer.hasRemaining()) {
+					int n = channel.read(buffer, pos + buffer.position());
+					if (n < 0)
+						break;
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(
+						"failed to read results from " + file, e);
+			}
+			buffer.flip();
+			return buffer;
+		}
+
+		@Override
+		synchronized void close() {
+			try {
+				channel.close();
+				raf.close();
+			} catch (IOException e) {
+				// nothing we could do here
+			}
+			file.delete();
+		}
+	}
+}
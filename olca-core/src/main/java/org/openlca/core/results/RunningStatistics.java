@@ -0,0 +1,209 @@
+package org.openlca.core.results;
+
+import java.util.Arrays;
+
+/**
+ * Calculates statistic parameters of a stream of numbers without storing the
+ * numbers. Mean and variance are updated with Welford's algorithm and the
+ * median and other percentiles are estimated with the P² algorithm of Jain and
+ * Chlamtac (1985) which only keeps five markers per percentile. Thus, the
+ * statistics of very long simulations can be calculated with constant memory.
+ * For small numbers of values, the percentiles are exact; for larger numbers
+ * they are estimates (in contrast to `Statistics` which sorts all values).
+ */
+public class RunningStatistics {
+
+	private int count;
+	private double min;
+	private double max;
+	private double mean;
+
+	/** The sum of squared differences from the current mean. */
+	private double m2;
+
+	private final int[] percentiles;
+	private final Quantile[] quantiles;
+
+	/**
+	 * Creates a new instance that estimates the median and the given
+	 * percentiles (0..100).
+	 */
+	public RunningStatistics(int... percentiles) {
+		int[] ps = percentiles == null ? new int[0] : percentiles;
+		ps = Arrays.copyOf(ps, ps.length + 1);
+		ps[ps.length - 1] = 50;
+		this.percentiles = Arrays.stream(ps).distinct().sorted().toArray();
+		quantiles = new Quantile[this.percentiles.length];
+		for (int i = 0; i < quantiles.length; i++) {
+			int p = this.percentiles[i];
+			if (p < 0 || p > 100)
+				throw new IllegalArgumentException(
+						"invalid percentile: " + p);
+			quantiles[i] = new Quantile(p / 100d);
+		}
+	}
+
+	public void add(double value) {
+		count++;
+		if (count == 1) {
+			min = value;
+			max = value;
+		} else {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		double delta = value - mean;
+		mean += delta / count;
+		m2 += delta * (value - mean);
+		for (Quantile q : quantiles) {
+			q.add(value);
+		}
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	public double getRange() {
+		return max - min;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * Returns the sample variance of the values.
+	 */
+	public double getVariance() {
+		return count < 2 ? 0 : m2 / (count - 1);
+	}
+
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	public double getMedian() {
+		return getPercentileValue(50);
+	}
+
+	/**
+	 * Returns the (estimated) value at the given percentile. The percentile
+	 * must be one of the percentiles of the constructor or 50 (the median).
+	 */
+	public double getPercentileValue(int percentile) {
+		int idx = Arrays.binarySearch(percentiles, percentile);
+		if (idx < 0)
+			throw new IllegalArgumentException("percentile " + percentile
+					+ " is not tracked; tracked are "
+					+ Arrays.toString(percentiles));
+		return quantiles[idx].value();
+	}
+
+	/**
+	 * The P² estimator of a single quantile.
+	 */
+	private static class Quantile {
+
+		private final double p;
+
+		/** The marker heights. */
+		private final double[] q = new double[5];
+
+		/** The actual marker positions. */
+		private final int[] n = { 0, 1, 2, 3, 4 };
+
+		/** The desired marker positions and their increments. */
+		private final double[] np;
+		private final double[] dn;
+
+		private int count;
+
+		Quantile(double p) {
+			this.p = p;
+			np = new double[] { 0, 2 * p, 4 * p, 2 + 2 * p, 4 };
+			dn = new double[] { 0, p / 2, p, (1 + p) / 2, 1 };
+		}
+
+		void add(double x) {
+			if (count < 5) {
+				q[count++] = x;
+				if (count == 5) {
+					Arrays.sort(q);
+				}
+				return;
+			}
+			count++;
+
+			// find the cell k with q[k] <= x < q[k + 1]
+			int k;
+			if (x < q[0]) {
+				q[0] = x;
+				k = 0;
+			} else if (x < q[1]) {
+				k = 0;
+			} else if (x < q[2]) {
+				k = 1;
+			} else if (x < q[3]) {
+				k = 2;
+			} else if (x <= q[4]) {
+				k = 3;
+			} else {
+				q[4] = x;
+				k = 3;
+			}
+			for (int i = k + 1; i < 5; i++) {
+				n[i]++;
+			}
+			for (int i = 0; i < 5; i++) {
+				np[i] += dn[i];
+			}
+
+			// adjust the heights of the inner markers
+			for (int i = 1; i < 4; i++) {
+				double d = np[i] - n[i];
+				if ((d >= 1 && n[i + 1] - n[i] > 1)
+						|| (d <= -1 && n[i - 1] - n[i] < -1)) {
+					int s = d > 0 ? 1 : -1;
+					double h = parabolic(i, s);
+					if (q[i - 1] < h && h < q[i + 1]) {
+						q[i] = h;
+					} else {
+						q[i] += s * (q[i + s] - q[i]) / (n[i + s] - n[i]);
+					}
+					n[i] += s;
+				}
+			}
+		}
+
+		private double parabolic(int i, int s) {
+			double a = (n[i] - n[i - 1] + s) * (q[i + 1] - q[i])
+					/ (n[i + 1] - n[i]);
+			double b = (n[i + 1] - n[i] - s) * (q[i] - q[i - 1])
+					/ (n[i] - n[i - 1]);
+			return q[i] + s * (a + b) / (n[i + 1] - n[i - 1]);
+		}
+
+		double value() {
+			if (count == 0)
+				return 0;
+			if (count > 5)
+				return q[2];
+			// exact value for the first few values
+			double[] vals = Arrays.copyOf(q, count);
+			Arrays.sort(vals);
+			double pos = p * (count - 1);
+			int lower = (int) Math.floor(pos);
+			int upper = (int) Math.ceil(pos);
+			return vals[lower] + (pos - lower) * (vals[upper] - vals[lower]);
+		}
+	}
+}
@@ -1,8 +1,7 @@
 package org.openlca.core.results;
 
-import java.util.ArrayList;
+import java.io.File;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Set;
 
 import org.openlca.core.matrix.MatrixData;
@@ -11,22 +10,48 @@ import org.openlca.core.model.descriptors.FlowDescriptor;
 import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
 
 /**
- * The results of a Monte-Carlo-Simulation. The single result values of the
- * simulation runs are stored in an array of lists where the flow- and LCIA
- * category indices are mapped to the respective array rows and the result
- * values to the respective list entries.
+ * The results of a Monte-Carlo-Simulation. The result vectors of the
+ * simulation runs are stored column-wise for each kind of result (total
+ * inventory and LCIA results, and the direct and upstream results of the
+ * pinned products) so that the values of a flow or LCIA category over all runs
+ * can be read in one sequence. By default, the vectors are kept in memory. When
+ * a directory is passed into the constructor, the results are written into
+ * files in that directory instead, so that simulations with a very large
+ * number of iterations do not fill up the heap. In this case, the result
+ * must be disposed when it is not needed anymore as this deletes the files.
  */
 public class SimulationResult extends BaseResult {
 
-	private final List<double[]> flowResults = new ArrayList<>();
-	private final List<double[]> impactResults = new ArrayList<>();
+	/** The directory of the result files or null if kept in memory. */
+	private final File dir;
+
+	private final ResultStore flowResults;
+	private final ResultStore impactResults;
 
 	private HashMap<ProcessProduct, PinnedContributions> pinned = new HashMap<>();
 
 	public SimulationResult(MatrixData data) {
+		this(data, null);
+	}
+
+	/**
+	 * Creates a new simulation result that stores its values in files in the
+	 * given directory. If the directory is null, the values are stored in
+	 * memory.
+	 */
+	public SimulationResult(MatrixData data, File dir) {
 		this.techIndex = data.techIndex;
 		this.flowIndex = data.enviIndex;
 		this.impactIndex = data.impactIndex;
+		this.dir = dir;
+		this.flowResults = store("flows");
+		this.impactResults = store("impacts");
+	}
+
+	private ResultStore store(String name) {
+		return dir == null
+				? ResultStore.inMemory()
+				: ResultStore.onDisk(dir, name);
 	}
 
 	/**
@@ -37,10 +62,10 @@ public class SimulationResult extends BaseResult {
 		if (r == null)
 			return;
 		if (r.totalFlowResults != null) {
-			flowResults.add(r.totalFlowResults);
+			flowResults.append(r.totalFlowResults);
 		}
 		if (r.totalImpactResults != null) {
-			impactResults.add(r.totalImpactResults);
+			impactResults.append(r.totalImpactResults);
 		}
 	}
 
@@ -55,20 +80,20 @@ public class SimulationResult extends BaseResult {
 			return;
 		PinnedContributions pc = pinned.get(product);
 		if (pc == null) {
-			pc = new PinnedContributions();
+			pc = new PinnedContributions(this, pinned.size());
 			pinned.put(product, pc);
 		}
 		if (direct.totalFlowResults != null) {
-			pc.directLCI.add(direct.totalFlowResults);
+			pc.directLCI.append(direct.totalFlowResults);
 		}
 		if (direct.totalImpactResults != null) {
-			pc.directLCIA.add(direct.totalImpactResults);
+			pc.directLCIA.append(direct.totalImpactResults);
 		}
 		if (upstream.totalFlowResults != null) {
-			pc.upstreamLCI.add(upstream.totalFlowResults);
+			pc.upstreamLCI.append(upstream.totalFlowResults);
 		}
 		if (upstream.totalImpactResults != null) {
-			pc.upstreamLCIA.add(upstream.totalImpactResults);
+			pc.upstreamLCIA.append(upstream.totalImpactResults);
 		}
 	}
 
@@ -83,7 +108,7 @@ public class SimulationResult extends BaseResult {
 		if (flowIndex == null)
 			return 0;
 		int arrayIdx = flowIndex.of(flow);
-		return adopt(flow, val(flowResults, i, arrayIdx));
+		return adopt(flow, flowResults.get(i, arrayIdx));
 	}
 
 	/**
@@ -96,7 +121,7 @@ public class SimulationResult extends BaseResult {
 		if (pc == null || flowIndex == null)
 			return 0;
 		int arrayIdx = flowIndex.of(flow);
-		return adopt(flow, val(pc.directLCI, i, arrayIdx));
+		return adopt(flow, pc.directLCI.get(i, arrayIdx));
 	}
 
 	/**
@@ -104,12 +129,10 @@ public class SimulationResult extends BaseResult {
 	 * all iterations.
 	 */
 	public double[] getAllDirect(ProcessProduct product, FlowDescriptor flow) {
-		int count = getNumberOfRuns();
-		double[] vals = new double[count];
-		for (int i = 0; i < count; i++) {
-			vals[i] = getDirect(product, flow, i);
-		}
-		return vals;
+		PinnedContributions pc = pinned.get(product);
+		if (pc == null)
+			return new double[getNumberOfRuns()];
+		return all(flow, pc.directLCI);
 	}
 
 	/**
@@ -122,7 +145,7 @@ public class SimulationResult extends BaseResult {
 		if (pc == null || flowIndex == null)
 			return 0;
 		int arrayIdx = flowIndex.of(flow);
-		return adopt(flow, val(pc.upstreamLCI, i, arrayIdx));
+		return adopt(flow, pc.upstreamLCI.get(i, arrayIdx));
 	}
 
 	/**
@@ -131,23 +154,32 @@ public class SimulationResult extends BaseResult {
 	 */
 	public double[] getAllUpstream(ProcessProduct product,
 			FlowDescriptor flow) {
-		int count = getNumberOfRuns();
-		double[] vals = new double[count];
-		for (int i = 0; i < count; i++) {
-			vals[i] = getUpstream(product, flow, i);
-		}
-		return vals;
+		PinnedContributions pc = pinned.get(product);
+		if (pc == null)
+			return new double[getNumberOfRuns()];
+		return all(flow, pc.upstreamLCI);
 	}
 
 	/**
 	 * Get all simulation results of the given flow.
 	 */
 	public double[] getAll(FlowDescriptor flow) {
-		double[] vals = new double[flowResults.size()];
-		for (int i = 0; i < flowResults.size(); i++) {
-			vals[i] = get(flow, i);
-		}
-		return vals;
+		return all(flow, flowResults);
+	}
+
+	/**
+	 * Calculates the statistics of the results of the given flow by streaming
+	 * over the stored values; the values are not loaded into memory. The
+	 * median and the given percentiles (0..100) are estimated.
+	 */
+	public RunningStatistics getStatistics(FlowDescriptor flow,
+			int... percentiles) {
+		RunningStatistics stats = new RunningStatistics(percentiles);
+		if (flowIndex == null)
+			return stats;
+		int idx = flowIndex.of(flow);
+		flowResults.each(idx, v -> stats.add(adopt(flow, v)));
+		return stats;
 	}
 
 	/**
@@ -158,7 +190,7 @@ public class SimulationResult extends BaseResult {
 		if (impactIndex == null)
 			return 0;
 		int arrayIdx = impactIndex.of(impact);
-		return val(impactResults, i, arrayIdx);
+		return impactResults.get(i, arrayIdx);
 	}
 
 	/**
@@ -171,7 +203,7 @@ public class SimulationResult extends BaseResult {
 		if (pc == null || impactIndex == null)
 			return 0;
 		int arrayIdx = impactIndex.of(impact);
-		return val(pc.directLCIA, i, arrayIdx);
+		return pc.directLCIA.get(i, arrayIdx);
 	}
 
 	/**
@@ -180,12 +212,10 @@ public class SimulationResult extends BaseResult {
 	 */
 	public double[] getAllDirect(ProcessProduct product,
 			ImpactCategoryDescriptor impact) {
-		int count = getNumberOfRuns();
-		double[] vals = new double[count];
-		for (int i = 0; i < count; i++) {
-			vals[i] = getDirect(product, impact, i);
-		}
-		return vals;
+		PinnedContributions pc = pinned.get(product);
+		if (pc == null)
+			return new double[getNumberOfRuns()];
+		return all(impact, pc.directLCIA);
 	}
 
 	/**
@@ -198,7 +228,7 @@ public class SimulationResult extends BaseResult {
 		if (pc == null || impactIndex == null)
 			return 0;
 		int arrayIdx = impactIndex.of(impact);
-		return val(pc.upstreamLCIA, i, arrayIdx);
+		return pc.upstreamLCIA.get(i, arrayIdx);
 	}
 
 	/**
@@ -207,39 +237,69 @@ public class SimulationResult extends BaseResult {
 	 */
 	public double[] getAllUpstream(ProcessProduct product,
 			ImpactCategoryDescriptor impact) {
-		int count = getNumberOfRuns();
-		double[] vals = new double[count];
-		for (int i = 0; i < count; i++) {
-			vals[i] = getUpstream(product, impact, i);
-		}
-		return vals;
+		PinnedContributions pc = pinned.get(product);
+		if (pc == null)
+			return new double[getNumberOfRuns()];
+		return all(impact, pc.upstreamLCIA);
 	}
 
 	/**
 	 * Get all simulation results of the given LCIA category.
 	 */
 	public double[] getAll(ImpactCategoryDescriptor impact) {
-		double[] vals = new double[impactResults.size()];
-		for (int i = 0; i < impactResults.size(); i++) {
-			vals[i] = get(impact, i);
-		}
-		return vals;
+		return all(impact, impactResults);
+	}
+
+	/**
+	 * Calculates the statistics of the results of the given LCIA category by
+	 * streaming over the stored values (see `getStatistics(FlowDescriptor)`).
+	 */
+	public RunningStatistics getStatistics(ImpactCategoryDescriptor impact,
+			int... percentiles) {
+		RunningStatistics stats = new RunningStatistics(percentiles);
+		if (impactIndex == null)
+			return stats;
+		impactResults.each(impactIndex.of(impact), stats::add);
+		return stats;
 	}
 
 	public int getNumberOfRuns() {
 		return flowResults.size();
 	}
 
-	private static double val(List<double[]> list, int listIdx, int arrayIdx) {
-		if (list == null
-				|| listIdx < 0
-				|| arrayIdx < 0
-				|| list.size() <= listIdx)
-			return 0;
-		double[] vec = list.get(listIdx);
-		if (vec == null || vec.length <= arrayIdx)
-			return 0;
-		return vec[arrayIdx];
+	private double[] all(FlowDescriptor flow, ResultStore store) {
+		double[] vals = new double[store.size()];
+		if (flowIndex == null)
+			return vals;
+		int idx = flowIndex.of(flow);
+		int[] i = { 0 };
+		store.each(idx, v -> vals[i[0]++] = adopt(flow, v));
+		return vals;
+	}
+
+	private double[] all(ImpactCategoryDescriptor impact, ResultStore store) {
+		double[] vals = new double[store.size()];
+		if (impactIndex == null)
+			return vals;
+		int idx = impactIndex.of(impact);
+		int[] i = { 0 };
+		store.each(idx, v -> vals[i[0]++] = v);
+		return vals;
+	}
+
+	/**
+	 * Closes the result stores and deletes the result files if the results
+	 * were written to disk. The result cannot be used anymore after this.
+	 */
+	public void dispose() {
+		flowResults.close();
+		impactResults.close();
+		for (PinnedContributions pc : pinned.values()) {
+			pc.directLCI.close();
+			pc.upstreamLCI.close();
+			pc.directLCIA.close();
+			pc.upstreamLCIA.close();
+		}
 	}
 
 	// TODO: no LCC for Monte Carlo simulations ?
@@ -249,9 +309,16 @@ public class SimulationResult extends BaseResult {
 	}
 
 	public static class PinnedContributions {
-		private List<double[]> directLCI = new ArrayList<>();
-		private List<double[]> upstreamLCI = new ArrayList<>();
-		private List<double[]> directLCIA = new ArrayList<>();
-		private List<double[]> upstreamLCIA = new ArrayList<>();
+		private final ResultStore directLCI;
+		private final ResultStore upstreamLCI;
+		private final ResultStore directLCIA;
+		private final ResultStore upstreamLCIA;
+
+		private PinnedContributions(SimulationResult r, int i) {
+			directLCI = r.store("pinned" + i + "_direct_lci");
+			upstreamLCI = r.store("pinned" + i + "_upstream_lci");
+			directLCIA = r.store("pinned" + i + "_direct_lcia");
+			upstreamLCIA = r.store("pinned" + i + "_upstream_lcia");
+		}
 	}
 }
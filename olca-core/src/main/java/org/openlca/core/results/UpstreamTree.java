@@ -55,21 +55,17 @@ public class UpstreamTree {
 		parent.childs = new ArrayList<>();
 		if (parent.scaling == 0)
 			return parent.childs;
-		for (int row = 0; row < r.techMatrix.rows(); row++) {
+		r.techMatrix.iterateColumn(parent.index, (row, col, val) -> {
 			if (row == parent.index)
-				continue;
-			double val = r.techMatrix.get(row, parent.index);
-			if (val == 0)
-				continue;
-			val *= parent.scaling;
+				return;
 			UpstreamNode child = new UpstreamNode();
 			double refVal = r.techMatrix.get(row, row);
-			child.scaling = -val / refVal;
+			child.scaling = -val * parent.scaling / refVal;
 			child.index = row;
 			child.provider = r.techIndex.getProviderAt(row);
 			child.result = adopt(intensityRow[row] * refVal * child.scaling);
 			parent.childs.add(child);
-		}
+		});
 		Collections.sort(parent.childs,
 				(n1, n2) -> Double.compare(n2.result, n1.result));
 		return parent.childs;
@@ -5,7 +5,11 @@ import org.openlca.core.matrix.format.DenseMatrix;
 import org.openlca.core.matrix.format.HashPointMatrix;
 import org.openlca.core.matrix.format.IMatrix;
 import org.openlca.core.matrix.format.MatrixConverter;
+import org.openlca.core.matrix.solvers.DenseSolver;
+import org.openlca.core.matrix.solvers.Factorization;
 import org.openlca.core.matrix.solvers.IMatrixSolver;
+import org.openlca.core.matrix.solvers.JavaSolver;
+import org.openlca.eigen.NativeLibrary;
 
 public class JuliaSolver implements IMatrixSolver {
 
@@ -46,12 +50,22 @@ public class JuliaSolver implements IMatrixSolver {
 		return b;
 	}
 
+	@Override
+	public Factorization factorize(IMatrix a) {
+		if (a instanceof HashPointMatrix && Julia.isWithUmfpack())
+			return Umfpack.factorize(CSCMatrix.of(a));
+		if (a.isSparse())
+			return IMatrixSolver.super.factorize(a);
+		// a dense LU factorization with the LAPACK bindings if available
+		return NativeLibrary.isLoaded()
+				? new DenseSolver().factorize(a)
+				: new JavaSolver().factorize(a);
+	}
+
 	@Override
 	public double[] multiply(IMatrix m, double[] x) {
-		if (m instanceof HashPointMatrix) {
-			HashPointMatrix s = (HashPointMatrix) m;
-			return s.multiply(x);
-		}
+		if (m.isSparse())
+			return IMatrixSolver.super.multiply(m, x);
 		DenseMatrix a = MatrixConverter.dense(m);
 		double[] y = new double[m.rows()];
 		Julia.mvmult(m.rows(), m.columns(), a.getData(), x, y);
@@ -84,16 +98,7 @@ public class JuliaSolver implements IMatrixSolver {
 
 	@Override
 	public void scaleColumns(IMatrix m, double[] v) {
-		if (m instanceof HashPointMatrix) {
-			HashPointMatrix s = (HashPointMatrix) m;
-			s.scaleColumns(v);
-			return;
-		}
-		for (int row = 0; row < m.rows(); row++) {
-			for (int col = 0; col < m.columns(); col++) {
-				m.set(row, col, v[col] * m.get(row, col));
-			}
-		}
+		m.scaleColumns(v);
 	}
 
 }
@@ -1,14 +1,35 @@
 package org.openlca.julia;
 
-public class UmfFactorizedMatrix {
-    final long pointer;
+import org.openlca.core.matrix.solvers.Factorization;
 
-    UmfFactorizedMatrix(long pointer) {
-        this.pointer = pointer;
-    }
+/**
+ * A sparse LU factorization that was calculated with UMFPACK. The
+ * factorization is stored in native memory which is released when `dispose`
+ * is called.
+ */
+public class UmfFactorizedMatrix implements Factorization {
 
-    public void dispose() {
-        Julia.umfDispose(pointer);
-    }
+	final long pointer;
+	private final int size;
+
+	UmfFactorizedMatrix(long pointer, int size) {
+		this.pointer = pointer;
+		this.size = size;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double[] solve(double[] b) {
+		return Umfpack.solve(this, b);
+	}
+
+	@Override
+	public void dispose() {
+		Julia.umfDispose(pointer);
+	}
 
 }
@@ -0,0 +1,55 @@
+package org.openlca.core.database;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.core.Tests;
+import org.openlca.core.model.Flow;
+import org.openlca.core.model.FlowType;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+
+public class DescriptorIndexTest {
+
+	private final IDatabase db = Tests.getDb();
+
+	@Test
+	public void testShared() {
+		Assert.assertSame(DescriptorIndex.of(db), DescriptorIndex.of(db));
+	}
+
+	@Test
+	public void testInsertUpdateDelete() {
+		DescriptorIndex index = DescriptorIndex.of(db);
+		Flow flow = new Flow();
+		flow.name = "flow";
+		flow.description = "a long description";
+		flow.flowType = FlowType.PRODUCT_FLOW;
+		Assert.assertNull(index.getFlow(99999999999L));
+
+		// the index is invalidated on insert
+		FlowDao dao = new FlowDao(db);
+		dao.insert(flow);
+		FlowDescriptor d = index.getFlow(flow.id);
+		Assert.assertEquals("flow", d.name);
+		Assert.assertEquals(FlowType.PRODUCT_FLOW, d.flowType);
+		Assert.assertNull(d.description);
+		Assert.assertSame(d, index.getFlow(flow.id));
+
+		flow.name = "updated flow";
+		dao.update(flow);
+		Assert.assertEquals("updated flow", index.getFlow(flow.id).name);
+
+		dao.delete(flow);
+		Assert.assertNull(index.getFlow(flow.id));
+	}
+
+	@Test
+	public void testProvider() {
+		DescriptorIndex index = DescriptorIndex.of(db);
+		Process process = Tests.insert(new Process());
+		Assert.assertEquals(process.id, index.getProvider(process.id).id);
+		Assert.assertNull(index.getProductSystem(process.id));
+		Tests.delete(process);
+		Assert.assertNull(index.getProvider(process.id));
+	}
+}
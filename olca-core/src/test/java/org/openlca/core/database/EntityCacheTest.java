@@ -4,12 +4,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.openlca.core.Tests;
 import org.openlca.core.model.Actor;
+import org.openlca.core.model.Location;
+import org.openlca.core.model.Source;
 import org.openlca.core.model.descriptors.ActorDescriptor;
 
 public class EntityCacheTest {
@@ -64,6 +69,34 @@ public class EntityCacheTest {
 		}
 	}
 
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		// a small, shared cache with entities of different types that are
+		// loaded from multiple threads
+		EntityCache shared = EntityCache.create(database, 5);
+		Actor actor = new ActorDao(database).insert(new Actor());
+		Source source = new SourceDao(database).insert(new Source());
+		Location location = new LocationDao(database).insert(new Location());
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		List<Future<Boolean>> results = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			results.add(pool.submit(() -> {
+				shared.invalidate(Actor.class, actor.id);
+				return actor.equals(shared.get(Actor.class, actor.id))
+						&& source.equals(shared.get(Source.class, source.id))
+						&& location.equals(
+								shared.get(Location.class, location.id));
+			}));
+		}
+		for (Future<Boolean> result : results) {
+			Assert.assertTrue(result.get());
+		}
+		pool.shutdown();
+		new ActorDao(database).delete(actor);
+		new SourceDao(database).delete(source);
+		new LocationDao(database).delete(location);
+	}
+
 	@Test
 	public void testRefresh() throws Exception {
 		ActorDao dao = new ActorDao(database);
@@ -3,6 +3,8 @@ package org.openlca.core.math;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.SplittableRandom;
+
 import org.junit.Test;
 
 public class NumberGeneratorTest {
@@ -48,6 +50,22 @@ public class NumberGeneratorTest {
 			assertEquals(5.0, genDiscrete.next(), 1e-16);
 	}
 
+	@Test
+	public void testSeed() {
+		NumberGenerator[] gens = {
+				NumberGenerator.normal(5, 1),
+				NumberGenerator.logNormal(5, 1.1),
+				NumberGenerator.uniform(1, 5),
+				NumberGenerator.triangular(1, 4, 5) };
+		SplittableRandom r1 = new SplittableRandom(42);
+		SplittableRandom r2 = new SplittableRandom(42);
+		for (int i = 0; i < 100; i++) {
+			for (NumberGenerator gen : gens) {
+				assertEquals(gen.next(r1), gen.next(r2), 1e-16);
+			}
+		}
+	}
+
 	private void assertInInterval(double val, double lower, double upper) {
 		assertTrue(val >= lower);
 		assertTrue(val <= upper);
@@ -0,0 +1,193 @@
+package org.openlca.core.math;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlca.core.TestProcess;
+import org.openlca.core.TestSystem;
+import org.openlca.core.Tests;
+import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.cache.MatrixCache;
+import org.openlca.core.model.Exchange;
+import org.openlca.core.model.Parameter;
+import org.openlca.core.model.ParameterScope;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.ProductSystem;
+import org.openlca.core.model.Uncertainty;
+import org.openlca.core.model.descriptors.Descriptors;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.results.SimulationResult;
+import org.openlca.core.results.Statistics;
+
+public class ParallelSimulatorTest {
+
+	private Process p1;
+	private Process p2;
+	private ProductSystem system;
+
+	@Before
+	public void setUp() {
+		p1 = TestProcess
+				.refProduct("p1", 1, "kg")
+				.prodIn("p2", 0.5, "kg")
+				.elemOut("f", 1, "kg")
+				.with(p -> uncertainty(p, Uncertainty.uniform(1, 2)))
+				.get();
+		p2 = TestProcess
+				.refProduct("p2", 1, "kg")
+				.elemOut("f", 2, "kg")
+				.with(p -> uncertainty(p, Uncertainty.uniform(2, 4)))
+				.get();
+		system = TestSystem.of(p1).link(p2).get();
+	}
+
+	@Test
+	public void testSimulation() {
+		CalculationSetup setup = new CalculationSetup(
+				CalculationType.MONTE_CARLO_SIMULATION, system);
+
+		ParallelSimulator simulator = ParallelSimulator.create(setup,
+				MatrixCache.createEager(Tests.getDb()),
+				Tests.getDefaultSolver(), 4);
+		ProcessProduct pinned = ProcessProduct.of(p2,
+				p2.quantitativeReference.flow);
+		simulator.pinnedProducts.add(pinned);
+		Assert.assertEquals(100, simulator.run(100));
+		Assert.assertEquals(100, simulator.iterations());
+
+		SimulationResult result = simulator.getResult();
+		Assert.assertEquals(100, result.getNumberOfRuns());
+		FlowDescriptor f = Descriptors.toDescriptor(
+				TestProcess.findExchange(p1, "f").flow);
+		double[] totals = result.getAll(f);
+		double[] upstreams = result.getAllUpstream(pinned, f);
+		double min = Double.MAX_VALUE;
+		double max = -Double.MAX_VALUE;
+		for (int i = 0; i < totals.length; i++) {
+			// total = u(1, 2) + 0.5 * u(2, 4)
+			Assert.assertTrue(totals[i] >= 2 && totals[i] <= 4);
+			// upstream of p2 = 0.5 * u(2, 4)
+			Assert.assertTrue(upstreams[i] >= 1 && upstreams[i] <= 2);
+			Assert.assertTrue(totals[i] - upstreams[i] >= 1 - 1e-10);
+			min = Math.min(min, totals[i]);
+			max = Math.max(max, totals[i]);
+		}
+		Assert.assertTrue(max > min);
+	}
+
+	@Test
+	public void testSeed() throws Exception {
+		CalculationSetup setup = new CalculationSetup(
+				CalculationType.MONTE_CARLO_SIMULATION, system);
+		setup.seed = 42L;
+		FlowDescriptor f = Descriptors.toDescriptor(
+				TestProcess.findExchange(p1, "f").flow);
+
+		// sequential runs
+		Simulator simulator = Simulator.create(setup,
+				MatrixCache.createEager(Tests.getDb()),
+				Tests.getDefaultSolver());
+		for (int i = 0; i < 50; i++) {
+			simulator.nextRun();
+		}
+		double[] expected = simulator.getResult().getAll(f);
+
+		// the same numbers with any number of workers
+		for (int workers : new int[] { 1, 3 }) {
+			ParallelSimulator ps = ParallelSimulator.create(setup,
+					MatrixCache.createEager(Tests.getDb()),
+					Tests.getDefaultSolver(), workers);
+			Assert.assertEquals(42L, ps.getSeed());
+			ps.run(20);
+			ps.run(30);
+			double[] actual = ps.getResult().getAll(f);
+			Assert.assertArrayEquals(expected, actual, 1e-16);
+		}
+
+		// the same numbers when the results are stored on disk
+		File dir = Files.createTempDirectory("_olca_sim").toFile();
+		ParallelSimulator disk = ParallelSimulator.create(setup,
+				MatrixCache.createEager(Tests.getDb()),
+				Tests.getDefaultSolver(), 2);
+		disk.resultDir = dir;
+		disk.run(50);
+		SimulationResult r = disk.getResult();
+		Assert.assertArrayEquals(expected, r.getAll(f), 1e-16);
+		Assert.assertEquals(Statistics.of(expected).mean,
+				r.getStatistics(f).getMean(), 1e-10);
+		r.dispose();
+		Assert.assertEquals(0, dir.list().length);
+		dir.delete();
+
+		// other numbers with another seed
+		setup.seed = 43L;
+		ParallelSimulator ps = ParallelSimulator.create(setup,
+				MatrixCache.createEager(Tests.getDb()),
+				Tests.getDefaultSolver(), 2);
+		ps.run(50);
+		Assert.assertNotEquals(expected[0], ps.getResult().getAll(f)[0],
+				1e-16);
+	}
+
+	@Test
+	public void testSeedWithManyCells() {
+		// a process with many uncertain exchanges and many uncertain
+		// parameters that are used in exchange formulas; the random numbers
+		// need to go to the same cells and parameters in each worker
+		int n = 25;
+		TestProcess tp = TestProcess.refProduct("p3", 1, "kg");
+		for (int i = 0; i < n; i++) {
+			tp.elemOut("mc_u" + i, 1, "kg");
+			tp.elemOut("mc_f" + i, 1, "kg");
+		}
+		Process p3 = tp.with(p -> {
+			for (int i = 0; i < n; i++) {
+				Exchange u = TestProcess.findExchange(p, "mc_u" + i);
+				u.uncertainty = Uncertainty.uniform(i, i + 1);
+				Parameter param = new Parameter();
+				param.name = "mc_p" + i;
+				param.isInputParameter = true;
+				param.scope = ParameterScope.PROCESS;
+				param.value = 1;
+				param.uncertainty = Uncertainty.uniform(1, 2);
+				p.parameters.add(param);
+				Exchange f = TestProcess.findExchange(p, "mc_f" + i);
+				f.amountFormula = "2 * mc_p" + i;
+			}
+		}).get();
+		CalculationSetup setup = new CalculationSetup(
+				CalculationType.MONTE_CARLO_SIMULATION,
+				TestSystem.of(p3).get());
+		setup.seed = 42L;
+
+		Simulator simulator = Simulator.create(setup,
+				MatrixCache.createEager(Tests.getDb()),
+				Tests.getDefaultSolver());
+		for (int i = 0; i < 20; i++) {
+			simulator.nextRun();
+		}
+		SimulationResult expected = simulator.getResult();
+
+		ParallelSimulator ps = ParallelSimulator.create(setup,
+				MatrixCache.createEager(Tests.getDb()),
+				Tests.getDefaultSolver(), 3);
+		ps.run(20);
+		SimulationResult actual = ps.getResult();
+		for (int i = 0; i < n; i++) {
+			for (String name : new String[] { "mc_u" + i, "mc_f" + i }) {
+				FlowDescriptor f = Descriptors.toDescriptor(
+						TestProcess.findExchange(p3, name).flow);
+				Assert.assertArrayEquals(expected.getAll(f),
+						actual.getAll(f), 1e-16);
+			}
+		}
+	}
+
+	private void uncertainty(Process p, Uncertainty u) {
+		Exchange e = TestProcess.findExchange(p, "f");
+		e.uncertainty = u;
+	}
+}
@@ -9,11 +9,17 @@ import org.junit.Test;
 import org.openlca.core.TestProcess;
 import org.openlca.core.TestSystem;
 import org.openlca.core.Tests;
+import org.openlca.core.database.ParameterDao;
 import org.openlca.core.matrix.cache.MatrixCache;
 import org.openlca.core.matrix.solvers.JavaSolver;
+import org.openlca.core.model.Parameter;
+import org.openlca.core.model.ParameterRedef;
+import org.openlca.core.model.ParameterScope;
 import org.openlca.core.model.Process;
+import org.openlca.core.model.ProductSystem;
 import org.openlca.core.model.Project;
 import org.openlca.core.model.ProjectVariant;
+import org.openlca.core.model.descriptors.Descriptors;
 import org.openlca.core.model.descriptors.FlowDescriptor;
 import org.openlca.core.results.ProjectResult;
 
@@ -65,4 +71,77 @@ public class ProjectCalculationTest {
 		}
 		assertEquals(4, icount.get());
 	}
+
+	@Test
+	public void testBatchVariants() {
+		Parameter y = new Parameter();
+		y.name = "y";
+		y.scope = ParameterScope.GLOBAL;
+		y.isInputParameter = true;
+		y.value = 0.5;
+		ParameterDao paramDao = new ParameterDao(Tests.getDb());
+		paramDao.insert(y);
+
+		// e1 = 2 * x + y * 1
+		Process p2 = TestProcess
+				.refProduct("p2", 1, "kg")
+				.elemOut("e1", 1, "kg")
+				.get();
+		Process p1 = TestProcess
+				.refProduct("p1", 1, "kg")
+				.prodIn("p2", 0.5, "kg")
+				.elemOut("e1", 2, "kg")
+				.with(p -> {
+					Parameter x = new Parameter();
+					x.name = "x";
+					x.scope = ParameterScope.PROCESS;
+					x.isInputParameter = true;
+					x.value = 1;
+					p.parameters.add(x);
+					TestProcess.findExchange(p, "p2").amountFormula = "y";
+					TestProcess.findExchange(p, "e1").amountFormula = "2 * x";
+				})
+				.get();
+		ProductSystem system = TestSystem.of(p1).link(p2).get();
+
+		Project project = new Project();
+		ProjectVariant v1 = variant(project, system, 1);
+		ProjectVariant v2 = variant(project, system, 1);
+		v2.parameterRedefs.add(redef("x", p1.id, 2));
+		ProjectVariant v3 = variant(project, system, 2);
+		v3.parameterRedefs.add(redef("x", p1.id, 2));
+		ProjectVariant v4 = variant(project, system, 1);
+		v4.parameterRedefs.add(redef("y", null, 1));
+		ProjectVariant v5 = variant(project, system, 3);
+
+		ProjectCalculator calc = new ProjectCalculator(
+				MatrixCache.createLazy(Tests.getDb()),
+				new JavaSolver());
+		ProjectResult r = calc.calculate(project);
+		FlowDescriptor e1 = Descriptors.toDescriptor(
+				TestProcess.findExchange(p1, "e1").flow);
+		assertEquals(2.5, r.getTotalFlowResult(v1, e1), 1e-10);
+		assertEquals(4.5, r.getTotalFlowResult(v2, e1), 1e-10);
+		assertEquals(9.0, r.getTotalFlowResult(v3, e1), 1e-10);
+		assertEquals(3.0, r.getTotalFlowResult(v4, e1), 1e-10);
+		assertEquals(7.5, r.getTotalFlowResult(v5, e1), 1e-10);
+		paramDao.delete(y);
+	}
+
+	private ProjectVariant variant(Project project, ProductSystem system,
+			double amount) {
+		ProjectVariant v = new ProjectVariant();
+		v.productSystem = system;
+		v.amount = amount;
+		project.variants.add(v);
+		return v;
+	}
+
+	private ParameterRedef redef(String name, Long context, double value) {
+		ParameterRedef redef = new ParameterRedef();
+		redef.name = name;
+		redef.contextId = context;
+		redef.value = value;
+		return redef;
+	}
 }
@@ -0,0 +1,104 @@
+package org.openlca.core.math.data_quality;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class AggregationTest {
+
+	@Test
+	public void testWeightedAverage() {
+		Aggregation agg = new Aggregation(
+				AggregationType.WEIGHTED_AVERAGE, 2, 3, false);
+		agg.add(0, new double[] { 1, 2, 0 }, 1);
+		agg.add(0, new double[] { 4, 2, 0 }, 3);
+		assertArrayEquals(new double[] { 3.25, 2, 0 }, agg.get(0), 1e-16);
+		assertFalse(agg.has(1));
+		assertNull(agg.get(1));
+		agg.reset(0);
+		assertFalse(agg.has(0));
+	}
+
+	@Test
+	public void testSquaredAverage() {
+		Aggregation agg = new Aggregation(
+				AggregationType.WEIGHTED_SQUARED_AVERAGE, 1, 2, false);
+		agg.add(0, new double[] { 1, 5 }, 1);
+		agg.add(0, new double[] { 4, 5 }, -2);
+		assertArrayEquals(new double[] { 3.4, 5 }, agg.get(0), 1e-16);
+	}
+
+	@Test
+	public void testMaximum() {
+		Aggregation agg = new Aggregation(
+				AggregationType.MAXIMUM, 1, 3, true);
+		agg.add(0, new double[] { 1, 5, 0 }, 1);
+		agg.add(0, new double[] { 4, 2, 0 }, 1);
+		assertTrue(agg.has(0));
+		assertArrayEquals(new double[] { 4, 5, 0 }, agg.get(0), 1e-16);
+	}
+
+	@Test
+	public void testExactSums() {
+		// large and small weights where a naive summation loses the small
+		// weights completely
+		Aggregation naive = new Aggregation(
+				AggregationType.WEIGHTED_AVERAGE, 1, 1, false);
+		Aggregation exact = new Aggregation(
+				AggregationType.WEIGHTED_AVERAGE, 1, 1, true);
+		for (Aggregation agg : new Aggregation[] { naive, exact }) {
+			agg.add(0, new double[] { 1 }, 1e17);
+			for (int i = 0; i < 1000; i++) {
+				agg.add(0, new double[] { 5 }, 1);
+			}
+			agg.add(0, new double[] { 1 }, -1e17);
+		}
+		assertArrayEquals(new double[] { 0 }, naive.get(0), 1e-16);
+		assertArrayEquals(new double[] { 5 }, exact.get(0), 1e-16);
+	}
+
+	@Test
+	public void testNoSnappingInExactMode() {
+		Aggregation naive = new Aggregation(
+				AggregationType.WEIGHTED_AVERAGE, 1, 1, false);
+		Aggregation exact = new Aggregation(
+				AggregationType.WEIGHTED_AVERAGE, 1, 1, true);
+		for (Aggregation agg : new Aggregation[] { naive, exact }) {
+			agg.add(0, new double[] { 3 }, 1);
+			agg.add(0, new double[] { 3.000000001 }, 1);
+		}
+		// the naive average is snapped to the integer, the exact average is
+		// kept and would be rounded up to 4
+		assertArrayEquals(new double[] { 3 }, naive.get(0), 1e-16);
+		assertEquals(3.0000000005, exact.get(0)[0], 1e-15);
+		assertEquals(4, Math.ceil(exact.get(0)[0]), 1e-16);
+	}
+
+	@Test
+	public void testEqualScoresGiveExactScore() {
+		// equal scores must give exactly that score, whatever the weights
+		// are; otherwise a ceiling rounding would give the next score
+		Random random = new Random(42);
+		AggregationType[] types = {
+				AggregationType.WEIGHTED_AVERAGE,
+				AggregationType.WEIGHTED_SQUARED_AVERAGE };
+		for (AggregationType type : types) {
+			for (int run = 0; run < 1000; run++) {
+				Aggregation agg = new Aggregation(type, 1, 1, true);
+				int n = 2 + random.nextInt(50);
+				for (int i = 0; i < n; i++) {
+					double w = random.nextDouble() * Math.pow(10,
+							random.nextInt(10) - 5);
+					agg.add(0, new double[] { 3 }, random.nextBoolean() ? w : -w);
+				}
+				assertEquals(3, agg.get(0)[0], 0);
+			}
+		}
+	}
+}
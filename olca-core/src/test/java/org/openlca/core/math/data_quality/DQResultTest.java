@@ -195,6 +195,21 @@ public class DQResultTest {
 
 	@Test
 	public void test() {
+		checkResults(calculate(false, false), method.impactCategories.get(0));
+	}
+
+	@Test
+	public void testParallelExact() {
+		checkResults(calculate(true, true), method.impactCategories.get(0));
+	}
+
+	@Test
+	public void testExactSumsByDefault() {
+		Assert.assertTrue(new DQCalculationSetup().exactSums);
+		checkResults(calculate(false, true), method.impactCategories.get(0));
+	}
+
+	private DQResult calculate(boolean parallel, boolean exactSums) {
 		SystemCalculator calculator = new SystemCalculator(
 				MatrixCache.createEager(Tests.getDb()),
 				Tests.getDefaultSolver());
@@ -210,9 +225,9 @@ public class DQResultTest {
 		dqSetup.processingType = ProcessingType.EXCLUDE;
 		dqSetup.exchangeDqSystem = dqSystem;
 		dqSetup.processDqSystem = dqSystem;
-		DQResult result = DQResult.calculate(Tests.getDb(), cResult, dqSetup);
-		ImpactCategory impact = method.impactCategories.get(0);
-		checkResults(result, impact);
+		dqSetup.parallel = parallel;
+		dqSetup.exactSums = exactSums;
+		return DQResult.calculate(Tests.getDb(), cResult, dqSetup);
 	}
 
 	private void checkResults(DQResult result, ImpactCategory impact) {
@@ -2,6 +2,7 @@ package org.openlca.core.matrix;
 
 import static java.util.Collections.emptySet;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Collections;
@@ -215,4 +216,28 @@ public class ParameterTableTest {
 		assertTrue(ppInp > 1000);
 		assertEquals(3 * ppInp, scope.eval("dep_param"), 1e-6);
 	}
+
+	@Test
+	public void testRedefSweep() throws Exception {
+		ParameterTable table = ParameterTable.build(Tests.getDb(),
+				Collections.singleton(process.id), emptySet());
+		FormulaInterpreter fi = table.getInterpreter();
+		Scope scope = fi.getScope(process.id);
+		assertEquals(2 * 42.0, fi.eval("dep_param"), 1e-6);
+		assertEquals(3 * 84.0, scope.eval("dep_param"), 1e-6);
+		long changes = scope.changes();
+
+		ParameterRedef redef = new ParameterRedef();
+		redef.name = "inp_param";
+		for (double value : new double[] { 1, 2, 3 }) {
+			redef.value = value;
+			table.redef(Collections.singleton(redef));
+			assertEquals(2 * value, fi.eval("dep_param"), 1e-6);
+			// the local parameters do not depend on the global ones
+			assertFalse(scope.isAffected("dep_param", changes));
+			assertEquals(3 * 84.0, scope.eval("dep_param"), 1e-6);
+			assertTrue(fi.getGlobalScope()
+					.isAffected("2 * dep_param", changes));
+		}
+	}
 }
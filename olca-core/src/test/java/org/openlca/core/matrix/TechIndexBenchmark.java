@@ -0,0 +1,209 @@
+package org.openlca.core.matrix;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.format.MatrixBuilder;
+import org.openlca.core.model.FlowType;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.model.descriptors.ProcessDescriptor;
+
+/**
+ * Compares the matrix building of a synthetic product system with 50k
+ * processes using the index lookups with boxed keys (`HashMap` with
+ * `ProcessProduct` and `LongPair` keys as the `TechIndex` had before) and the
+ * primitive lookups of the `TechIndex`. Each process has a product output,
+ * 3 linked product inputs, and 5 elementary flows. Run the `main` method of
+ * this class to execute the benchmark (add `-prof gc` to the options to also
+ * see the allocation rates).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TechIndexBenchmark {
+
+	private static final int PROCESSES = 50_000;
+	private static final int LINKS = 3;
+	private static final int ELEM_FLOWS = 1_000;
+	private static final int ELEM_EXCHANGES = 5;
+
+	private ProcessProduct[] providers;
+	private List<CalcExchange> exchanges;
+	private FlowIndex flowIndex;
+	private TechIndex techIndex;
+	private BoxedIndex boxedIndex;
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(42);
+		providers = new ProcessProduct[PROCESSES];
+		for (int i = 0; i < PROCESSES; i++) {
+			ProcessDescriptor process = new ProcessDescriptor();
+			process.id = i + 1;
+			FlowDescriptor flow = new FlowDescriptor();
+			flow.id = 1_000_000 + i;
+			flow.flowType = FlowType.PRODUCT_FLOW;
+			providers[i] = ProcessProduct.of(process, flow);
+		}
+
+		flowIndex = new FlowIndex();
+		for (int i = 0; i < ELEM_FLOWS; i++) {
+			FlowDescriptor flow = new FlowDescriptor();
+			flow.id = 2_000_000 + i;
+			flowIndex.putOutput(flow);
+		}
+
+		techIndex = new TechIndex(providers[0]);
+		boxedIndex = new BoxedIndex();
+		for (ProcessProduct p : providers) {
+			techIndex.put(p);
+			boxedIndex.put(p);
+		}
+
+		exchanges = new ArrayList<>();
+		long exchangeId = 1;
+		for (ProcessProduct p : providers) {
+			exchanges.add(exchange(p.id(), exchangeId++, p.flowId(),
+					FlowType.PRODUCT_FLOW, false));
+			for (int k = 0; k < LINKS; k++) {
+				ProcessProduct provider = providers[rand.nextInt(PROCESSES)];
+				CalcExchange e = exchange(p.id(), exchangeId++,
+						provider.flowId(), FlowType.PRODUCT_FLOW, true);
+				exchanges.add(e);
+				techIndex.putLink(e.processId, e.exchangeId, provider);
+				boxedIndex.putLink(
+						LongPair.of(e.processId, e.exchangeId), provider);
+			}
+			for (int k = 0; k < ELEM_EXCHANGES; k++) {
+				long flowId = 2_000_000 + rand.nextInt(ELEM_FLOWS);
+				exchanges.add(exchange(p.id(), exchangeId++, flowId,
+						FlowType.ELEMENTARY_FLOW, false));
+			}
+		}
+	}
+
+	private CalcExchange exchange(long processId, long exchangeId,
+			long flowId, FlowType type, boolean isInput) {
+		CalcExchange e = new CalcExchange();
+		e.processId = processId;
+		e.exchangeId = exchangeId;
+		e.flowId = flowId;
+		e.flowType = type;
+		e.isInput = isInput;
+		e.amount = 1;
+		e.conversionFactor = 1;
+		return e;
+	}
+
+	@Benchmark
+	public IMatrix boxed() {
+		MatrixBuilder techBuilder = new MatrixBuilder();
+		MatrixBuilder enviBuilder = new MatrixBuilder();
+		for (CalcExchange e : exchanges) {
+			// the provider of an exchange is looked up by its owner process
+			// as in the inventory builder
+			ProcessProduct provider = providers[(int) e.processId - 1];
+			int col = boxedIndex.getIndex(provider);
+			if (e.flowType == FlowType.ELEMENTARY_FLOW) {
+				enviBuilder.add(flowIndex.of(e.flowId), col, e.amount);
+				continue;
+			}
+			if (e.isInput) {
+				LongPair exchange = LongPair.of(e.processId, e.exchangeId);
+				if (boxedIndex.isLinked(exchange)) {
+					ProcessProduct linked = boxedIndex.getLinkedProvider(
+							exchange);
+					techBuilder.add(boxedIndex.getIndex(linked), col,
+							-e.amount);
+				}
+				continue;
+			}
+			techBuilder.add(col, col, e.amount);
+		}
+		enviBuilder.finish();
+		return techBuilder.finish();
+	}
+
+	@Benchmark
+	public IMatrix primitive() {
+		MatrixBuilder techBuilder = new MatrixBuilder();
+		MatrixBuilder enviBuilder = new MatrixBuilder();
+		for (CalcExchange e : exchanges) {
+			ProcessProduct provider = providers[(int) e.processId - 1];
+			int col = techIndex.getIndex(provider);
+			if (e.flowType == FlowType.ELEMENTARY_FLOW) {
+				enviBuilder.add(flowIndex.of(e.flowId), col, e.amount);
+				continue;
+			}
+			if (e.isInput) {
+				int row = techIndex.getLinkedIndex(e.processId, e.exchangeId);
+				if (row >= 0) {
+					techBuilder.add(row, col, -e.amount);
+				}
+				continue;
+			}
+			techBuilder.add(col, col, e.amount);
+		}
+		enviBuilder.finish();
+		return techBuilder.finish();
+	}
+
+	/** The lookups with boxed keys as the `TechIndex` had before. */
+	private static class BoxedIndex {
+
+		final HashMap<ProcessProduct, Integer> index = new HashMap<>();
+		final HashMap<LongPair, ProcessProduct> links = new HashMap<>();
+
+		void put(ProcessProduct provider) {
+			if (!index.containsKey(provider)) {
+				index.put(provider, index.size());
+			}
+		}
+
+		int getIndex(ProcessProduct provider) {
+			Integer idx = index.get(provider);
+			return idx == null ? -1 : idx;
+		}
+
+		void putLink(LongPair exchange, ProcessProduct provider) {
+			if (links.containsKey(exchange))
+				return;
+			put(provider);
+			links.put(exchange, provider);
+		}
+
+		boolean isLinked(LongPair exchange) {
+			return links.containsKey(exchange);
+		}
+
+		ProcessProduct getLinkedProvider(LongPair exchange) {
+			return links.get(exchange);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(TechIndexBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
@@ -0,0 +1,84 @@
+package org.openlca.core.matrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.model.descriptors.ProcessDescriptor;
+
+public class TechIndexTest {
+
+	@Test
+	public void testProviders() {
+		// process 1 has the products 10, 11, 12
+		TechIndex index = new TechIndex(provider(1, 10));
+		index.put(provider(1, 11));
+		index.put(provider(2, 20));
+		index.put(provider(1, 12));
+		index.put(provider(1, 11)); // no duplicates
+		assertEquals(4, index.size());
+
+		assertEquals(0, index.getIndex(1, 10));
+		assertEquals(1, index.getIndex(1, 11));
+		assertEquals(2, index.getIndex(2, 20));
+		assertEquals(3, index.getIndex(1, 12));
+		assertEquals(3, index.getIndex(provider(1, 12)));
+		assertEquals(-1, index.getIndex(2, 10));
+		assertEquals(-1, index.getIndex(3, 30));
+
+		assertTrue(index.contains(1, 12));
+		assertFalse(index.contains(2, 12));
+		assertSame(index.getProviderAt(1), index.getProvider(1, 11));
+		assertNull(index.getProvider(3, 30));
+		assertTrue(index.isProvider(2));
+		assertFalse(index.isProvider(3));
+
+		List<ProcessProduct> providers = index.getProviders(1);
+		assertEquals(3, providers.size());
+		for (int i = 0; i < 3; i++) {
+			assertEquals(10 + i, providers.get(i).flowId());
+		}
+	}
+
+	@Test
+	public void testLinks() {
+		TechIndex index = new TechIndex(provider(1, 10));
+		// the same exchange ID in different processes
+		index.putLink(LongPair.of(1, 100), provider(2, 20));
+		index.putLink(3, 100, provider(4, 40));
+		index.putLink(1, 100, provider(4, 40)); // already linked
+		assertEquals(3, index.size());
+
+		assertEquals(1, index.getLinkedIndex(1, 100));
+		assertEquals(2, index.getLinkedIndex(3, 100));
+		assertEquals(-1, index.getLinkedIndex(2, 100));
+		assertTrue(index.isLinked(LongPair.of(3, 100)));
+		assertFalse(index.isLinked(1, 101));
+		assertEquals(provider(2, 20),
+				index.getLinkedProvider(LongPair.of(1, 100)));
+		assertEquals(2, index.getLinkedExchanges().size());
+		assertEquals(2, index.linkCount());
+		StringBuilder links = new StringBuilder();
+		index.eachLink((processId, exchangeId, providerIdx) -> links
+				.append(processId + "/" + exchangeId + "->" + providerIdx + ";"));
+		assertEquals("1/100->1;3/100->2;", links.toString());
+
+		TechIndex copy = index.copy();
+		assertEquals(index.getLinkedExchanges(), copy.getLinkedExchanges());
+		assertEquals(2, copy.getLinkedIndex(3, 100));
+	}
+
+	private ProcessProduct provider(long processId, long flowId) {
+		ProcessDescriptor process = new ProcessDescriptor();
+		process.id = processId;
+		FlowDescriptor flow = new FlowDescriptor();
+		flow.id = flowId;
+		return ProcessProduct.of(process, flow);
+	}
+}
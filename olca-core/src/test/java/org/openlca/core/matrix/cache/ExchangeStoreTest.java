@@ -0,0 +1,85 @@
+package org.openlca.core.matrix.cache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.core.TestProcess;
+import org.openlca.core.Tests;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.ProcessDao;
+import org.openlca.core.matrix.CalcExchange;
+import org.openlca.core.model.Exchange;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.Uncertainty;
+
+public class ExchangeStoreTest {
+
+	private IDatabase db = Tests.getDb();
+
+	@Test
+	public void testSameAsTable() {
+		Process p = TestProcess
+				.refProduct("p", 1, "kg")
+				.elemOut("e1", 2, "kg")
+				.elemIn("e2", 3, "kg")
+				.with(process -> {
+					Exchange e1 = TestProcess.findExchange(process, "e1");
+					e1.amountFormula = "2 * 1";
+					Exchange e2 = TestProcess.findExchange(process, "e2");
+					e2.uncertainty = Uncertainty.uniform(2, 4);
+				})
+				.get();
+		ExchangeStore store = ExchangeStore.create(db);
+		Assert.assertTrue(store.size() >= 3);
+
+		Map<Long, CalcExchange> expected = new HashMap<>();
+		new ExchangeTable(db).scan("f_owner = " + p.id,
+				e -> expected.put(e.exchangeId, e));
+		List<CalcExchange> actual = store.get(p.id);
+		Assert.assertEquals(3, actual.size());
+		for (CalcExchange a : actual) {
+			CalcExchange e = expected.get(a.exchangeId);
+			Assert.assertNotNull(e);
+			Assert.assertEquals(e.processId, a.processId);
+			Assert.assertEquals(e.flowId, a.flowId);
+			Assert.assertEquals(e.flowType, a.flowType);
+			Assert.assertEquals(e.isInput, a.isInput);
+			Assert.assertEquals(e.isAvoided, a.isAvoided);
+			Assert.assertEquals(e.amount, a.amount, 1e-16);
+			Assert.assertEquals(e.conversionFactor, a.conversionFactor,
+					1e-16);
+			Assert.assertEquals(e.amountFormula, a.amountFormula);
+			Assert.assertEquals(e.defaultProviderId, a.defaultProviderId);
+			Assert.assertEquals(e.uncertaintyType, a.uncertaintyType);
+			Assert.assertEquals(e.parameter1, a.parameter1, 1e-16);
+			Assert.assertEquals(e.parameter2, a.parameter2, 1e-16);
+			Assert.assertEquals(e.costValue, a.costValue, 1e-16);
+			Assert.assertEquals(e.costFormula, a.costFormula);
+		}
+		new ProcessDao(db).delete(p);
+	}
+
+	@Test
+	public void testLoadNewAndEvicted() {
+		ExchangeStore store = ExchangeStore.create(db);
+		Process p = TestProcess
+				.refProduct("p", 1, "kg")
+				.elemOut("e", 2, "kg")
+				.get();
+
+		// processes that were created after the store are loaded on demand
+		List<CalcExchange> exchanges = store.get(p.id);
+		Assert.assertEquals(2, exchanges.size());
+
+		// evicted processes are loaded again
+		p.exchanges.remove(TestProcess.findExchange(p, "e"));
+		p = new ProcessDao(db).update(p);
+		Assert.assertEquals(2, store.get(p.id).size());
+		store.evict(p.id);
+		Assert.assertEquals(1, store.get(p.id).size());
+		new ProcessDao(db).delete(p);
+	}
+}
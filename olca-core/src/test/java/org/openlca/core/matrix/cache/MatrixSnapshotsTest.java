@@ -0,0 +1,130 @@
+package org.openlca.core.matrix.cache;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.core.TestProcess;
+import org.openlca.core.TestSystem;
+import org.openlca.core.Tests;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.ProcessDao;
+import org.openlca.core.math.CalculationSetup;
+import org.openlca.core.math.CalculationType;
+import org.openlca.core.math.DataStructures;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.TechIndex;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.solvers.JavaSolver;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.ProductSystem;
+import org.openlca.util.Dirs;
+
+public class MatrixSnapshotsTest {
+
+	private File dir;
+
+	@After
+	public void tearDown() {
+		if (dir != null) {
+			Dirs.delete(dir.toPath());
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Process p2 = TestProcess
+				.refProduct("p2", 1, "kg")
+				.elemOut("e1", 1, "kg")
+				.get();
+		Process p1 = TestProcess
+				.refProduct("p1", 1, "kg")
+				.prodIn("p2", 0.5, "kg")
+				.elemOut("e1", 2, "kg")
+				.get();
+		ProductSystem system = TestSystem.of(p1).link(p2).get();
+		CalculationSetup setup = new CalculationSetup(
+				CalculationType.SIMPLE_CALCULATION, system);
+		JavaSolver solver = new JavaSolver();
+		MatrixData expected = DataStructures.matrixData(setup, solver,
+				MatrixCache.createLazy(Tests.getDb()), null);
+
+		dir = Files.createTempDirectory("_olca_snapshots").toFile();
+		MatrixSnapshots snapshots = MatrixSnapshots.in(dir);
+		Assert.assertNull(snapshots.get("key", solver));
+		snapshots.put("key", snapshots.stamp(), expected);
+		MatrixData actual = snapshots.get("key", solver);
+		Assert.assertNotNull(actual);
+		Assert.assertNull(snapshots.get("other key", solver));
+
+		TechIndex ti = actual.techIndex;
+		Assert.assertEquals(expected.techIndex.size(), ti.size());
+		Assert.assertEquals(expected.techIndex.getDemand(), ti.getDemand(),
+				1e-16);
+		for (int i = 0; i < ti.size(); i++) {
+			ProcessProduct e = expected.techIndex.getProviderAt(i);
+			ProcessProduct a = ti.getProviderAt(i);
+			Assert.assertEquals(e.id(), a.id());
+			Assert.assertEquals(e.flowId(), a.flowId());
+			Assert.assertEquals(e.process.name, a.process.name);
+		}
+		Assert.assertEquals(expected.techIndex.getLinkedExchanges(),
+				ti.getLinkedExchanges());
+		Assert.assertEquals(expected.enviIndex.size(), actual.enviIndex.size());
+		for (int i = 0; i < actual.enviIndex.size(); i++) {
+			Assert.assertEquals(expected.enviIndex.at(i).id,
+					actual.enviIndex.at(i).id);
+			Assert.assertEquals(
+					expected.enviIndex.isInput(expected.enviIndex.at(i)),
+					actual.enviIndex.isInput(actual.enviIndex.at(i)));
+		}
+		assertMatrixEquals(expected.techMatrix, actual.techMatrix);
+		assertMatrixEquals(expected.enviMatrix, actual.enviMatrix);
+
+		// a change invalidates the snapshot
+		snapshots.invalidate();
+		Assert.assertNull(snapshots.get("key", solver));
+		Assert.assertEquals(1, snapshots.stamp());
+		snapshots.put("key", 0, expected);
+		Assert.assertNull(snapshots.get("key", solver));
+	}
+
+	@Test
+	public void testInvalidateOnDatabaseChange() {
+		Process p = TestProcess
+				.refProduct("p", 1, "kg")
+				.elemOut("e1", 1, "kg")
+				.get();
+		ProductSystem system = TestSystem.of(p).get();
+		CalculationSetup setup = new CalculationSetup(
+				CalculationType.SIMPLE_CALCULATION, system);
+		JavaSolver solver = new JavaSolver();
+		IDatabase db = Tests.getDb();
+		MatrixData data = DataStructures.matrixData(setup, solver,
+				MatrixCache.createLazy(db), null);
+
+		MatrixSnapshots snapshots = MatrixSnapshots.of(db);
+		Assert.assertSame(snapshots, MatrixSnapshots.of(db));
+		snapshots.put("db key", snapshots.stamp(), data);
+		Assert.assertNotNull(snapshots.get("db key", solver));
+
+		// a change via a DAO invalidates the snapshot
+		p.name = "p changed";
+		new ProcessDao(db).update(p);
+		Assert.assertNull(snapshots.get("db key", solver));
+	}
+
+	private void assertMatrixEquals(IMatrix expected, IMatrix actual) {
+		Assert.assertEquals(expected.rows(), actual.rows());
+		Assert.assertEquals(expected.columns(), actual.columns());
+		for (int row = 0; row < expected.rows(); row++) {
+			for (int col = 0; col < expected.columns(); col++) {
+				Assert.assertEquals(expected.get(row, col),
+						actual.get(row, col), 1e-16);
+			}
+		}
+	}
+}
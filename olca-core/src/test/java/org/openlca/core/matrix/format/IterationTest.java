@@ -0,0 +1,105 @@
+package org.openlca.core.matrix.format;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.openlca.core.matrix.solvers.IMatrixSolver;
+import org.openlca.core.matrix.solvers.SequentialSolver;
+
+/**
+ * Tests that the iteration over the non-zero values and the column scaling
+ * give the same results for the different matrix formats.
+ */
+public class IterationTest {
+
+	private final double[][] data = {
+			{ 1, 0, 0, -2 },
+			{ 0, 3, 0, 0 },
+			{ -4, 0, 5, 0 } };
+
+	private IMatrix[] matrices() {
+		HashPointMatrix hash = new HashPointMatrix(data);
+		DenseMatrix dense = new DenseMatrix(3, 4);
+		dense.setValues(data);
+		JavaMatrix java = new JavaMatrix(3, 4);
+		java.setValues(data);
+		return new IMatrix[] {
+				hash,
+				dense,
+				CSCMatrix.of(hash),
+				hash.compress(),
+				java };
+	}
+
+	@Test
+	public void testIterate() {
+		for (IMatrix m : matrices()) {
+			double[][] copy = new double[3][4];
+			int[] count = { 0 };
+			m.iterate((row, col, val) -> {
+				copy[row][col] = val;
+				count[0]++;
+			});
+			assertEquals(5, count[0]);
+			for (int row = 0; row < 3; row++) {
+				assertArrayEquals(data[row], copy[row], 1e-16);
+			}
+		}
+	}
+
+	@Test
+	public void testIterateColumnAndRow() {
+		for (IMatrix m : matrices()) {
+			for (int col = 0; col < 4; col++) {
+				double[] column = new double[3];
+				m.iterateColumn(col, (row, c, val) -> column[row] = val);
+				assertArrayEquals(m.getColumn(col), column, 1e-16);
+			}
+			for (int row = 0; row < 3; row++) {
+				double[] r = new double[4];
+				m.iterateRow(row, (_r, col, val) -> r[col] = val);
+				assertArrayEquals(data[row], r, 1e-16);
+			}
+		}
+	}
+
+	@Test
+	public void testScaleColumns() {
+		double[] v = { 2, 0.5, 0, 3 };
+		for (IMatrix m : matrices()) {
+			m.scaleColumns(v);
+			for (int row = 0; row < 3; row++) {
+				for (int col = 0; col < 4; col++) {
+					assertEquals(data[row][col] * v[col], m.get(row, col), 1e-16);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSolverDefaults() {
+		// the sequential solver uses the default implementations of the
+		// matrix multiplications of the interface
+		IMatrixSolver solver = new SequentialSolver(1e-9, 100);
+		double[] x = { 1, 2, 3, 4 };
+		double[] expected = { -7, 6, 11 };
+		HashPointMatrix b = new HashPointMatrix(new double[][] {
+				{ 1, 0 },
+				{ 0, 2 },
+				{ 0, 0 },
+				{ 1, -1 } });
+		double[][] expectedProduct = {
+				{ -1, 2 },
+				{ 0, 6 },
+				{ -4, 0 } };
+		for (IMatrix m : matrices()) {
+			assertArrayEquals(expected, solver.multiply(m, x), 1e-16);
+			IMatrix product = solver.multiply(m, b);
+			for (int row = 0; row < 3; row++) {
+				assertArrayEquals(expectedProduct[row], product.getRow(row),
+						1e-16);
+			}
+		}
+	}
+}
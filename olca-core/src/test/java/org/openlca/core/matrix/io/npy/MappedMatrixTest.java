@@ -0,0 +1,91 @@
+package org.openlca.core.matrix.io.npy;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+
+public class MappedMatrixTest {
+
+	private final double[][] data = {
+			{1.0, 0.0, 0.0, 0.0},
+			{0.0, 4.0, 0.0, 0.0},
+			{0.0, 0.0, 0.0, 1.0},
+			{2.0, 0.0, 0.0, 0.0},
+			{0.0, 0.0, 0.0, 3.0},
+	};
+
+	@Test
+	public void testDense() throws Exception {
+		DenseMatrix m = new DenseMatrix(5, 4);
+		m.setValues(data);
+		File file = Files.createTempFile("_olca_mapped_", ".npy").toFile();
+		file.deleteOnExit();
+		Npy.save(file, m);
+		MappedDenseMatrix mapped = Npy.map(file);
+		check(m, mapped);
+		Assert.assertArrayEquals(m.data, mapped.copy().data, 1e-16);
+	}
+
+	@Test
+	public void testSparse() throws Exception {
+		HashPointMatrix m = new HashPointMatrix(data);
+		File file = Files.createTempFile("_olca_mapped_", ".csc").toFile();
+		file.deleteOnExit();
+		MappedCSCMatrix.save(file, m);
+		MappedCSCMatrix mapped = MappedCSCMatrix.of(file);
+		Assert.assertEquals(5, mapped.nonZeros());
+		check(m, mapped);
+
+		CSCMatrix expected = CSCMatrix.of(m);
+		CSCMatrix copy = mapped.copy();
+		Assert.assertArrayEquals(expected.columnPointers, copy.columnPointers);
+		Assert.assertArrayEquals(expected.rowIndices, copy.rowIndices);
+		Assert.assertArrayEquals(expected.values, copy.values, 1e-16);
+	}
+
+	@Test
+	public void testMultiply() throws Exception {
+		HashPointMatrix m = new HashPointMatrix(data);
+		File file = Files.createTempFile("_olca_mapped_", ".csc").toFile();
+		file.deleteOnExit();
+		MappedCSCMatrix.save(file, m);
+		MappedCSCMatrix mapped = MappedCSCMatrix.of(file);
+		CSCMatrix b = CSCMatrix.of(new HashPointMatrix(new double[][] {
+				{ 1.0, 0.0 },
+				{ 0.0, 2.0 },
+				{ 5.0, 0.0 },
+				{ 0.0, 3.0 } }));
+		check(CSCMatrix.multiply(m, b), CSCMatrix.multiply(mapped, b));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() throws Exception {
+		File file = Files.createTempFile("_olca_mapped_", ".csc").toFile();
+		file.deleteOnExit();
+		MappedCSCMatrix.save(file, new HashPointMatrix(data));
+		MappedCSCMatrix.of(file).set(0, 0, 42);
+	}
+
+	private void check(IMatrix expected, IMatrix actual) {
+		Assert.assertEquals(expected.rows(), actual.rows());
+		Assert.assertEquals(expected.columns(), actual.columns());
+		for (int row = 0; row < expected.rows(); row++) {
+			Assert.assertArrayEquals(expected.getRow(row),
+					actual.getRow(row), 1e-16);
+			for (int col = 0; col < expected.columns(); col++) {
+				Assert.assertEquals(expected.get(row, col),
+						actual.get(row, col), 1e-16);
+			}
+		}
+		for (int col = 0; col < expected.columns(); col++) {
+			Assert.assertArrayEquals(expected.getColumn(col),
+					actual.getColumn(col), 1e-16);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package org.openlca.core.matrix.solvers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+
+public class FactorizationTest {
+
+	private final IMatrixSolver[] solvers = {
+			new JavaSolver(),
+			new SparseSolver() };
+
+	@Test
+	public void testRepeatedSolves() {
+		for (IMatrixSolver solver : solvers) {
+			IMatrix a = matrix(solver);
+			Factorization lu = solver.factorize(a);
+			assertEquals(3, lu.size());
+			for (int i = 0; i < 3; i++) {
+				double[] expected = solver.solve(a, i, 2.0);
+				assertArrayEquals(expected, lu.solve(i, 2.0), 1e-14);
+			}
+			double[] b = { 1, 2, 3 };
+			double[] x = lu.solve(b);
+			assertArrayEquals(new double[] { 1, 2, 3 }, b, 0);
+			assertArrayEquals(b, solver.multiply(a, x), 1e-14);
+			lu.dispose();
+		}
+	}
+
+	@Test
+	public void testMultipleRightHandSides() {
+		for (IMatrixSolver solver : solvers) {
+			IMatrix a = matrix(solver);
+			Factorization lu = solver.factorize(a);
+			IMatrix b = new HashPointMatrix(new double[][] {
+					{ 1, 0 },
+					{ 0, 2 },
+					{ 1, 3 } });
+			IMatrix x = lu.solve(b);
+			assertEquals(3, x.rows());
+			assertEquals(2, x.columns());
+			for (int col = 0; col < 2; col++) {
+				assertArrayEquals(lu.solve(b.getColumn(col)),
+						x.getColumn(col), 1e-14);
+			}
+			lu.dispose();
+		}
+	}
+
+	private IMatrix matrix(IMatrixSolver solver) {
+		IMatrix a = solver.matrix(3, 3);
+		a.setValues(new double[][] {
+				{ 1, -0.5, 0 },
+				{ -0.2, 1, -0.1 },
+				{ 0, -0.3, 2 } });
+		return a;
+	}
+}
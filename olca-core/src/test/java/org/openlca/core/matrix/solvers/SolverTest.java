@@ -32,6 +32,9 @@ public class SolverTest {
 	@DataPoint
 	public static IMatrixSolver javaSolver = new JavaSolver();
 
+	@DataPoint
+	public static IMatrixSolver sparseSolver = new SparseSolver();
+
 	@Theory
 	public void testSimpleSolve(IMatrixSolver solver) {
 		log.info("Test simple solve with {}", solver.getClass());
@@ -0,0 +1,96 @@
+package org.openlca.core.matrix.solvers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+
+public class SparseLUTest {
+
+	@Test
+	public void testSimpleSystem() {
+		HashPointMatrix a = new HashPointMatrix(new double[][] {
+				{ 1, 0, 0 },
+				{ -0.5, 1, -0.2 },
+				{ 0, -0.1, 1 } });
+		double[] s = SparseLU.of(a).solve(0, 1);
+		double[] expected = new JavaSolver().solve(a, 0, 1);
+		assertArrayEquals(expected, s, 1e-14);
+	}
+
+	@Test
+	public void testPivoting() {
+		// the diagonal contains a zero so that a row exchange is required
+		HashPointMatrix a = new HashPointMatrix(new double[][] {
+				{ 0, 2, 1 },
+				{ 1, 1, 0 },
+				{ 3, 0, 1 } });
+		double[] b = { 1, 2, 3 };
+		double[] x = SparseLU.of(a).solve(b);
+		assertArrayEquals(b, a.multiply(x), 1e-12);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSingular() {
+		HashPointMatrix a = new HashPointMatrix(new double[][] {
+				{ 1, 2 },
+				{ 2, 4 } });
+		SparseLU.of(a);
+	}
+
+	@Test
+	public void testRandomSystems() {
+		Random rand = new Random(42);
+		for (int run = 0; run < 10; run++) {
+			int n = 50 + rand.nextInt(200);
+			HashPointMatrix a = randomTechMatrix(rand, n);
+			double[] b = new double[n];
+			for (int i = 0; i < n; i++) {
+				b[i] = rand.nextDouble();
+			}
+			double[] x = SparseLU.of(a).solve(b);
+			assertArrayEquals(b, a.multiply(x), 1e-10);
+			double[] y = SparseLU.of(CSCMatrix.of(a)).solve(b);
+			assertArrayEquals(x, y, 1e-14);
+		}
+	}
+
+	@Test
+	public void testInvert() {
+		Random rand = new Random(7);
+		HashPointMatrix a = randomTechMatrix(rand, 40);
+		DenseMatrix inv = new SparseSolver().invert(a);
+		IMatrix expected = new JavaSolver().invert(a);
+		for (int row = 0; row < 40; row++) {
+			for (int col = 0; col < 40; col++) {
+				assertEquals(expected.get(row, col), inv.get(row, col), 1e-10);
+			}
+		}
+	}
+
+	/**
+	 * Creates a random, sparse, and non-singular matrix with a structure
+	 * similar to technology matrices (positive diagonal, small negative
+	 * off-diagonal entries, and some columns with many entries).
+	 */
+	private HashPointMatrix randomTechMatrix(Random rand, int n) {
+		HashPointMatrix a = new HashPointMatrix(n, n);
+		for (int col = 0; col < n; col++) {
+			a.set(col, col, 1 + rand.nextDouble());
+			int inputs = rand.nextInt(10) == 0 ? n / 2 : rand.nextInt(4);
+			for (int k = 0; k < inputs; k++) {
+				int row = rand.nextInt(n);
+				if (row == col)
+					continue;
+				a.set(row, col, -rand.nextDouble() / n);
+			}
+		}
+		return a;
+	}
+}
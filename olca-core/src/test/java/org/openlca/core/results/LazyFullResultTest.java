@@ -0,0 +1,132 @@
+package org.openlca.core.results;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.core.Tests;
+import org.openlca.core.math.LcaCalculator;
+import org.openlca.core.matrix.DIndex;
+import org.openlca.core.matrix.FlowIndex;
+import org.openlca.core.matrix.LongPair;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.TechIndex;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.solvers.IMatrixSolver;
+import org.openlca.core.matrix.solvers.SparseSolver;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
+import org.openlca.core.model.descriptors.ProcessDescriptor;
+
+public class LazyFullResultTest {
+
+	@Test
+	public void testJavaSolver() {
+		check(Tests.getDefaultSolver());
+	}
+
+	@Test
+	public void testSparseSolver() {
+		check(new SparseSolver());
+	}
+
+	private void check(IMatrixSolver solver) {
+		MatrixData data = data(solver);
+		FullResult full = new LcaCalculator(solver, data).calculateFull();
+		LazyFullResult lazy = new LcaCalculator(solver, data).calculateLazy();
+		lazy.cacheSize = 2; // force evictions
+
+		Assert.assertArrayEquals(full.scalingVector, lazy.scalingVector, 1e-10);
+		Assert.assertArrayEquals(full.totalFlowResults,
+				lazy.totalFlowResults, 1e-10);
+		Assert.assertArrayEquals(full.totalImpactResults,
+				lazy.totalImpactResults, 1e-10);
+		Assert.assertEquals(full.totalCosts, lazy.totalCosts, 1e-10);
+		Assert.assertEquals(full.loopFactor, lazy.loopFactor, 1e-10);
+
+		for (int round = 0; round < 2; round++) {
+			compare(full.upstreamFlowResults, lazy.upstreamFlowResults);
+			compare(full.upstreamImpactResults, lazy.upstreamImpactResults);
+			compare(full.upstreamCostResults, lazy.upstreamCostResults);
+		}
+
+		// the upstream trees must be the same
+		FlowDescriptor flow = data.enviIndex.at(0);
+		UpstreamTree fullTree = full.getTree(flow);
+		UpstreamTree lazyTree = lazy.getTree(flow);
+		Assert.assertEquals(fullTree.root.result, lazyTree.root.result, 1e-10);
+		Assert.assertEquals(fullTree.childs(fullTree.root).size(),
+				lazyTree.childs(lazyTree.root).size());
+		lazy.dispose();
+	}
+
+	private void compare(IMatrix expected, IMatrix actual) {
+		Assert.assertEquals(expected.rows(), actual.rows());
+		Assert.assertEquals(expected.columns(), actual.columns());
+		for (int row = 0; row < expected.rows(); row++) {
+			Assert.assertArrayEquals(expected.getRow(row),
+					actual.getRow(row), 1e-10);
+		}
+		for (int col = 0; col < expected.columns(); col++) {
+			Assert.assertArrayEquals(expected.getColumn(col),
+					actual.getColumn(col), 1e-10);
+			for (int row = 0; row < expected.rows(); row++) {
+				Assert.assertEquals(expected.get(row, col),
+						actual.get(row, col), 1e-10);
+			}
+		}
+	}
+
+	/**
+	 * A system with a loop between the processes 1 and 2 and a reference
+	 * process that does not produce exactly 1 unit of its product.
+	 */
+	private MatrixData data(IMatrixSolver solver) {
+		MatrixData data = new MatrixData();
+		TechIndex techIndex = new TechIndex(provider(1));
+		techIndex.setDemand(3);
+		techIndex.put(provider(2));
+		techIndex.put(provider(3));
+		techIndex.putLink(LongPair.of(1, 2), provider(2));
+		techIndex.putLink(LongPair.of(2, 1), provider(1));
+		techIndex.putLink(LongPair.of(2, 3), provider(3));
+		data.techIndex = techIndex;
+
+		FlowIndex enviIndex = new FlowIndex();
+		for (int i = 0; i < 2; i++) {
+			FlowDescriptor flow = new FlowDescriptor();
+			flow.id = 10 + i;
+			enviIndex.putOutput(flow);
+		}
+		data.enviIndex = enviIndex;
+
+		DIndex<ImpactCategoryDescriptor> impactIndex = new DIndex<>();
+		ImpactCategoryDescriptor impact = new ImpactCategoryDescriptor();
+		impact.id = 20;
+		impactIndex.put(impact);
+		data.impactIndex = impactIndex;
+
+		data.techMatrix = solver.matrix(3, 3);
+		data.techMatrix.setValues(new double[][] {
+				{ 2, -0.2, 0 },
+				{ -1, 1, 0 },
+				{ 0, -0.5, 1 } });
+		data.enviMatrix = solver.matrix(2, 3);
+		data.enviMatrix.setValues(new double[][] {
+				{ 1, 0.5, 0 },
+				{ 0, 2, 4 } });
+		data.impactMatrix = solver.matrix(1, 2);
+		data.impactMatrix.setValues(new double[][] { { 2, 0.5 } });
+		data.costVector = new double[] { 5, 2, 1 };
+		return data;
+	}
+
+	private ProcessProduct provider(long id) {
+		ProcessDescriptor process = new ProcessDescriptor();
+		process.name = "Process " + id;
+		process.id = id;
+		FlowDescriptor flow = new FlowDescriptor();
+		flow.name = "Flow " + id;
+		flow.id = id;
+		return ProcessProduct.of(process, flow);
+	}
+}
@@ -0,0 +1,50 @@
+package org.openlca.core.results;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class ResultStoreTest {
+
+	@Test
+	public void testOnDiskEqualsInMemory() throws Exception {
+		File dir = Files.createTempDirectory("_olca_results").toFile();
+		ResultStore mem = ResultStore.inMemory();
+		ResultStore disk = ResultStore.onDisk(dir, "test");
+
+		// with 50k entries a block has 2 iterations; so we write some
+		// full blocks and keep a partial block in memory
+		int n = 50_000;
+		int runs = 7;
+		for (int run = 0; run < runs; run++) {
+			double[] v = new double[n];
+			for (int i = 0; i < n; i++) {
+				v[i] = run * n + i;
+			}
+			mem.append(v);
+			disk.append(v);
+		}
+		assertEquals(runs, disk.size());
+
+		for (int idx : new int[] { 0, 1, 42, n - 1 }) {
+			for (int run = 0; run < runs; run++) {
+				assertEquals(mem.get(run, idx), disk.get(run, idx), 1e-16);
+			}
+			int[] run = { 0 };
+			disk.each(idx, v -> {
+				assertEquals(mem.get(run[0], idx), v, 1e-16);
+				run[0]++;
+			});
+			assertEquals(runs, run[0]);
+		}
+		assertEquals(0, disk.get(0, n), 1e-16);
+		assertEquals(0, disk.get(runs, 0), 1e-16);
+
+		disk.close();
+		assertEquals(0, dir.list().length);
+		dir.delete();
+	}
+}
@@ -0,0 +1,62 @@
+package org.openlca.core.results;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RunningStatisticsTest {
+
+	@Test
+	public void testEmpty() {
+		RunningStatistics stats = new RunningStatistics(5, 95);
+		assertEquals(0, stats.getCount());
+		assertEquals(0, stats.getMean(), 1e-16);
+		assertEquals(0, stats.getStandardDeviation(), 1e-16);
+		assertEquals(0, stats.getMedian(), 1e-16);
+		assertEquals(0, stats.getPercentileValue(95), 1e-16);
+	}
+
+	@Test
+	public void testSmallSample() {
+		RunningStatistics stats = new RunningStatistics();
+		for (double v : new double[] { 3, 1, 2 }) {
+			stats.add(v);
+		}
+		assertEquals(3, stats.getCount());
+		assertEquals(1, stats.getMin(), 1e-16);
+		assertEquals(3, stats.getMax(), 1e-16);
+		assertEquals(2, stats.getMean(), 1e-16);
+		assertEquals(2, stats.getMedian(), 1e-16);
+		assertEquals(1, stats.getStandardDeviation(), 1e-16);
+	}
+
+	@Test
+	public void testCompareWithStatistics() {
+		Random rand = new Random(42);
+		double[] values = new double[100_000];
+		RunningStatistics running = new RunningStatistics(5, 95);
+		for (int i = 0; i < values.length; i++) {
+			values[i] = 10 + 2 * rand.nextGaussian();
+			running.add(values[i]);
+		}
+		Statistics stats = Statistics.of(values);
+		assertEquals(stats.count, running.getCount());
+		assertEquals(stats.min, running.getMin(), 1e-16);
+		assertEquals(stats.max, running.getMax(), 1e-16);
+		assertEquals(stats.mean, running.getMean(), 1e-10);
+		assertEquals(stats.standardDeviation,
+				running.getStandardDeviation(), 1e-10);
+		assertEquals(stats.median, running.getMedian(), 0.01);
+		assertEquals(stats.getPercentileValue(5),
+				running.getPercentileValue(5), 0.02);
+		assertEquals(stats.getPercentileValue(95),
+				running.getPercentileValue(95), 0.02);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUntrackedPercentile() {
+		new RunningStatistics(5).getPercentileValue(95);
+	}
+}
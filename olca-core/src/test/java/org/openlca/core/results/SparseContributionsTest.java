@@ -0,0 +1,150 @@
+package org.openlca.core.results;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.core.Tests;
+import org.openlca.core.math.LcaCalculator;
+import org.openlca.core.matrix.DIndex;
+import org.openlca.core.matrix.FlowIndex;
+import org.openlca.core.matrix.LongPair;
+import org.openlca.core.matrix.MatrixData;
+import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.TechIndex;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.matrix.solvers.IMatrixSolver;
+import org.openlca.core.model.descriptors.CategorizedDescriptor;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.model.descriptors.ImpactCategoryDescriptor;
+import org.openlca.core.model.descriptors.ProcessDescriptor;
+
+/**
+ * Compares the direct contributions of the sparse result mode with the
+ * results in the matrix format of the solver.
+ */
+public class SparseContributionsTest {
+
+	@Test
+	public void testContributionResult() {
+		IMatrixSolver solver = Tests.getDefaultSolver();
+		MatrixData data = data(solver);
+		ContributionResult dense = new LcaCalculator(solver, data)
+				.calculateContributions();
+		LcaCalculator calc = new LcaCalculator(solver, data);
+		calc.setSparseResults(true);
+		ContributionResult sparse = calc.calculateContributions();
+
+		Assert.assertTrue(sparse.directFlowResults instanceof CSCMatrix);
+		Assert.assertTrue(sparse.directImpactResults instanceof CSCMatrix);
+		Assert.assertTrue(sparse.directFlowImpacts instanceof CSCMatrix);
+		compare(dense.directFlowResults, sparse.directFlowResults);
+		compare(dense.directImpactResults, sparse.directImpactResults);
+		compare(dense.directFlowImpacts, sparse.directFlowImpacts);
+
+		sparse.flowIndex.each((i, flow) -> {
+			ContributionSet<CategorizedDescriptor> expected = dense
+					.getProcessContributions(flow);
+			ContributionSet<CategorizedDescriptor> actual = sparse
+					.getProcessContributions(flow);
+			Assert.assertEquals(expected.contributions.size(),
+					actual.contributions.size());
+			for (CategorizedDescriptor p : dense.getProcesses()) {
+				Assert.assertEquals(dense.getDirectFlowResult(p, flow),
+						sparse.getDirectFlowResult(p, flow), 1e-10);
+				Assert.assertEquals(expected.getContribution(p).amount,
+						actual.getContribution(p).amount, 1e-10);
+			}
+		});
+		ImpactCategoryDescriptor impact = data.impactIndex.at(0);
+		for (CategorizedDescriptor p : dense.getProcesses()) {
+			Assert.assertEquals(dense.getDirectImpactResult(p, impact),
+					sparse.getDirectImpactResult(p, impact), 1e-10);
+		}
+	}
+
+	@Test
+	public void testLazyResult() {
+		IMatrixSolver solver = Tests.getDefaultSolver();
+		MatrixData data = data(solver);
+		LazyFullResult dense = new LcaCalculator(solver, data)
+				.calculateLazy();
+		LcaCalculator calc = new LcaCalculator(solver, data);
+		calc.setSparseResults(true);
+		LazyFullResult sparse = calc.calculateLazy();
+		Assert.assertTrue(sparse.directFlowResults instanceof CSCMatrix);
+		compare(dense.directFlowResults, sparse.directFlowResults);
+		compare(dense.directImpactResults, sparse.directImpactResults);
+		Assert.assertArrayEquals(dense.totalImpactResults,
+				sparse.totalImpactResults, 1e-10);
+		dense.dispose();
+		sparse.dispose();
+	}
+
+	private void compare(IMatrix expected, IMatrix actual) {
+		Assert.assertEquals(expected.rows(), actual.rows());
+		Assert.assertEquals(expected.columns(), actual.columns());
+		for (int row = 0; row < expected.rows(); row++) {
+			for (int col = 0; col < expected.columns(); col++) {
+				Assert.assertEquals(expected.get(row, col),
+						actual.get(row, col), 1e-10);
+			}
+		}
+	}
+
+	/**
+	 * A system of 3 processes where each process has only some of the
+	 * elementary flows.
+	 */
+	private MatrixData data(IMatrixSolver solver) {
+		MatrixData data = new MatrixData();
+		TechIndex techIndex = new TechIndex(provider(1));
+		techIndex.setDemand(2);
+		techIndex.put(provider(2));
+		techIndex.put(provider(3));
+		techIndex.putLink(LongPair.of(1, 2), provider(2));
+		techIndex.putLink(LongPair.of(2, 3), provider(3));
+		data.techIndex = techIndex;
+
+		FlowIndex enviIndex = new FlowIndex();
+		for (int i = 0; i < 3; i++) {
+			FlowDescriptor flow = new FlowDescriptor();
+			flow.id = 10 + i;
+			enviIndex.putOutput(flow);
+		}
+		data.enviIndex = enviIndex;
+
+		DIndex<ImpactCategoryDescriptor> impactIndex = new DIndex<>();
+		for (int i = 0; i < 2; i++) {
+			ImpactCategoryDescriptor impact = new ImpactCategoryDescriptor();
+			impact.id = 20 + i;
+			impactIndex.put(impact);
+		}
+		data.impactIndex = impactIndex;
+
+		data.techMatrix = solver.matrix(3, 3);
+		data.techMatrix.setValues(new double[][] {
+				{ 1, 0, 0 },
+				{ -0.5, 1, 0 },
+				{ 0, -2, 1 } });
+		data.enviMatrix = solver.matrix(3, 3);
+		data.enviMatrix.setValues(new double[][] {
+				{ 1, 0, 0 },
+				{ 0, 2, 0 },
+				{ 0.5, 0, 4 } });
+		data.impactMatrix = solver.matrix(2, 3);
+		data.impactMatrix.setValues(new double[][] {
+				{ 2, 0, 1 },
+				{ 0, 3, 0 } });
+		return data;
+	}
+
+	private ProcessProduct provider(long id) {
+		ProcessDescriptor process = new ProcessDescriptor();
+		process.name = "Process " + id;
+		process.id = id;
+		FlowDescriptor flow = new FlowDescriptor();
+		flow.name = "Flow " + id;
+		flow.id = id;
+		return ProcessProduct.of(process, flow);
+	}
+}
@@ -27,6 +27,28 @@ abstract class AbstractComparisonExpression extends AbstractExpression {
 					getColumn());
 	}
 
+	/**
+	 * Returns true if the result of the comparison function `Double.compare`
+	 * fulfills the condition of this operator.
+	 */
+	protected abstract boolean test(int comparison);
+
+	/**
+	 * Numbers are compared without boxing them. When the types of the
+	 * arguments are not known before the evaluation (e.g. when two variables
+	 * are compared), the comparison is delegated to `evaluate`.
+	 */
+	@Override
+	public boolean evalBoolean(Scope context) throws ExpressionException {
+		Expression a = arguments.get(0);
+		Expression b = arguments.get(1);
+		if (a.getResultType() == Double.class
+				|| b.getResultType() == Double.class)
+			return test(Double.compare(
+					a.evalDouble(context), b.evalDouble(context)));
+		return (Boolean) evaluate(context);
+	}
+
 	@Override
 	public Class<?> getResultType() {
 		return Boolean.class;
@@ -28,6 +28,11 @@ class DecimalConstantFunction implements Expression {
 		return value;
 	}
 
+	@Override
+	public double evalDouble(Scope context) {
+		return value;
+	}
+
 	@Override
 	public void check() throws ExpressionException {
 	}
@@ -8,6 +8,43 @@ public interface Expression {
 
 	public Object evaluate(Scope context) throws ExpressionException;
 
+	/**
+	 * Evaluates the expression to a primitive number. The numeric operators
+	 * and functions override this method so that the evaluation of a numeric
+	 * expression tree does not box intermediate results.
+	 */
+	public default double evalDouble(Scope context) throws ExpressionException {
+		Object value = evaluate(context);
+		if (value instanceof Double)
+			return (Double) value;
+		throw new ExpressionException("Expression " + getName()
+				+ " does not evaluate to a number", getLine(), getColumn());
+	}
+
+	/**
+	 * Evaluates the expression to a primitive boolean value. This is
+	 * overridden by the comparison and logical operators.
+	 */
+	public default boolean evalBoolean(Scope context)
+			throws ExpressionException {
+		Object value = evaluate(context);
+		if (value instanceof Boolean)
+			return (Boolean) value;
+		throw new ExpressionException("Expression " + getName()
+				+ " does not evaluate to a boolean value", getLine(),
+				getColumn());
+	}
+
+	/**
+	 * Returns true if this expression can give a different value each time it
+	 * is evaluated, independent from the variables of the scope (like the
+	 * `rand()` function). The values of formulas that contain such an
+	 * expression are never cached.
+	 */
+	public default boolean isVolatile() {
+		return false;
+	}
+
 	public void check() throws ExpressionException;
 
 	public Class<?> getResultType();
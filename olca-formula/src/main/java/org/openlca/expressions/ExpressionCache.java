@@ -0,0 +1,156 @@
+package org.openlca.expressions;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of compiled (parsed and checked) expressions. An expression tree
+ * does not hold any evaluation state and thus, the same compiled expression
+ * can be evaluated in different scopes and also from different threads. In
+ * openLCA, the same formulas (of exchanges, impact factors, or parameters) are
+ * typically evaluated over and over again, e.g. in each iteration of a Monte
+ * Carlo simulation. With this cache, a formula is only parsed once.
+ */
+public final class ExpressionCache {
+
+	/**
+	 * The maximum number of cached expressions. When this limit is reached,
+	 * the cache is cleared.
+	 */
+	private static final int MAX_SIZE = 100_000;
+
+	private static final ConcurrentHashMap<String, Expression> cache = new ConcurrentHashMap<>();
+
+	/** The names of the variables of the cached formulas. */
+	private static final ConcurrentHashMap<String, String[]> variables = new ConcurrentHashMap<>();
+
+	/** Contains true for the cached formulas that are volatile. */
+	private static final ConcurrentHashMap<String, Boolean> volatiles = new ConcurrentHashMap<>();
+
+	private ExpressionCache() {
+	}
+
+	/**
+	 * Returns the compiled expression of the given formula. If the formula is
+	 * not yet in the cache, it is parsed, checked, and added to the cache.
+	 */
+	public static Expression compile(String formula)
+			throws InterpreterException {
+		if (formula == null)
+			throw new InterpreterException("The given formula is null");
+		Expression e = cache.get(formula);
+		if (e != null)
+			return e;
+		e = parse(formula);
+		if (cache.size() >= MAX_SIZE) {
+			cache.clear();
+		}
+		cache.put(formula, e);
+		return e;
+	}
+
+	/**
+	 * Returns the names of the variables that are used in the given formula.
+	 * Like the compiled expressions, these names are cached.
+	 */
+	public static String[] variablesOf(String formula)
+			throws InterpreterException {
+		String[] names = variables.get(formula);
+		if (names != null)
+			return names;
+		List<String> list = new ArrayList<>();
+		collectVariables(compile(formula), list);
+		names = list.toArray(new String[list.size()]);
+		if (variables.size() >= MAX_SIZE) {
+			variables.clear();
+		}
+		variables.put(formula, names);
+		return names;
+	}
+
+	/**
+	 * Returns true if the given formula contains a volatile expression (see
+	 * `Expression.isVolatile`), e.g. a call of the `rand()` function. Note
+	 * that this does not check the variables of the formula.
+	 */
+	public static boolean isVolatile(String formula)
+			throws InterpreterException {
+		Boolean b = volatiles.get(formula);
+		if (b != null)
+			return b;
+		b = isVolatile(compile(formula));
+		if (volatiles.size() >= MAX_SIZE) {
+			volatiles.clear();
+		}
+		volatiles.put(formula, b);
+		return b;
+	}
+
+	/**
+	 * Returns true if the given expression or one of its arguments is
+	 * volatile.
+	 */
+	static boolean isVolatile(Expression e) {
+		if (e == null)
+			return false;
+		if (e.isVolatile())
+			return true;
+		if (!(e instanceof AbstractExpression))
+			return false;
+		for (Expression arg : ((AbstractExpression) e).arguments) {
+			if (isVolatile(arg))
+				return true;
+		}
+		return false;
+	}
+
+	private static void collectVariables(Expression e, List<String> names) {
+		if (e instanceof VariableFunction) {
+			String name = ((VariableFunction) e).getVariableName();
+			if (!names.contains(name)) {
+				names.add(name);
+			}
+			return;
+		}
+		if (!(e instanceof AbstractExpression))
+			return;
+		for (Expression arg : ((AbstractExpression) e).arguments) {
+			collectVariables(arg, names);
+		}
+	}
+
+	/**
+	 * Parses and checks the given formula without caching it.
+	 */
+	static Expression parse(String formula) throws InterpreterException {
+		try {
+			StringReader reader = new StringReader(formula.toLowerCase());
+			FormulaParser parser = new FormulaParser(reader);
+			parser.parse();
+			Expression e = parser.getExpression();
+			e.check();
+			return e;
+		} catch (Throwable e) {
+			throw new InterpreterException("Failed to parse formula "
+					+ formula + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the number of cached expressions.
+	 */
+	public static int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Removes all expressions from the cache.
+	 */
+	public static void clear() {
+		cache.clear();
+		variables.clear();
+		volatiles.clear();
+	}
+}
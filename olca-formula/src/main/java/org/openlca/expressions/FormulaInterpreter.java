@@ -1,6 +1,7 @@
 package org.openlca.expressions;
 
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 
 public class FormulaInterpreter {
 
@@ -38,6 +39,14 @@ public class FormulaInterpreter {
 		getGlobalScope().bind(variableName, expression);
 	}
 
+	/**
+	 * Binds the given variable name to the given number in the global scope of
+	 * the interpreter (see `Scope.bind(String, double)`).
+	 */
+	public void bind(String variableName, double value) {
+		getGlobalScope().bind(variableName, value);
+	}
+
 	/** Returns the global scope of the interpreter. */
 	public Scope getGlobalScope() {
 		return globalScope;
@@ -65,4 +74,36 @@ public class FormulaInterpreter {
 		return scopes.get(id);
 	}
 
+	/**
+	 * Creates a copy of this interpreter with the same scopes and variable
+	 * bindings. The cached values of the variables are not copied but
+	 * evaluated again in the copy when they are needed. The copy and this
+	 * interpreter are independent from each other, e.g. they can be used in
+	 * different threads.
+	 */
+	public FormulaInterpreter copy() {
+		FormulaInterpreter copy = new FormulaInterpreter();
+		globalScope.copyBindingsTo(copy.globalScope);
+		IdentityHashMap<Scope, Scope> copies = new IdentityHashMap<>();
+		copies.put(globalScope, copy.globalScope);
+		for (Long id : scopes.keySet()) {
+			Scope scope = scopes.get(id);
+			copy.scopes.put(id, copyOf(scope, copies));
+		}
+		return copy;
+	}
+
+	private Scope copyOf(Scope scope, IdentityHashMap<Scope, Scope> copies) {
+		Scope copy = copies.get(scope);
+		if (copy != null)
+			return copy;
+		Scope parent = scope.parent() != null
+				? copyOf(scope.parent(), copies)
+				: null;
+		copy = new Scope(parent);
+		scope.copyBindingsTo(copy);
+		copies.put(scope, copy);
+		return copy;
+	}
+
 }
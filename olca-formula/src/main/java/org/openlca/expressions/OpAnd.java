@@ -31,6 +31,15 @@ class OpAnd extends AbstractExpression {
 		return Boolean.class;
 	}
 
+	@Override
+	public boolean evalBoolean(Scope context) throws ExpressionException {
+		for (int i = 0; i < arguments.size(); i++) {
+			if (!arguments.get(i).evalBoolean(context))
+				return false;
+		}
+		return true;
+	}
+
 	@Override
 	public String getName() {
 		return "And function";
@@ -15,6 +15,18 @@ class OpDivision extends AbstractNumericOperator {
 		return result;
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		double result = arguments.get(0).evalDouble(context);
+		for (int i = 1; i < arguments.size(); i++) {
+			double denom = arguments.get(i).evalDouble(context);
+			if (denom == 0)
+				throw new ExpressionException("Cannot divide by 0");
+			result = result / denom;
+		}
+		return result;
+	}
+
 	@Override
 	public String getName() {
 		return "/";
@@ -12,6 +12,11 @@ class OpEqual extends AbstractComparisonExpression {
 		return Boolean.FALSE;
 	}
 
+	@Override
+	protected boolean test(int comparison) {
+		return comparison == 0;
+	}
+
 	@Override
 	public String getName() {
 		return "==";
@@ -14,6 +14,12 @@ public class OpExponentiation extends AbstractExpression {
 		return Double.class;
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		return Math.pow(arguments.get(0).evalDouble(context),
+				arguments.get(1).evalDouble(context));
+	}
+
 	@Override
 	public String getName() {
 		return "^";
@@ -13,6 +13,16 @@ class OpIntegerDivision extends AbstractNumericOperator {
 		return result;
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		double result = arguments.get(0).evalDouble(context);
+		for (int i = 1; i < arguments.size(); i++) {
+			double value = arguments.get(i).evalDouble(context);
+			result = (double) (Math.round(result) / Math.round(value));
+		}
+		return result;
+	}
+
 	@Override
 	public String getName() {
 		return "div";
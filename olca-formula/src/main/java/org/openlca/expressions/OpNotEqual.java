@@ -13,6 +13,11 @@ class OpNotEqual extends AbstractComparisonExpression {
 		return Boolean.FALSE;
 	}
 
+	@Override
+	protected boolean test(int comparison) {
+		return comparison != 0;
+	}
+
 	@Override
 	public String getName() {
 		return "!=";
@@ -30,6 +30,15 @@ class OpOr extends AbstractExpression {
 		return Boolean.class;
 	}
 
+	@Override
+	public boolean evalBoolean(Scope context) throws ExpressionException {
+		for (int i = 0; i < arguments.size(); i++) {
+			if (arguments.get(i).evalBoolean(context))
+				return true;
+		}
+		return false;
+	}
+
 	@Override
 	public String getName() {
 		return "||";
@@ -12,6 +12,15 @@ class OpSubstraction extends AbstractNumericOperator {
 		return result;
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		double result = arguments.get(0).evalDouble(context);
+		for (int i = 1; i < arguments.size(); i++) {
+			result -= arguments.get(i).evalDouble(context);
+		}
+		return result;
+	}
+
 	@Override
 	public String getName() {
 		return "-";
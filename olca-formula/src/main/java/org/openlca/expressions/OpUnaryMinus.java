@@ -7,6 +7,11 @@ class OpUnaryMinus extends AbstractExpression {
 		return -((Double) arguments.get(0).evaluate(context));
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		return -arguments.get(0).evalDouble(context);
+	}
+
 	@Override
 	public Class<?> getResultType() {
 		return Double.class;
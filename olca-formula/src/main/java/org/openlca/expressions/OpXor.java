@@ -14,6 +14,12 @@ class OpXor extends AbstractExpression {
 		return Boolean.class;
 	}
 
+	@Override
+	public boolean evalBoolean(Scope context) throws ExpressionException {
+		return arguments.get(0).evalBoolean(context)
+				!= arguments.get(1).evalBoolean(context);
+	}
+
 	@Override
 	public String getName() {
 		return "xor";
@@ -1,19 +1,44 @@
 package org.openlca.expressions;
 
-import java.io.Reader;
-import java.io.StringReader;
 import java.util.HashMap;
+import java.util.HashSet;
 
 /**
  * A scope contains bindings of variable names to expressions. Each scope has a
  * reference to a parent scope except of the global scope. An expression can be
- * evaluated in a scope. If the
- * 
+ * evaluated in a scope.
+ *
+ * The expressions of the variables are compiled only once, when the variable
+ * is evaluated the first time, and the values of the variables are cached.
+ * While a variable is evaluated, the variables it reads (in the same or in a
+ * parent scope) record it as one of their dependents. This gives a dependency
+ * graph over all scopes of an interpreter (global -> process/LCIA method
+ * scopes), and the recursive evaluation of a variable visits its dependencies
+ * in topological order. When a variable is bound to a new expression, only
+ * the cached values of that variable and its (transitive) dependents are
+ * invalidated; all other values are kept. Thus, changing a single global
+ * parameter, e.g. via a parameter redefinition, only recomputes the
+ * parameters that depend on it.
+ *
+ * Each change of a binding increases the change counter of the scope graph
+ * (see `changes()`); with `isAffected` it can be checked whether the value of
+ * a formula could have changed since a given count. This is used to skip the
+ * re-evaluation of formulas that do not depend on changed parameters.
+ *
+ * Variables with a volatile expression (see `Expression.isVolatile`), like
+ * `rand()`, and the variables that read them are never cached but evaluated
+ * each time their value is requested. Formulas that reach such a variable are
+ * always affected (see `isAffected`).
+ *
+ * Expressions are evaluated via `Expression.evalDouble` so that numbers are
+ * not boxed on their way through the expression tree and the variable cache.
+ * Variables can also be bound directly to numbers which then do not need to be
+ * parsed at all.
  */
 public final class Scope {
 
 	private final Scope parent;
-	private final HashMap<String, Integer> evaluationCalls = new HashMap<>();
+	private final Graph graph;
 	private final HashMap<String, Variable> variables = new HashMap<>();
 
 	Scope() {
@@ -22,101 +47,394 @@ public final class Scope {
 
 	Scope(Scope parent) {
 		this.parent = parent;
+		this.graph = parent == null ? new Graph() : parent.graph;
 	}
 
 	/**
 	 * Creates a new binding of a variable name to an expression in this scope.
+	 * If the variable is already bound to the same expression, nothing
+	 * changes. Otherwise the cached values of the variables that depend on
+	 * this variable are invalidated.
 	 */
 	public void bind(String variableName, String expression) {
 		if (variableName == null || expression == null)
 			return;
 		String symbol = variableName.toLowerCase().trim();
+		Variable var = variables.get(symbol);
+		if (var != null) {
+			if (expression.equals(var.expression))
+				return;
+			graph.changes++;
+			var.expression = expression;
+			var.compiled = null;
+			invalidate(var);
+			var.isVolatile = false;
+			return;
+		}
+		var = newVariable(symbol);
+		var.expression = expression;
+	}
+
+	/**
+	 * Binds the given variable name directly to a number in this scope. This
+	 * is the same as binding the variable to the string representation of the
+	 * number but the value does not need to be formatted and parsed again when
+	 * the variable is evaluated (e.g. for the values that are generated in
+	 * each iteration of a Monte Carlo simulation).
+	 */
+	public void bind(String variableName, double value) {
+		if (variableName == null)
+			return;
+		String symbol = variableName.toLowerCase().trim();
+		Variable var = variables.get(symbol);
+		if (var != null) {
+			if (var.expression == null && Double.compare(var.value, value) == 0)
+				return;
+			graph.changes++;
+			var.expression = null;
+			var.compiled = null;
+			invalidate(var);
+			var.isVolatile = false;
+		} else {
+			var = newVariable(symbol);
+		}
+		var.value = value;
+		var.reset = graph.reset;
+		var.valid = true;
+	}
+
+	/**
+	 * Adds a new variable with the given name to this scope and invalidates
+	 * the values that depend on a variable or constant it hides.
+	 */
+	private Variable newVariable(String symbol) {
+		graph.changes++;
 		Variable var = new Variable();
 		var.name = symbol;
-		var.expression = expression;
+		var.changed = graph.changes;
 		variables.put(symbol, var);
+
+		// the new variable may hide a variable with the same name of a
+		// parent scope or a constant
+		Variable hidden = parent != null ? parent.lookup(symbol) : null;
+		if (hidden != null) {
+			invalidateDependents(hidden);
+		} else if (Constants.get(symbol) != null) {
+			graph.reset = graph.changes;
+		}
+		return var;
+	}
+
+	/**
+	 * Returns the expression that is bound to the given variable in this
+	 * scope or null if the variable is not bound in this scope. The parent
+	 * scopes are not considered here.
+	 */
+	public String getBinding(String variableName) {
+		if (variableName == null)
+			return null;
+		Variable var = variables.get(variableName.toLowerCase().trim());
+		if (var == null)
+			return null;
+		return var.expression != null
+				? var.expression
+				: Double.toString(var.value);
+	}
+
+	/**
+	 * Removes the binding of the given variable from this scope. A variable
+	 * with the same name in a parent scope or a constant is then visible
+	 * again in this scope. As we do not track which formulas depended on the
+	 * removed binding, all cached values are invalidated in this case.
+	 */
+	public void unbind(String variableName) {
+		if (variableName == null)
+			return;
+		Variable var = variables.remove(variableName.toLowerCase().trim());
+		if (var == null)
+			return;
+		graph.changes++;
+		graph.reset = graph.changes;
+	}
+
+	/**
+	 * Binds the variables of this scope with the same expressions or numbers
+	 * in the given scope (see `FormulaInterpreter.copy`).
+	 */
+	void copyBindingsTo(Scope other) {
+		for (Variable var : variables.values()) {
+			if (var.expression != null) {
+				other.bind(var.name, var.expression);
+			} else {
+				other.bind(var.name, var.value);
+			}
+		}
+	}
+
+	Scope parent() {
+		return parent;
 	}
 
 	/**
 	 * Removes all variable bindings from the scope.
 	 */
 	public void clear() {
+		graph.changes++;
+		// like in `unbind`, removed variables may have hidden constants
+		graph.reset = graph.changes;
+		for (Variable var : variables.values()) {
+			invalidateDependents(var);
+		}
 		variables.clear();
-		evaluationCalls.clear();
 	}
 
 	/**
-	 * Evaluates the given expression in this scope.
+	 * Returns the number of binding changes in the scope graph of this scope
+	 * (this scope, its parents, and all other scopes of the interpreter). The
+	 * returned value can be passed into `isAffected` later.
+	 */
+	public long changes() {
+		return graph.changes;
+	}
+
+	/**
+	 * Returns true if the value of the given formula, evaluated in this scope,
+	 * could have changed since the given change count (see `changes()`); this
+	 * is the case when a variable of the formula (directly or via other
+	 * variables) was re-bound in the meantime. Formulas that contain or reach
+	 * a volatile expression (like `rand()`) are always affected.
+	 */
+	public boolean isAffected(String formula, long since)
+			throws InterpreterException {
+		if (graph.reset > since)
+			return true;
+		if (ExpressionCache.isVolatile(formula))
+			return true;
+		for (String name : ExpressionCache.variablesOf(formula)) {
+			Variable var = lookup(name);
+			if (var == null)
+				continue;
+			if (var.changed > since || var.isVolatile)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Evaluates the given expression in this scope. The compiled expression is
+	 * taken from the `ExpressionCache`.
 	 */
 	public double eval(String expression) throws InterpreterException {
-		// reset the evaluation calls and values for variables
-		for (String var : evaluationCalls.keySet())
-			evaluationCalls.put(var, 0);
-		for (Variable variable : variables.values())
-			variable.value = null;
+		if (expression == null)
+			throw new InterpreterException("The given expression is null");
+		Expression e;
 		try {
-			return tryEval(expression);
-		} catch (Throwable e) {
+			e = ExpressionCache.compile(expression);
+		} catch (InterpreterException ex) {
 			throw new InterpreterException("Evaluation of expression "
-					+ expression + " failed: " + e.getMessage(), e);
+					+ expression + " failed: " + ex.getMessage(), ex);
 		}
+		return eval(e, expression);
+	}
+
+	/**
+	 * Evaluates the given compiled expression in this scope (see
+	 * `ExpressionCache.compile`).
+	 */
+	public double eval(Expression expression) throws InterpreterException {
+		if (expression == null)
+			throw new InterpreterException("The given expression is null");
+		return eval(expression, "'" + expression.getName() + "'");
 	}
 
-	private double tryEval(String expression) throws Exception {
-		Reader reader = new StringReader(expression.toLowerCase());
-		FormulaParser parser = new FormulaParser(reader);
-		parser.parse();
-		Expression e = parser.getExpression();
-		e.check();
-		Object result = e.evaluate(this);
-		if (!(result instanceof Double))
-			throw new InterpreterException("The given expression " + expression
+	private double eval(Expression e, String label)
+			throws InterpreterException {
+		if (e.getResultType() == Boolean.class)
+			throw new InterpreterException("The given expression " + label
 					+ " does not evaluate to a number.");
-		return ((Double) result);
+		try {
+			return e.evalDouble(this);
+		} catch (Throwable ex) {
+			throw new InterpreterException("Evaluation of expression "
+					+ label + " failed: " + ex.getMessage(), ex);
+		}
 	}
 
 	public Object resolveVariable(String name) throws InterpreterException {
 		Variable var = variables.get(name);
-		if (var != null) {
-			// variable is bound in this scope
-			if (var.isEvaluated())
-				return var.value;
-			else
-				return eval(var);
-		} else {
-			// search in parent scope or constants
-			if (parent == null)
-				return Constants.get(name);
-			else {
-				return parent.resolveVariable(name);
+		if (var != null)
+			return valueOf(var);
+		// search in parent scope or constants
+		if (parent == null)
+			return Constants.get(name);
+		return parent.resolveVariable(name);
+	}
+
+	/**
+	 * Resolves the numeric value of the variable with the given name without
+	 * boxing it. Throws an exception if there is no such variable or if it is
+	 * not a number.
+	 */
+	public double resolveDouble(String name) throws InterpreterException {
+		Variable var = variables.get(name);
+		if (var != null)
+			return valueOf(var);
+		if (parent != null)
+			return parent.resolveDouble(name);
+		Object constant = Constants.get(name);
+		if (constant instanceof Double)
+			return (Double) constant;
+		if (constant == null)
+			throw new InterpreterException("Unknown variable " + name);
+		throw new InterpreterException("Variable " + name
+				+ " is not a number");
+	}
+
+	/**
+	 * Returns the variable with the given name that is visible in this scope
+	 * or null if there is no such variable.
+	 */
+	private Variable lookup(String name) {
+		Scope scope = this;
+		while (scope != null) {
+			Variable var = scope.variables.get(name);
+			if (var != null)
+				return var;
+			scope = scope.parent;
+		}
+		return null;
+	}
+
+	private double valueOf(Variable var) throws InterpreterException {
+		if (graph.current != null) {
+			if (var.dependents == null) {
+				var.dependents = new HashSet<>();
 			}
+			var.dependents.add(graph.current);
+		}
+		if (var.valid && var.reset == graph.reset)
+			return var.value;
+		double value = eval(var);
+		if (var.isVolatile && graph.current != null) {
+			// a variable that reads a volatile variable is also volatile
+			graph.current.isVolatile = true;
 		}
+		return value;
 	}
 
-	private Object eval(Variable var) throws InterpreterException {
-		Integer call = evaluationCalls.get(var.name);
-		if (call != null && call > 0)
+	private double eval(Variable var) throws InterpreterException {
+		if (var.expression == null) {
+			// a variable that is directly bound to a number
+			var.reset = graph.reset;
+			var.valid = true;
+			return var.value;
+		}
+		if (var.evaluating)
 			throw new InterpreterException(
 					"Second evaluation call on variable "
 							+ var.name + ". Cyclic dependencies?");
-		evaluationCalls.put(var.name, 1);
+		var.evaluating = true;
+		var.valid = false;
+		Variable caller = graph.current;
+		graph.current = var;
 		try {
-			var.value = tryEval(var.expression);
-			return var.value;
+			if (var.compiled == null) {
+				var.compiled = ExpressionCache.parse(var.expression);
+			}
+			// the flag is set again when a volatile variable is read
+			var.isVolatile = ExpressionCache.isVolatile(var.compiled);
+			double value = var.compiled.evalDouble(this);
+			var.value = value;
+			var.reset = graph.reset;
+			var.valid = !var.isVolatile;
+			return value;
 		} catch (Throwable e) {
 			throw new InterpreterException("Evaluation of variable "
 					+ var.name + " failed: " + e.getMessage(), e);
+		} finally {
+			graph.current = caller;
+			var.evaluating = false;
 		}
 	}
 
+	/**
+	 * Invalidates the given variable and its dependents. We can stop at
+	 * variables that are already invalid: the dependents of an invalid
+	 * variable are also invalid as they need to evaluate it first to get a
+	 * valid value. Volatile variables are never valid, so we always pass them
+	 * to update the change counts of their dependents.
+	 */
+	private void invalidate(Variable var) {
+		var.changed = graph.changes;
+		if (!var.valid && !var.isVolatile)
+			return;
+		var.valid = false;
+		invalidateDependents(var);
+	}
+
+	private void invalidateDependents(Variable var) {
+		if (var.dependents == null)
+			return;
+		for (Variable dependent : var.dependents) {
+			invalidate(dependent);
+		}
+	}
+
+	/**
+	 * The shared state of all scopes of an interpreter.
+	 */
+	private static class Graph {
+
+		/** Counts the changes of bindings. */
+		private long changes;
+
+		/**
+		 * The change count when a constant was hidden by a variable. The
+		 * dependencies on constants are not tracked; so all values that were
+		 * calculated before are invalid then.
+		 */
+		private long reset;
+
+		/** The variable that is currently evaluated. */
+		private Variable current;
+	}
+
 	private class Variable {
 
 		private String name;
+
+		/** The bound expression or null if bound to a number (`value`). */
 		private String expression;
-		private Double value;
 
-		public boolean isEvaluated() {
-			return value != null;
-		}
+		/**
+		 * The compiled expression of the variable. Variable expressions are
+		 * not put into the global expression cache as they are often just
+		 * numbers that change in each iteration of a simulation.
+		 */
+		private Expression compiled;
+
+		private double value;
+		private boolean valid;
+
+		/** The value of `Graph.reset` when the value was calculated. */
+		private long reset;
+
+		/** The change count when the variable was last invalidated. */
+		private long changed;
+
+		/**
+		 * The variables that read this variable in their evaluation; they
+		 * can be located in this scope or in child scopes.
+		 */
+		private HashSet<Variable> dependents;
+
+		/**
+		 * Is true if the expression of the variable is volatile or reads a
+		 * volatile variable; the value of the variable is then not cached.
+		 */
+		private boolean isVolatile;
+
+		/** Is true while the value is calculated; for cycle detection. */
+		private boolean evaluating;
 	}
-}
\ No newline at end of file
+}
@@ -40,6 +40,16 @@ public class VariableFunction implements Expression {
 		return obj;
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		try {
+			return context.resolveDouble(variableName);
+		} catch (Exception e) {
+			throw new ExpressionException(e.getMessage(), getLine(),
+					getColumn());
+		}
+	}
+
 	@Override
 	public void check() throws ExpressionException {
 	}
@@ -20,6 +20,15 @@ public class And extends AbstractExpression {
 		return result;
 	}
 
+	@Override
+	public boolean evalBoolean(Scope context) throws ExpressionException {
+		for (int i = 0; i < arguments.size(); i++) {
+			if (!arguments.get(i).evalBoolean(context))
+				return false;
+		}
+		return true;
+	}
+
 	@Override
 	public void check() throws ExpressionException {
 		checkArgument(0, Boolean.class);
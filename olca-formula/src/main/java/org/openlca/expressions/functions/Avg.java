@@ -1,6 +1,9 @@
 // generated with funcN_templ.py
 package org.openlca.expressions.functions;
 
+import org.openlca.expressions.ExpressionException;
+import org.openlca.expressions.Scope;
+
 class Avg extends FunctionN {
 
 	@Override
@@ -18,6 +21,16 @@ class Avg extends FunctionN {
 
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		if (arguments.size() == 0)
+			return getDefault();
+		double sum = 0;
+		for (int i = 0; i < arguments.size(); i++)
+			sum += arguments.get(i).evalDouble(context);
+		return sum / arguments.size();
+	}
+
 	@Override
 	public String getName() {
 		return "avg";
@@ -11,6 +11,11 @@ class False extends AbstractExpression {
 		return Boolean.FALSE;
 	}
 
+	@Override
+	public boolean evalBoolean(Scope context) throws ExpressionException {
+		return false;
+	}
+
 	@Override
 	public Class<?> getResultType() {
 		return Boolean.class;
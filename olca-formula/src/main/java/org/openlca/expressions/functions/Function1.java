@@ -14,6 +14,11 @@ abstract class Function1 extends AbstractExpression {
 		return eval(arg);
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		return eval(arguments.get(0).evalDouble(context));
+	}
+
 	@Override
 	public Class<?> getResultType() {
 		return Double.class;
@@ -15,6 +15,12 @@ abstract class Function2 extends AbstractExpression {
 		return eval(arg1, arg2);
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		return eval(arguments.get(0).evalDouble(context),
+				arguments.get(1).evalDouble(context));
+	}
+
 	@Override
 	public Class<?> getResultType() {
 		return Double.class;
@@ -25,6 +25,17 @@ abstract class FunctionN extends AbstractExpression {
 		return eval(args);
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		if (arguments == null || arguments.size() == 0)
+			return getDefault();
+		double[] args = new double[arguments.size()];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = arguments.get(i).evalDouble(context);
+		}
+		return eval(args);
+	}
+
 	@Override
 	public Class<?> getResultType() {
 		return Double.class;
@@ -15,6 +15,13 @@ public class If extends AbstractExpression {
 		return arguments.get(2).evaluate(context);
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		return arguments.get(0).evalBoolean(context)
+				? arguments.get(1).evalDouble(context)
+				: arguments.get(2).evalDouble(context);
+	}
+
 	@Override
 	public void check() throws ExpressionException {
 		checkArguments(new Class<?>[] { Boolean.class, Double.class,
@@ -1,6 +1,9 @@
 // generated with funcN_templ.py
 package org.openlca.expressions.functions;
 
+import org.openlca.expressions.ExpressionException;
+import org.openlca.expressions.Scope;
+
 class Max extends FunctionN {
 
 	@Override
@@ -19,6 +22,19 @@ class Max extends FunctionN {
 
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		if (arguments.size() == 0)
+			return getDefault();
+		double max = -Double.MAX_VALUE;
+		for (int i = 0; i < arguments.size(); i++) {
+			double arg = arguments.get(i).evalDouble(context);
+			if (arg > max)
+				max = arg;
+		}
+		return max;
+	}
+
 	@Override
 	public String getName() {
 		return "max";
@@ -1,6 +1,9 @@
 // generated with funcN_templ.py
 package org.openlca.expressions.functions;
 
+import org.openlca.expressions.ExpressionException;
+import org.openlca.expressions.Scope;
+
 class Min extends FunctionN {
 
 	@Override
@@ -17,6 +20,19 @@ class Min extends FunctionN {
 		return min;
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		if (arguments.size() == 0)
+			return getDefault();
+		double min = Double.MAX_VALUE;
+		for (int i = 0; i < arguments.size(); i++) {
+			double arg = arguments.get(i).evalDouble(context);
+			if (arg < min)
+				min = arg;
+		}
+		return min;
+	}
+
 	@Override
 	public String getName() {
 		return "min";
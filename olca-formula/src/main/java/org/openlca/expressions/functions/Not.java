@@ -18,6 +18,13 @@ class Not extends AbstractExpression {
 		return Boolean.TRUE;
 	}
 
+	@Override
+	public boolean evalBoolean(Scope context) throws ExpressionException {
+		if (arguments == null || arguments.size() == 0)
+			return false;
+		return !arguments.get(0).evalBoolean(context);
+	}
+
 	@Override
 	public void check() throws ExpressionException {
 		if (arguments != null && arguments.size() > 0)
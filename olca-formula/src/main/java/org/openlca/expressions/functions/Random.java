@@ -11,6 +11,16 @@ class Random extends AbstractExpression {
 		return Math.random();
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		return Math.random();
+	}
+
+	@Override
+	public boolean isVolatile() {
+		return true;
+	}
+
 	@Override
 	public Class<?> getResultType() {
 		return Double.class;
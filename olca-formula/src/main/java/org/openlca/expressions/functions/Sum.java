@@ -1,6 +1,9 @@
 // generated with funcN_templ.py
 package org.openlca.expressions.functions;
 
+import org.openlca.expressions.ExpressionException;
+import org.openlca.expressions.Scope;
+
 class Sum extends FunctionN {
 
 	@Override
@@ -18,6 +21,14 @@ class Sum extends FunctionN {
 
 	}
 
+	@Override
+	public double evalDouble(Scope context) throws ExpressionException {
+		double sum = 0;
+		for (int i = 0; i < arguments.size(); i++)
+			sum += arguments.get(i).evalDouble(context);
+		return sum;
+	}
+
 	@Override
 	public String getName() {
 		return "sum";
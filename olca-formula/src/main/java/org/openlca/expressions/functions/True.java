@@ -11,6 +11,11 @@ class True extends AbstractExpression {
 		return Boolean.TRUE;
 	}
 
+	@Override
+	public boolean evalBoolean(Scope context) throws ExpressionException {
+		return true;
+	}
+
 	@Override
 	public Class<?> getResultType() {
 		return Boolean.class;
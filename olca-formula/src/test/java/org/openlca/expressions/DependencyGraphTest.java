@@ -0,0 +1,188 @@
+package org.openlca.expressions;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlca.expressions.functions.FunctionFactory;
+
+public class DependencyGraphTest {
+
+	private FormulaInterpreter interpreter;
+	private Scope scope;
+
+	@Before
+	public void setUp() {
+		FunctionFactory.getInstance().registerFunction("tick", Tick.class);
+		interpreter = new FormulaInterpreter();
+		interpreter.bind("a", "1");
+		interpreter.bind("b", "2");
+		interpreter.bind("c", "a * 10");
+		scope = interpreter.createScope(1);
+		// `tick()` gives a new value each time the variable is
+		// recalculated; so we can see which values were recalculated
+		scope.bind("x", "tick() + 0 * c");
+		scope.bind("y", "tick() + 0 * b");
+	}
+
+	@Test
+	public void testRecalculateDependents() throws Exception {
+		double x = scope.eval("x");
+		double y = scope.eval("y");
+		Assert.assertEquals(x, scope.eval("x"), 0);
+		Assert.assertEquals(y, scope.eval("y"), 0);
+
+		interpreter.bind("a", "2");
+		Assert.assertEquals(20, scope.eval("c"), 1e-16);
+		Assert.assertNotEquals(x, scope.eval("x"), 0);
+		Assert.assertEquals(y, scope.eval("y"), 0);
+
+		// binding the same expression again does not change anything
+		x = scope.eval("x");
+		interpreter.bind("a", "2");
+		Assert.assertEquals(x, scope.eval("x"), 0);
+	}
+
+	@Test
+	public void testHideVariable() throws Exception {
+		double x = scope.eval("x");
+		double y = scope.eval("y");
+		scope.bind("b", "3");
+		Assert.assertEquals(x, scope.eval("x"), 0);
+		Assert.assertNotEquals(y, scope.eval("y"), 0);
+		Assert.assertEquals(2, interpreter.eval("b"), 1e-16);
+	}
+
+	@Test
+	public void testIsAffected() throws Exception {
+		scope.eval("x + y");
+		long changes = scope.changes();
+		Assert.assertFalse(scope.isAffected("x + y", changes));
+
+		interpreter.bind("a", "3");
+		Assert.assertTrue(scope.isAffected("x", changes));
+		Assert.assertTrue(scope.isAffected("2 * c", changes));
+		Assert.assertFalse(scope.isAffected("y * b + pi", changes));
+
+		scope.eval("x");
+		changes = scope.changes();
+		scope.bind("b", "4");
+		Assert.assertTrue(scope.isAffected("y", changes));
+		Assert.assertFalse(scope.isAffected("x", changes));
+		Assert.assertFalse(interpreter.getGlobalScope()
+				.isAffected("b", changes));
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		Assert.assertEquals(10, scope.eval("c"), 1e-16);
+		interpreter.getGlobalScope().clear();
+		interpreter.bind("c", "5");
+		Assert.assertEquals(5, scope.eval("c"), 1e-16);
+	}
+
+	@Test
+	public void testClearHidingVariable() throws Exception {
+		interpreter.bind("pi", "3");
+		scope.bind("z", "2 * pi");
+		Assert.assertEquals(6, scope.eval("z"), 1e-16);
+		long changes = scope.changes();
+
+		// the constant is visible again after the scope was cleared
+		interpreter.getGlobalScope().clear();
+		Assert.assertTrue(scope.isAffected("2 * pi", changes));
+		Assert.assertEquals(2 * Math.PI, scope.eval("z"), 1e-16);
+	}
+
+	@Test
+	public void testNumericBinding() throws Exception {
+		double x = scope.eval("x");
+		double y = scope.eval("y");
+		long changes = scope.changes();
+
+		interpreter.bind("a", 3.0);
+		Assert.assertEquals(30, scope.eval("c"), 1e-16);
+		Assert.assertNotEquals(x, scope.eval("x"), 0);
+		Assert.assertEquals(y, scope.eval("y"), 0);
+		Assert.assertTrue(scope.isAffected("c", changes));
+		Assert.assertEquals("3.0",
+				interpreter.getGlobalScope().getBinding("a"));
+
+		// binding the same number again does not change anything
+		changes = scope.changes();
+		interpreter.bind("a", 3.0);
+		Assert.assertEquals(changes, scope.changes());
+
+		// a numeric binding can be replaced by an expression and vice versa
+		interpreter.bind("a", "b * 2");
+		Assert.assertEquals(40, scope.eval("c"), 1e-16);
+		scope.bind("a", 0.5);
+		Assert.assertEquals(0.5, scope.eval("a"), 1e-16);
+		Assert.assertEquals(40, scope.eval("c"), 1e-16);
+
+		// numeric values survive a reset of the graph
+		scope.bind("pi", 3.0);
+		Assert.assertEquals(0.5, scope.eval("a"), 1e-16);
+		Assert.assertEquals(3.0, scope.eval("pi"), 1e-16);
+	}
+
+	@Test
+	public void testVolatile() throws Exception {
+		scope.bind("r", "rand()");
+		scope.bind("s", "2 * r");
+		double r = scope.eval("r");
+		double s = scope.eval("s");
+		Assert.assertNotEquals(r, scope.eval("r"), 0);
+		Assert.assertNotEquals(s, scope.eval("s"), 0);
+
+		// formulas that reach a volatile variable are always affected
+		long changes = scope.changes();
+		Assert.assertTrue(scope.isAffected("rand() + 1", changes));
+		Assert.assertTrue(scope.isAffected("r", changes));
+		Assert.assertTrue(scope.isAffected("s + a", changes));
+		Assert.assertFalse(scope.isAffected("x + y", changes));
+
+		// when the variable is bound to a constant it is cached again
+		scope.eval("s");
+		changes = scope.changes();
+		scope.bind("r", "0.5");
+		Assert.assertTrue(scope.isAffected("s", changes));
+		Assert.assertEquals(1, scope.eval("s"), 1e-16);
+		changes = scope.changes();
+		Assert.assertFalse(scope.isAffected("s", changes));
+	}
+
+	/**
+	 * A function that returns a new number each time it is evaluated but that
+	 * is not volatile. Thus, the value is only calculated again when a
+	 * variable that calls this function is recalculated.
+	 */
+	public static class Tick extends AbstractExpression {
+
+		private static double count;
+
+		@Override
+		public Object evaluate(Scope context) {
+			return evalDouble(context);
+		}
+
+		@Override
+		public double evalDouble(Scope context) {
+			return ++count;
+		}
+
+		@Override
+		public Class<?> getResultType() {
+			return Double.class;
+		}
+
+		@Override
+		public void check() throws ExpressionException {
+			checkNoArguments();
+		}
+
+		@Override
+		public String getName() {
+			return "tick";
+		}
+	}
+}
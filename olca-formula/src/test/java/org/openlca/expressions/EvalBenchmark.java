@@ -0,0 +1,64 @@
+package org.openlca.expressions;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the boxed evaluation of expressions (`Expression.evaluate`) with
+ * the primitive evaluation (`Expression.evalDouble`). Run the `main` method of
+ * this class to execute the benchmark (add `-prof gc` to the options to also
+ * see the allocation rates).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvalBenchmark {
+
+	private static final String FORMULA = "if(a > 2; 2 * a + sqrt(b) / 3; "
+			+ "max(a; b; c) - 1.5) * 0.8 + sum(a; b; c) ^ 2 - abs(-c) mod 7";
+
+	private org.openlca.expressions.Scope scope;
+	private Expression expression;
+
+	@Setup
+	public void setup() throws Exception {
+		FormulaInterpreter interpreter = new FormulaInterpreter();
+		interpreter.bind("a", "3.5");
+		interpreter.bind("b", "2 * a");
+		scope = interpreter.createScope(1);
+		scope.bind("c", "a + b / 4");
+		expression = ExpressionCache.compile(FORMULA);
+	}
+
+	@Benchmark
+	public double boxed() throws Exception {
+		return (Double) expression.evaluate(scope);
+	}
+
+	@Benchmark
+	public double primitive() throws Exception {
+		return expression.evalDouble(scope);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(EvalBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
@@ -0,0 +1,51 @@
+package org.openlca.expressions;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EvalDoubleTest {
+
+	@Test
+	public void testSameAsBoxed() throws Exception {
+		FormulaInterpreter interpreter = new FormulaInterpreter();
+		interpreter.bind("a", "3.5");
+		interpreter.bind("b", "2 * a");
+		Scope scope = interpreter.createScope(1);
+		scope.bind("c", "a + b / 4");
+		String[] formulas = {
+				"a + b - c * 2 / 4",
+				"-a ^ 2 + 7 div 2 + 7 mod 3",
+				"sqrt(b) + pow(a; 2) + ln(c) + abs(-a)",
+				"sum(a; b; c) + avg(a; b) + max(a; b; c) - min(a; c) + sum()",
+				"if(a > 2; 1; 2) + if(a < b && b >= c; 3; 4)",
+				"if(a == 3.5 || false; 1; 2) + if(not(a != b); 3; 4)",
+				"if(and(a <= b; true(); b > a); pi; e)",
+				"if(a > 1 xor b < 1; 1; 2)",
+				"if(a = b; 1; 2) + if(a <> b; 3; 4)", };
+		for (String formula : formulas) {
+			Expression e = ExpressionCache.compile(formula);
+			double boxed = (Double) e.evaluate(scope);
+			double primitive = e.evalDouble(scope);
+			Assert.assertEquals(formula, boxed, primitive, 1e-16);
+			Assert.assertEquals(formula, boxed, scope.eval(formula), 1e-16);
+		}
+	}
+
+	@Test
+	public void testBoolean() throws Exception {
+		FormulaInterpreter interpreter = new FormulaInterpreter();
+		interpreter.bind("a", "2");
+		Scope scope = interpreter.getGlobalScope();
+		Assert.assertTrue(ExpressionCache.compile("a > 1").evalBoolean(scope));
+		Assert.assertFalse(ExpressionCache.compile("a < 1 || false")
+				.evalBoolean(scope));
+		Assert.assertTrue(ExpressionCache.compile("true == true")
+				.evalBoolean(scope));
+	}
+
+	@Test(expected = ExpressionException.class)
+	public void testNotANumber() throws Exception {
+		ExpressionCache.compile("true").evalDouble(
+				new FormulaInterpreter().getGlobalScope());
+	}
+}
@@ -0,0 +1,45 @@
+package org.openlca.expressions;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExpressionCacheTest {
+
+	@Test
+	public void testCompiledExpression() throws Exception {
+		Expression e = ExpressionCache.compile("2 * A + b");
+		Assert.assertSame(e, ExpressionCache.compile("2 * A + b"));
+		FormulaInterpreter interpreter = new FormulaInterpreter();
+		interpreter.bind("a", "2");
+		interpreter.bind("b", "3");
+		Assert.assertEquals(7.0, interpreter.getGlobalScope().eval(e), 1e-16);
+		Scope scope = interpreter.createScope(1);
+		scope.bind("b", "4");
+		Assert.assertEquals(8.0, scope.eval(e), 1e-16);
+	}
+
+	@Test
+	public void testRebindInvalidatesValues() throws Exception {
+		FormulaInterpreter interpreter = new FormulaInterpreter();
+		interpreter.bind("a", "2");
+		interpreter.bind("b", "a * 3");
+		Scope scope = interpreter.createScope(1);
+		scope.bind("c", "b + 1");
+		Assert.assertEquals(7.0, scope.eval("c"), 1e-16);
+
+		// a change in the parent scope must invalidate the cached
+		// values of the variables in the child scope
+		interpreter.bind("a", "3");
+		Assert.assertEquals(10.0, scope.eval("c"), 1e-16);
+		Assert.assertEquals(9.0, interpreter.eval("b"), 1e-16);
+
+		scope.bind("b", "1");
+		Assert.assertEquals(2.0, scope.eval("c"), 1e-16);
+		Assert.assertEquals(9.0, interpreter.eval("b"), 1e-16);
+	}
+
+	@Test(expected = InterpreterException.class)
+	public void testInvalidFormula() throws Exception {
+		ExpressionCache.compile("2 * (3");
+	}
+}
@@ -46,4 +46,27 @@ public class ScopingTest {
 		Assert.assertEquals(18.0, scope.eval("c"), 1e-16);
 	}
 
+	@Test
+	public void testCopy() throws Exception {
+		FormulaInterpreter interpreter = new FormulaInterpreter();
+		interpreter.bind("a", 2);
+		interpreter.bind("b", "a * 3");
+		Scope scope = interpreter.createScope(1);
+		Scope nested = interpreter.createScope(2, scope);
+		scope.bind("c", "b + 1");
+		nested.bind("d", "c * 2");
+		Assert.assertEquals(14.0, nested.eval("d"), 1e-16);
+
+		FormulaInterpreter copy = interpreter.copy();
+		Assert.assertEquals(14.0, copy.getScope(2).eval("d"), 1e-16);
+
+		// the copy and the original are independent
+		copy.bind("a", 3);
+		Assert.assertEquals(20.0, copy.getScope(2).eval("d"), 1e-16);
+		Assert.assertEquals(14.0, nested.eval("d"), 1e-16);
+		scope.bind("c", "1");
+		Assert.assertEquals(2.0, nested.eval("d"), 1e-16);
+		Assert.assertEquals(20.0, copy.getScope(2).eval("d"), 1e-16);
+	}
+
 }
@@ -6,7 +6,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.openlca.core.database.FlowDao;
+import org.openlca.core.database.DescriptorIndex;
 import org.openlca.core.database.NativeSql;
 import org.openlca.core.database.ProcessDao;
 import org.openlca.core.model.FlowType;
@@ -66,14 +66,24 @@ public class SystemExport {
 	}
 
 	private void loadMaps() {
-		ProcessDao pDao = new ProcessDao(config.db);
-		for (ProcessDescriptor pd : pDao.getDescriptors()) {
+		processes.clear();
+		processIDs.clear();
+		flows.clear();
+		DescriptorIndex descriptors = DescriptorIndex.of(config.db);
+		for (Long id : system.processes) {
+			ProcessDescriptor pd = id == null
+					? null
+					: descriptors.getProcess(id);
+			if (pd == null)
+				continue;
 			processes.put(pd.id, pd);
 			processIDs.put(pd.id, processIDs.size());
 		}
-		FlowDao fDao = new FlowDao(config.db);
-		for (FlowDescriptor fd : fDao.getDescriptors()) {
-			flows.put(fd.id, fd);
+		for (ProcessLink link : system.processLinks) {
+			FlowDescriptor fd = descriptors.getFlow(link.flowId);
+			if (fd != null) {
+				flows.put(fd.id, fd);
+			}
 		}
 		Set<Long> exchanges = system.processLinks.stream()
 				.map(link -> link.exchangeId)
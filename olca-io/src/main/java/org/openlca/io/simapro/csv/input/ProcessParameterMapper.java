@@ -49,7 +49,7 @@ class ProcessParameterMapper {
 		for (InputParameterRow row : block.getInputParameters()) {
 			Parameter p = Parameters.create(row, ParameterScope.PROCESS);
 			process.parameters.add(p);
-			scope.bind(p.name, Double.toString(p.value));
+			scope.bind(p.name, p.value);
 		}
 		for (CalculatedParameterRow row : block.getCalculatedParameters()) {
 			Parameter p = Parameters.create(row, ParameterScope.PROCESS);
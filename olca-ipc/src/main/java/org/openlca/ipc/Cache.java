@@ -1,21 +1,279 @@
 package org.openlca.ipc;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * The cache of the IPC server that holds the results and simulators of the
+ * clients. The cache is thread-safe and bounded: the weight of an entry is
+ * its estimated size in memory (see `Entry`) and the least recently used
+ * entries are evicted when the maximum weight is exceeded. Also, entries that
+ * were not accessed for a given idle time are evicted so that results of
+ * clients that never call `dispose` are not kept forever. Evicted and removed
+ * entries are disposed (which frees, for example, native factorizations).
+ * Entries that are still in use by a request (see `lease`) are only disposed
+ * when that request is finished.
+ */
 public class Cache {
 
-	private final HashMap<String, Object> cache = new HashMap<>();
+	/**
+	 * Values in the cache can implement this interface to provide their
+	 * estimated size in memory and to release their resources when they are
+	 * removed from the cache.
+	 */
+	public interface Entry {
+
+		/**
+		 * The estimated number of bytes of this entry. Note that this is
+		 * only evaluated when the entry is added to the cache.
+		 */
+		long estimatedBytes();
+
+		/** Releases the resources of this entry. */
+		void dispose();
+	}
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final long maxBytes;
+	private final long idleMinutes;
+	private final com.google.common.cache.Cache<String, Object> cache;
+	private final Timer cleaner;
+
+	/** The entries that are in use and the number of their users. */
+	private final Map<Object, Integer> usages = new IdentityHashMap<>();
+
+	/** Entries that were removed from the cache while they were in use. */
+	private final Set<Object> removed = Collections
+			.newSetFromMap(new IdentityHashMap<>());
+
+	/** The lease of the current thread, if any. */
+	private static final ThreadLocal<Lease> LEASE = new ThreadLocal<>();
+
+	/**
+	 * Creates a cache with a maximum size of half of the maximum heap size and
+	 * an idle time of 30 minutes.
+	 */
+	public Cache() {
+		this(Runtime.getRuntime().maxMemory() / 2, 30);
+	}
+
+	public Cache(long maxBytes, long idleMinutes) {
+		this.maxBytes = maxBytes;
+		this.idleMinutes = idleMinutes;
+		// weights are in KB as they are integers; with a single segment the
+		// maximum weight is not split so that also large results fit in
+		cache = CacheBuilder.newBuilder()
+				.concurrencyLevel(1)
+				.maximumWeight(Math.max(1, maxBytes / 1024))
+				.weigher((String id, Object obj) -> weight(obj))
+				.expireAfterAccess(idleMinutes, TimeUnit.MINUTES)
+				.removalListener(this::onRemoval)
+				.recordStats()
+				.build();
+
+		// expired entries are otherwise only removed on cache access
+		cleaner = new Timer("ipc-cache-cleaner", true);
+		cleaner.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				cache.cleanUp();
+			}
+		}, 60_000, 60_000);
+	}
+
+	private static int weight(Object obj) {
+		if (!(obj instanceof Entry))
+			return 1;
+		long kb = ((Entry) obj).estimatedBytes() / 1024;
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, kb));
+	}
+
+	private void onRemoval(RemovalNotification<String, Object> n) {
+		log.info("Remove {} from cache: {}", n.getKey(), n.getCause());
+		Object obj = n.getValue();
+		if (!(obj instanceof Entry))
+			return;
+		synchronized (usages) {
+			if (usages.containsKey(obj)) {
+				// disposed when it is released
+				removed.add(obj);
+				return;
+			}
+		}
+		dispose(obj);
+	}
 
+	private void dispose(Object obj) {
+		try {
+			((Entry) obj).dispose();
+		} catch (Exception e) {
+			log.error("Failed to dispose cache entry " + obj, e);
+		}
+	}
+
+	/**
+	 * Returns the object with the given ID. If there is a lease in the
+	 * current thread, the object is marked as in use until the lease is
+	 * closed.
+	 */
 	public Object get(String id) {
-		return cache.get(id);
+		if (id == null)
+			return null;
+		Lease lease = LEASE.get();
+		if (lease == null)
+			return cache.getIfPresent(id);
+		synchronized (usages) {
+			Object obj = cache.getIfPresent(id);
+			if (obj instanceof Entry) {
+				usages.merge(obj, 1, Integer::sum);
+				lease.add(this, obj);
+			}
+			return obj;
+		}
+	}
+
+	private void release(Object obj) {
+		synchronized (usages) {
+			Integer n = usages.get(obj);
+			if (n == null)
+				return;
+			if (n > 1) {
+				usages.put(obj, n - 1);
+				return;
+			}
+			usages.remove(obj);
+			if (!removed.remove(obj))
+				return;
+		}
+		dispose(obj);
 	}
 
 	public void put(String id, Object obj) {
+		if (id == null || obj == null)
+			return;
+		synchronized (usages) {
+			removed.remove(obj);
+		}
 		cache.put(id, obj);
 	}
 
+	/**
+	 * Removes the object with the given ID from the cache. If it is an `Entry`
+	 * it is disposed (when it is not in use anymore).
+	 */
 	public Object remove(String id) {
-		return cache.remove(id);
+		if (id == null)
+			return null;
+		Object obj = cache.asMap().remove(id);
+		cache.cleanUp();
+		return obj;
+	}
+
+	/** Removes and disposes all entries and stops the cleanup timer. */
+	public void close() {
+		cleaner.cancel();
+		cache.invalidateAll();
+		cache.cleanUp();
+	}
+
+	/**
+	 * Marks the entries that are requested via `get` in the current thread as
+	 * in use until the returned lease is closed. Entries that are removed from
+	 * a cache while they are in use (e.g. when they are evicted) are disposed
+	 * when they are released. The server opens a lease for each request and
+	 * closes it when the response is written.
+	 */
+	public static Lease lease() {
+		Lease lease = new Lease();
+		LEASE.set(lease);
+		return lease;
+	}
+
+	public static final class Lease implements AutoCloseable {
+
+		private final List<Cache> caches = new ArrayList<>();
+		private final List<Object> entries = new ArrayList<>();
+
+		private Lease() {
+		}
+
+		private synchronized void add(Cache cache, Object entry) {
+			caches.add(cache);
+			entries.add(entry);
+		}
+
+		/**
+		 * Stops marking the requested entries as in use in the current
+		 * thread. The entries that are already marked stay in use until the
+		 * lease is closed, which can be done in another thread.
+		 */
+		public void detach() {
+			if (LEASE.get() == this) {
+				LEASE.remove();
+			}
+		}
+
+		/** Releases the entries of this lease. */
+		@Override
+		public void close() {
+			detach();
+			List<Cache> c;
+			List<Object> e;
+			synchronized (this) {
+				c = new ArrayList<>(caches);
+				e = new ArrayList<>(entries);
+				caches.clear();
+				entries.clear();
+			}
+			for (int i = 0; i < c.size(); i++) {
+				c.get(i).release(e.get(i));
+			}
+		}
+	}
+
+	/** Returns the current statistics of the cache. */
+	public Stats getStats() {
+		cache.cleanUp();
+		Stats stats = new Stats();
+		stats.size = cache.size();
+		long bytes = 0;
+		for (Object obj : cache.asMap().values()) {
+			if (obj instanceof Entry) {
+				bytes += ((Entry) obj).estimatedBytes();
+			}
+		}
+		stats.estimatedBytes = bytes;
+		stats.maxBytes = maxBytes;
+		stats.idleMinutes = idleMinutes;
+		CacheStats s = cache.stats();
+		stats.hitCount = s.hitCount();
+		stats.missCount = s.missCount();
+		stats.evictionCount = s.evictionCount();
+		return stats;
 	}
 
+	public static class Stats {
+		public long size;
+		public long estimatedBytes;
+		public long maxBytes;
+		public long idleMinutes;
+		public long hitCount;
+		public long missCount;
+		public long evictionCount;
+	}
 }
@@ -0,0 +1,217 @@
+package org.openlca.ipc;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs long running tasks (e.g. calculations) of the IPC server in the
+ * background so that the request threads of the server are not blocked. The
+ * tasks are executed in a pool with a fixed number of threads and a bounded
+ * queue; when the queue is full, new tasks are rejected. Thus, the number of
+ * concurrent calculations (and with this the CPU and memory usage) can be
+ * controlled. Clients can poll the state of a job via its ID. The records of
+ * finished jobs are removed after one hour.
+ */
+public class Jobs {
+
+	public enum State {
+		QUEUED, RUNNING, FINISHED, FAILED, CANCELED
+	}
+
+	public static class Job {
+
+		public final String id;
+		public final long submitted;
+		public volatile long started;
+		public volatile long finished;
+		public volatile String error;
+
+		/**
+		 * The state of the job; it is only changed with atomic transitions
+		 * so that e.g. a canceled job cannot be set to finished afterwards.
+		 */
+		private final AtomicReference<State> state = new AtomicReference<>(
+				State.QUEUED);
+		private volatile Future<?> future;
+
+		private Job(String id) {
+			this.id = id;
+			this.submitted = System.currentTimeMillis();
+		}
+
+		public State state() {
+			return state.get();
+		}
+
+		public boolean isDone() {
+			State s = state.get();
+			return s == State.FINISHED
+					|| s == State.FAILED
+					|| s == State.CANCELED;
+		}
+	}
+
+	private static final long RETENTION = TimeUnit.HOURS.toMillis(1);
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+	private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * Creates a job queue that runs at most the given number of jobs in
+	 * parallel and accepts at most `maxQueued` waiting jobs.
+	 */
+	public Jobs(int threads, int maxQueued) {
+		int n = Math.max(1, threads);
+		AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(n, n, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, maxQueued)), r -> {
+					Thread t = new Thread(r,
+							"ipc-job-" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+	}
+
+	/**
+	 * Submits the given task as a new job; the job is passed into the task
+	 * when it is executed. Throws a `RejectedExecutionException` when the
+	 * queue is full.
+	 */
+	public Job submit(Consumer<Job> task) {
+		return submit(job -> {
+			task.accept(job);
+			return null;
+		}, (job, result) -> {
+		});
+	}
+
+	/**
+	 * Submits the given task as a new job. The job and the result of the task
+	 * are passed into the given consumer when the job is finished; this is not
+	 * done when the job was canceled in the meantime. Throws a
+	 * `RejectedExecutionException` when the queue is full.
+	 */
+	public <T> Job submit(Function<Job, T> task,
+			BiConsumer<Job, T> onFinished) {
+		return submit(task, onFinished, (job, result) -> {
+		});
+	}
+
+	/**
+	 * Like `submit(task, onFinished)` but the result of a job that was
+	 * canceled while it was running is passed into `onDiscarded` so that its
+	 * resources (e.g. native factorizations) can be released.
+	 */
+	public <T> Job submit(Function<Job, T> task,
+			BiConsumer<Job, T> onFinished,
+			BiConsumer<Job, T> onDiscarded) {
+		prune();
+		Job job = new Job(UUID.randomUUID().toString());
+		jobs.put(job.id, job);
+		try {
+			job.future = executor.submit(
+					() -> run(job, task, onFinished, onDiscarded));
+		} catch (RejectedExecutionException e) {
+			jobs.remove(job.id);
+			throw e;
+		}
+		return job;
+	}
+
+	private <T> void run(Job job, Function<Job, T> task,
+			BiConsumer<Job, T> onFinished, BiConsumer<Job, T> onDiscarded) {
+		if (!job.state.compareAndSet(State.QUEUED, State.RUNNING))
+			return; // canceled
+		job.started = System.currentTimeMillis();
+		try {
+			T result = task.apply(job);
+			if (job.state.compareAndSet(State.RUNNING, State.FINISHED)) {
+				onFinished.accept(job, result);
+			} else {
+				onDiscarded.accept(job, result);
+			}
+		} catch (Throwable e) {
+			log.error("Job " + job.id + " failed", e);
+			job.error = e.getMessage() != null
+					? e.getMessage()
+					: e.getClass().getSimpleName();
+			job.state.compareAndSet(State.RUNNING, State.FAILED);
+		} finally {
+			job.finished = System.currentTimeMillis();
+		}
+	}
+
+	public Job get(String id) {
+		return id == null ? null : jobs.get(id);
+	}
+
+	/**
+	 * Cancels the given job. A queued job is not started anymore; a running
+	 * job is interrupted but whether it stops depends on the task (the
+	 * calculations in the core do not check the interrupt flag). Returns false
+	 * if the job does not exist or is already done.
+	 */
+	public boolean cancel(String id) {
+		Job job = get(id);
+		if (job == null)
+			return false;
+		if (!job.state.compareAndSet(State.QUEUED, State.CANCELED)
+				&& !job.state.compareAndSet(State.RUNNING, State.CANCELED))
+			return false;
+		Future<?> f = job.future;
+		if (f != null) {
+			f.cancel(true);
+		}
+		// free the slot of a canceled job in the queue
+		executor.purge();
+		if (job.started == 0) {
+			job.finished = System.currentTimeMillis();
+		}
+		return true;
+	}
+
+	/** Returns the number of jobs that are currently queued or running. */
+	public int pending() {
+		return executor.getQueue().size() + executor.getActiveCount();
+	}
+
+	/**
+	 * Stops the job queue. Jobs that are still queued or running are canceled
+	 * so that their results are discarded.
+	 */
+	public void close() {
+		for (Job job : jobs.values()) {
+			if (!job.state.compareAndSet(State.QUEUED, State.CANCELED)) {
+				job.state.compareAndSet(State.RUNNING, State.CANCELED);
+			}
+		}
+		executor.shutdownNow();
+	}
+
+	private void prune() {
+		long limit = System.currentTimeMillis() - RETENTION;
+		Iterator<Job> it = jobs.values().iterator();
+		while (it.hasNext()) {
+			Job job = it.next();
+			if (job.isDone() && job.finished > 0 && job.finished < limit) {
+				it.remove();
+			}
+		}
+	}
+}
@@ -16,6 +16,7 @@ public class Main {
 
 	private String db;
 	private String port;
+	private String threads;
 
 	private static Main parseArgs(String[] args) {
 		Main main = new Main();
@@ -36,6 +37,9 @@ public class Main {
 			case "-port":
 				main.port = arg;
 				break;
+			case "-threads":
+				main.threads = arg;
+				break;
 			}
 			flag = null;
 		}
@@ -50,7 +54,7 @@ public class Main {
 		try {
 			IMatrixSolver solver = initSolver();
 			Server server = new Server(port)
-					.withDefaultHandlers(db, solver);
+					.withDefaultHandlers(db, solver, initThreads());
 			server.start();
 			Runtime.getRuntime().addShutdownHook(
 					new Thread(() -> shutdown(server, db)));
@@ -89,6 +93,23 @@ public class Main {
 		return port;
 	}
 
+	/**
+	 * Returns the maximum number of calculations that run in parallel.
+	 */
+	private int initThreads() {
+		int threads = Math.max(1,
+				Runtime.getRuntime().availableProcessors() / 2);
+		if (this.threads != null) {
+			try {
+				threads = Math.max(1, Integer.parseInt(this.threads));
+			} catch (Exception e) {
+				log.error(this.threads + " is not a valid number of threads", e);
+			}
+		}
+		log.info("Run at most {} calculations in parallel", threads);
+		return threads;
+	}
+
 	private IMatrixSolver initSolver() {
 		try {
 //			if (Julia.loadFromDir(new File("."))
@@ -0,0 +1,142 @@
+package org.openlca.ipc;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * A pipe into which a response is written in a separate thread and from which
+ * the chunked HTTP response is read. Thus, the response is not converted into
+ * a string first. When writing the response fails, reading from the pipe
+ * fails too so that the HTTP response is aborted instead of being terminated
+ * like a complete response with a truncated body.
+ */
+class ResponsePipe extends PipedInputStream {
+
+	private final PipedOutputStream out;
+	private final CountDownLatch started = new CountDownLatch(1);
+	private volatile boolean written;
+	private volatile Throwable error;
+
+	ResponsePipe() throws IOException {
+		super(1 << 16);
+		out = new PipedOutputStream(this);
+	}
+
+	/**
+	 * Writes the given response into the pipe and closes it. This is called
+	 * in the writer thread.
+	 */
+	void write(RpcResponse r) {
+		OutputStream sink = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				start();
+				out.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				start();
+				out.write(b, off, len);
+			}
+		};
+		try {
+			JsonWriter w = new JsonWriter(new BufferedWriter(
+					new OutputStreamWriter(sink, StandardCharsets.UTF_8),
+					1 << 16));
+			Gson gson = new Gson();
+			w.beginObject();
+			w.name("jsonrpc").value(r.jsonrpc);
+			w.name("result");
+			if (r.resultWriter != null) {
+				r.resultWriter.write(w);
+			} else {
+				gson.toJson(r.result, w);
+			}
+			if (r.id != null) {
+				w.name("id");
+				gson.toJson(r.id, w);
+			}
+			w.endObject();
+			w.flush();
+		} catch (Throwable e) {
+			Logger log = LoggerFactory.getLogger(getClass());
+			log.error("Failed to write response", e);
+			error = e;
+		} finally {
+			// the error is set before the pipe is closed so that a reader
+			// cannot take the end of the pipe as the end of the response
+			started.countDown();
+			try {
+				out.close();
+			} catch (IOException e) {
+				Logger log = LoggerFactory.getLogger(getClass());
+				log.warn("Failed to close response pipe", e);
+			}
+		}
+	}
+
+	private void start() {
+		if (!written) {
+			written = true;
+			started.countDown();
+		}
+	}
+
+	/**
+	 * Waits until the first bytes are written into the pipe or the writer
+	 * finished. Small responses are thus completely written when this method
+	 * returns. If the writer failed before it wrote something into the pipe,
+	 * the error is returned so that an error response can be sent instead.
+	 */
+	Throwable awaitStart() {
+		try {
+			started.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			try {
+				close(); // stops the writer
+			} catch (IOException _e) {
+			}
+			return e;
+		}
+		return written ? null : error;
+	}
+
+	@Override
+	public synchronized int read() throws IOException {
+		int b = super.read();
+		if (b < 0) {
+			checkError();
+		}
+		return b;
+	}
+
+	@Override
+	public synchronized int read(byte[] b, int off, int len)
+			throws IOException {
+		int n = super.read(b, off, len);
+		if (n < 0) {
+			checkError();
+		}
+		return n;
+	}
+
+	private void checkError() throws IOException {
+		if (error != null)
+			throw new IOException("Failed to write response", error);
+	}
+
+}
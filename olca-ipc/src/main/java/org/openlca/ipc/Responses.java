@@ -36,6 +36,20 @@ public class Responses {
 		return response;
 	}
 
+	/**
+	 * Creates a response where the result is written directly into the
+	 * response stream by the given writer.
+	 */
+	public static RpcResponse ok(RpcResponse.ResultWriter writer,
+			RpcRequest req) {
+		RpcResponse response = new RpcResponse();
+		if (req != null) {
+			response.id = req.id;
+		}
+		response.resultWriter = writer;
+		return response;
+	}
+
 	public static RpcResponse badRequest(String message, RpcRequest req) {
 		return error(400, message, req);
 	}
@@ -1,7 +1,10 @@
 package org.openlca.ipc;
 
+import java.io.IOException;
+
 import com.google.gson.JsonElement;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * When a rpc call is made, the Server MUST reply with a Response, except for in
@@ -24,6 +27,14 @@ public class RpcResponse {
 	 */
 	public JsonElement result;
 
+	/**
+	 * An optional writer of the result. If present, the result is written
+	 * directly into the response stream by this writer instead of creating a
+	 * JSON tree in the `result` field first (which is useful for large
+	 * results). It is not serialized as field.
+	 */
+	public transient ResultWriter resultWriter;
+
 	/**
 	 * This member is REQUIRED on error.
 	 * This member MUST NOT exist if there was no error triggered during invocation.
@@ -39,4 +50,12 @@ public class RpcResponse {
 	 */
 	public JsonPrimitive id;
 
+	@FunctionalInterface
+	public interface ResultWriter {
+
+		/** Writes the result value to the given writer. */
+		void write(JsonWriter writer) throws IOException;
+
+	}
+
 }
@@ -3,6 +3,8 @@ package org.openlca.ipc;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.matrix.solvers.IMatrixSolver;
@@ -28,14 +30,45 @@ public class Server extends NanoHTTPD {
 	private final Logger log = LoggerFactory.getLogger(getClass());
 	private final HashMap<String, Handler> handlers = new HashMap<>();
 
+	/**
+	 * The threads that write the streamed responses (see `stream`). The
+	 * number of threads is bounded; when all threads are busy, further
+	 * streamed responses wait until a thread is free.
+	 */
+	private final ExecutorService writers = Executors.newFixedThreadPool(
+			Math.max(2, Runtime.getRuntime().availableProcessors()),
+			r -> {
+				Thread t = new Thread(r, "ipc-response-writer");
+				t.setDaemon(true);
+				return t;
+			});
+
+	/** The cache and jobs of the default handlers, if registered. */
+	private Cache cache;
+	private Jobs jobs;
+
 	public Server(int port) {
 		super(port);
 	}
 
 	public Server withDefaultHandlers(IDatabase db, IMatrixSolver solver) {
+		int threads = Math.max(1,
+				Runtime.getRuntime().availableProcessors() / 2);
+		return withDefaultHandlers(db, solver, threads);
+	}
+
+	/**
+	 * Registers the default handlers. The given number of threads is the
+	 * maximum number of asynchronous calculations that run in parallel (see
+	 * `Jobs`).
+	 */
+	public Server withDefaultHandlers(IDatabase db, IMatrixSolver solver,
+			int threads) {
 		log.info("Register default handlers");
-		Cache cache = new Cache();
-		HandlerContext context = new HandlerContext(this, db, solver, cache);
+		cache = new Cache();
+		jobs = new Jobs(threads, 100);
+		HandlerContext context = new HandlerContext(
+				this, db, solver, cache, jobs);
 		register(new ModelHandler(context));
 		register(new Calculator(context));
 		register(new InventoryHandler(context));
@@ -57,6 +90,21 @@ public class Server extends NanoHTTPD {
 		}
 	}
 
+	@Override
+	public void stop() {
+		super.stop();
+		// the writers of responses that are still queued need to run, as
+		// their request threads wait for them; writers of closed connections
+		// fail fast as their pipes are closed then
+		writers.shutdown();
+		if (jobs != null) {
+			jobs.close();
+		}
+		if (cache != null) {
+			cache.close();
+		}
+	}
+
 	/**
 	 * Registers the `Rpc` annotated methods of the given handler as request
 	 * handlers.
@@ -101,6 +149,9 @@ public class Server extends NanoHTTPD {
 		String method = session.getMethod().name();
 		if (!"POST".equals(method))
 			return serve(Responses.requestError("Only understands http POST"));
+		// cached results that are used in the request are not disposed
+		// before the response is written
+		Cache.Lease lease = Cache.lease();
 		try {
 			Map<String, String> content = new HashMap<>();
 			session.parseBody(content);
@@ -109,8 +160,10 @@ public class Server extends NanoHTTPD {
 					RpcRequest.class);
 			log.trace("handle request {}/{}", req.id, req.method);
 			RpcResponse resp = getResponse(req);
-			return serve(resp);
+			lease.detach();
+			return serve(resp, lease);
 		} catch (Exception e) {
+			lease.close();
 			return serve(Responses.requestError(e.getMessage()));
 		}
 	}
@@ -126,9 +179,27 @@ public class Server extends NanoHTTPD {
 	}
 
 	private Response serve(RpcResponse r) {
-		String json = new Gson().toJson(r);
-		Response resp = newFixedLengthResponse(
-				Response.Status.OK, "application/json", json);
+		return serve(r, null);
+	}
+
+	/**
+	 * Creates the HTTP response. Only results with a result writer are
+	 * streamed; results that are already a JSON tree are written directly as
+	 * streaming would not save anything for them. The given (optional) lease
+	 * of the cache entries that are used in the response is closed when the
+	 * response is written.
+	 */
+	private Response serve(RpcResponse r, Cache.Lease lease) {
+		Response resp;
+		if (r.error == null && r.resultWriter != null) {
+			resp = stream(r, lease);
+		} else {
+			resp = newFixedLengthResponse(Response.Status.OK,
+					"application/json", new Gson().toJson(r));
+			if (lease != null) {
+				lease.close();
+			}
+		}
 		resp.addHeader("Access-Control-Allow-Origin", "*");
 		resp.addHeader("Access-Control-Allow-Methods", "POST");
 		resp.addHeader("Access-Control-Allow-Headers",
@@ -136,6 +207,48 @@ public class Server extends NanoHTTPD {
 		return resp;
 	}
 
+	/**
+	 * Writes the given response in a separate thread into a pipe from which
+	 * the chunked HTTP response is read (see `ResponsePipe`). If writing the
+	 * response fails before the first bytes are sent, an error response is
+	 * returned instead.
+	 */
+	private Response stream(RpcResponse r, Cache.Lease lease) {
+		ResponsePipe pipe;
+		try {
+			pipe = new ResponsePipe();
+			writers.execute(() -> {
+				try {
+					pipe.write(r);
+				} finally {
+					if (lease != null) {
+						lease.close();
+					}
+				}
+			});
+		} catch (Exception e) {
+			log.error("Failed to start response writer", e);
+			if (lease != null) {
+				lease.close();
+			}
+			return failed(r, e);
+		}
+		Throwable error = pipe.awaitStart();
+		if (error != null)
+			return failed(r, error);
+		return newChunkedResponse(Response.Status.OK, "application/json", pipe);
+	}
+
+	private Response failed(RpcResponse r, Throwable e) {
+		RpcResponse resp = new RpcResponse();
+		resp.id = r.id;
+		resp.error = new RpcError();
+		resp.error.code = 500;
+		resp.error.message = "Failed to write response: " + e.getMessage();
+		return newFixedLengthResponse(Response.Status.OK,
+				"application/json", new Gson().toJson(resp));
+	}
+
 	private class Handler {
 
 		Object instance;
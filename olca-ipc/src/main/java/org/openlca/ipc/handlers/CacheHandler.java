@@ -28,12 +28,27 @@ public class CacheHandler {
 		String id = Json.getString(param, "@id");
 		if (id == null)
 			return Responses.error(400, "No '@id' provided", req);
-		boolean removed = cache.remove(id) != null;
-		if (removed) {
+		// removed entries are disposed by the cache
+		Object removed = cache.remove(id);
+		if (removed != null) {
 			log.info("Removed {} from memory", id);
 			return Responses.ok(req);
 		}
 		return Responses.ok("Did not find something with @id="
 				+ id + "in memory; did nothing", req);
 	}
+
+	@Rpc("get/cache/stats")
+	public RpcResponse getStats(RpcRequest req) {
+		Cache.Stats stats = cache.getStats();
+		JsonObject obj = new JsonObject();
+		obj.addProperty("size", stats.size);
+		obj.addProperty("estimatedBytes", stats.estimatedBytes);
+		obj.addProperty("maxBytes", stats.maxBytes);
+		obj.addProperty("idleMinutes", stats.idleMinutes);
+		obj.addProperty("hitCount", stats.hitCount);
+		obj.addProperty("missCount", stats.missCount);
+		obj.addProperty("evictionCount", stats.evictionCount);
+		return Responses.ok(obj, req);
+	}
 }
@@ -1,8 +1,18 @@
 package org.openlca.ipc.handlers;
 
 import org.openlca.core.math.CalculationSetup;
+import org.openlca.core.math.Simulator;
+import org.openlca.core.matrix.format.CSCMatrix;
+import org.openlca.core.matrix.format.DenseMatrix;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.format.IMatrix;
+import org.openlca.core.results.ContributionResult;
+import org.openlca.core.results.FullResult;
+import org.openlca.core.results.LazyFullResult;
+import org.openlca.core.results.SimpleResult;
+import org.openlca.ipc.Cache;
 
-class CachedResult<T> {
+class CachedResult<T> implements Cache.Entry {
 
 	CalculationSetup setup;
 	T result;
@@ -13,4 +23,72 @@ class CachedResult<T> {
 		r.result = result;
 		return r;
 	}
+
+	@Override
+	public long estimatedBytes() {
+		if (result instanceof SimpleResult)
+			return bytes((SimpleResult) result);
+		if (result instanceof Simulator) {
+			// the matrices of the simulator and the results of the runs; the
+			// latter grow with each run
+			Simulator sim = (Simulator) result;
+			long n = sim.getTechIndex() == null ? 0 : sim.getTechIndex().size();
+			long m = sim.getEnviIndex() == null ? 0 : sim.getEnviIndex().size();
+			return (n * n + n * m) * 8;
+		}
+		return 0;
+	}
+
+	private long bytes(SimpleResult r) {
+		long bytes = bytes(r.scalingVector)
+				+ bytes(r.totalRequirements)
+				+ bytes(r.totalFlowResults)
+				+ bytes(r.totalImpactResults);
+		if (!(r instanceof ContributionResult))
+			return bytes;
+		ContributionResult cr = (ContributionResult) r;
+		bytes += bytes(cr.directFlowResults)
+				+ bytes(cr.directImpactResults)
+				+ bytes(cr.directCostResults)
+				+ bytes(cr.directFlowImpacts)
+				+ bytes(cr.impactFactors);
+		if (!(r instanceof FullResult))
+			return bytes;
+		FullResult fr = (FullResult) r;
+		if (fr instanceof LazyFullResult) {
+			// the upstream matrices are calculated on demand from the
+			// factorization and are cached up to a fixed number of columns
+			return bytes + bytes(fr.techMatrix)
+					+ ((LazyFullResult) fr).estimatedBytes();
+		}
+		return bytes + bytes(fr.techMatrix)
+				+ bytes(fr.upstreamFlowResults)
+				+ bytes(fr.upstreamImpactResults)
+				+ bytes(fr.upstreamCostResults);
+	}
+
+	private long bytes(double[] v) {
+		return v == null ? 0 : v.length * 8L;
+	}
+
+	private long bytes(IMatrix m) {
+		if (m == null)
+			return 0;
+		if (m instanceof CSCMatrix)
+			return ((CSCMatrix) m).values.length * 12L;
+		if (m instanceof HashPointMatrix)
+			return ((HashPointMatrix) m).getNumberOfEntries() * 24L;
+		if (m instanceof DenseMatrix)
+			return ((DenseMatrix) m).data.length * 8L;
+		return (long) m.rows() * m.columns() * 8;
+	}
+
+	@Override
+	public void dispose() {
+		if (result instanceof LazyFullResult) {
+			((LazyFullResult) result).dispose();
+		} else if (result instanceof Simulator) {
+			((Simulator) result).getResult().dispose();
+		}
+	}
 }
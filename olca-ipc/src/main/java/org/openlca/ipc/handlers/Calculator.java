@@ -1,8 +1,8 @@
 package org.openlca.ipc.handlers;
 
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
-import org.openlca.core.database.EntityCache;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.ImpactMethodDao;
 import org.openlca.core.database.NwSetDao;
@@ -17,6 +17,7 @@ import org.openlca.core.model.ParameterRedef;
 import org.openlca.core.model.ProductSystem;
 import org.openlca.core.model.descriptors.BaseDescriptor;
 import org.openlca.core.results.SimpleResult;
+import org.openlca.ipc.Jobs.Job;
 import org.openlca.ipc.Responses;
 import org.openlca.ipc.Rpc;
 import org.openlca.ipc.RpcRequest;
@@ -45,20 +46,18 @@ public class Calculator {
 	 */
 	@Rpc("simulator")
 	public RpcResponse simulator(RpcRequest req) {
-		if (req == null || req.params == null || !req.params.isJsonObject())
-			return Responses.invalidParams("No calculation setup given", req);
-		JsonObject json = req.params.getAsJsonObject();
-		String systemID = Json.getRefId(json, "productSystem");
-		if (systemID == null)
-			return Responses.invalidParams("No product system ID", req);
-		ProductSystem system = new ProductSystemDao(db).getForRefId(systemID);
-		if (system == null)
-			return Responses.invalidParams(
-					"No product system found for @id=" + systemID, req);
-		CalculationSetup setup = buildSetup(json, system);
-		log.info("Create simulator for system {}", systemID);
+		CalculationSetup setup;
+		try {
+			setup = setup(req);
+		} catch (IllegalArgumentException e) {
+			return Responses.invalidParams(e.getMessage(), req);
+		}
+		log.info("Create simulator for system {}",
+				setup.productSystem.refId);
+		// a lazy cache only loads the exchanges of the processes in the
+		// system instead of the exchange store of the whole database
 		Simulator simulator = Simulator.create(setup,
-				MatrixCache.createEager(db), context.solver);
+				MatrixCache.createLazy(db), context.solver);
 		String id = UUID.randomUUID().toString();
 		JsonObject obj = new JsonObject();
 		obj.addProperty("@id", id);
@@ -93,25 +92,147 @@ public class Calculator {
 		if (r == null)
 			return Responses.internalServerError(
 					"Simulation failed", req);
-		JsonObject result = JsonRpc.encode(r, id, EntityCache.create(db));
-		return Responses.ok(result, req);
+		return Responses.ok(JsonRpc.writer(r, id, context.entities), req);
 	}
 
 	@Rpc("calculate")
 	public RpcResponse calculate(RpcRequest req) {
+		CalculationSetup setup;
+		try {
+			setup = setup(req);
+		} catch (IllegalArgumentException e) {
+			return Responses.invalidParams(e.getMessage(), req);
+		}
+		log.info("Calculate product system {}", setup.productSystem.refId);
+		return calculate(req, setup);
+	}
+
+	/**
+	 * Starts the calculation of a product system in the background and returns
+	 * the ID of the calculation job. The parameters are the same as for
+	 * `calculate`. The state of the job can be requested via `job/status` and
+	 * the result via `job/result`; the result has the ID of the job.
+	 */
+	@Rpc("calculate/async")
+	public RpcResponse calculateAsync(RpcRequest req) {
+		CalculationSetup setup;
+		try {
+			setup = setup(req);
+		} catch (IllegalArgumentException e) {
+			return Responses.invalidParams(e.getMessage(), req);
+		}
+		if (!isSupported(setup.type))
+			return Responses.error(501, "Calculation method " + setup.type
+					+ " is not yet implemented", req);
+		try {
+			// the result is only cached when the job was not canceled;
+			// otherwise it is disposed directly
+			Job job = context.jobs.submit(
+					j -> run(setup),
+					(j, r) -> context.cache.put(j.id,
+							CachedResult.of(setup, r)),
+					(j, r) -> CachedResult.of(setup, r).dispose());
+			log.info("Submitted calculation job {} for system {}",
+					job.id, setup.productSystem.refId);
+			return Responses.ok(encode(job), req);
+		} catch (RejectedExecutionException e) {
+			return Responses.error(503,
+					"Too many calculations in queue; try again later", req);
+		}
+	}
+
+	@Rpc("job/status")
+	public RpcResponse jobStatus(RpcRequest req) {
+		Job job = job(req);
+		if (job == null)
+			return Responses.invalidParams("No job with the given @id", req);
+		return Responses.ok(encode(job), req);
+	}
+
+	/**
+	 * Returns the result of a finished calculation job. The result is cached
+	 * with the ID of the job (it can be disposed like other results).
+	 */
+	@Rpc("job/result")
+	public RpcResponse jobResult(RpcRequest req) {
+		Job job = job(req);
+		if (job == null)
+			return Responses.invalidParams("No job with the given @id", req);
+		switch (job.state()) {
+		case FINISHED:
+			Object obj = context.cache.get(job.id);
+			if (!(obj instanceof CachedResult))
+				return Responses.error(404, "The result of job " + job.id
+						+ " is not in memory anymore", req);
+			Object r = ((CachedResult<?>) obj).result;
+			return Responses.ok(JsonRpc.writer((SimpleResult) r, job.id,
+					context.entities), req);
+		case FAILED:
+			return Responses.error(500, "Calculation failed: "
+					+ job.error, req);
+		case CANCELED:
+			return Responses.error(410, "Calculation was canceled", req);
+		default:
+			return Responses.error(409, "Calculation is not finished yet; "
+					+ "state = " + job.state(), req);
+		}
+	}
+
+	@Rpc("job/cancel")
+	public RpcResponse jobCancel(RpcRequest req) {
+		Job job = job(req);
+		if (job == null)
+			return Responses.invalidParams("No job with the given @id", req);
+		if (!context.jobs.cancel(job.id))
+			return Responses.ok("Job " + job.id + " is already done; "
+					+ "did nothing", req);
+		context.cache.remove(job.id);
+		return Responses.ok(encode(job), req);
+	}
+
+	private Job job(RpcRequest req) {
+		if (req == null || req.params == null || !req.params.isJsonObject())
+			return null;
+		String id = Json.getString(req.params.getAsJsonObject(), "@id");
+		return context.jobs.get(id);
+	}
+
+	private JsonObject encode(Job job) {
+		JsonObject obj = new JsonObject();
+		obj.addProperty("@id", job.id);
+		obj.addProperty("@type", "CalculationJob");
+		obj.addProperty("state", job.state().name());
+		long now = System.currentTimeMillis();
+		obj.addProperty("waitingTime", (job.started > 0
+				? job.started
+				: job.isDone() ? job.finished : now) - job.submitted);
+		if (job.started > 0) {
+			obj.addProperty("runningTime",
+					(job.finished > 0 ? job.finished : now) - job.started);
+		}
+		if (job.error != null) {
+			obj.addProperty("error", job.error);
+		}
+		obj.addProperty("pendingJobs", context.jobs.pending());
+		return obj;
+	}
+
+	/**
+	 * Reads the calculation setup from the parameters of the given request.
+	 * Throws an `IllegalArgumentException` if no valid setup is given.
+	 */
+	private CalculationSetup setup(RpcRequest req) {
 		if (req == null || req.params == null || !req.params.isJsonObject())
-			return Responses.invalidParams("No calculation setup given", req);
+			throw new IllegalArgumentException("No calculation setup given");
 		JsonObject json = req.params.getAsJsonObject();
 		String systemID = Json.getRefId(json, "productSystem");
 		if (systemID == null)
-			return Responses.invalidParams("No product system ID", req);
+			throw new IllegalArgumentException("No product system ID");
 		ProductSystem system = new ProductSystemDao(db).getForRefId(systemID);
 		if (system == null)
-			return Responses.invalidParams(
-					"No product system found for @id=" + systemID, req);
-		CalculationSetup setup = buildSetup(json, system);
-		log.info("Calculate product system {}", systemID);
-		return calculate(req, setup);
+			throw new IllegalArgumentException(
+					"No product system found for @id=" + systemID);
+		return buildSetup(json, system);
 	}
 
 	private CalculationSetup buildSetup(JsonObject json, ProductSystem system) {
@@ -133,6 +254,7 @@ public class Calculator {
 			setup.nwSet = new NwSetDao(db).getDescriptorForRefId(nwSetID);
 		}
 		setup.withCosts = Json.getBool(json, "withCosts", false);
+		setup.sparseResults = Json.getBool(json, "sparseResults", false);
 		setup.setAmount(Json.getDouble(json, "amount", system.targetAmount));
 		parameters(json, setup);
 		return setup;
@@ -183,22 +305,7 @@ public class Calculator {
 
 	private RpcResponse calculate(RpcRequest req, CalculationSetup setup) {
 		try {
-			SystemCalculator calc = new SystemCalculator(
-					MatrixCache.createEager(db), context.solver);
-			SimpleResult r = null;
-			switch (setup.type) {
-			case CONTRIBUTION_ANALYSIS:
-				r = calc.calculateContributions(setup);
-				break;
-			case SIMPLE_CALCULATION:
-				r = calc.calculateSimple(setup);
-				break;
-			case UPSTREAM_ANALYSIS:
-				r = calc.calculateFull(setup);
-				break;
-			default:
-				break;
-			}
+			SimpleResult r = run(setup);
 			if (r == null) {
 				return Responses.error(501, "Calculation method " + setup.type
 						+ "is not yet implemented", req);
@@ -206,12 +313,42 @@ public class Calculator {
 			String id = UUID.randomUUID().toString();
 			log.info("encode and cache result {}", id);
 			context.cache.put(id, CachedResult.of(setup, r));
-			JsonObject result = JsonRpc.encode(r, id, EntityCache.create(db));
-			return Responses.ok(result, req);
+			return Responses.ok(
+					JsonRpc.writer(r, id, context.entities), req);
 		} catch (Exception e) {
 			log.error("Calculation failed", e);
 			return Responses.serverError(e, req);
 		}
 	}
 
+	private boolean isSupported(CalculationType type) {
+		return type == CalculationType.CONTRIBUTION_ANALYSIS
+				|| type == CalculationType.SIMPLE_CALCULATION
+				|| type == CalculationType.UPSTREAM_ANALYSIS;
+	}
+
+	/**
+	 * Runs the calculation of the given setup. Returns null if the
+	 * calculation type is not supported.
+	 */
+	private SimpleResult run(CalculationSetup setup) {
+		// the matrices of unchanged product systems are loaded from
+		// snapshots; changes in the database invalidate them
+		SystemCalculator calc = new SystemCalculator(
+				MatrixCache.createLazy(db).withSnapshots(),
+				context.solver);
+		switch (setup.type) {
+		case CONTRIBUTION_ANALYSIS:
+			return calc.calculateContributions(setup);
+		case SIMPLE_CALCULATION:
+			return calc.calculateSimple(setup);
+		case UPSTREAM_ANALYSIS:
+			// the upstream results are calculated on demand so that we
+			// do not need to invert the technology matrix
+			return calc.calculateLazy(setup);
+		default:
+			return null;
+		}
+	}
+
 }
@@ -8,7 +8,6 @@ import java.util.Map;
 import java.util.Set;
 
 import org.openlca.core.database.Daos;
-import org.openlca.core.database.EntityCache;
 import org.openlca.core.math.Simulator;
 import org.openlca.core.model.ModelType;
 import org.openlca.core.results.SimpleResult;
@@ -64,7 +63,7 @@ public class ExportHandler {
 		ResultExport export = new ResultExport(r.setup,
 				(SimpleResult) r.result,
 				new File(path),
-				EntityCache.create(context.db));
+				context.entities);
 		export.run();
 		if (export.doneWithSuccess())
 			return Responses.ok("Exported to " + path, req);
@@ -77,7 +76,7 @@ public class ExportHandler {
 		Simulator simulator = (Simulator) r.result;
 		SimulationResult result = simulator.getResult();
 		SimulationResultExport export = new SimulationResultExport(
-				r.setup, result, EntityCache.create(context.db));
+				r.setup, result, context.entities);
 		try {
 			export.run(new File(path));
 			return Responses.ok("Exported to " + path, req);
@@ -1,8 +1,10 @@
 package org.openlca.ipc.handlers;
 
+import org.openlca.core.database.EntityCache;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.matrix.solvers.IMatrixSolver;
 import org.openlca.ipc.Cache;
+import org.openlca.ipc.Jobs;
 import org.openlca.ipc.Server;
 
 public class HandlerContext {
@@ -11,13 +13,28 @@ public class HandlerContext {
 	public final IDatabase db;
 	public final Cache cache;
 	public final IMatrixSolver solver;
+	public final Jobs jobs;
+
+	/**
+	 * A descriptor and entity cache that is shared between the requests. It
+	 * is invalidated when models are changed via the model handler and its
+	 * size is limited as it lives as long as the server.
+	 */
+	public final EntityCache entities;
 
 	public HandlerContext(Server server, IDatabase db, IMatrixSolver solver,
 			Cache cache) {
+		this(server, db, solver, cache, new Jobs(1, 100));
+	}
+
+	public HandlerContext(Server server, IDatabase db, IMatrixSolver solver,
+			Cache cache, Jobs jobs) {
 		this.server = server;
 		this.db = db;
 		this.solver = solver;
 		this.cache = cache;
+		this.jobs = jobs;
+		this.entities = EntityCache.create(db, 10_000);
 	}
 
 }
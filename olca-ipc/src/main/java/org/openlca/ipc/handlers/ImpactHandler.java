@@ -54,7 +54,8 @@ public class ImpactHandler {
 					return;
 				contributions.add(c);
 			});
-			return JsonRpc.encode(contributions, cache, json -> json.addProperty("unit", impact.referenceUnit));
+			return JsonRpc.encode(utils.page(req, contributions), cache,
+					json -> json.addProperty("unit", impact.referenceUnit));
 		});
 	}
 
@@ -72,7 +73,8 @@ public class ImpactHandler {
 					return;
 				contributions.add(c);
 			});
-			return JsonRpc.encode(contributions, cache, json -> json.addProperty("unit", impact.referenceUnit));
+			return JsonRpc.encode(utils.page(req, contributions), cache,
+					json -> json.addProperty("unit", impact.referenceUnit));
 		});
 	}
 
@@ -82,6 +84,7 @@ public class ImpactHandler {
 			List<ContributionItem<ProcessDescriptor>> contributions = new ArrayList<>();
 			// TODO
 			contributions = utils.filter(contributions, contribution -> contribution.amount != 0);
+			contributions = utils.page(req, contributions);
 			return JsonRpc.encode(contributions, cache, json -> json.addProperty("unit", impact.referenceUnit));
 		});
 	}
@@ -92,6 +95,7 @@ public class ImpactHandler {
 			List<ContributionItem<ProcessDescriptor>> contributions = new ArrayList<>();
 			// TODO
 			contributions = utils.filter(contributions, contribution -> contribution.amount != 0);
+			contributions = utils.page(req, contributions);
 			return JsonRpc.encode(contributions, cache, json -> json.addProperty("unit", impact.referenceUnit));
 		});
 	}
@@ -110,7 +114,7 @@ public class ImpactHandler {
 					return;
 				contributions.put(process.refId, c);
 			});
-			return JsonRpc.encode(contributions.values(), cache,
+			return JsonRpc.encode(utils.page(req, contributions.values()), cache,
 					json -> json.addProperty("unit", impact.referenceUnit));
 		});
 	}
@@ -121,6 +125,7 @@ public class ImpactHandler {
 			List<ContributionItem<ProcessDescriptor>> contributions = new ArrayList<>();
 			// TODO
 			contributions = utils.filter(contributions, contribution -> contribution.amount != 0);
+			contributions = utils.page(req, contributions);
 			return JsonRpc.encode(contributions, cache, json -> json.addProperty("unit", impact.referenceUnit));
 		});
 	}
@@ -132,6 +137,7 @@ public class ImpactHandler {
 			List<ContributionItem<LocationDescriptor>> contributions = utils
 					.toDescriptors(calculator.calculate(impact).contributions);
 			contributions = utils.filter(contributions, contribution -> contribution.amount != 0);
+			contributions = utils.page(req, contributions);
 			return JsonRpc.encode(contributions, cache, json -> json.addProperty("unit", impact.referenceUnit));
 		});
 	}
@@ -56,6 +56,7 @@ public class InventoryHandler {
 					.getProcessContributions(flow).contributions;
 			contributions = utils.filter(contributions, contribution -> contribution.amount != 0);
 			String unit = utils.getUnit(flow, cache);
+			contributions = utils.page(req, contributions);
 			return JsonRpc.encode(contributions, cache, json -> json.addProperty("unit", unit));
 		});
 	}
@@ -68,6 +69,7 @@ public class InventoryHandler {
 					.toDescriptors(calculator.calculate(flow).contributions);
 			contributions = utils.filter(contributions, contribution -> contribution.amount != 0);
 			String unit = utils.getUnit(flow, cache);
+			contributions = utils.page(req, contributions);
 			return JsonRpc.encode(contributions, cache, json -> json.addProperty("unit", unit));
 		});
 	}
@@ -86,6 +88,7 @@ public class InventoryHandler {
 				return contribution.amount != 0;
 			});
 			String unit = utils.getUnit(flow, cache);
+			contributions = utils.page(req, contributions);
 			return JsonRpc.encode(contributions, cache, json -> json.addProperty("unit", unit));
 		});
 	}
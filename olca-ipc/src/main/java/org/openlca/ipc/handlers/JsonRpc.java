@@ -1,6 +1,8 @@
 package org.openlca.ipc.handlers;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -14,8 +16,10 @@ import org.openlca.core.results.ImpactResult;
 import org.openlca.core.results.SimpleResult;
 import org.openlca.core.results.UpstreamNode;
 import org.openlca.core.results.UpstreamTree;
+import org.openlca.ipc.RpcResponse;
 import org.openlca.jsonld.Json;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
@@ -43,6 +47,67 @@ class JsonRpc {
 		return obj;
 	}
 
+	/**
+	 * Returns a writer that writes the given result in the same format as
+	 * `encode` directly into a response stream. The references of the
+	 * descriptors are only created once.
+	 */
+	static RpcResponse.ResultWriter writer(SimpleResult r, String id,
+			EntityCache cache) {
+		return w -> {
+			Gson gson = new Gson();
+			Map<BaseDescriptor, JsonObject> refs = new HashMap<>();
+			Function<BaseDescriptor, JsonObject> ref = d -> refs
+					.computeIfAbsent(d, key -> Json.asRef(key, cache));
+			w.beginObject();
+			w.name("@id").value(id);
+			if (r == null) {
+				w.endObject();
+				return;
+			}
+			w.name("@type").value(r.getClass().getSimpleName());
+			w.name("flows").beginArray();
+			for (BaseDescriptor d : r.getFlows()) {
+				gson.toJson(ref.apply(d), w);
+			}
+			w.endArray();
+			w.name("processes").beginArray();
+			for (BaseDescriptor d : r.getProcesses()) {
+				gson.toJson(ref.apply(d), w);
+			}
+			w.endArray();
+			w.name("flowResults").beginArray();
+			for (FlowResult fr : r.getTotalFlowResults()) {
+				w.beginObject();
+				w.name("@type").value("FlowResult");
+				w.name("flow");
+				gson.toJson(ref.apply(fr.flow), w);
+				w.name("input").value(fr.input);
+				w.name("value").value(fr.value);
+				w.endObject();
+			}
+			w.endArray();
+			if (r.hasImpactResults()) {
+				w.name("impacts").beginArray();
+				for (BaseDescriptor d : r.getImpacts()) {
+					gson.toJson(ref.apply(d), w);
+				}
+				w.endArray();
+				w.name("impactResults").beginArray();
+				for (ImpactResult ir : r.getTotalImpactResults()) {
+					w.beginObject();
+					w.name("@type").value("ImpactResult");
+					w.name("impactCategory");
+					gson.toJson(ref.apply(ir.impactCategory), w);
+					w.name("value").value(ir.value);
+					w.endObject();
+				}
+				w.endArray();
+			}
+			w.endObject();
+		};
+	}
+
 	static JsonObject encode(FlowResult r, EntityCache cache) {
 		if (r == null)
 			return null;
@@ -1,7 +1,6 @@
 package org.openlca.ipc.handlers;
 
 import org.openlca.core.database.Daos;
-import org.openlca.core.database.EntityCache;
 import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.ProcessDao;
 import org.openlca.core.database.ProductSystemDao;
@@ -32,9 +31,11 @@ import com.google.gson.JsonObject;
 
 public class ModelHandler {
 
+	private final HandlerContext context;
 	private final IDatabase db;
 
 	public ModelHandler(HandlerContext context) {
+		this.context = context;
 		this.db = context.db;
 	}
 
@@ -95,9 +96,8 @@ public class ModelHandler {
 					+ " valid @type attribute", req);
 		try {
 			JsonArray array = new JsonArray();
-			EntityCache cache = EntityCache.create(db);
 			Daos.root(db, type).getDescriptors().forEach(d -> {
-				JsonObject obj = Json.asRef(d, cache);
+				JsonObject obj = Json.asRef(d, context.entities);
 				array.add(obj);
 			});
 			return Responses.ok(array, req);
@@ -130,6 +130,7 @@ public class ModelHandler {
 			if (e == null)
 				return Responses.error(404, "Not found", req);
 			dao.delete(e);
+			context.entities.invalidateAll();
 			return Responses.ok(req);
 		} catch (Exception e) {
 			return Responses.serverError(e, req);
@@ -184,6 +185,7 @@ public class ModelHandler {
 			JsonImport imp = new JsonImport(store, db);
 			imp.setUpdateMode(mode);
 			imp.run(d.type, d.refId);
+			context.entities.invalidateAll();
 			return Responses.ok(req);
 		} catch (Exception e) {
 			return Responses.serverError(e, req);
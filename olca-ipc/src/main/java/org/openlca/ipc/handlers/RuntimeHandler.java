@@ -21,6 +21,8 @@ public class RuntimeHandler {
 		log.info("Shutdown server and close database");
 		try {
 			context.server.stop();
+			context.jobs.close();
+			context.cache.close();
 			context.db.close();
 			return Responses.ok(req);
 		} catch (Exception e) {
@@ -1,6 +1,7 @@
 package org.openlca.ipc.handlers;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
@@ -92,7 +93,7 @@ class Utils {
 			return Responses.invalidParams("No parameter given", req);
 		JsonObject json = req.params.getAsJsonObject();
 		SimpleResult result = getResult(json);
-		EntityCache cache = EntityCache.create(ctx.db);
+		EntityCache cache = ctx.entities;
 		return Responses.ok(handler.handle(result, cache), req);
 	}
 
@@ -101,7 +102,7 @@ class Utils {
 			return Responses.invalidParams("No parameter given", req);
 		JsonObject json = req.params.getAsJsonObject();
 		ContributionResult result = getResult(json);
-		EntityCache cache = EntityCache.create(ctx.db);
+		EntityCache cache = ctx.entities;
 		return Responses.ok(handler.handle(result, cache), req);
 	}
 
@@ -113,7 +114,7 @@ class Utils {
 		FlowDescriptor flow = get(result.flowIndex, json, "flow");
 		if (flow == null)
 			return Responses.invalidParams("Missing or invalid flow parameter", req);
-		EntityCache cache = EntityCache.create(ctx.db);
+		EntityCache cache = ctx.entities;
 		return Responses.ok(handler.handle(result, flow, cache), req);
 	}
 
@@ -128,7 +129,7 @@ class Utils {
 		LocationDescriptor location = get(ModelType.LOCATION, json);
 		if (location == null)
 			return Responses.invalidParams("Missing or invalid location parameter", req);
-		EntityCache cache = EntityCache.create(ctx.db);
+		EntityCache cache = ctx.entities;
 		return Responses.ok(handler.handle(result, flow, location, cache), req);
 	}
 
@@ -140,7 +141,7 @@ class Utils {
 		ImpactCategoryDescriptor impact = get(result.impactIndex, json, "impactCategory");
 		if (impact == null)
 			return Responses.invalidParams("Missing or invalid impact category parameter", req);
-		EntityCache cache = EntityCache.create(ctx.db);
+		EntityCache cache = ctx.entities;
 		return Responses.ok(handler.handle(result, impact, cache), req);
 	}
 
@@ -155,7 +156,7 @@ class Utils {
 		ProcessDescriptor process = get(ModelType.PROCESS, json, result.techIndex.getProcessIds());
 		if (process == null)
 			return Responses.invalidParams("Missing or invalid process parameter", req);
-		EntityCache cache = EntityCache.create(ctx.db);
+		EntityCache cache = ctx.entities;
 		return Responses.ok(handler.handle(result, impact, process, cache), req);
 	}
 
@@ -170,7 +171,7 @@ class Utils {
 		LocationDescriptor location = get(ModelType.LOCATION, json);
 		if (location == null)
 			return Responses.invalidParams("Missing or invalid location parameter", req);
-		EntityCache cache = EntityCache.create(ctx.db);
+		EntityCache cache = ctx.entities;
 		return Responses.ok(handler.handle(result, impact, location, cache), req);
 	}
 
@@ -188,7 +189,7 @@ class Utils {
 		ProcessDescriptor process = get(ModelType.PROCESS, json, result.techIndex.getProcessIds());
 		if (process == null)
 			return Responses.invalidParams("Missing or invalid process parameter", req);
-		EntityCache cache = EntityCache.create(ctx.db);
+		EntityCache cache = ctx.entities;
 		return Responses.ok(handler.handle(result, impact, location, process, cache), req);
 	}
 
@@ -197,7 +198,7 @@ class Utils {
 			return Responses.invalidParams("No parameter given", req);
 		JsonObject json = req.params.getAsJsonObject();
 		FullResult result = getResult(json);
-		EntityCache cache = EntityCache.create(ctx.db);
+		EntityCache cache = ctx.entities;
 		return Responses.ok(handler.handle(result, cache), req);
 	}
 
@@ -209,7 +210,7 @@ class Utils {
 		FlowDescriptor flow = get(result.flowIndex, json, "flow");
 		if (flow == null)
 			return Responses.invalidParams("Missing or invalid flow parameter", req);
-		EntityCache cache = EntityCache.create(ctx.db);
+		EntityCache cache = ctx.entities;
 		return Responses.ok(handler.handle(result, flow, cache), req);
 	}
 
@@ -221,7 +222,7 @@ class Utils {
 		ProcessDescriptor process = get(ModelType.PROCESS, json, result.techIndex.getProcessIds());
 		if (process == null)
 			return Responses.invalidParams("Missing or invalid process parameter", req);
-		EntityCache cache = EntityCache.create(ctx.db);
+		EntityCache cache = ctx.entities;
 		return Responses.ok(handler.handle(result, process, cache), req);
 	}
 
@@ -233,7 +234,7 @@ class Utils {
 		ImpactCategoryDescriptor impact = get(result.impactIndex, json, "impactCategory");
 		if (impact == null)
 			return Responses.invalidParams("Missing or invalid impact category parameter", req);
-		EntityCache cache = EntityCache.create(ctx.db);
+		EntityCache cache = ctx.entities;
 		return Responses.ok(handler.handle(result, impact, cache), req);
 	}
 
@@ -280,6 +281,39 @@ class Utils {
 		return products;
 	}
 
+	/**
+	 * Applies the optional paging parameters of the given request to the given
+	 * contributions: if `topN` is given, only the `topN` contributions with
+	 * the largest absolute amounts are returned (in descending order); then
+	 * `offset` (default 0) and `limit` (default all) select a page of the
+	 * contributions.
+	 */
+	<T> List<ContributionItem<T>> page(RpcRequest req,
+			Collection<ContributionItem<T>> items) {
+		List<ContributionItem<T>> list = new ArrayList<>(items);
+		if (req == null || req.params == null || !req.params.isJsonObject())
+			return list;
+		JsonObject json = req.params.getAsJsonObject();
+		int topN = Json.getInt(json, "topN", -1);
+		if (topN >= 0) {
+			list.sort((c1, c2) -> Double.compare(
+					Math.abs(c2.amount), Math.abs(c1.amount)));
+			if (topN < list.size()) {
+				list = new ArrayList<>(list.subList(0, topN));
+			}
+		}
+		int offset = Math.max(0, Json.getInt(json, "offset", 0));
+		int limit = Json.getInt(json, "limit", -1);
+		if (offset == 0 && (limit < 0 || limit >= list.size()))
+			return list;
+		if (offset >= list.size())
+			return new ArrayList<>();
+		int end = limit < 0
+				? list.size()
+				: (int) Math.min(list.size(), (long) offset + limit);
+		return new ArrayList<>(list.subList(offset, end));
+	}
+
 	<T> List<T> filter(List<T> list, Function<T, Boolean> predicate) {
 		List<T> filtered = new ArrayList<>();
 		for (T element : list) {
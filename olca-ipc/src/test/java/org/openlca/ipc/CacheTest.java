@@ -0,0 +1,91 @@
+package org.openlca.ipc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CacheTest {
+
+	@Test
+	public void testDisposeOnRemove() {
+		Cache cache = new Cache();
+		AtomicInteger disposed = new AtomicInteger();
+		cache.put("a", entry(1024, disposed));
+		Assert.assertNotNull(cache.get("a"));
+		Assert.assertNotNull(cache.remove("a"));
+		Assert.assertNull(cache.get("a"));
+		Assert.assertEquals(1, disposed.get());
+		cache.close();
+	}
+
+	@Test
+	public void testEvictByWeight() {
+		// 1 MB with entries of 400 KB
+		Cache cache = new Cache(1024 * 1024, 30);
+		AtomicInteger disposed = new AtomicInteger();
+		for (int i = 0; i < 10; i++) {
+			cache.put("e" + i, entry(400 * 1024, disposed));
+		}
+		Cache.Stats stats = cache.getStats();
+		Assert.assertTrue(stats.size < 10);
+		Assert.assertTrue(stats.estimatedBytes <= 1024 * 1024);
+		Assert.assertEquals(10 - stats.size, disposed.get());
+		Assert.assertEquals(10 - stats.size, stats.evictionCount);
+		Assert.assertNotNull(cache.get("e9"));
+		Assert.assertEquals(1, cache.getStats().hitCount);
+		cache.close();
+		Assert.assertEquals(10, disposed.get());
+	}
+
+	@Test
+	public void testNoDisposeWhileInUse() {
+		Cache cache = new Cache();
+		AtomicInteger disposed = new AtomicInteger();
+		cache.put("a", entry(1024, disposed));
+		Cache.Lease lease = Cache.lease();
+		Assert.assertNotNull(cache.get("a"));
+		lease.detach();
+		Assert.assertNotNull(cache.remove("a"));
+		Assert.assertEquals(0, disposed.get());
+		lease.close();
+		Assert.assertEquals(1, disposed.get());
+		lease.close(); // released only once
+		Assert.assertEquals(1, disposed.get());
+		cache.close();
+	}
+
+	@Test
+	public void testNoDisposeOfEvictedEntryInUse() {
+		// 1 MB with entries of 400 KB
+		Cache cache = new Cache(1024 * 1024, 30);
+		AtomicInteger disposed = new AtomicInteger();
+		AtomicInteger disposedFirst = new AtomicInteger();
+		cache.put("e0", entry(400 * 1024, disposedFirst));
+		Cache.Lease lease = Cache.lease();
+		Assert.assertNotNull(cache.get("e0"));
+		lease.detach();
+		for (int i = 1; i < 10; i++) {
+			cache.put("e" + i, entry(400 * 1024, disposed));
+		}
+		Assert.assertNull(cache.get("e0"));
+		Assert.assertEquals(0, disposedFirst.get());
+		lease.close();
+		Assert.assertEquals(1, disposedFirst.get());
+		cache.close();
+	}
+
+	private Cache.Entry entry(long bytes, AtomicInteger disposed) {
+		return new Cache.Entry() {
+			@Override
+			public long estimatedBytes() {
+				return bytes;
+			}
+
+			@Override
+			public void dispose() {
+				disposed.incrementAndGet();
+			}
+		};
+	}
+}
@@ -0,0 +1,111 @@
+package org.openlca.ipc;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JobsTest {
+
+	@Test
+	public void testRunAndCancel() throws Exception {
+		Jobs jobs = new Jobs(1, 1);
+		CountDownLatch release = new CountDownLatch(1);
+		Jobs.Job first = jobs.submit(job -> {
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		Jobs.Job second = jobs.submit(job -> {
+			throw new IllegalStateException("never executed");
+		});
+		Assert.assertEquals(Jobs.State.QUEUED, second.state());
+
+		// the queue is full
+		try {
+			jobs.submit(job -> {
+			});
+			Assert.fail("the job should be rejected");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+
+		Assert.assertTrue(jobs.cancel(second.id));
+		Assert.assertEquals(Jobs.State.CANCELED, second.state());
+		release.countDown();
+		for (int i = 0; i < 100 && !first.isDone(); i++) {
+			Thread.sleep(20);
+		}
+		Assert.assertEquals(Jobs.State.FINISHED, first.state());
+		Assert.assertFalse(jobs.cancel(first.id));
+		Assert.assertEquals(Jobs.State.CANCELED, jobs.get(second.id).state());
+		jobs.close();
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		Jobs jobs = new Jobs(2, 10);
+		Jobs.Job job = jobs.submit(j -> {
+			throw new IllegalStateException("failed");
+		});
+		for (int i = 0; i < 100 && !job.isDone(); i++) {
+			Thread.sleep(20);
+		}
+		Assert.assertEquals(Jobs.State.FAILED, job.state());
+		Assert.assertEquals("failed", job.error);
+		jobs.close();
+	}
+
+	@Test
+	public void testError() throws Exception {
+		Jobs jobs = new Jobs(1, 10);
+		Jobs.Job job = jobs.submit(j -> {
+			throw new StackOverflowError();
+		});
+		for (int i = 0; i < 100 && !job.isDone(); i++) {
+			Thread.sleep(20);
+		}
+		Assert.assertEquals(Jobs.State.FAILED, job.state());
+		Assert.assertEquals("StackOverflowError", job.error);
+		Assert.assertTrue(job.finished > 0);
+		jobs.close();
+	}
+
+	@Test
+	public void testNoResultAfterCancel() throws Exception {
+		Jobs jobs = new Jobs(1, 10);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicReference<String> published = new AtomicReference<>();
+		AtomicReference<String> discarded = new AtomicReference<>();
+		Jobs.Job job = jobs.submit(j -> {
+			started.countDown();
+			// a calculation that does not react on interrupts
+			while (release.getCount() > 0) {
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					// ignored
+				}
+			}
+			return "result";
+		}, (j, r) -> published.set(r), (j, r) -> discarded.set(r));
+		Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals(Jobs.State.RUNNING, job.state());
+		Assert.assertTrue(jobs.cancel(job.id));
+		release.countDown();
+		for (int i = 0; i < 100 && job.finished == 0; i++) {
+			Thread.sleep(20);
+		}
+		Thread.sleep(50);
+		Assert.assertEquals(Jobs.State.CANCELED, job.state());
+		Assert.assertNull(published.get());
+		Assert.assertEquals("result", discarded.get());
+		jobs.close();
+	}
+}
@@ -0,0 +1,75 @@
+package org.openlca.ipc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+public class ResponsePipeTest {
+
+	@Test
+	public void testWrite() throws Exception {
+		RpcResponse r = new RpcResponse();
+		r.id = new JsonPrimitive(42);
+		r.resultWriter = w -> w.beginArray().value(1).value(2).endArray();
+		ResponsePipe pipe = start(r);
+		Assert.assertNull(pipe.awaitStart());
+		JsonObject obj = new Gson().fromJson(
+				new String(readAll(pipe), StandardCharsets.UTF_8),
+				JsonObject.class);
+		Assert.assertEquals("2.0", obj.get("jsonrpc").getAsString());
+		Assert.assertEquals(2, obj.get("result").getAsJsonArray().size());
+		Assert.assertEquals(42, obj.get("id").getAsInt());
+	}
+
+	@Test
+	public void testFailBeforeStart() throws Exception {
+		RpcResponse r = new RpcResponse();
+		r.resultWriter = w -> {
+			throw new IOException("no result");
+		};
+		ResponsePipe pipe = start(r);
+		Throwable error = pipe.awaitStart();
+		Assert.assertNotNull(error);
+		Assert.assertEquals("no result", error.getMessage());
+	}
+
+	@Test(expected = IOException.class)
+	public void testFailWhileStreaming() throws Exception {
+		RpcResponse r = new RpcResponse();
+		r.resultWriter = w -> {
+			w.beginArray();
+			for (int i = 0; i < 100_000; i++) {
+				w.value(i);
+			}
+			throw new IOException("failed after the first chunks");
+		};
+		ResponsePipe pipe = start(r);
+		Assert.assertNull(pipe.awaitStart());
+		readAll(pipe);
+	}
+
+	private ResponsePipe start(RpcResponse r) throws IOException {
+		ResponsePipe pipe = new ResponsePipe();
+		Thread writer = new Thread(() -> pipe.write(r));
+		writer.start();
+		return pipe;
+	}
+
+	private byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int n;
+		while ((n = in.read(buffer)) >= 0) {
+			out.write(buffer, 0, n);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,45 @@
+package org.openlca.ipc.handlers;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.core.matrix.format.HashPointMatrix;
+import org.openlca.core.matrix.solvers.SparseSolver;
+import org.openlca.core.results.LazyFullResult;
+import org.openlca.ipc.Cache;
+
+public class CachedResultTest {
+
+	@Test
+	public void testLargeSparseResultStaysCached() {
+		// a dense factorization of this system would take 3.2 GB
+		int n = 20_000;
+		int m = 10;
+		HashPointMatrix techMatrix = new HashPointMatrix(n, n);
+		HashPointMatrix enviMatrix = new HashPointMatrix(m, n);
+		for (int i = 0; i < n; i++) {
+			techMatrix.set(i, i, 1);
+			if (i > 0) {
+				techMatrix.set(i - 1, i, -0.5);
+			}
+			enviMatrix.set(i % m, i, 1);
+		}
+		SparseSolver solver = new SparseSolver();
+		LazyFullResult result = new LazyFullResult(
+				solver, techMatrix, solver.factorize(techMatrix));
+		result.techMatrix = techMatrix;
+		result.upstreamFlowResults = result.upstreamMatrix(
+				new double[n], enviMatrix);
+
+		CachedResult<LazyFullResult> entry = CachedResult.of(null, result);
+		long bytes = entry.estimatedBytes();
+		// the column cache of the upstream flow results: 500 * m doubles
+		// and the row cache: m * n doubles
+		Assert.assertTrue(bytes >= (500L * m + (long) m * n) * 8);
+		Assert.assertTrue(bytes < 64L * 1024 * 1024);
+
+		Cache cache = new Cache(256L * 1024 * 1024, 30);
+		cache.put("r", entry);
+		Assert.assertSame(entry, cache.get("r"));
+		cache.close();
+	}
+}
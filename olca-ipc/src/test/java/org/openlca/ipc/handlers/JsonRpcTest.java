@@ -0,0 +1,87 @@
+package org.openlca.ipc.handlers;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.core.matrix.FlowIndex;
+import org.openlca.core.matrix.ProcessProduct;
+import org.openlca.core.matrix.TechIndex;
+import org.openlca.core.model.FlowType;
+import org.openlca.core.model.descriptors.FlowDescriptor;
+import org.openlca.core.model.descriptors.ProcessDescriptor;
+import org.openlca.core.results.ContributionItem;
+import org.openlca.core.results.SimpleResult;
+import org.openlca.ipc.RpcRequest;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+public class JsonRpcTest {
+
+	@Test
+	public void testWriterSameAsEncode() throws Exception {
+		ProcessDescriptor process = new ProcessDescriptor();
+		process.id = 1;
+		process.refId = "p";
+		process.name = "p";
+		FlowDescriptor product = flow(2, "product", FlowType.PRODUCT_FLOW);
+		FlowDescriptor e1 = flow(3, "e1", FlowType.ELEMENTARY_FLOW);
+		FlowDescriptor e2 = flow(4, "e2", FlowType.ELEMENTARY_FLOW);
+
+		SimpleResult r = new SimpleResult();
+		r.techIndex = new TechIndex(ProcessProduct.of(process, product));
+		r.flowIndex = new FlowIndex();
+		r.flowIndex.putInput(e1);
+		r.flowIndex.putOutput(e2);
+		r.totalFlowResults = new double[] { 1, 2 };
+
+		JsonObject expected = JsonRpc.encode(r, "id", null);
+		StringWriter s = new StringWriter();
+		try (JsonWriter w = new JsonWriter(s)) {
+			JsonRpc.writer(r, "id", null).write(w);
+		}
+		Assert.assertEquals(expected, new JsonParser().parse(s.toString()));
+	}
+
+	@Test
+	public void testPaging() {
+		Utils utils = new Utils(new HandlerContext(null, null, null, null));
+		List<ContributionItem<String>> items = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			ContributionItem<String> item = new ContributionItem<>();
+			item.item = "i" + i;
+			item.amount = i % 2 == 0 ? i : -i;
+			items.add(item);
+		}
+
+		RpcRequest req = new RpcRequest();
+		req.params = new JsonObject();
+		Assert.assertEquals(10, utils.page(req, items).size());
+
+		req.params.getAsJsonObject().addProperty("topN", 3);
+		List<ContributionItem<String>> top = utils.page(req, items);
+		Assert.assertEquals(3, top.size());
+		Assert.assertEquals("i9", top.get(0).item);
+		Assert.assertEquals("i8", top.get(1).item);
+		Assert.assertEquals("i7", top.get(2).item);
+
+		req.params.getAsJsonObject().addProperty("offset", 1);
+		req.params.getAsJsonObject().addProperty("limit", 1);
+		List<ContributionItem<String>> page = utils.page(req, items);
+		Assert.assertEquals(1, page.size());
+		Assert.assertEquals("i8", page.get(0).item);
+	}
+
+	private FlowDescriptor flow(long id, String name, FlowType type) {
+		FlowDescriptor d = new FlowDescriptor();
+		d.id = id;
+		d.refId = name;
+		d.name = name;
+		d.flowType = type;
+		return d;
+	}
+}
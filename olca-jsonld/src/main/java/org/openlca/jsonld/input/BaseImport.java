@@ -30,6 +30,15 @@ abstract class BaseImport<T extends RootEntity> {
 	final T run() {
 		if (refId == null || conf == null)
 			return null;
+		Object lock = conf.lock(modelType, refId);
+		if (lock == null)
+			return doRun();
+		synchronized (lock) {
+			return doRun();
+		}
+	}
+
+	private T doRun() {
 		try {
 			T model = get(refId);
 			JsonObject json = conf.store.get(modelType, refId);
@@ -1,7 +1,12 @@
 package org.openlca.jsonld.input;
 
-import java.util.HashMap;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.Table;
 
 import org.openlca.core.database.ActorDao;
 import org.openlca.core.database.CategoryDao;
@@ -13,6 +18,7 @@ import org.openlca.core.database.IDatabase;
 import org.openlca.core.database.ImpactCategoryDao;
 import org.openlca.core.database.ImpactMethodDao;
 import org.openlca.core.database.LocationDao;
+import org.openlca.core.database.NativeSql;
 import org.openlca.core.database.NwSetDao;
 import org.openlca.core.database.ParameterDao;
 import org.openlca.core.database.ProcessDao;
@@ -41,29 +47,41 @@ import org.openlca.core.model.SocialIndicator;
 import org.openlca.core.model.Source;
 import org.openlca.core.model.Unit;
 import org.openlca.core.model.UnitGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gnu.trove.map.hash.TObjectLongHashMap;
 
 class Db {
 
-	private Map<String, Long> categoryIds = new HashMap<>();
-	private Map<String, Long> unitGroupIds = new HashMap<>();
-	private Map<String, Long> unitIds = new HashMap<>();
-	private Map<String, Long> flowPropertyIds = new HashMap<>();
-	private Map<String, Long> flowIds = new HashMap<>();
-	private Map<String, Long> locationIds = new HashMap<>();
-	private Map<String, Long> dqSystemIds = new HashMap<>();
-	private Map<String, Long> methodIds = new HashMap<>();
-	private Map<String, Long> impactCategoryIds = new HashMap<>();
-	private Map<String, Long> nwSetIds = new HashMap<>();
-	private Map<String, Long> actorIds = new HashMap<>();
-	private Map<String, Long> sourceIds = new HashMap<>();
-	private Map<String, Long> parameterIds = new HashMap<>();
-	private Map<String, Long> processIds = new HashMap<>();
-	private Map<String, Long> indicatorIds = new HashMap<>();
-	private Map<String, Long> currencyIds = new HashMap<>();
-	private Map<String, Long> systemIds = new HashMap<>();
-	private Map<String, Long> projectIds = new HashMap<>();
-	public Map<String, String> categoryRefIdMapping = new HashMap<String, String>();
+	private Map<String, Long> categoryIds = new ConcurrentHashMap<>();
+	private Map<String, Long> unitGroupIds = new ConcurrentHashMap<>();
+	private Map<String, Long> unitIds = new ConcurrentHashMap<>();
+	private Map<String, Long> flowPropertyIds = new ConcurrentHashMap<>();
+	private Map<String, Long> flowIds = new ConcurrentHashMap<>();
+	private Map<String, Long> locationIds = new ConcurrentHashMap<>();
+	private Map<String, Long> dqSystemIds = new ConcurrentHashMap<>();
+	private Map<String, Long> methodIds = new ConcurrentHashMap<>();
+	private Map<String, Long> impactCategoryIds = new ConcurrentHashMap<>();
+	private Map<String, Long> nwSetIds = new ConcurrentHashMap<>();
+	private Map<String, Long> actorIds = new ConcurrentHashMap<>();
+	private Map<String, Long> sourceIds = new ConcurrentHashMap<>();
+	private Map<String, Long> parameterIds = new ConcurrentHashMap<>();
+	private Map<String, Long> processIds = new ConcurrentHashMap<>();
+	private Map<String, Long> indicatorIds = new ConcurrentHashMap<>();
+	private Map<String, Long> currencyIds = new ConcurrentHashMap<>();
+	private Map<String, Long> systemIds = new ConcurrentHashMap<>();
+	private Map<String, Long> projectIds = new ConcurrentHashMap<>();
+	public Map<String, String> categoryRefIdMapping = new ConcurrentHashMap<>();
 
+	/**
+	 * The ref_id => id pairs that were loaded in bulk from the database. These
+	 * maps are only read after they were loaded; new entities are stored in
+	 * the ID caches above.
+	 */
+	private final Map<ModelType, TObjectLongHashMap<String>> preloaded = new ConcurrentHashMap<>();
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
 	private IDatabase db;
 
 	public Db(IDatabase db) {
@@ -74,45 +92,175 @@ class Db {
 		return db;
 	}
 
+	/**
+	 * Loads the reference IDs and IDs of all entities of the given types with
+	 * one query per table so that references can be resolved without a query
+	 * per reference ID. If no types are given, all types are loaded.
+	 */
+	void preload(ModelType... types) {
+		ModelType[] all = types.length > 0 ? types
+				: new ModelType[] { ModelType.CATEGORY, ModelType.DQ_SYSTEM,
+						ModelType.LOCATION, ModelType.ACTOR, ModelType.SOURCE,
+						ModelType.PARAMETER, ModelType.UNIT_GROUP, ModelType.UNIT,
+						ModelType.FLOW_PROPERTY, ModelType.CURRENCY,
+						ModelType.FLOW, ModelType.IMPACT_METHOD,
+						ModelType.IMPACT_CATEGORY, ModelType.NW_SET,
+						ModelType.SOCIAL_INDICATOR, ModelType.PROCESS,
+						ModelType.PRODUCT_SYSTEM, ModelType.PROJECT };
+		for (ModelType type : all) {
+			if (type == null || type.getModelClass() == null)
+				continue;
+			Table table = type.getModelClass().getAnnotation(Table.class);
+			if (table == null)
+				continue;
+			TObjectLongHashMap<String> ids = new TObjectLongHashMap<>();
+			String sql = "select ref_id, id from " + table.name();
+			try {
+				NativeSql.on(db).query(sql, r -> {
+					String refId = r.getString(1);
+					if (refId != null && !ids.containsKey(refId)) {
+						ids.put(refId, r.getLong(2));
+					}
+					return true;
+				});
+				preloaded.put(type, ids);
+			} catch (SQLException e) {
+				log.error("failed to preload IDs of " + type, e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the reference IDs of the given list for which no entity of the
+	 * given type exists in the database. This is done in memory with the
+	 * preloaded IDs; if the IDs of the given type were not loaded yet, this is
+	 * done first.
+	 */
+	List<String> filterNew(ModelType type, List<String> refIds) {
+		if (type == null || refIds == null)
+			return refIds;
+		if (preloaded(type) == null)
+			preload(type);
+		TObjectLongHashMap<String> ids = preloaded(type);
+		if (ids == null)
+			return refIds;
+		Map<String, Long> idCache = idCache(type);
+		List<String> news = new ArrayList<>();
+		for (String refId : refIds) {
+			if (refId == null || ids.containsKey(refId))
+				continue;
+			if (idCache != null && idCache.containsKey(refId))
+				continue;
+			news.add(refId);
+		}
+		return news;
+	}
+
+	private TObjectLongHashMap<String> preloaded(ModelType type) {
+		return preloaded.get(type);
+	}
+
+	/**
+	 * Returns true if all entities of the given type that exist in the
+	 * database are known by the preloaded IDs or the ID cache. This is only
+	 * the case for types that are inserted via `put` in the import; impact
+	 * categories, normalization and weighting sets, units, and (local)
+	 * parameters are also inserted with their owners.
+	 */
+	private boolean isComplete(ModelType type) {
+		switch (type) {
+		case IMPACT_CATEGORY:
+		case NW_SET:
+		case UNIT:
+		case PARAMETER:
+			return false;
+		default:
+			return preloaded(type) != null;
+		}
+	}
+
+	private Map<String, Long> idCache(ModelType type) {
+		switch (type) {
+		case PROJECT:
+			return projectIds;
+		case PRODUCT_SYSTEM:
+			return systemIds;
+		case PROCESS:
+			return processIds;
+		case FLOW:
+			return flowIds;
+		case IMPACT_METHOD:
+			return methodIds;
+		case IMPACT_CATEGORY:
+			return impactCategoryIds;
+		case NW_SET:
+			return nwSetIds;
+		case SOCIAL_INDICATOR:
+			return indicatorIds;
+		case PARAMETER:
+			return parameterIds;
+		case DQ_SYSTEM:
+			return dqSystemIds;
+		case FLOW_PROPERTY:
+			return flowPropertyIds;
+		case UNIT_GROUP:
+			return unitGroupIds;
+		case UNIT:
+			return unitIds;
+		case CURRENCY:
+			return currencyIds;
+		case ACTOR:
+			return actorIds;
+		case SOURCE:
+			return sourceIds;
+		case LOCATION:
+			return locationIds;
+		case CATEGORY:
+			return categoryIds;
+		default:
+			return null;
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	<T extends RootEntity> T get(ModelType modelType, String refId) {
 		switch (modelType) {
 		case PROJECT:
-			return (T) get(new ProjectDao(db), refId, projectIds);
+			return (T) get(modelType, new ProjectDao(db), refId, projectIds);
 		case PRODUCT_SYSTEM:
-			return (T) get(new ProductSystemDao(db), refId, systemIds);
+			return (T) get(modelType, new ProductSystemDao(db), refId, systemIds);
 		case PROCESS:
-			return (T) get(new ProcessDao(db), refId, processIds);
+			return (T) get(modelType, new ProcessDao(db), refId, processIds);
 		case FLOW:
-			return (T) get(new FlowDao(db), refId, flowIds);
+			return (T) get(modelType, new FlowDao(db), refId, flowIds);
 		case IMPACT_METHOD:
-			return (T) get(new ImpactMethodDao(db), refId, methodIds);
+			return (T) get(modelType, new ImpactMethodDao(db), refId, methodIds);
 		case IMPACT_CATEGORY:
-			return (T) get(new ImpactCategoryDao(db), refId, impactCategoryIds);
+			return (T) get(modelType, new ImpactCategoryDao(db), refId, impactCategoryIds);
 		case NW_SET:
-			return (T) get(new NwSetDao(db), refId, nwSetIds);
+			return (T) get(modelType, new NwSetDao(db), refId, nwSetIds);
 		case SOCIAL_INDICATOR:
-			return (T) get(new SocialIndicatorDao(db), refId, indicatorIds);
+			return (T) get(modelType, new SocialIndicatorDao(db), refId, indicatorIds);
 		case PARAMETER:
-			return (T) get(new ParameterDao(db), refId, parameterIds);
+			return (T) get(modelType, new ParameterDao(db), refId, parameterIds);
 		case DQ_SYSTEM:
-			return (T) get(new DQSystemDao(db), refId, dqSystemIds);
+			return (T) get(modelType, new DQSystemDao(db), refId, dqSystemIds);
 		case FLOW_PROPERTY:
-			return (T) get(new FlowPropertyDao(db), refId, flowPropertyIds);
+			return (T) get(modelType, new FlowPropertyDao(db), refId, flowPropertyIds);
 		case UNIT_GROUP:
-			return (T) get(new UnitGroupDao(db), refId, unitGroupIds);
+			return (T) get(modelType, new UnitGroupDao(db), refId, unitGroupIds);
 		case UNIT:
-			return (T) get(new UnitDao(db), refId, unitIds);
+			return (T) get(modelType, new UnitDao(db), refId, unitIds);
 		case CURRENCY:
-			return (T) get(new CurrencyDao(db), refId, currencyIds);
+			return (T) get(modelType, new CurrencyDao(db), refId, currencyIds);
 		case ACTOR:
-			return (T) get(new ActorDao(db), refId, actorIds);
+			return (T) get(modelType, new ActorDao(db), refId, actorIds);
 		case SOURCE:
-			return (T) get(new SourceDao(db), refId, sourceIds);
+			return (T) get(modelType, new SourceDao(db), refId, sourceIds);
 		case LOCATION:
-			return (T) get(new LocationDao(db), refId, locationIds);
+			return (T) get(modelType, new LocationDao(db), refId, locationIds);
 		case CATEGORY:
-			return (T) get(new CategoryDao(db), refId, categoryIds);
+			return (T) get(modelType, new CategoryDao(db), refId, categoryIds);
 		default:
 			throw new RuntimeException(modelType.name() + " not supported");
 		}
@@ -165,8 +313,10 @@ class Db {
 		UnitGroup g = put(new UnitGroupDao(db), unitGroup, unitGroupIds);
 		if (g == null)
 			return null;
-		for (Unit unit : g.units)
-			unitIds.put(unit.refId, unit.id);
+		for (Unit unit : g.units) {
+			if (unit.refId != null)
+				unitIds.put(unit.refId, unit.id);
+		}
 		return g;
 	}
 
@@ -177,7 +327,7 @@ class Db {
 		Category cat = dao.update(category);
 		for (Category child : cat.childCategories) {
 			String refId = child.refId;
-			if (categoryIds.containsKey(refId))
+			if (refId == null || categoryIds.containsKey(refId))
 				continue;
 			categoryIds.put(refId, child.id);
 		}
@@ -188,10 +338,18 @@ class Db {
 		return new UnitGroupDao(db).update(group);
 	}
 
-	private <T extends RootEntity> T get(RootEntityDao<T, ?> dao, String refId, Map<String, Long> idCache) {
+	private <T extends RootEntity> T get(ModelType type, RootEntityDao<T, ?> dao, String refId,
+			Map<String, Long> idCache) {
+		if (refId == null)
+			return null;
 		Long id = idCache.get(refId);
 		if (id != null)
 			return dao.getForId(id);
+		TObjectLongHashMap<String> ids = preloaded(type);
+		if (ids != null && ids.containsKey(refId))
+			return dao.getForId(ids.get(refId));
+		if (isComplete(type))
+			return null;
 		T entity = dao.getForRefId(refId);
 		if (entity == null)
 			return null;
@@ -208,7 +366,8 @@ class Db {
 			dao.detach(dao.getForId(entity.id));
 			entity = dao.update(entity);
 		}
-		idCache.put(entity.refId, entity.id);
+		if (entity.refId != null)
+			idCache.put(entity.refId, entity.id);
 		return entity;
 	}
 }
@@ -1,9 +1,10 @@
 package org.openlca.jsonld.input;
 
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 import org.openlca.core.model.ModelType;
@@ -19,9 +20,11 @@ class ImportConfig {
 	final UpdateMode updateMode;
 	final Logger log = LoggerFactory.getLogger(getClass());
 	// processRefId => exchangeIinternalId => providerRefId
-	final Map<String, Map<Integer, String>> providerInfo = new HashMap<>();
-	private final Map<ModelType, Set<String>> visited = new HashMap<>();
+	final Map<String, Map<Integer, String>> providerInfo = new ConcurrentHashMap<>();
+	private final Map<ModelType, Set<String>> visited = new ConcurrentHashMap<>();
 	private final Consumer<RootEntity> callback;
+	// type/refId => lock; only used in parallel imports
+	private Map<String, Object> locks;
 	
 	private ImportConfig(Db db, EntityStore store, UpdateMode updateMode, Consumer<RootEntity> callback) {
 		this.db = db;
@@ -34,25 +37,59 @@ class ImportConfig {
 		return new ImportConfig(db, store, updateMode, callback);
 	}
 
+	/**
+	 * Returns the IDs of the entities of the given type in the store that
+	 * should be imported. When existing entities are never updated, the IDs of
+	 * the entities that are already in the database are filtered out with a
+	 * bulk check. Categories are not filtered as their IDs may be mapped.
+	 */
+	List<String> refIds(ModelType type) {
+		List<String> ids = store.getRefIds(type);
+		if (updateMode != UpdateMode.NEVER || type == ModelType.CATEGORY)
+			return ids;
+		return db.filterNew(type, ids);
+	}
+
+	/**
+	 * Enables the locking of entities so that an entity is not imported by
+	 * multiple threads at the same time.
+	 */
+	void enableLocks() {
+		if (locks == null) {
+			locks = new ConcurrentHashMap<>();
+		}
+	}
+
+	/**
+	 * Returns the lock of the entity with the given type and ID or null when
+	 * locks are not enabled.
+	 */
+	Object lock(ModelType type, String refId) {
+		if (locks == null || type == null || refId == null)
+			return null;
+		return locks.computeIfAbsent(type.name() + "/" + refId, k -> new Object());
+	}
+
 	void visited(ModelType type, String refId) {
-		Set<String> set = visited.get(type);
-		if (set == null)
-			visited.put(type, set = new HashSet<>());
-		set.add(refId);
+		visited.computeIfAbsent(type, t -> ConcurrentHashMap.newKeySet())
+				.add(refId);
 	}
 	
 	void putProviderInfo(String processRefId, int exchangeInternalId, String providerRefId) {
-		Map<Integer, String > info = providerInfo.get(processRefId);
-		if (info == null) {
-			providerInfo.put(processRefId, info = new HashMap<>());
+		Map<Integer, String> info = providerInfo.computeIfAbsent(
+				processRefId, id -> new HashMap<>());
+		synchronized (info) {
+			info.put(exchangeInternalId, providerRefId);
 		}
-		info.put(exchangeInternalId, providerRefId);
 	}
 	
 	void imported(RootEntity entity) {
 		if (callback == null)
 			return;
-		callback.accept(entity);
+		// the callback is maybe not thread-safe
+		synchronized (callback) {
+			callback.accept(entity);
+		}
 	}
 
 	boolean hasVisited(ModelType type, String refId) {
@@ -0,0 +1,132 @@
+package org.openlca.jsonld.input;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openlca.core.model.ModelType;
+import org.openlca.jsonld.EntityStore;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * The reference graph of the entities of the given types in an entity store
+ * that should be imported (see `ImportConfig.refIds`).
+ * The entities are grouped into levels so that an entity only references
+ * entities of lower levels. Thus, the entities of a level can be imported in
+ * parallel when the levels are imported in order. References to entities of
+ * other types or that are not in the store are ignored as well as references
+ * to default providers (these are set after the import).
+ */
+class ImportGraph {
+
+	static class Node {
+		final ModelType type;
+		final String refId;
+		private final Set<Node> deps = new HashSet<>();
+		private int level = -1;
+
+		private Node(ModelType type, String refId) {
+			this.type = type;
+			this.refId = refId;
+		}
+	}
+
+	private final Map<String, Node> nodes = new LinkedHashMap<>();
+	private final Map<String, ModelType> types = new HashMap<>();
+
+	private ImportGraph() {
+	}
+
+	static ImportGraph build(ImportConfig conf, ModelType... types) {
+		EntityStore store = conf.store;
+		ImportGraph g = new ImportGraph();
+		for (ModelType type : types) {
+			g.types.put(type.getModelClass().getSimpleName(), type);
+			for (String refId : conf.refIds(type)) {
+				g.nodes.put(key(type, refId), new Node(type, refId));
+			}
+		}
+		for (Node node : g.nodes.values()) {
+			JsonObject json = store.get(node.type, node.refId);
+			if (json != null) {
+				g.collect(node, json, true);
+			}
+		}
+		return g;
+	}
+
+	private static String key(ModelType type, String refId) {
+		return type.name() + "/" + refId;
+	}
+
+	private void collect(Node node, JsonElement elem, boolean root) {
+		if (elem == null)
+			return;
+		if (elem.isJsonArray()) {
+			for (JsonElement e : elem.getAsJsonArray()) {
+				collect(node, e, false);
+			}
+			return;
+		}
+		if (!elem.isJsonObject())
+			return;
+		JsonObject obj = elem.getAsJsonObject();
+		if (!root) {
+			Node dep = refOf(obj);
+			if (dep != null && dep != node) {
+				node.deps.add(dep);
+			}
+		}
+		for (Map.Entry<String, JsonElement> e : obj.entrySet()) {
+			if (e.getKey().equals("defaultProvider"))
+				continue;
+			collect(node, e.getValue(), false);
+		}
+	}
+
+	private Node refOf(JsonObject obj) {
+		JsonElement type = obj.get("@type");
+		JsonElement id = obj.get("@id");
+		if (type == null || id == null
+				|| !type.isJsonPrimitive() || !id.isJsonPrimitive())
+			return null;
+		ModelType modelType = types.get(type.getAsString());
+		if (modelType == null)
+			return null;
+		return nodes.get(key(modelType, id.getAsString()));
+	}
+
+	/** Returns the entities grouped by their level in ascending order. */
+	List<List<Node>> levels() {
+		List<List<Node>> levels = new ArrayList<>();
+		for (Node node : nodes.values()) {
+			int level = level(node, new HashSet<>());
+			while (levels.size() <= level) {
+				levels.add(new ArrayList<>());
+			}
+			levels.get(level).add(node);
+		}
+		return levels;
+	}
+
+	private int level(Node node, Set<Node> path) {
+		if (node.level >= 0)
+			return node.level;
+		// a cycle is broken at the node where it is detected
+		if (!path.add(node))
+			return -1;
+		int level = 0;
+		for (Node dep : node.deps) {
+			level = Math.max(level, level(dep, path) + 1);
+		}
+		path.remove(node);
+		node.level = level;
+		return level;
+	}
+}
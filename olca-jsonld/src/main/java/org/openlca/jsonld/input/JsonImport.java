@@ -31,6 +31,7 @@ public class JsonImport implements Runnable {
 	private EntityStore store;
 	private UpdateMode updateMode = UpdateMode.NEVER;
 	private Consumer<RootEntity> callback;
+	private int threads = 1;
 
 	public JsonImport(EntityStore store, IDatabase db) {
 		this.store = store;
@@ -45,12 +46,35 @@ public class JsonImport implements Runnable {
 		this.callback = callback;
 	}
 
+	/**
+	 * Sets the number of threads that are used to import the flows, LCIA
+	 * methods, social indicators, and processes. With more than one thread,
+	 * these entities are imported in parallel in the order of their reference
+	 * graph; the other types, which are typically referenced by many entities,
+	 * are always imported sequentially before. Note that the callback is then
+	 * called from different threads (but never concurrently).
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
 	public void run(ModelType type, String id) {
 		checkSchemaSupported();
 		if (type == null || id == null)
 			return;
 		ImportConfig conf = ImportConfig.create(
 				new Db(database), store, updateMode, callback);
+		importOf(type, id, conf);
+		if (type != ModelType.PROCESS)
+			return;
+		try {
+			setProviders(conf);
+		} catch (SQLException e) {
+			log.error("Error setting providers", e);
+		}
+	}
+
+	static void importOf(ModelType type, String id, ImportConfig conf) {
 		switch (type) {
 		case CATEGORY:
 			CategoryImport.run(id, conf);
@@ -93,11 +117,6 @@ public class JsonImport implements Runnable {
 			break;
 		case PROCESS:
 			ProcessImport.run(id, conf);
-			try {
-				setProviders(conf);
-			} catch (SQLException e) {
-				log.error("Error setting providers", e);
-			}
 			break;
 		case PRODUCT_SYSTEM:
 			ProductSystemImport.run(id, conf);
@@ -114,35 +133,42 @@ public class JsonImport implements Runnable {
 	public void run() {
 		checkSchemaSupported();
 		ImportConfig conf = ImportConfig.create(new Db(database), store, updateMode, callback);
-		for (String catId : store.getRefIds(ModelType.CATEGORY))
+		conf.db.preload();
+		for (String catId : conf.refIds(ModelType.CATEGORY))
 			CategoryImport.run(catId, conf);
-		for (String sysId : store.getRefIds(ModelType.DQ_SYSTEM))
+		for (String sysId : conf.refIds(ModelType.DQ_SYSTEM))
 			DQSystemImport.run(sysId, conf);
-		for (String locId : store.getRefIds(ModelType.LOCATION))
+		for (String locId : conf.refIds(ModelType.LOCATION))
 			LocationImport.run(locId, conf);
-		for (String actorId : store.getRefIds(ModelType.ACTOR))
+		for (String actorId : conf.refIds(ModelType.ACTOR))
 			ActorImport.run(actorId, conf);
-		for (String sourceId : store.getRefIds(ModelType.SOURCE))
+		for (String sourceId : conf.refIds(ModelType.SOURCE))
 			SourceImport.run(sourceId, conf);
-		for (String paramId : store.getRefIds(ModelType.PARAMETER))
+		for (String paramId : conf.refIds(ModelType.PARAMETER))
 			ParameterImport.run(paramId, conf);
-		for (String groupId : store.getRefIds(ModelType.UNIT_GROUP))
+		for (String groupId : conf.refIds(ModelType.UNIT_GROUP))
 			UnitGroupImport.run(groupId, conf);
-		for (String propId : store.getRefIds(ModelType.FLOW_PROPERTY))
+		for (String propId : conf.refIds(ModelType.FLOW_PROPERTY))
 			FlowPropertyImport.run(propId, conf);
-		for (String currId : store.getRefIds(ModelType.CURRENCY))
+		for (String currId : conf.refIds(ModelType.CURRENCY))
 			CurrencyImport.run(currId, conf);
-		for (String flowId : store.getRefIds(ModelType.FLOW))
-			FlowImport.run(flowId, conf);
-		for (String methodId : store.getRefIds(ModelType.IMPACT_METHOD))
-			ImpactMethodImport.run(methodId, conf);
-		for (String indicatorId : store.getRefIds(ModelType.SOCIAL_INDICATOR))
-			SocialIndicatorImport.run(indicatorId, conf);
-		for (String processId : store.getRefIds(ModelType.PROCESS))
-			ProcessImport.run(processId, conf);
-		for (String systemId : store.getRefIds(ModelType.PRODUCT_SYSTEM))
+		if (threads > 1) {
+			new ParallelImport(conf, threads).run(ModelType.FLOW,
+					ModelType.IMPACT_METHOD, ModelType.SOCIAL_INDICATOR,
+					ModelType.PROCESS);
+		} else {
+			for (String flowId : conf.refIds(ModelType.FLOW))
+				FlowImport.run(flowId, conf);
+			for (String methodId : conf.refIds(ModelType.IMPACT_METHOD))
+				ImpactMethodImport.run(methodId, conf);
+			for (String indicatorId : conf.refIds(ModelType.SOCIAL_INDICATOR))
+				SocialIndicatorImport.run(indicatorId, conf);
+			for (String processId : conf.refIds(ModelType.PROCESS))
+				ProcessImport.run(processId, conf);
+		}
+		for (String systemId : conf.refIds(ModelType.PRODUCT_SYSTEM))
 			ProductSystemImport.run(systemId, conf);
-		for (String projectId : store.getRefIds(ModelType.PROJECT))
+		for (String projectId : conf.refIds(ModelType.PROJECT))
 			ProjectImport.run(projectId, conf);
 		try {
 			setProviders(conf);
@@ -0,0 +1,85 @@
+package org.openlca.jsonld.input;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openlca.core.model.ModelType;
+import org.openlca.jsonld.input.ImportGraph.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Imports the entities of the given types level by level of their reference
+ * graph (see `ImportGraph`). The entities of a level are split into batches
+ * which are imported concurrently; the next level is started when all batches
+ * of the current level are finished. As in the sequential import, a failed
+ * entity is logged and the import continues with the other entities and
+ * levels.
+ */
+class ParallelImport {
+
+	private static final int BATCH_SIZE = 50;
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+	private final ImportConfig conf;
+	private final int threads;
+
+	ParallelImport(ImportConfig conf, int threads) {
+		this.conf = conf;
+		this.threads = Math.max(1, threads);
+	}
+
+	void run(ModelType... types) {
+		conf.enableLocks();
+		List<List<Node>> levels = ImportGraph.build(conf, types).levels();
+		AtomicInteger count = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "json-import-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			for (int i = 0; i < levels.size(); i++) {
+				List<Node> level = levels.get(i);
+				log.debug("import level {} with {} entities", i, level.size());
+				List<Future<?>> batches = new ArrayList<>();
+				for (int start = 0; start < level.size(); start += BATCH_SIZE) {
+					int end = Math.min(level.size(), start + BATCH_SIZE);
+					List<Node> batch = level.subList(start, end);
+					batches.add(pool.submit(() -> {
+						for (Node node : batch) {
+							importOf(node);
+						}
+					}));
+				}
+				// wait for all batches of the level, also when one failed
+				for (Future<?> batch : batches) {
+					try {
+						batch.get();
+					} catch (ExecutionException e) {
+						log.error("failed to import batch of level " + i,
+								e.getCause());
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.warn("parallel import was interrupted");
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void importOf(Node node) {
+		try {
+			JsonImport.importOf(node.type, node.refId, conf);
+		} catch (Exception e) {
+			log.error("failed to import " + node.type + " " + node.refId, e);
+		}
+	}
+}
@@ -1,9 +1,8 @@
 package org.openlca.jsonld.output;
 
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 import org.openlca.core.database.EntityCache;
@@ -19,7 +18,9 @@ class ExportConfig {
 
 	/**
 	 * An export specific entity cache which is always present when the export
-	 * configuration has a database.
+	 * configuration has a database. In a `ZipExport`, the cache is shared by
+	 * the worker threads; this is safe as the entity cache can be used from
+	 * multiple threads.
 	 */
 	final EntityCache cache;
 
@@ -28,7 +29,7 @@ class ExportConfig {
 	boolean exportReferences = true;
 	boolean exportProviders = false;
 	String clientInfo;
-	private final Map<ModelType, Set<Long>> visited = new HashMap<>();
+	private final Map<ModelType, Set<Long>> visited = new ConcurrentHashMap<>();
 
 	private ExportConfig(IDatabase db, EntityStore store) {
 		this.db = db;
@@ -52,13 +53,24 @@ class ExportConfig {
 		if (entity == null)
 			return;
 		ModelType type = ModelType.forModelClass(entity.getClass());
-		Set<Long> set = visited.get(type);
-		if (set == null)
-			visited.put(type, set = new HashSet<>());
-		set.add(entity.id);
+		visit(type, entity.id);
+	}
+
+	/**
+	 * Marks the entity with the given type and ID as visited. Returns true if
+	 * it was not visited before. This is an atomic operation so that it can
+	 * be used to claim an entity for the export in parallel exports.
+	 */
+	boolean visit(ModelType type, long id) {
+		if (type == null)
+			return false;
+		return visited.computeIfAbsent(type, t -> ConcurrentHashMap.newKeySet())
+				.add(id);
 	}
 
 	boolean hasVisited(ModelType type, long id) {
+		if (type == null)
+			return false;
 		Set<Long> set = visited.get(type);
 		if (set == null)
 			return false;
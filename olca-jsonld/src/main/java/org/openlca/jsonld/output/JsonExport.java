@@ -73,7 +73,7 @@ public class JsonExport {
 			JsonObject obj = writer.write(entity);
 			conf.store.put(type, obj);
 			if (writer.isExportExternalFiles())
-				writeExternalFiles(entity, type, cb);
+				writeExternalFiles(entity, type, conf, cb);
 			if (cb != null)
 				cb.apply(Message.info("data set exported"), entity);
 		} catch (Exception e) {
@@ -88,8 +88,8 @@ public class JsonExport {
 		cb.apply(Message.warn(message), entity);
 	}
 
-	private void writeExternalFiles(RootEntity entity, ModelType type,
-			Callback cb) {
+	static void writeExternalFiles(RootEntity entity, ModelType type,
+			ExportConfig conf, Callback cb) {
 		if (entity == null || conf.db == null
 				|| conf.db.getFileStorageLocation() == null
 				|| conf.store == null)
@@ -100,10 +100,12 @@ public class JsonExport {
 			return;
 		try {
 			Path dbDir = dir.toPath();
-			Copy copy = new Copy(entity.refId, type, dbDir);
+			Copy copy = new Copy(entity.refId, type, dbDir, conf);
 			Files.walkFileTree(dir.toPath(), copy);
 		} catch (Exception e) {
-			cb.apply(Message.error("failed to copy external files", e), entity);
+			if (cb != null)
+				cb.apply(Message.error("failed to copy external files", e),
+						entity);
 		}
 	}
 
@@ -123,7 +125,7 @@ public class JsonExport {
 	}
 
 	@SuppressWarnings("unchecked")
-	private static <T extends RootEntity> Writer<T> getWriter(T entity,
+	static <T extends RootEntity> Writer<T> getWriter(T entity,
 			ExportConfig conf) {
 		if (entity == null)
 			return null;
@@ -178,16 +180,18 @@ public class JsonExport {
 		conf.store.putMetaInfo(obj);
 	}
 
-	private class Copy extends SimpleFileVisitor<Path> {
+	private static class Copy extends SimpleFileVisitor<Path> {
 
 		private String refId;
 		private ModelType type;
 		private Path dbDir;
+		private ExportConfig conf;
 
-		Copy(String refId, ModelType type, Path dbDir) {
+		Copy(String refId, ModelType type, Path dbDir, ExportConfig conf) {
 			this.refId = refId;
 			this.dbDir = dbDir;
 			this.type = type;
+			this.conf = conf;
 		}
 
 		@Override
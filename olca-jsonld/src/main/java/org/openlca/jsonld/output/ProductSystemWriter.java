@@ -1,23 +1,17 @@
 package org.openlca.jsonld.output;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
-import org.openlca.core.database.FlowDao;
+import org.openlca.core.database.DescriptorIndex;
 import org.openlca.core.database.NativeSql;
-import org.openlca.core.database.ProcessDao;
-import org.openlca.core.database.ProductSystemDao;
 import org.openlca.core.model.Exchange;
 import org.openlca.core.model.FlowProperty;
 import org.openlca.core.model.ProcessLink;
 import org.openlca.core.model.ProductSystem;
 import org.openlca.core.model.descriptors.CategorizedDescriptor;
 import org.openlca.core.model.descriptors.FlowDescriptor;
-import org.openlca.core.model.descriptors.ProcessDescriptor;
-import org.openlca.core.model.descriptors.ProductSystemDescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,19 +19,16 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
 import gnu.trove.map.hash.TLongLongHashMap;
-import gnu.trove.map.hash.TLongObjectHashMap;
 
 class ProductSystemWriter extends Writer<ProductSystem> {
 
-	private ProcessDao processDao;
-	private FlowDao flowDao;
+	private DescriptorIndex descriptors;
 	private ProductSystem system;
 
 	ProductSystemWriter(ExportConfig conf) {
 		super(conf);
 		if (conf.db != null) {
-			processDao = new ProcessDao(conf.db);
-			flowDao = new FlowDao(conf.db);
+			descriptors = DescriptorIndex.of(conf.db);
 		}
 	}
 
@@ -109,30 +100,23 @@ class ProductSystemWriter extends Writer<ProductSystem> {
 	}
 
 	private Map<Long, FlowDescriptor> getFlows() {
-		Set<Long> flowIds = new HashSet<>();
-		for (ProcessLink link : system.processLinks) {
-			flowIds.add(link.flowId);
-		}
-		List<FlowDescriptor> flows = flowDao.getDescriptors(flowIds);
 		Map<Long, FlowDescriptor> flowMap = new HashMap<>();
-		for (FlowDescriptor f : flows) {
-			flowMap.put(f.id, f);
+		for (ProcessLink link : system.processLinks) {
+			if (flowMap.containsKey(link.flowId))
+				continue;
+			FlowDescriptor flow = descriptors.getFlow(link.flowId);
+			if (flow != null) {
+				flowMap.put(flow.id, flow);
+			}
 		}
 		return flowMap;
 	}
 
 	private Map<Long, CategorizedDescriptor> mapProcesses(JsonObject json) {
-		TLongObjectHashMap<ProcessDescriptor> processes = processDao
-				.descriptorMap();
-		TLongObjectHashMap<ProductSystemDescriptor> systems = new ProductSystemDao(
-				conf.db).descriptorMap();
 		Map<Long, CategorizedDescriptor> map = new HashMap<>();
 		JsonArray array = new JsonArray();
 		for (Long id : system.processes) {
-			CategorizedDescriptor d = processes.get(id);
-			if (d == null) {
-				d = systems.get(id);
-			}
+			CategorizedDescriptor d = descriptors.getProvider(id);
 			if (d == null)
 				continue;
 			map.put(id, d);
@@ -0,0 +1,402 @@
+package org.openlca.jsonld.output;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.persistence.Table;
+
+import org.openlca.core.database.Daos;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.NativeSql;
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.RootEntity;
+import org.openlca.core.model.descriptors.BaseDescriptor;
+import org.openlca.jsonld.EntityStore;
+import org.openlca.jsonld.ModelPath;
+import org.openlca.jsonld.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+/**
+ * Exports data sets of a database in parallel into a new zip file. The
+ * entities are loaded and converted to JSON on a pool of worker threads with
+ * the same writers as in the `JsonExport`; referenced entities are added to
+ * the pool when they are found. The workers share the export configuration
+ * and its entity cache. A single thread writes the documents into a
+ * `ZipOutputStream` (instead of the zip file system of the `ZipStore` which
+ * buffers all entries). An existing file is overwritten. The result can be
+ * read with the `ZipStore`.
+ */
+public class ZipExport {
+
+	/** The types that are written as separate documents. */
+	private static final ModelType[] TYPES = {
+			ModelType.CATEGORY, ModelType.ACTOR, ModelType.SOURCE,
+			ModelType.CURRENCY, ModelType.LOCATION, ModelType.DQ_SYSTEM,
+			ModelType.UNIT_GROUP, ModelType.FLOW_PROPERTY, ModelType.PARAMETER,
+			ModelType.FLOW, ModelType.SOCIAL_INDICATOR, ModelType.PROCESS,
+			ModelType.IMPACT_CATEGORY, ModelType.NW_SET,
+			ModelType.IMPACT_METHOD, ModelType.PRODUCT_SYSTEM,
+			ModelType.PROJECT };
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+	private final IDatabase db;
+	private final File file;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private boolean exportReferences = true;
+	private boolean exportProviders = false;
+	private String clientInfo;
+
+	public ZipExport(IDatabase db, File file) {
+		this.db = db;
+		this.file = file;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	public void setExportReferences(boolean value) {
+		this.exportReferences = value;
+	}
+
+	public void setExportDefaultProviders(boolean value) {
+		this.exportProviders = value;
+	}
+
+	public void setClientInfo(String value) {
+		this.clientInfo = value;
+	}
+
+	/**
+	 * Exports all data sets of the database. The IDs of the data sets are
+	 * collected with one query per table first so that no references need to
+	 * be followed in the export.
+	 */
+	public void writeAll() throws IOException {
+		List<Seed> seeds = new ArrayList<>();
+		for (ModelType type : TYPES) {
+			Table table = type.getModelClass().getAnnotation(Table.class);
+			String sql = "select id from " + table.name();
+			// local parameters are written with their owners
+			if (type == ModelType.PARAMETER)
+				sql += " where scope = 'GLOBAL'";
+			try {
+				NativeSql.on(db).query(sql, r -> {
+					seeds.add(new Seed(type, r.getLong(1)));
+					return true;
+				});
+			} catch (SQLException e) {
+				throw new IOException("failed to collect IDs of " + type, e);
+			}
+		}
+		run(seeds);
+	}
+
+	/** Exports the data sets of the given descriptors. */
+	public void write(Collection<? extends BaseDescriptor> descriptors)
+			throws IOException {
+		List<Seed> seeds = new ArrayList<>();
+		if (descriptors != null) {
+			for (BaseDescriptor d : descriptors) {
+				if (d == null || d.type == null || d.type == ModelType.UNKNOWN)
+					continue;
+				seeds.add(new Seed(d.type, d.id));
+			}
+		}
+		run(seeds);
+	}
+
+	private void run(List<Seed> seeds) throws IOException {
+		Run run = new Run();
+		run.start();
+		try {
+			for (Seed seed : seeds) {
+				if (run.conf.visit(seed.type, seed.id)) {
+					run.submit(() -> run.export(seed.type, seed.id));
+				}
+			}
+			run.await();
+		} finally {
+			run.finish();
+		}
+	}
+
+	private static class Seed {
+		final ModelType type;
+		final long id;
+
+		Seed(ModelType type, long id) {
+			this.type = type;
+			this.id = id;
+		}
+	}
+
+	/** A document for the zip file. */
+	private static class Doc {
+		final String path;
+		final byte[] data;
+
+		Doc(String path, byte[] data) {
+			this.path = path;
+			this.data = data;
+		}
+	}
+
+	private static final Doc END = new Doc(null, null);
+
+	/** The state of a single export run. */
+	private class Run {
+
+		final ExportConfig conf;
+		final BlockingQueue<Doc> docs = new ArrayBlockingQueue<>(1000);
+		final ExecutorService pool;
+		final AtomicInteger pending = new AtomicInteger();
+		final Object lock = new Object();
+		Thread writer;
+		volatile IOException error;
+
+		Run() {
+			conf = ExportConfig.create(db, new Queue());
+			conf.exportReferences = exportReferences;
+			conf.exportProviders = exportProviders;
+			conf.clientInfo = clientInfo;
+			conf.refFn = ref -> {
+				ModelType type = ModelType.forModelClass(ref.getClass());
+				// the entity is reloaded in the task as it belongs to the
+				// entity manager of the thread that found the reference
+				long id = ref.id;
+				if (conf.visit(type, id)) {
+					submit(() -> export(type, id));
+				}
+			};
+			AtomicInteger count = new AtomicInteger();
+			pool = Executors.newFixedThreadPool(threads, r -> {
+				Thread t = new Thread(r, "zip-export-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+
+		void start() {
+			writer = new Thread(this::write, "zip-export-writer");
+			writer.setDaemon(true);
+			writer.start();
+			conf.store.putContext();
+			if (clientInfo != null) {
+				conf.store.putMetaInfo(new MetaInfoWriter(conf).write());
+			}
+		}
+
+		void submit(Runnable task) {
+			pending.incrementAndGet();
+			pool.execute(() -> {
+				try {
+					task.run();
+				} finally {
+					if (pending.decrementAndGet() == 0) {
+						synchronized (lock) {
+							lock.notifyAll();
+						}
+					}
+				}
+			});
+		}
+
+		void await() throws IOException {
+			synchronized (lock) {
+				while (pending.get() > 0) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IOException("export was interrupted", e);
+					}
+				}
+			}
+		}
+
+		void export(ModelType type, long id) {
+			try {
+				RootEntity entity = Daos.root(db, type).getForId(id);
+				if (entity != null) {
+					export(entity);
+				}
+			} catch (Exception e) {
+				log.error("failed to load " + type + " " + id, e);
+			}
+		}
+
+		void export(RootEntity entity) {
+			ModelType type = ModelType.forModelClass(entity.getClass());
+			if (type == null || entity.refId == null)
+				return;
+			Writer<RootEntity> w = JsonExport.getWriter(entity, conf);
+			if (w == null)
+				return;
+			try {
+				JsonObject obj = w.write(entity);
+				conf.store.put(type, obj);
+				if (w.isExportExternalFiles()) {
+					JsonExport.writeExternalFiles(entity, type, conf, null);
+				}
+			} catch (Exception e) {
+				log.error("failed to export " + type + " " + entity.refId, e);
+			}
+		}
+
+		void write() {
+			Set<String> paths = new HashSet<>();
+			try (ZipOutputStream zip = new ZipOutputStream(
+					new BufferedOutputStream(new FileOutputStream(file)))) {
+				while (true) {
+					Doc doc = docs.take();
+					if (doc == END)
+						break;
+					if (!paths.add(doc.path))
+						continue;
+					zip.putNextEntry(new ZipEntry(doc.path));
+					zip.write(doc.data);
+					zip.closeEntry();
+				}
+			} catch (IOException e) {
+				error = e;
+				drain();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/** Consumes the remaining documents when the writer failed. */
+		private void drain() {
+			try {
+				while (docs.take() != END) {
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		void finish() throws IOException {
+			pool.shutdownNow();
+			try {
+				docs.put(END);
+				writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("export was interrupted", e);
+			}
+			if (error != null)
+				throw error;
+		}
+
+		void put(String path, byte[] data) {
+			if (path == null || data == null)
+				return;
+			try {
+				docs.put(new Doc(path, data));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		void put(String path, JsonObject obj) {
+			if (obj == null)
+				return;
+			String json = new Gson().toJson(obj);
+			put(path, json.getBytes(StandardCharsets.UTF_8));
+		}
+
+		/**
+		 * The entity store of the writers which serializes the documents on
+		 * the calling thread and passes them to the zip writer.
+		 */
+		private class Queue implements EntityStore {
+
+			@Override
+			public void put(ModelType type, JsonObject obj) {
+				if (type == null || obj == null || !obj.has("@id"))
+					return;
+				String refId = obj.get("@id").getAsString();
+				Run.this.put(ModelPath.get(type, refId), obj);
+			}
+
+			@Override
+			public void putBin(ModelType type, String refId, String filename,
+					byte[] data) {
+				String path = ModelPath.getBin(type, refId) + "/" + filename;
+				Run.this.put(path, data);
+			}
+
+			@Override
+			public void put(String path, byte[] data) {
+				Run.this.put(path, data);
+			}
+
+			@Override
+			public void putContext() {
+				Run.this.put("context.json", Context.write(Schema.URI));
+			}
+
+			@Override
+			public void putMetaInfo(JsonObject info) {
+				Run.this.put("meta.info", info);
+			}
+
+			@Override
+			public boolean contains(ModelType type, String refId) {
+				return false;
+			}
+
+			@Override
+			public List<String> getRefIds(ModelType type) {
+				return Collections.emptyList();
+			}
+
+			@Override
+			public JsonObject get(ModelType type, String refId) {
+				return null;
+			}
+
+			@Override
+			public byte[] get(String path) {
+				return null;
+			}
+
+			@Override
+			public JsonObject getContext() {
+				return null;
+			}
+
+			@Override
+			public List<String> getBinFiles(ModelType type, String refId) {
+				return Collections.emptyList();
+			}
+
+			@Override
+			public void close() {
+			}
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package examples;
+
+import java.io.File;
+
+import org.openlca.core.database.Daos;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.derby.DerbyDatabase;
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.RootEntity;
+import org.openlca.core.model.descriptors.BaseDescriptor;
+import org.openlca.jsonld.ZipStore;
+import org.openlca.jsonld.output.JsonExport;
+import org.openlca.jsonld.output.ZipExport;
+
+/**
+ * Compares the export of a complete database with the `JsonExport` into a
+ * `ZipStore` with the parallel `ZipExport`. The path to the database folder
+ * is passed as first argument, e.g.:
+ *
+ * <pre>
+ * ZipExportBenchmark C:/Users/.../openLCA-data-1.4/databases/ei_3_5
+ * </pre>
+ */
+public class ZipExportBenchmark {
+
+	private static final ModelType[] TYPES = {
+			ModelType.PROJECT, ModelType.PRODUCT_SYSTEM,
+			ModelType.IMPACT_METHOD, ModelType.PROCESS, ModelType.FLOW,
+			ModelType.SOCIAL_INDICATOR, ModelType.FLOW_PROPERTY,
+			ModelType.UNIT_GROUP, ModelType.CURRENCY, ModelType.LOCATION,
+			ModelType.ACTOR, ModelType.SOURCE, ModelType.DQ_SYSTEM };
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("no database folder given");
+			return;
+		}
+		IDatabase db = new DerbyDatabase(new File(args[0]));
+		File tmp = new File(System.getProperty("java.io.tmpdir"));
+
+		File seqFile = new File(tmp, "olca_export_sequential.zip");
+		if (seqFile.exists())
+			seqFile.delete();
+		long start = System.currentTimeMillis();
+		try (ZipStore store = ZipStore.open(seqFile)) {
+			JsonExport export = new JsonExport(db, store);
+			for (ModelType type : TYPES) {
+				for (BaseDescriptor d : Daos.root(db, type).getDescriptors()) {
+					RootEntity e = Daos.root(db, type).getForId(d.id);
+					export.write(e);
+				}
+			}
+		}
+		long seqTime = System.currentTimeMillis() - start;
+		System.out.printf("JsonExport + ZipStore: %d ms, %d bytes%n",
+				seqTime, seqFile.length());
+
+		File parFile = new File(tmp, "olca_export_parallel.zip");
+		start = System.currentTimeMillis();
+		new ZipExport(db, parFile).writeAll();
+		long parTime = System.currentTimeMillis() - start;
+		System.out.printf("ZipExport: %d ms, %d bytes%n",
+				parTime, parFile.length());
+		db.close();
+	}
+}
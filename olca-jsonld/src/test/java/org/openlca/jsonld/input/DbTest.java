@@ -0,0 +1,56 @@
+package org.openlca.jsonld.input;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openlca.core.database.ActorDao;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.model.Actor;
+import org.openlca.core.model.ModelType;
+import org.openlca.jsonld.Tests;
+
+public class DbTest {
+
+	private IDatabase db = Tests.getDb();
+
+	@After
+	public void tearDown() {
+		new ActorDao(db).deleteAll();
+	}
+
+	@Test
+	public void testPreload() {
+		Actor actor = new Actor();
+		actor.refId = UUID.randomUUID().toString();
+		actor = new ActorDao(db).insert(actor);
+		Db store = new Db(db);
+		store.preload(ModelType.ACTOR);
+		Actor clone = store.get(ModelType.ACTOR, actor.refId);
+		Assert.assertEquals(actor.id, clone.id);
+		Assert.assertNull(store.get(ModelType.ACTOR,
+				UUID.randomUUID().toString()));
+
+		// entities that are added via `put` are found after the preload
+		Actor next = new Actor();
+		next.refId = UUID.randomUUID().toString();
+		next = store.put(next);
+		Assert.assertEquals(next.id,
+				store.<Actor> get(ModelType.ACTOR, next.refId).id);
+	}
+
+	@Test
+	public void testFilterNew() {
+		Actor actor = new Actor();
+		actor.refId = UUID.randomUUID().toString();
+		new ActorDao(db).insert(actor);
+		String newId = UUID.randomUUID().toString();
+		List<String> news = new Db(db).filterNew(ModelType.ACTOR,
+				Arrays.asList(actor.refId, newId));
+		Assert.assertEquals(1, news.size());
+		Assert.assertEquals(newId, news.get(0));
+	}
+}
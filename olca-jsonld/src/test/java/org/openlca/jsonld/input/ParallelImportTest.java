@@ -0,0 +1,144 @@
+package org.openlca.jsonld.input;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlca.core.database.FlowDao;
+import org.openlca.core.database.FlowPropertyDao;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.ProcessDao;
+import org.openlca.core.database.UnitGroupDao;
+import org.openlca.core.model.Exchange;
+import org.openlca.core.model.Flow;
+import org.openlca.core.model.FlowProperty;
+import org.openlca.core.model.FlowPropertyFactor;
+import org.openlca.core.model.FlowType;
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.Process;
+import org.openlca.core.model.Unit;
+import org.openlca.core.model.UnitGroup;
+import org.openlca.jsonld.MemStore;
+import org.openlca.jsonld.Tests;
+import org.openlca.jsonld.input.ImportGraph.Node;
+import org.openlca.jsonld.output.JsonExport;
+
+/**
+ * Exports a chain of processes where each process uses the product of the
+ * previous process as input, deletes the processes and flows, and imports
+ * them in parallel again.
+ */
+public class ParallelImportTest {
+
+	private static final int SIZE = 120;
+
+	private IDatabase db;
+	private MemStore store;
+	private List<String> processIds = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		db = Tests.getDb();
+		Tests.clearDb();
+		store = new MemStore();
+		UnitGroup group = new UnitGroup();
+		group.refId = UUID.randomUUID().toString();
+		Unit unit = new Unit();
+		unit.refId = UUID.randomUUID().toString();
+		unit.name = "kg";
+		group.units.add(unit);
+		group.referenceUnit = unit;
+		group = new UnitGroupDao(db).insert(group);
+		FlowProperty prop = new FlowProperty();
+		prop.refId = UUID.randomUUID().toString();
+		prop.unitGroup = group;
+		prop = new FlowPropertyDao(db).insert(prop);
+
+		ProcessDao dao = new ProcessDao(db);
+		List<Process> processes = new ArrayList<>();
+		Process provider = null;
+		for (int i = 0; i < SIZE; i++) {
+			Flow product = new Flow();
+			product.refId = UUID.randomUUID().toString();
+			product.name = "product " + i;
+			product.flowType = FlowType.PRODUCT_FLOW;
+			FlowPropertyFactor f = new FlowPropertyFactor();
+			f.flowProperty = prop;
+			product.flowPropertyFactors.add(f);
+			product.referenceFlowProperty = prop;
+			product = new FlowDao(db).insert(product);
+			Process p = new Process();
+			p.refId = UUID.randomUUID().toString();
+			p.name = "process " + i;
+			Exchange out = p.exchange(product);
+			p.quantitativeReference = out;
+			if (provider != null) {
+				Exchange in = p.exchange(provider.quantitativeReference.flow);
+				in.isInput = true;
+				in.defaultProviderId = provider.id;
+			}
+			provider = dao.insert(p);
+			processes.add(provider);
+			processIds.add(provider.refId);
+		}
+
+		JsonExport export = new JsonExport(db, store);
+		export.setExportDefaultProviders(true);
+		for (Process p : processes) {
+			export.write(p);
+		}
+		for (Process p : processes) {
+			dao.delete(p);
+		}
+		new FlowDao(db).deleteAll();
+	}
+
+	@After
+	public void tearDown() {
+		Tests.clearDb();
+	}
+
+	@Test
+	public void testLevels() {
+		ImportConfig conf = ImportConfig.create(
+				new Db(db), store, UpdateMode.NEVER, null);
+		List<List<Node>> levels = ImportGraph.build(conf,
+				ModelType.FLOW, ModelType.PROCESS).levels();
+		Assert.assertEquals(2, levels.size());
+		for (Node node : levels.get(0)) {
+			Assert.assertEquals(ModelType.FLOW, node.type);
+		}
+		for (Node node : levels.get(1)) {
+			Assert.assertEquals(ModelType.PROCESS, node.type);
+		}
+		Assert.assertEquals(SIZE, levels.get(1).size());
+	}
+
+	@Test
+	public void testImport() {
+		JsonImport imp = new JsonImport(store, db);
+		imp.setThreads(4);
+		imp.run();
+		Assert.assertEquals(SIZE, new FlowDao(db).getAll().size());
+		ProcessDao dao = new ProcessDao(db);
+		Assert.assertEquals(SIZE, dao.getAll().size());
+		Process provider = null;
+		for (String refId : processIds) {
+			Process p = dao.getForRefId(refId);
+			Assert.assertNotNull(p);
+			Assert.assertNotNull(p.quantitativeReference.flow);
+			for (Exchange e : p.exchanges) {
+				if (!e.isInput)
+					continue;
+				Assert.assertEquals(provider.id, e.defaultProviderId);
+				Assert.assertEquals(provider.quantitativeReference.flow.id,
+						e.flow.id);
+			}
+			provider = p;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package org.openlca.jsonld.output;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlca.core.database.ActorDao;
+import org.openlca.core.database.FlowDao;
+import org.openlca.core.database.FlowPropertyDao;
+import org.openlca.core.database.IDatabase;
+import org.openlca.core.database.UnitGroupDao;
+import org.openlca.core.model.Actor;
+import org.openlca.core.model.Flow;
+import org.openlca.core.model.FlowProperty;
+import org.openlca.core.model.FlowPropertyFactor;
+import org.openlca.core.model.FlowType;
+import org.openlca.core.model.ModelType;
+import org.openlca.core.model.Unit;
+import org.openlca.core.model.UnitGroup;
+import org.openlca.core.model.descriptors.Descriptors;
+import org.openlca.jsonld.AbstractZipTest;
+import org.openlca.jsonld.Tests;
+
+public class ZipExportTest extends AbstractZipTest {
+
+	private IDatabase db = Tests.getDb();
+	private Flow flow;
+	private Actor actor;
+
+	@Before
+	public void setUpData() {
+		Tests.clearDb();
+		UnitGroup group = new UnitGroup();
+		group.refId = UUID.randomUUID().toString();
+		Unit unit = new Unit();
+		unit.refId = UUID.randomUUID().toString();
+		unit.name = "kg";
+		group.units.add(unit);
+		group.referenceUnit = unit;
+		group = new UnitGroupDao(db).insert(group);
+		FlowProperty prop = new FlowProperty();
+		prop.refId = UUID.randomUUID().toString();
+		prop.unitGroup = group;
+		prop = new FlowPropertyDao(db).insert(prop);
+		flow = new Flow();
+		flow.refId = UUID.randomUUID().toString();
+		flow.flowType = FlowType.ELEMENTARY_FLOW;
+		FlowPropertyFactor f = new FlowPropertyFactor();
+		f.flowProperty = prop;
+		flow.flowPropertyFactors.add(f);
+		flow.referenceFlowProperty = prop;
+		flow = new FlowDao(db).insert(flow);
+		actor = new Actor();
+		actor.refId = UUID.randomUUID().toString();
+		actor = new ActorDao(db).insert(actor);
+	}
+
+	@After
+	public void tearDownData() {
+		Tests.clearDb();
+	}
+
+	@Test
+	public void testReferences() throws Exception {
+		ZipExport export = new ZipExport(db, zipFile);
+		export.setThreads(2);
+		export.write(Collections.singletonList(
+				Descriptors.toDescriptor(flow)));
+		with(zip -> {
+			Assert.assertNotNull(zip.getContext());
+			Assert.assertTrue(zip.contains(ModelType.FLOW, flow.refId));
+			FlowProperty prop = flow.referenceFlowProperty;
+			Assert.assertTrue(zip.contains(ModelType.FLOW_PROPERTY,
+					prop.refId));
+			Assert.assertTrue(zip.contains(ModelType.UNIT_GROUP,
+					prop.unitGroup.refId));
+			Assert.assertFalse(zip.contains(ModelType.ACTOR, actor.refId));
+		});
+	}
+
+	@Test
+	public void testWriteAll() throws Exception {
+		ZipExport export = new ZipExport(db, zipFile);
+		export.writeAll();
+		with(zip -> {
+			Assert.assertTrue(zip.contains(ModelType.FLOW, flow.refId));
+			Assert.assertTrue(zip.contains(ModelType.ACTOR, actor.refId));
+			Assert.assertEquals(1, zip.getRefIds(ModelType.FLOW).size());
+			Assert.assertEquals(1, zip.getRefIds(ModelType.UNIT_GROUP).size());
+		});
+	}
+}